@@ -0,0 +1,149 @@
+package blob;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import domain.Message;
+import domain.MessageType;
+import store.MessageStore;
+import store.MessageStoreFactory;
+
+/**
+ * Verbindet den Nachrichtenverlauf mit dem {@link BlobStore}: Jede gespeicherte
+ * Nachricht vom Typ IMAGE oder FILE mit Blob-Verweis hält eine Referenz auf den Blob,
+ * die beim Löschen der Nachricht (auch durch Aufbewahrungsregeln) wieder freigegeben wird.
+ *
+ * Pro Raum werden nur die Sequenzen der Anhänge gemerkt, damit beim Löschen keine
+ * Nachrichten aus dem darunterliegenden Speicher geladen werden müssen.
+ */
+public class AttachmentStoreFactory implements MessageStoreFactory {
+    private final MessageStoreFactory delegate;     // Eigentliches Speicher-Backend
+    private final BlobStore blobs;                  // Zählt die Referenzen
+    private final Map<String, AttachmentStore> rooms = new HashMap<>();
+
+    /**
+     * Erstellt die Fabrik.
+     *
+     * @param delegate Backend für den Nachrichtenverlauf
+     * @param blobs    Blob-Bereich der Anhänge
+     */
+    public AttachmentStoreFactory(MessageStoreFactory delegate, BlobStore blobs) {
+        this.delegate = Objects.requireNonNull(delegate, "Delegate darf nicht null sein");
+        this.blobs = Objects.requireNonNull(blobs, "Blobs darf nicht null sein");
+    }
+
+    @Override
+    public synchronized MessageStore open(String roomKey) {
+        Objects.requireNonNull(roomKey, "RoomKey darf nicht null sein");
+        return rooms.computeIfAbsent(roomKey, key -> new AttachmentStore(delegate.open(key)));
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    /**
+     * Gibt den Blob-Verweis einer Nachricht zurück, falls sie ein Anhang ist.
+     */
+    private static String blobIdOf(Message message) {
+        MessageType type = message.getType();
+        if ((type != MessageType.IMAGE && type != MessageType.FILE) || !BlobRef.isBlobRef(message.getContent())) {
+            return null;
+        }
+        return BlobRef.parse(message.getContent()).getBlobId();
+    }
+
+    /**
+     * Verlauf eines Raums, der die Blob-Referenzen seiner Anhänge verwaltet.
+     */
+    private final class AttachmentStore implements MessageStore {
+        private final MessageStore store;
+        private final NavigableMap<Long, String> attachments = new TreeMap<>(); // Sequenz -> Blob-ID
+
+        private AttachmentStore(MessageStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public synchronized long append(Message message) {
+            Objects.requireNonNull(message, "Message darf nicht null sein");
+            String blobId = blobIdOf(message);
+            if (blobId == null) return store.append(message);
+
+            blobs.retain(blobId); // Unbekannte Blobs werden vor dem Speichern abgewiesen
+            long seq;
+            try {
+                seq = store.append(message);
+            } catch (RuntimeException e) {
+                blobs.release(blobId);
+                throw e;
+            }
+            attachments.put(seq, blobId);
+            return seq;
+        }
+
+        @Override
+        public Message get(long seq) {
+            return store.get(seq);
+        }
+
+        @Override
+        public boolean contains(long seq) {
+            return store.contains(seq);
+        }
+
+        @Override
+        public long firstSequence() {
+            return store.firstSequence();
+        }
+
+        @Override
+        public long nextSequence() {
+            return store.nextSequence();
+        }
+
+        @Override
+        public long count() {
+            return store.count();
+        }
+
+        @Override
+        public synchronized boolean delete(long seq) {
+            if (!store.delete(seq)) return false;
+            String blobId = attachments.remove(seq);
+            if (blobId != null) blobs.release(blobId);
+            return true;
+        }
+
+        @Override
+        public synchronized long deleteBefore(long seq) {
+            long removed = store.deleteBefore(seq);
+            NavigableMap<Long, String> head = attachments.headMap(seq, false);
+            for (String blobId : head.values()) {
+                blobs.release(blobId);
+            }
+            head.clear();
+            return removed;
+        }
+
+        @Override
+        public List<Message> read(long fromSeq, int limit) {
+            return store.read(fromSeq, limit);
+        }
+
+        @Override
+        public List<Message> view() {
+            return store.view();
+        }
+
+        @Override
+        public void close() {
+            store.close();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package blob;
+
+import store.LruCache;
+
+/**
+ * Zählt Uploads, Deduplizierungstreffer und Plattenbelegung des {@link BlobStore}.
+ * Wird nur unter der Sperre des Stores verändert.
+ */
+final class BlobMetrics {
+    private long uploads;               // Abgeschlossene Uploads
+    private long dedupHits;             // Uploads, deren Inhalt schon vorlag
+    private long uploadedBytes;         // Summe aller hochgeladenen Bytes
+    private long storedBytes;           // Bytes der vorhandenen Blob-Dateien
+    private long collected;             // Von der GC gelöschte Blobs
+    private long collectedBytes;        // Von der GC freigegebene Bytes
+
+    void recordUpload(long size, boolean duplicate) {
+        uploads++;
+        uploadedBytes += size;
+        if (duplicate) dedupHits++;
+    }
+
+    void addStoredBytes(long bytes) {
+        storedBytes += bytes;
+    }
+
+    void recordCollected(long size) {
+        collected++;
+        collectedBytes += size;
+        storedBytes -= size;
+    }
+
+    BlobReport snapshot(int blobCount, long logicalBytes, LruCache<?, ?> cache) {
+        return new BlobReport(uploads, dedupHits, uploadedBytes, blobCount, storedBytes, logicalBytes,
+                collected, collectedBytes, cache.getHits(), cache.getMisses(), cache.getResidentBytes());
+    }
+}
@@ -0,0 +1,33 @@
+package blob;
+
+/**
+ * Binäres Protokoll zwischen {@code server.BlobServer} und {@code client.BlobClient}.
+ *
+ * Jede Anfrage beginnt mit einem Befehlsbyte, danach folgen die Felder im Format von
+ * {@link java.io.DataOutput}. Jede Antwort beginnt mit {@link #OK} oder {@link #ERROR};
+ * auf einen Fehler folgt eine Meldung (UTF) und der Server schließt die Verbindung.
+ * Der Client fragt dann über {@link #OFFSET} den bestätigten Stand ab und setzt fort.
+ *
+ * <pre>
+ * START    name:UTF size:long                     -&gt; uploadId:UTF
+ * OFFSET   uploadId:UTF                           -&gt; offset:long
+ * WRITE    uploadId:UTF offset:long length:long [bytes] -&gt; offset:long
+ * COMPLETE uploadId:UTF                           -&gt; blobRef:UTF
+ * GET      blobId:UTF offset:long                 -&gt; length:long [bytes]
+ * </pre>
+ */
+public final class BlobProtocol {
+    public static final int DEFAULT_PORT = 12346;
+
+    public static final byte START = 'S';
+    public static final byte OFFSET = 'O';
+    public static final byte WRITE = 'W';
+    public static final byte COMPLETE = 'C';
+    public static final byte GET = 'G';
+
+    public static final byte OK = 0;
+    public static final byte ERROR = 1;
+
+    private BlobProtocol() {
+    }
+}
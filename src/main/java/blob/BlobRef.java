@@ -0,0 +1,100 @@
+package blob;
+
+import java.util.Objects;
+
+/**
+ * Verweis auf einen gespeicherten Anhang. Eine Nachricht vom Typ IMAGE oder FILE
+ * trägt nur diesen Verweis als Inhalt, nie die Dateibytes selbst.
+ *
+ * Textform: {@code blob:<id>:<größe>:<dateiname>}
+ */
+public final class BlobRef {
+    private static final String PREFIX = "blob:";
+
+    private final String blobId;        // Eindeutige ID im Blob-Bereich
+    private final long size;            // Größe in Bytes
+    private final String fileName;      // Ursprünglicher Dateiname
+
+    /**
+     * Erstellt einen Verweis.
+     *
+     * @param blobId   ID des Blobs (darf keinen Doppelpunkt enthalten)
+     * @param size     Größe in Bytes
+     * @param fileName Ursprünglicher Dateiname
+     * @throws IllegalArgumentException bei ungültiger ID oder negativer Größe
+     */
+    public BlobRef(String blobId, long size, String fileName) {
+        Objects.requireNonNull(blobId, "BlobId darf nicht null sein");
+        Objects.requireNonNull(fileName, "FileName darf nicht null sein");
+        if (blobId.isEmpty() || blobId.indexOf(':') >= 0 || size < 0) {
+            throw new IllegalArgumentException("Ungültiger Blob-Verweis: " + blobId + " / " + size);
+        }
+        this.blobId = blobId;
+        this.size = size;
+        this.fileName = fileName;
+    }
+
+    /**
+     * Liest einen Verweis aus dem Inhalt einer Nachricht.
+     *
+     * @param content Der Nachrichteninhalt
+     * @return Der Verweis
+     * @throws IllegalArgumentException wenn der Inhalt kein Blob-Verweis ist
+     */
+    public static BlobRef parse(String content) {
+        if (!isBlobRef(content)) {
+            throw new IllegalArgumentException("Kein Blob-Verweis: " + content);
+        }
+        String[] parts = content.substring(PREFIX.length()).split(":", 3);
+        if (parts.length < 3) {
+            throw new IllegalArgumentException("Unvollständiger Blob-Verweis: " + content);
+        }
+        return new BlobRef(parts[0], Long.parseLong(parts[1]), parts[2]);
+    }
+
+    /**
+     * Prüft ob ein Nachrichteninhalt ein Blob-Verweis ist.
+     *
+     * @param content Der Nachrichteninhalt
+     * @return true wenn der Inhalt mit {@code blob:} beginnt
+     */
+    public static boolean isBlobRef(String content) {
+        return content != null && content.startsWith(PREFIX);
+    }
+
+    /**
+     * Gibt die Textform für den Nachrichteninhalt zurück.
+     *
+     * @return Verweis als String
+     */
+    public String toContent() {
+        return PREFIX + blobId + ":" + size + ":" + fileName;
+    }
+
+    /** @return Die ID des Blobs */
+    public String getBlobId() { return blobId; }
+
+    /** @return Die Größe in Bytes */
+    public long getSize() { return size; }
+
+    /** @return Der ursprüngliche Dateiname */
+    public String getFileName() { return fileName; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BlobRef)) return false;
+        BlobRef other = (BlobRef) o;
+        return size == other.size && blobId.equals(other.blobId) && fileName.equals(other.fileName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(blobId, size, fileName);
+    }
+
+    @Override
+    public String toString() {
+        return toContent();
+    }
+}
@@ -0,0 +1,94 @@
+package blob;
+
+/**
+ * Momentaufnahme der Kennzahlen eines {@link BlobStore}.
+ *
+ * Die Deduplizierungsquote setzt die Bytes, die ohne Deduplizierung pro Nachricht
+ * gespeichert wären, ins Verhältnis zu den tatsächlich belegten Bytes.
+ */
+public final class BlobReport {
+    private final long uploads;
+    private final long dedupHits;
+    private final long uploadedBytes;
+    private final int blobCount;
+    private final long storedBytes;
+    private final long logicalBytes;
+    private final long collected;
+    private final long collectedBytes;
+    private final long cacheHits;
+    private final long cacheMisses;
+    private final long cachedBytes;
+
+    BlobReport(long uploads, long dedupHits, long uploadedBytes, int blobCount, long storedBytes,
+            long logicalBytes, long collected, long collectedBytes,
+            long cacheHits, long cacheMisses, long cachedBytes) {
+        this.uploads = uploads;
+        this.dedupHits = dedupHits;
+        this.uploadedBytes = uploadedBytes;
+        this.blobCount = blobCount;
+        this.storedBytes = storedBytes;
+        this.logicalBytes = logicalBytes;
+        this.collected = collected;
+        this.collectedBytes = collectedBytes;
+        this.cacheHits = cacheHits;
+        this.cacheMisses = cacheMisses;
+        this.cachedBytes = cachedBytes;
+    }
+
+    /** @return Anzahl der abgeschlossenen Uploads */
+    public long getUploads() { return uploads; }
+
+    /** @return Uploads, deren Inhalt bereits gespeichert war */
+    public long getDedupHits() { return dedupHits; }
+
+    /** @return Anzahl der vorhandenen Blobs */
+    public int getBlobCount() { return blobCount; }
+
+    /** @return Tatsächlich belegte Bytes auf der Platte */
+    public long getStoredBytes() { return storedBytes; }
+
+    /** @return Bytes, die ohne Deduplizierung für alle Nachrichten belegt wären */
+    public long getLogicalBytes() { return logicalBytes; }
+
+    /** @return Summe aller hochgeladenen Bytes */
+    public long getUploadedBytes() { return uploadedBytes; }
+
+    /** @return Durch Deduplizierung eingesparte Bytes */
+    public long getBytesSaved() { return Math.max(0, getLogicalBytes() - storedBytes); }
+
+    /**
+     * Gibt die Deduplizierungsquote zurück.
+     *
+     * @return Logische durch belegte Bytes (1 wenn nichts gespeichert ist)
+     */
+    public double getDedupRatio() {
+        return storedBytes == 0 ? 1.0 : (double) getLogicalBytes() / storedBytes;
+    }
+
+    /** @return Von der GC gelöschte Blobs */
+    public long getCollected() { return collected; }
+
+    /** @return Von der GC freigegebene Bytes */
+    public long getCollectedBytes() { return collectedBytes; }
+
+    /**
+     * Gibt die Trefferquote des Caches für eingeblendete Blobs zurück.
+     *
+     * @return Trefferquote zwischen 0 und 1 (0 wenn noch nichts abgerufen wurde)
+     */
+    public double getCacheHitRate() {
+        long total = cacheHits + cacheMisses;
+        return total == 0 ? 0 : (double) cacheHits / total;
+    }
+
+    /** @return Bytes der eingeblendeten Blobs */
+    public long getCachedBytes() { return cachedBytes; }
+
+    @Override
+    public String toString() {
+        return String.format("BlobReport{blobs=%d, uploads=%d, dedupHits=%d, stored=%d B, logical=%d B, "
+                + "saved=%d B, ratio=%.2f, collected=%d (%d B), cacheHitRate=%.3f, cached=%d B}",
+                blobCount, uploads, dedupHits, storedBytes, getLogicalBytes(), getBytesSaved(),
+                getDedupRatio(), collected, collectedBytes, getCacheHitRate(), cachedBytes);
+    }
+}
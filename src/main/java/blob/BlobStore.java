@@ -0,0 +1,494 @@
+package blob;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import store.LruCache;
+
+/**
+ * Blob-Bereich des Servers für Anhänge.
+ *
+ * Uploads werden in Blöcken direkt von einem Kanal auf die Platte geschrieben
+ * ({@link FileChannel#transferFrom}) und sind fortsetzbar: Der bestätigte Offset ist die
+ * Größe der {@code .part}-Datei, Name und erwartete Größe liegen in einer {@code .meta}-Datei
+ * und überstehen damit auch einen Neustart. Ausgeliefert wird mit
+ * {@link FileChannel#transferTo}, sodass die Dateibytes nie durch den Heap laufen.
+ *
+ * Fertige Blobs werden über ihren SHA-256-Hash adressiert: Wird derselbe Inhalt erneut
+ * hochgeladen oder weitergeleitet, bleibt er nur einmal auf der Platte. Nachrichten
+ * halten Blobs über {@link #retain}/{@link #release} am Leben; Blobs ohne Referenz
+ * werden nach einer Schonfrist von einem Hintergrund-Thread gelöscht. Kleine, häufig
+ * abgerufene Blobs bleiben in einem LRU-Cache eingeblendet, der außerhalb des Heaps liegt.
+ * Referenzen leben nur für die Laufzeit des Prozesses; Blobs aus früheren Läufen
+ * werden erst verwaltet, wenn ihr Inhalt erneut hochgeladen wird.
+ */
+public class BlobStore implements AutoCloseable {
+    public static final long DEFAULT_MAX_SIZE = 100L * 1024 * 1024;       // 100 MiB pro Anhang
+    public static final long DEFAULT_CACHE_BYTES = 64L * 1024 * 1024;     // Budget für eingeblendete Blobs
+    public static final int MAX_CACHED_BLOB = 1024 * 1024;                // Größere Blobs werden nicht gecacht
+    public static final Duration DEFAULT_GRACE = Duration.ofMinutes(10);  // Schonfrist für unreferenzierte Blobs
+
+    private final Path directory;       // Verzeichnis des Blob-Bereichs
+    private final long maxSize;         // Maximale Größe eines Anhangs
+    private final Clock clock;
+    private final long graceMillis;     // Wie lange ein unreferenzierter Blob erhalten bleibt
+    private final Map<String, Entry> blobs = new HashMap<>();  // Hash -> Referenzzähler und Größe
+    private final Map<String, Completed> completed = new HashMap<>(); // Upload-ID -> fertiger Blob bis zum Abholen
+    private final LruCache<String, MappedByteBuffer> hot;     // Eingeblendete, oft abgerufene Blobs
+    private final BlobMetrics metrics = new BlobMetrics();
+    private ScheduledExecutorService collector;
+
+    /**
+     * Erstellt einen Blob-Bereich mit Standard-Größenlimit.
+     *
+     * @param directory Verzeichnis für Uploads und fertige Blobs
+     */
+    public BlobStore(Path directory) {
+        this(directory, DEFAULT_MAX_SIZE, DEFAULT_CACHE_BYTES, Clock.systemUTC(), DEFAULT_GRACE);
+    }
+
+    /**
+     * Erstellt einen Blob-Bereich.
+     *
+     * @param directory  Verzeichnis für Uploads und fertige Blobs
+     * @param maxSize    Maximale Größe eines Anhangs in Bytes
+     * @param cacheBytes Obergrenze für eingeblendete Blobs in Bytes
+     * @param clock      Uhr für die Schonfrist
+     * @param grace      Schonfrist, bevor ein unreferenzierter Blob gelöscht wird
+     * @throws UncheckedIOException wenn das Verzeichnis nicht angelegt werden kann
+     */
+    public BlobStore(Path directory, long maxSize, long cacheBytes, Clock clock, Duration grace) {
+        this.directory = Objects.requireNonNull(directory, "Directory darf nicht null sein");
+        this.maxSize = maxSize;
+        this.clock = Objects.requireNonNull(clock, "Clock darf nicht null sein");
+        this.graceMillis = grace.toMillis();
+        this.hot = new LruCache<>(cacheBytes, MappedByteBuffer::capacity);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Blob-Verzeichnis konnte nicht angelegt werden: " + directory, e);
+        }
+    }
+
+    /**
+     * Beginnt einen Upload.
+     *
+     * @param fileName Ursprünglicher Dateiname
+     * @param size     Angekündigte Größe in Bytes
+     * @return ID des Uploads, mit der Blöcke gesendet und der Upload fortgesetzt wird
+     * @throws IllegalArgumentException wenn die Größe ungültig oder zu groß ist
+     */
+    public String startUpload(String fileName, long size) {
+        Objects.requireNonNull(fileName, "FileName darf nicht null sein");
+        if (size < 0 || size > maxSize) {
+            throw new IllegalArgumentException("Ungültige Anhangsgröße: " + size);
+        }
+        String uploadId = UUID.randomUUID().toString();
+        try {
+            Files.writeString(metaFile(uploadId), size + "\n" + fileName, StandardCharsets.UTF_8);
+            Files.createFile(partFile(uploadId));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Upload konnte nicht angelegt werden", e);
+        }
+        return uploadId;
+    }
+
+    /**
+     * Gibt den bereits bestätigten Offset eines Uploads zurück. Ein abgebrochener
+     * Upload wird ab hier fortgesetzt.
+     *
+     * @param uploadId ID des Uploads
+     * @return Anzahl der gespeicherten Bytes
+     * @throws IllegalArgumentException wenn der Upload nicht existiert
+     */
+    public long getOffset(String uploadId) {
+        try {
+            return Files.size(partFile(checkId(uploadId)));
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("Upload existiert nicht: " + uploadId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Schreibt einen Block direkt aus dem Kanal in die Upload-Datei.
+     *
+     * @param uploadId ID des Uploads
+     * @param offset   Offset des Blocks; muss dem bestätigten Offset entsprechen
+     * @param source   Quelle der Bytes, z.B. der Socket-Kanal
+     * @param length   Länge des Blocks
+     * @return Neuer bestätigter Offset
+     * @throws IllegalStateException wenn der Offset nicht passt oder die Quelle vorzeitig endet
+     * @throws IllegalArgumentException wenn der Block über die angekündigte Größe hinausgeht
+     */
+    public long writeChunk(String uploadId, long offset, ReadableByteChannel source, long length) {
+        long expected = readMeta(uploadId).getSize();
+        try (FileChannel file = FileChannel.open(partFile(uploadId), StandardOpenOption.WRITE)) {
+            if (offset != file.size()) {
+                throw new IllegalStateException("Offset " + offset + " passt nicht, bestätigt: " + file.size());
+            }
+            if (length < 0 || offset + length > expected) {
+                throw new IllegalArgumentException("Block überschreitet angekündigte Größe: " + (offset + length));
+            }
+            long written = 0;
+            while (written < length) {
+                long n = file.transferFrom(source, offset + written, length - written);
+                if (n <= 0) {
+                    file.force(false); // Bisher Empfangenes bleibt für die Fortsetzung erhalten
+                    throw new IllegalStateException("Quelle endete nach " + written + " von " + length + " Bytes");
+                }
+                written += n;
+            }
+            return offset + written;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Block konnte nicht geschrieben werden: " + uploadId, e);
+        }
+    }
+
+    /**
+     * Schließt einen vollständigen Upload ab und macht ihn als Blob verfügbar.
+     * Existiert bereits ein Blob mit gleichem Inhalt, wird der Upload verworfen und
+     * der vorhandene Blob verwendet.
+     *
+     * @param uploadId ID des Uploads
+     * @return Verweis auf den fertigen Blob; die ID ist der Hash des Inhalts
+     * @throws IllegalStateException wenn noch Bytes fehlen
+     */
+    public BlobRef complete(String uploadId) {
+        BlobRef meta = readMeta(uploadId);
+        long offset = getOffset(uploadId);
+        if (offset != meta.getSize()) {
+            throw new IllegalStateException("Upload unvollständig: " + offset + " von " + meta.getSize() + " Bytes");
+        }
+        String hash = hash(partFile(uploadId));
+        try {
+            synchronized (this) {
+                Entry entry = blobs.get(hash);
+                if (entry != null || Files.exists(blobFile(hash))) {
+                    Files.delete(partFile(uploadId)); // Inhalt liegt schon vor
+                    metrics.recordUpload(meta.getSize(), true);
+                } else {
+                    Files.move(partFile(uploadId), blobFile(hash), StandardCopyOption.ATOMIC_MOVE);
+                    metrics.recordUpload(meta.getSize(), false);
+                }
+                if (entry == null) {
+                    entry = new Entry(meta.getSize());
+                    blobs.put(hash, entry);
+                    metrics.addStoredBytes(meta.getSize());
+                }
+                if (entry.refs == 0) entry.idleSince = clock.millis(); // Schonfrist bis zum Versand
+                Files.delete(metaFile(uploadId));
+                BlobRef ref = new BlobRef(hash, meta.getSize(), meta.getFileName());
+                completed.put(uploadId, new Completed(ref, clock.millis()));
+                return ref;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Upload konnte nicht abgeschlossen werden: " + uploadId, e);
+        }
+    }
+
+    /**
+     * Holt den Verweis eines abgeschlossenen Uploads einmalig ab. Nur wer die geheime
+     * Upload-ID kennt, also der Hochladende, kann so einen Anhang versenden; der Hash
+     * allein genügt nicht. Nicht abgeholte Uploads verfallen mit der Schonfrist.
+     *
+     * @param uploadId ID des Uploads
+     * @return Verweis auf den fertigen Blob
+     * @throws IllegalArgumentException wenn der Upload nicht abgeschlossen oder schon abgeholt ist
+     */
+    public synchronized BlobRef claim(String uploadId) {
+        Completed upload = completed.remove(uploadId);
+        if (upload == null) {
+            throw new IllegalArgumentException("Kein abgeschlossener Upload: " + uploadId);
+        }
+        return upload.ref;
+    }
+
+    /**
+     * Vermerkt eine weitere Nachricht, die auf den Blob verweist.
+     *
+     * @param blobId ID des Blobs
+     * @throws IllegalArgumentException wenn der Blob nicht existiert
+     */
+    public synchronized void retain(String blobId) {
+        Entry entry = blobs.get(blobId);
+        if (entry == null) {
+            throw new IllegalArgumentException("Blob existiert nicht: " + blobId);
+        }
+        entry.refs++;
+    }
+
+    /**
+     * Gibt eine Referenz frei. Ein Blob ohne Referenzen wird nach der Schonfrist
+     * von der Garbage Collection gelöscht.
+     *
+     * @param blobId ID des Blobs
+     */
+    public synchronized void release(String blobId) {
+        Entry entry = blobs.get(blobId);
+        if (entry == null || entry.refs == 0) return;
+        if (--entry.refs == 0) entry.idleSince = clock.millis();
+    }
+
+    /**
+     * Gibt die Anzahl der Nachrichten zurück, die auf den Blob verweisen.
+     *
+     * @param blobId ID des Blobs
+     * @return Anzahl der Referenzen (0 für unbekannte Blobs)
+     */
+    public synchronized int getReferenceCount(String blobId) {
+        Entry entry = blobs.get(blobId);
+        return entry == null ? 0 : entry.refs;
+    }
+
+    /**
+     * Startet die Garbage Collection im Hintergrund, falls sie noch nicht läuft.
+     *
+     * @param interval Abstand zwischen zwei Durchläufen
+     */
+    public synchronized void startCollector(Duration interval) {
+        if (collector != null) return;
+        collector = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "blob-gc");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        collector.scheduleWithFixedDelay(() -> {
+            try {
+                collectGarbage();
+            } catch (RuntimeException e) {
+                System.err.println("Blob-GC fehlgeschlagen: " + e.getMessage());
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Löscht alle Blobs, die seit mindestens der Schonfrist keine Referenz mehr haben.
+     * Jede Datei wird unter der Sperre gelöscht, damit ein paralleles {@link #complete}
+     * mit demselben Inhalt sie nicht verliert.
+     *
+     * @return Anzahl der gelöschten Blobs
+     */
+    public int collectGarbage() {
+        List<String> garbage = new ArrayList<>();
+        synchronized (this) {
+            long cutoff = clock.millis() - graceMillis;
+            for (Map.Entry<String, Entry> e : blobs.entrySet()) {
+                if (e.getValue().refs == 0 && e.getValue().idleSince <= cutoff) garbage.add(e.getKey());
+            }
+            for (String blobId : garbage) {
+                metrics.recordCollected(blobs.remove(blobId).size);
+                hot.remove(blobId);
+            }
+            completed.values().removeIf(upload -> upload.completedAt <= cutoff);
+        }
+        int deleted = 0;
+        for (String blobId : garbage) {
+            synchronized (this) { // Eine Datei pro Sperre, Uploads warten nicht auf den ganzen Durchlauf
+                if (blobs.containsKey(blobId)) continue; // Inzwischen erneut hochgeladen
+                try {
+                    Files.deleteIfExists(blobFile(blobId));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Blob konnte nicht gelöscht werden: " + blobId, e);
+                }
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Überträgt einen Blob ab {@code offset} per Zero-Copy in den Zielkanal.
+     * Kleine Blobs werden beim ersten Abruf eingeblendet und danach aus dem Cache
+     * gesendet, ohne die Datei erneut zu öffnen.
+     *
+     * @param blobId ID des Blobs
+     * @param offset Startposition, z.B. für fortgesetzte Downloads
+     * @param target Zielkanal, z.B. der Socket-Kanal des Empfängers
+     * @return Anzahl der übertragenen Bytes
+     * @throws IllegalArgumentException wenn der Blob nicht existiert
+     */
+    public long transferTo(String blobId, long offset, WritableByteChannel target) {
+        MappedByteBuffer cached = hot.get(checkId(blobId));
+        try {
+            if (cached != null) {
+                ByteBuffer view = cached.duplicate();
+                view.position((int) Math.min(Math.max(offset, 0), view.limit()));
+                long length = view.remaining();
+                while (view.hasRemaining()) {
+                    target.write(view);
+                }
+                return length;
+            }
+            try (FileChannel file = FileChannel.open(blobFile(blobId), StandardOpenOption.READ)) {
+                long size = file.size();
+                if (size <= MAX_CACHED_BLOB) {
+                    MappedByteBuffer mapped = file.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                    synchronized (this) { // Wie collectGarbage, damit kein gelöschter Blob zurückkehrt
+                        if (blobs.containsKey(blobId)) hot.put(blobId, mapped);
+                    }
+                }
+                long position = Math.min(Math.max(offset, 0), size);
+                long start = position;
+                while (position < size) {
+                    position += file.transferTo(position, size - position, target);
+                }
+                return size - start;
+            }
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("Blob existiert nicht: " + blobId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Blob konnte nicht übertragen werden: " + blobId, e);
+        }
+    }
+
+    /**
+     * Erstellt einen Bericht über Deduplizierung, Plattenbelegung und Cache.
+     *
+     * @return Momentaufnahme der Kennzahlen
+     */
+    public synchronized BlobReport getReport() {
+        long logicalBytes = 0; // Ohne Deduplizierung hätte jede Nachricht eine eigene Kopie
+        for (Entry entry : blobs.values()) {
+            logicalBytes += entry.size * Math.max(entry.refs, 1);
+        }
+        return metrics.snapshot(blobs.size(), logicalBytes, hot);
+    }
+
+    /**
+     * Beendet die Garbage Collection. Der Blob-Bereich bleibt lesbar.
+     */
+    @Override
+    public synchronized void close() {
+        if (collector != null) collector.shutdownNow();
+        collector = null;
+    }
+
+    /**
+     * Gibt die Größe eines fertigen Blobs zurück.
+     *
+     * @param blobId ID des Blobs
+     * @return Größe in Bytes
+     * @throws IllegalArgumentException wenn der Blob nicht existiert
+     */
+    public long size(String blobId) {
+        try {
+            return Files.size(blobFile(checkId(blobId)));
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("Blob existiert nicht: " + blobId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private BlobRef readMeta(String uploadId) {
+        try {
+            List<String> lines = Files.readAllLines(metaFile(checkId(uploadId)), StandardCharsets.UTF_8);
+            return new BlobRef(uploadId, Long.parseLong(lines.get(0)), lines.size() > 1 ? lines.get(1) : "");
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("Upload existiert nicht: " + uploadId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Berechnet den SHA-256-Hash einer Datei. Gelesen wird über einen direkten Puffer,
+     * sodass der Inhalt nicht in den Heap kopiert wird.
+     */
+    private static String hash(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Upload konnte nicht gelesen werden: " + file, e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 nicht verfügbar", e);
+        }
+    }
+
+    /**
+     * Lässt nur IDs zu, die keine Pfadbestandteile enthalten.
+     */
+    private static String checkId(String id) {
+        Objects.requireNonNull(id, "Id darf nicht null sein");
+        if (!id.matches("[A-Za-z0-9-]+")) {
+            throw new IllegalArgumentException("Ungültige ID: " + id);
+        }
+        return id;
+    }
+
+    private Path partFile(String uploadId) {
+        return directory.resolve(uploadId + ".part");
+    }
+
+    private Path metaFile(String uploadId) {
+        return directory.resolve(uploadId + ".meta");
+    }
+
+    private Path blobFile(String blobId) {
+        return directory.resolve(blobId + ".blob");
+    }
+
+    /**
+     * Abgeschlossener, noch nicht abgeholter Upload.
+     */
+    private static final class Completed {
+        private final BlobRef ref;
+        private final long completedAt;     // Zeitpunkt des Abschlusses für den Verfall
+
+        private Completed(BlobRef ref, long completedAt) {
+            this.ref = ref;
+            this.completedAt = completedAt;
+        }
+    }
+
+    /**
+     * Referenzzähler und Größe eines fertigen Blobs.
+     */
+    private static final class Entry {
+        private final long size;    // Größe in Bytes
+        private int refs;           // Nachrichten, die auf den Blob verweisen
+        private long idleSince;     // Zeitpunkt, seit dem der Blob unreferenziert ist
+
+        private Entry(long size) {
+            this.size = size;
+        }
+    }
+}
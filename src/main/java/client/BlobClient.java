@@ -0,0 +1,197 @@
+package client;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+import blob.BlobProtocol;
+import blob.BlobRef;
+
+/**
+ * Lädt Anhänge blockweise zum {@code BlobServer} hoch und wieder herunter.
+ *
+ * Auch auf Client-Seite werden die Bytes per {@link FileChannel#transferTo} bzw.
+ * {@link FileChannel#transferFrom} zwischen Datei und Socket übertragen. Bricht die
+ * Verbindung ab, setzt {@link #resume} ab dem vom Server bestätigten Offset fort.
+ */
+public class BlobClient {
+    public static final int DEFAULT_CHUNK_SIZE = 256 * 1024; // 256 KiB pro Block
+
+    private final InetSocketAddress address;    // Adresse des Blob-Servers
+    private final int chunkSize;                // Größe eines Upload-Blocks
+
+    /**
+     * Erstellt einen Client mit Standard-Blockgröße.
+     *
+     * @param host Host des Blob-Servers
+     * @param port Port des Blob-Servers
+     */
+    public BlobClient(String host, int port) {
+        this(new InetSocketAddress(host, port), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Erstellt einen Client.
+     *
+     * @param address   Adresse des Blob-Servers
+     * @param chunkSize Größe eines Upload-Blocks in Bytes
+     */
+    public BlobClient(InetSocketAddress address, int chunkSize) {
+        this.address = Objects.requireNonNull(address, "Address darf nicht null sein");
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Blockgröße muss positiv sein: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Kündigt einen Upload an, ohne Bytes zu senden.
+     *
+     * @param fileName Dateiname für den Empfänger
+     * @param size     Größe in Bytes
+     * @return ID des Uploads
+     */
+    public String startUpload(String fileName, long size) {
+        try (Connection connection = connect()) {
+            connection.out.writeByte(BlobProtocol.START);
+            connection.out.writeUTF(fileName);
+            connection.out.writeLong(size);
+            connection.out.flush();
+            connection.expectOk();
+            return connection.in.readUTF();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Upload konnte nicht angekündigt werden", e);
+        }
+    }
+
+    /**
+     * Lädt eine Datei vollständig hoch.
+     *
+     * @param file Die Datei
+     * @return Verweis auf den fertigen Blob, der als Nachrichteninhalt gesendet wird
+     */
+    public BlobRef upload(Path file) {
+        try {
+            String uploadId;
+            try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+                uploadId = startUpload(file.getFileName().toString(), source.size());
+            }
+            return resume(uploadId, file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Datei konnte nicht gelesen werden: " + file, e);
+        }
+    }
+
+    /**
+     * Setzt einen Upload ab dem vom Server bestätigten Offset fort und schließt ihn ab.
+     *
+     * @param uploadId ID des Uploads
+     * @param file     Die hochzuladende Datei
+     * @return Verweis auf den fertigen Blob
+     * @throws IllegalStateException wenn der Server einen Block ablehnt
+     */
+    public BlobRef resume(String uploadId, Path file) {
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ);
+                Connection connection = connect()) {
+            connection.out.writeByte(BlobProtocol.OFFSET);
+            connection.out.writeUTF(uploadId);
+            connection.out.flush();
+            connection.expectOk();
+            long offset = connection.in.readLong();
+
+            long size = source.size();
+            while (offset < size) {
+                long length = Math.min(chunkSize, size - offset);
+                connection.out.writeByte(BlobProtocol.WRITE);
+                connection.out.writeUTF(uploadId);
+                connection.out.writeLong(offset);
+                connection.out.writeLong(length);
+                connection.out.flush();
+                for (long sent = 0; sent < length; ) {
+                    sent += source.transferTo(offset + sent, length - sent, connection.channel);
+                }
+                connection.expectOk();
+                offset = connection.in.readLong();
+            }
+
+            connection.out.writeByte(BlobProtocol.COMPLETE);
+            connection.out.writeUTF(uploadId);
+            connection.out.flush();
+            connection.expectOk();
+            return BlobRef.parse(connection.in.readUTF());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Upload abgebrochen: " + uploadId, e);
+        }
+    }
+
+    /**
+     * Lädt einen Blob in eine Datei herunter. Existiert die Datei bereits, wird ab
+     * ihrem Ende fortgesetzt.
+     *
+     * @param ref    Verweis aus der Nachricht
+     * @param target Zieldatei
+     * @return Größe der Zieldatei nach dem Download
+     */
+    public long download(BlobRef ref, Path target) {
+        try (FileChannel file = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                Connection connection = connect()) {
+            long offset = file.size();
+            connection.out.writeByte(BlobProtocol.GET);
+            connection.out.writeUTF(ref.getBlobId());
+            connection.out.writeLong(offset);
+            connection.out.flush();
+            connection.expectOk();
+            long length = connection.in.readLong();
+            for (long received = 0; received < length; ) {
+                long n = file.transferFrom(connection.channel, offset + received, length - received);
+                if (n <= 0) {
+                    throw new IOException("Verbindung endete nach " + received + " von " + length + " Bytes");
+                }
+                received += n;
+            }
+            return file.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Download abgebrochen: " + ref.getBlobId(), e);
+        }
+    }
+
+    private Connection connect() throws IOException {
+        return new Connection(SocketChannel.open(address));
+    }
+
+    /**
+     * Eine Verbindung zum Blob-Server. Der Eingabestrom ist ungepuffert, damit
+     * Dateibytes nach dem Antwortkopf direkt aus dem Kanal gelesen werden können.
+     */
+    private static final class Connection implements AutoCloseable {
+        private final SocketChannel channel;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.in = new DataInputStream(Channels.newInputStream(channel));
+            this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        }
+
+        private void expectOk() throws IOException {
+            if (in.readByte() != BlobProtocol.OK) {
+                throw new IllegalStateException("Blob-Server: " + in.readUTF());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import domain.GruppenRoom;
+import domain.Message;
+import domain.User;
+import domain.UserInfo;
+import store.MessagePage;
+
+/**
+ * Lokaler Snapshot von {@link RemoteChatService}: Seitenleiste des zuletzt angemeldeten
+ * Benutzers, bekannte private Chats und die letzte Seite jedes geöffneten Raums.
+ *
+ * Die Datei besteht aus einem kleinen Kopf (Benutzer, Kontakte, Gruppen, Chats und ein
+ * Index der Seiten), der beim Laden vollständig gelesen wird, und den Seiten im Format
+ * von {@link MessagePage}. Die Datei wird per Memory-Mapping eingeblendet; Nachrichten
+ * einer Seite werden erst dekodiert, wenn ihr Raum geöffnet wird.
+ *
+ * Gespeichert wird abwechselnd in die Datei selbst und eine Schwesterdatei mit der Endung
+ * {@code .alt}; geladen wird die mit der höheren Generation. So wird nie die gerade
+ * eingeblendete Datei ersetzt, was unter Windows fehlschlägt.
+ *
+ * <pre>
+ * MAGIC VERSION generation headerLength
+ * header: serverId owner users contacts groups rooms (roomKey serverNext offset length)*
+ * pages
+ * </pre>
+ */
+final class ClientSnapshot {
+    private static final int MAGIC = 0x43534E50;        // "CSNP"
+    private static final int VERSION = 2;
+    private static final int PREFIX_BYTES = 20;         // MAGIC, VERSION, Generation, Kopflänge
+    private static final String ALTERNATE = ".alt";     // Endung des zweiten Speicherplatzes
+
+    private final String serverId;                      // Instanz des Servers, zu der die IDs gehören
+    private final String owner;                         // Benutzer der Seitenleiste
+    private final Collection<User> users;
+    private final int[] contactIds;
+    private final List<Group> groups;
+    private final Map<String, Integer> rooms;           // Benutzerpaar -> Raum-ID
+    private final Map<String, Page> pages;              // Raumschlüssel -> letzte Seite
+
+    ClientSnapshot(String serverId, String owner, Collection<User> users, int[] contactIds, List<Group> groups,
+            Map<String, Integer> rooms, Map<String, Page> pages) {
+        this.serverId = serverId;
+        this.owner = owner;
+        this.users = users;
+        this.contactIds = contactIds;
+        this.groups = groups;
+        this.rooms = rooms;
+        this.pages = pages;
+    }
+
+    String getServerId() { return serverId; }
+
+    String getOwner() { return owner; }
+
+    Collection<User> getUsers() { return users; }
+
+    int[] getContactIds() { return contactIds; }
+
+    List<Group> getGroups() { return groups; }
+
+    Map<String, Integer> getRooms() { return rooms; }
+
+    Map<String, Page> getPages() { return pages; }
+
+    /**
+     * Liest den Kopf des neueren Snapshots und blendet seine Seiten ein.
+     *
+     * @param file Die Snapshot-Datei
+     * @return Der Snapshot oder null, wenn keine Datei existiert
+     * @throws UncheckedIOException     wenn die Datei nicht gelesen werden kann
+     * @throws IllegalArgumentException wenn die Datei kein gültiger Snapshot ist
+     */
+    static ClientSnapshot load(Path file) {
+        Path alternate = alternate(file);
+        return read(generation(alternate) > generation(file) ? alternate : file);
+    }
+
+    private static Path alternate(Path file) {
+        return file.resolveSibling(file.getFileName() + ALTERNATE);
+    }
+
+    /**
+     * Liest die Generation eines Speicherplatzes, ohne ihn einzublenden.
+     *
+     * @return Die Generation oder -1, wenn die Datei fehlt oder kein Snapshot ist
+     */
+    private static long generation(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer prefix = ByteBuffer.allocate(16);
+            while (prefix.hasRemaining() && channel.read(prefix) >= 0) {
+                // Bis der Anfang vollständig gelesen ist
+            }
+            if (prefix.hasRemaining() || prefix.getInt(0) != MAGIC || prefix.getInt(4) != VERSION) return -1;
+            return prefix.getLong(8);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static ClientSnapshot read(Path file) {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // Bleibt nach close gültig
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Snapshot konnte nicht gelesen werden: " + file, e);
+        }
+        if (data.limit() < PREFIX_BYTES || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Kein Snapshot in Version " + VERSION + ": " + file);
+        }
+        int headerLength = data.getInt(16);
+        if (headerLength < 0 || PREFIX_BYTES + headerLength > data.limit()) {
+            throw new IllegalArgumentException("Snapshot ist abgeschnitten: " + file);
+        }
+        byte[] header = new byte[headerLength];
+        data.get(PREFIX_BYTES, header);
+        int pagesStart = PREFIX_BYTES + headerLength;
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(header))) {
+            String serverId = in.readUTF();
+            String owner = in.readUTF();
+            List<User> users = new ArrayList<>();
+            for (int i = readCount(in, 11); i > 0; i--) {
+                User user = new User(in.readInt(), in.readUTF());
+                user.setUserInfo(UserInfo.valueOf(in.readUTF()));
+                user.setStatusText(in.readUTF());
+                user.setOnline(in.readBoolean());
+                users.add(user);
+            }
+            int[] contactIds = new int[readCount(in, 4)];
+            for (int i = 0; i < contactIds.length; i++) contactIds[i] = in.readInt();
+            List<Group> groups = new ArrayList<>();
+            for (int i = readCount(in, 16); i > 0; i--) {
+                int groupId = in.readInt();
+                String name = in.readUTF();
+                String description = in.readUTF();
+                int creatorId = in.readInt();
+                int[] memberIds = new int[readCount(in, 4)];
+                for (int m = 0; m < memberIds.length; m++) memberIds[m] = in.readInt();
+                groups.add(new Group(groupId, name, description, creatorId, memberIds));
+            }
+            Map<String, Integer> rooms = new LinkedHashMap<>();
+            for (int i = readCount(in, 6); i > 0; i--) rooms.put(in.readUTF(), in.readInt());
+            Map<String, Page> pages = new LinkedHashMap<>();
+            for (int i = readCount(in, 18); i > 0; i--) {
+                String roomKey = in.readUTF();
+                long serverNext = in.readLong();
+                int offset = in.readInt();
+                int length = in.readInt();
+                if (offset < 0 || length < 0 || (long) pagesStart + offset + length > data.limit()) {
+                    throw new IllegalArgumentException("Seite außerhalb des Snapshots: " + roomKey);
+                }
+                pages.put(roomKey, new Page(serverNext, data.slice(pagesStart + offset, length)));
+            }
+            return new ClientSnapshot(serverId, owner, users, contactIds, groups, rooms, pages);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Kopf des Snapshots ist beschädigt: " + file, e);
+        }
+    }
+
+    /**
+     * Liest eine Anzahl aus dem Kopf und prüft sie gegen die restlichen Bytes, damit eine
+     * beschädigte Datei weder negative noch riesige Arrays anlegt.
+     *
+     * @param minBytes Mindestgröße eines Eintrags im Kopf
+     */
+    private static int readCount(DataInputStream in, int minBytes) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > in.available() / minBytes) {
+            throw new IOException("Ungültige Anzahl im Kopf: " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Schreibt den Snapshot in eine temporäre Datei und ersetzt damit den älteren der
+     * beiden Speicherplätze; der neuere kann noch eingeblendet sein.
+     *
+     * @param file Die Snapshot-Datei
+     * @throws UncheckedIOException wenn die Datei nicht geschrieben werden kann
+     */
+    void save(Path file) {
+        try {
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(header);
+            out.writeUTF(serverId);
+            out.writeUTF(owner);
+            out.writeInt(users.size());
+            for (User user : users) {
+                out.writeInt(user.getUserId());
+                out.writeUTF(user.getUsername());
+                out.writeUTF(user.getUserInfo().name());
+                out.writeUTF(user.getStatusText() != null ? user.getStatusText() : "");
+                out.writeBoolean(user.isOnline());
+            }
+            out.writeInt(contactIds.length);
+            for (int contactId : contactIds) out.writeInt(contactId);
+            out.writeInt(groups.size());
+            for (Group group : groups) {
+                out.writeInt(group.groupId);
+                out.writeUTF(group.name);
+                out.writeUTF(group.description);
+                out.writeInt(group.creatorId);
+                out.writeInt(group.memberIds.length);
+                for (int memberId : group.memberIds) out.writeInt(memberId);
+            }
+            out.writeInt(rooms.size());
+            for (Map.Entry<String, Integer> room : rooms.entrySet()) {
+                out.writeUTF(room.getKey());
+                out.writeInt(room.getValue());
+            }
+            out.writeInt(pages.size());
+            int offset = 0;
+            for (Map.Entry<String, Page> page : pages.entrySet()) {
+                out.writeUTF(page.getKey());
+                out.writeLong(page.getValue().serverNext);
+                out.writeInt(offset);
+                out.writeInt(page.getValue().data.limit());
+                offset += page.getValue().data.limit();
+            }
+            out.flush();
+
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            long current = generation(file);
+            long other = generation(alternate(file));
+            Path slot = current <= other ? file : alternate(file);
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (OutputStream target = Files.newOutputStream(temp)) {
+                DataOutputStream prefix = new DataOutputStream(target);
+                prefix.writeInt(MAGIC);
+                prefix.writeInt(VERSION);
+                prefix.writeLong(Math.max(current, other) + 1);
+                prefix.writeInt(header.size());
+                header.writeTo(target);
+                for (Page page : pages.values()) {
+                    byte[] bytes = new byte[page.data.limit()];
+                    page.data.get(0, bytes);
+                    target.write(bytes);
+                }
+            }
+            Files.move(temp, slot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Snapshot konnte nicht geschrieben werden: " + file, e);
+        }
+    }
+
+    /**
+     * Gruppe der Seitenleiste mit den IDs ihrer Mitglieder.
+     */
+    static final class Group {
+        final int groupId;
+        final String name;
+        final String description;
+        final int creatorId;
+        final int[] memberIds;
+
+        Group(int groupId, String name, String description, int creatorId, int[] memberIds) {
+            this.groupId = groupId;
+            this.name = name;
+            this.description = description;
+            this.creatorId = creatorId;
+            this.memberIds = memberIds;
+        }
+
+        static Group of(GruppenRoom group) {
+            List<User> members = group.getParticipants();
+            int[] memberIds = new int[members.size()];
+            for (int i = 0; i < memberIds.length; i++) memberIds[i] = members.get(i).getUserId();
+            return new Group(group.getGroupId(), group.getName(), group.getDescription(),
+                    group.getCreator().getUserId(), memberIds);
+        }
+    }
+
+    /**
+     * Letzte Seite eines Raums und die Server-Sequenz nach ihrer letzten Nachricht, ab
+     * der der Client beim Öffnen nachlädt.
+     */
+    static final class Page {
+        final long serverNext;
+        final ByteBuffer data;          // Kodiert als MessagePage, ggf. Ausschnitt der gemappten Datei
+
+        Page(long serverNext, ByteBuffer data) {
+            this.serverNext = serverNext;
+            this.data = data;
+        }
+
+        static Page of(long serverNext, List<Message> messages) {
+            return new Page(serverNext, ByteBuffer.wrap(MessagePage.encode(messages)));
+        }
+
+        /**
+         * @return Lazy dekodierende Sicht auf die Nachrichten der Seite
+         */
+        List<Message> messages(IntFunction<User> users) {
+            return MessagePage.view(data, users);
+        }
+    }
+}
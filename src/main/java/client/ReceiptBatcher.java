@@ -0,0 +1,128 @@
+package client;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sammelt Lesebestätigungen eines Clients und sendet sie gebündelt.
+ *
+ * Pro Gruppe wird nur die höchste gelesene Sequenznummer vorgehalten. Nach dem ersten
+ * Eintrag wird ein Versand nach {@code delay} eingeplant; alles, was bis dahin eintrifft,
+ * wird zusammengefasst. Wer durch 500 Nachrichten scrollt, erzeugt so eine einzige Meldung.
+ * Sequenznummern, die nicht über der zuletzt gesendeten liegen, werden verworfen.
+ */
+public class ReceiptBatcher implements AutoCloseable {
+    public static final Duration DEFAULT_DELAY = Duration.ofMillis(500);
+
+    /**
+     * Empfänger der gebündelten Lesebestätigungen, z.B. {@code ChatService.markGroupRead}.
+     */
+    @FunctionalInterface
+    public interface ReceiptSink {
+        void markRead(int groupId, long seq);
+    }
+
+    private final ReceiptSink sink;
+    private final long delayMillis;                          // Sammelzeit vor dem Versand
+    private final Map<Integer, Long> pending = new HashMap<>(); // Gruppe -> höchste ungesendete Sequenz
+    private final Map<Integer, Long> sent = new HashMap<>();    // Gruppe -> zuletzt gesendete Sequenz
+    private final AtomicLong received = new AtomicLong();    // Eingegangene Markierungen
+    private final AtomicLong flushed = new AtomicLong();     // Tatsächlich gesendete Meldungen
+    private final ScheduledExecutorService scheduler;
+    private boolean scheduled;                               // Versand bereits eingeplant
+
+    /**
+     * Erstellt einen Batcher mit Standard-Sammelzeit.
+     *
+     * @param sink Empfänger der Lesebestätigungen
+     */
+    public ReceiptBatcher(ReceiptSink sink) {
+        this(sink, DEFAULT_DELAY);
+    }
+
+    /**
+     * Erstellt einen Batcher.
+     *
+     * @param sink  Empfänger der Lesebestätigungen
+     * @param delay Sammelzeit zwischen erster Markierung und Versand
+     */
+    public ReceiptBatcher(ReceiptSink sink, Duration delay) {
+        this.sink = Objects.requireNonNull(sink, "Sink darf nicht null sein");
+        this.delayMillis = delay.toMillis();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "receipt-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Vermerkt, dass die Nachricht {@code seq} einer Gruppe angezeigt wurde.
+     *
+     * @param groupId Die Gruppe
+     * @param seq     Sequenznummer der gelesenen Nachricht
+     */
+    public synchronized void markRead(int groupId, long seq) {
+        received.incrementAndGet();
+        if (seq <= sent.getOrDefault(groupId, -1L)) return;
+        pending.merge(groupId, seq, Math::max);
+        if (!scheduled) {
+            scheduled = true;
+            scheduler.schedule(this::flush, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sendet alle gesammelten Lesebestätigungen sofort, eine Meldung pro Gruppe.
+     */
+    public void flush() {
+        Map<Integer, Long> batch;
+        synchronized (this) {
+            scheduled = false;
+            if (pending.isEmpty()) return;
+            batch = new HashMap<>(pending);
+            pending.clear();
+            for (Map.Entry<Integer, Long> entry : batch.entrySet()) {
+                sent.merge(entry.getKey(), entry.getValue(), Math::max);
+            }
+        }
+        // Außerhalb der Sperre senden, damit markRead nicht auf das Netzwerk wartet
+        for (Map.Entry<Integer, Long> entry : batch.entrySet()) {
+            sink.markRead(entry.getKey(), entry.getValue());
+            flushed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Gibt die Anzahl der eingegangenen Markierungen zurück.
+     *
+     * @return Eingegangene Markierungen
+     */
+    public long getReceived() {
+        return received.get();
+    }
+
+    /**
+     * Gibt die Anzahl der tatsächlich gesendeten Meldungen zurück.
+     *
+     * @return Gesendete Meldungen
+     */
+    public long getFlushed() {
+        return flushed.get();
+    }
+
+    /**
+     * Sendet ausstehende Bestätigungen und beendet den Versand-Thread.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        flush();
+    }
+}
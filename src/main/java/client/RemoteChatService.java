@@ -0,0 +1,809 @@
+package client;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import domain.GruppenRoom;
+import domain.Message;
+import domain.MessageType;
+import domain.User;
+import domain.UserInfo;
+import fassade.ChatApi;
+import fassade.ServiceProtocol;
+import fassade.TypingListener;
+import presence.PresenceListener;
+import presence.PresenceState;
+import store.InMemoryMessageStore;
+import store.MessageStore;
+
+/**
+ * {@link ChatApi} über das Netz: reicht die Aufrufe der Oberfläche über das
+ * {@link ServiceProtocol} an einen {@code server.ServiceServer} weiter.
+ *
+ * Der Client hält einen lokalen Cache: Benutzer und Gruppen als Abbilder mit ihren
+ * Server-IDs, die Kontakte und Gruppen der Seitenleiste bis zum nächsten UPDATE, die
+ * IDs der privaten Chats und die letzten {@link #RECENT_MESSAGES} Nachrichten jedes
+ * geöffneten Raums. Neue Nachrichten kommen als Push in diese Verläufe.
+ *
+ * Nachrichten in geöffneten Räumen werden optimistisch gesendet: Sie erscheinen sofort
+ * im lokalen Verlauf, der Aufruf kehrt ohne Roundtrip zurück. Der eigene Push des
+ * Servers wird über die clientId erkannt und nicht doppelt angehängt; lehnt der Server
+ * die Nachricht ab, wird sie wieder entfernt und die Listener aus
+ * {@link #addSendFailureListener} werden benachrichtigt. Die lokale Reihenfolge kann
+ * daher von der des Servers abweichen, wenn während des Roundtrips fremde Nachrichten
+ * eintreffen.
+ *
+ * Mit einer Snapshot-Datei überlebt der Cache den Neustart: {@link #close} schreibt
+ * die Seitenleiste, die bekannten Chats und die letzte Seite jedes geöffneten Raums
+ * in einen {@link ClientSnapshot}. Beim nächsten Start werden Seitenleiste und Chats
+ * sofort aus dem Snapshot beantwortet und im Hintergrund neu geladen; ein Raum wird
+ * erst beim Öffnen aus der gemappten Datei dekodiert und lädt danach nur die
+ * Nachrichten nach, die seitdem auf dem Server angekommen sind. Stammt der Snapshot
+ * von einer anderen Serverinstanz, wird er verworfen.
+ *
+ * Die Verbindung wird beim ersten Aufruf im Namen eines Benutzers für ihn angemeldet
+ * und bleibt an ihn gebunden; Aufrufe im Namen anderer Benutzer werden abgelehnt.
+ *
+ * Alle übrigen Aufrufe blockieren bis zur Antwort des Servers.
+ */
+public class RemoteChatService implements ChatApi {
+    public static final int RECENT_MESSAGES = 200;              // Pro Raum geladene Nachrichten
+    public static final long DEFAULT_TIMEOUT_MILLIS = 10_000;   // Wartezeit auf eine Antwort
+
+    private final Socket socket;
+    private final PrintWriter out;
+    private final long timeoutMillis;
+    private final Path snapshotFile;                                    // null ohne Snapshot
+    private final String serverId;                                      // Instanz des Servers
+    private final BlobClient blobs;                                     // null ohne Blob-Server
+    private final String clientPrefix = UUID.randomUUID().toString();   // Macht clientIds eindeutig
+    private final AtomicLong requestIds = new AtomicLong();
+    private final AtomicLong clientIds = new AtomicLong();
+    private final Map<Long, Call> calls = new ConcurrentHashMap<>();    // Offene Anfragen
+
+    private final Map<Integer, User> users = new ConcurrentHashMap<>();           // Abbilder nach Server-ID
+    private final Map<Integer, GruppenRoom> groups = new ConcurrentHashMap<>();   // Abbilder nach Server-ID
+    private final Map<String, MessageStore> histories = new ConcurrentHashMap<>(); // "room-1", "group-2"
+    private final Set<String> loaded = ConcurrentHashMap.newKeySet();             // Verläufe mit Push-Abo
+    private final Map<String, Long> serverNext = new ConcurrentHashMap<>();        // Nächste Server-Sequenz pro Verlauf
+    private final Map<String, Integer> rooms = new ConcurrentHashMap<>();          // Benutzerpaar -> Raum-ID
+    private final Map<String, Cached<List<User>>> contacts = new ConcurrentHashMap<>();
+    private final Map<String, Cached<List<Object>>> chats = new ConcurrentHashMap<>();
+    private final AtomicLong sidebarVersion = new AtomicLong();                    // Zählt UPDATEs
+    private final Set<String> unsyncedContacts = ConcurrentHashMap.newKeySet();    // Aus dem Snapshot, noch nicht neu geladen
+    private final Set<String> unsyncedChats = ConcurrentHashMap.newKeySet();
+    private final Map<String, ClientSnapshot.Page> snapshotPages = new ConcurrentHashMap<>(); // Noch nicht geöffnete Räume
+    private final Map<String, Pending> pendingSends = new ConcurrentHashMap<>();   // clientId -> lokale Nachricht
+    private final Map<Message, Long> serverSeqs = Collections.synchronizedMap(new WeakHashMap<>()); // Nachricht (Identität) -> Server-Sequenz
+    private final AtomicLong rolledBack = new AtomicLong();
+
+    private final List<Runnable> updateListeners = new CopyOnWriteArrayList<>();
+    private final List<PresenceListener> presenceListeners = new CopyOnWriteArrayList<>();
+    private final List<TypingListener> typingListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<RuntimeException>> sendFailureListeners = new CopyOnWriteArrayList<>();
+    private volatile String loggedIn;       // Benutzer, an den die Verbindung gebunden ist
+    private String snapshotOwner;           // Benutzer der Seitenleiste im geladenen Snapshot
+    private volatile boolean closed;
+
+    /**
+     * Verbindet sich mit dem Server.
+     *
+     * @param host Host des Servers
+     * @param port Port des Servers
+     * @throws UncheckedIOException wenn keine Verbindung aufgebaut werden kann
+     */
+    public RemoteChatService(String host, int port) {
+        this(new InetSocketAddress(host, port), DEFAULT_TIMEOUT_MILLIS, null);
+    }
+
+    /**
+     * Verbindet sich mit dem Server.
+     *
+     * @param address       Adresse des Servers
+     * @param timeoutMillis Wartezeit auf eine Antwort
+     * @throws UncheckedIOException wenn keine Verbindung aufgebaut werden kann
+     */
+    public RemoteChatService(InetSocketAddress address, long timeoutMillis) {
+        this(address, timeoutMillis, null);
+    }
+
+    /**
+     * Verbindet sich mit dem Server und übernimmt einen vorhandenen Snapshot.
+     *
+     * @param address       Adresse des Servers
+     * @param timeoutMillis Wartezeit auf eine Antwort
+     * @param snapshotFile  Datei des lokalen Snapshots oder null ohne Snapshot
+     * @throws UncheckedIOException wenn keine Verbindung aufgebaut werden kann
+     */
+    public RemoteChatService(InetSocketAddress address, long timeoutMillis, Path snapshotFile) {
+        Objects.requireNonNull(address, "Address darf nicht null sein");
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("Timeout muss positiv sein: " + timeoutMillis);
+        }
+        this.timeoutMillis = timeoutMillis;
+        this.snapshotFile = snapshotFile;
+        try {
+            socket = new Socket(address.getHostString(), address.getPort());
+            out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Thread reader = new Thread(() -> read(in), "service-client");
+            reader.setDaemon(true);
+            reader.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Keine Verbindung zum Server: " + address, e);
+        }
+        List<String> hello = request(null, ServiceProtocol.HELLO);
+        serverId = hello.get(0);
+        int blobPort = hello.size() > 1 ? Integer.parseInt(hello.get(1)) : 0;
+        blobs = blobPort > 0 ? new BlobClient(new InetSocketAddress(address.getHostString(), blobPort),
+                BlobClient.DEFAULT_CHUNK_SIZE) : null;
+        if (snapshotFile != null) restore();
+    }
+
+    @Override
+    public void addUpdateListener(Runnable listener) {
+        updateListeners.add(listener);
+    }
+
+    /**
+     * Registriert einen Listener für optimistisch gesendete Nachrichten, die der Server
+     * abgelehnt hat. Die Nachricht ist beim Aufruf bereits aus dem Verlauf entfernt.
+     *
+     * @param listener Erhält den Fehler des Servers (im Lese-Thread)
+     */
+    public void addSendFailureListener(Consumer<RuntimeException> listener) {
+        sendFailureListeners.add(listener);
+    }
+
+    @Override
+    public void addTypingListener(TypingListener listener) {
+        typingListeners.add(listener);
+    }
+
+    @Override
+    public void subscribePresence(String userName, PresenceListener listener) {
+        CompletableFuture<List<String>> login = login(userName);
+        if (login != null) await(login, ServiceProtocol.LOGIN); // Unbekannte Benutzer hier melden
+        presenceListeners.add(listener);
+    }
+
+    /**
+     * Meldet die Verbindung beim ersten Aufruf im Namen eines Benutzers an. LOGIN wird
+     * nur abgeschickt, nicht abgewartet; der Server bearbeitet es vor allen folgenden
+     * Anfragen und lehnt diese ab, wenn es fehlschlägt.
+     *
+     * @return Die LOGIN-Anfrage oder null, wenn die Verbindung schon angemeldet ist
+     * @throws IllegalStateException wenn die Verbindung einem anderen Benutzer gehört
+     */
+    private synchronized CompletableFuture<List<String>> login(String userName) {
+        if (userName.equals(loggedIn)) return null;
+        if (loggedIn != null) throw new IllegalStateException("Verbindung ist angemeldet als " + loggedIn);
+        loggedIn = userName;
+        CompletableFuture<List<String>> result = call(null, ServiceProtocol.LOGIN, userName);
+        result.whenComplete((fields, error) -> {
+            if (error == null) return;
+            synchronized (this) {
+                if (userName.equals(loggedIn)) loggedIn = null; // Nächster Aufruf versucht es erneut
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public boolean createUser(String userName) {
+        request(null, ServiceProtocol.CREATE_USER, userName);
+        return true;
+    }
+
+    @Override
+    public boolean addContact(String contactUserName, String currentUserName) {
+        login(currentUserName);
+        return Boolean.parseBoolean(request(null, ServiceProtocol.ADD_CONTACT, contactUserName, currentUserName).get(0));
+    }
+
+    /**
+     * Gibt die Kontakte zurück. Kontakte aus dem Snapshot werden sofort geliefert und
+     * einmalig im Hintergrund neu geladen.
+     */
+    @Override
+    public List<User> getUserContacts(String userName) {
+        login(userName);
+        Cached<List<User>> cached = contacts.get(userName);
+        long version = sidebarVersion.get();
+        if (cached != null && unsyncedContacts.remove(userName)) {
+            call(fields -> sync(contacts, userName, parseContacts(fields), version), ServiceProtocol.CONTACTS, userName);
+            return cached.value;
+        }
+        if (cached != null && cached.version == version) return cached.value;
+
+        List<User> result = parseContacts(request(null, ServiceProtocol.CONTACTS, userName));
+        contacts.put(userName, new Cached<>(result, version)); // Bei zwischenzeitlichem UPDATE bereits veraltet
+        return result;
+    }
+
+    /**
+     * Gibt die Gruppen des Benutzers zurück. Private Chats sind nicht enthalten; sie
+     * werden über {@link #createChatRoom} geöffnet. Gruppen aus dem Snapshot werden
+     * sofort geliefert und einmalig im Hintergrund neu geladen.
+     */
+    @Override
+    public List<Object> getAllChatsForUser(String username) {
+        login(username);
+        Cached<List<Object>> cached = chats.get(username);
+        long version = sidebarVersion.get();
+        if (cached != null && unsyncedChats.remove(username)) {
+            call(fields -> sync(chats, username, parseGroups(fields), version), ServiceProtocol.GROUPS, username);
+            return cached.value;
+        }
+        if (cached != null && cached.version == version) return cached.value;
+
+        List<Object> result = parseGroups(request(null, ServiceProtocol.GROUPS, username));
+        chats.put(username, new Cached<>(result, version));
+        return result;
+    }
+
+    /**
+     * Übernimmt eine im Hintergrund neu geladene Liste der Seitenleiste (im Lese-Thread).
+     */
+    private <T> void sync(Map<String, Cached<T>> cache, String userName, T value, long version) {
+        if (sidebarVersion.get() != version) return; // UPDATE dazwischen, nächster Zugriff lädt neu
+        cache.put(userName, new Cached<>(value, version));
+        notifyUpdate();
+    }
+
+    private List<User> parseContacts(List<String> fields) {
+        List<User> result = new ArrayList<>(fields.size() / 5);
+        for (int i = 0; i + 4 < fields.size(); i += 5) {
+            User user = mirror(Integer.parseInt(fields.get(i)), fields.get(i + 1));
+            user.setUserInfo(UserInfo.valueOf(fields.get(i + 2)));
+            user.setStatusText(fields.get(i + 3));
+            user.setOnline(Boolean.parseBoolean(fields.get(i + 4)));
+            result.add(user);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private List<Object> parseGroups(List<String> fields) {
+        List<Object> result = new ArrayList<>();
+        for (int i = 0; i < fields.size(); ) {
+            int groupId = Integer.parseInt(fields.get(i));
+            String name = fields.get(i + 1);
+            String description = fields.get(i + 2);
+            User creator = mirror(Integer.parseInt(fields.get(i + 3)), fields.get(i + 4));
+            int members = Integer.parseInt(fields.get(i + 5));
+            i += 6;
+            GruppenRoom group = mirrorGroup(groupId, creator, name, description);
+            for (int m = 0; m < members; m++, i += 2) {
+                User member = mirror(Integer.parseInt(fields.get(i)), fields.get(i + 1));
+                if (!group.isParticipant(member)) group.addParticipant(member);
+            }
+            result.add(group);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public int createChatRoom(String user1Name, String user2Name) {
+        login(user1Name);
+        String key = user1Name + '\t' + user2Name;
+        Integer roomId = rooms.get(key);
+        if (roomId == null) {
+            roomId = Integer.parseInt(request(null, ServiceProtocol.OPEN_ROOM, user1Name, user2Name).get(0));
+            rooms.put(key, roomId);
+        }
+        return roomId;
+    }
+
+    @Override
+    public int createGruppenRoom(String creatorName, String groupName, String description) {
+        login(creatorName);
+        return Integer.parseInt(request(null, ServiceProtocol.CREATE_GROUP, creatorName, groupName, description).get(0));
+    }
+
+    @Override
+    public void sendMessage(int roomId, String senderName, String content) {
+        send(ServiceProtocol.ROOM, roomId, senderName, content);
+    }
+
+    @Override
+    public void sendGroupMessage(int groupId, String senderName, String content) {
+        send(ServiceProtocol.GROUP, groupId, senderName, content);
+    }
+
+    /**
+     * Sendet eine Nachricht. Ist der Raum im Cache, wird sie sofort angehängt und die
+     * Bestätigung im Hintergrund abgewartet, sonst wird synchron gesendet.
+     */
+    private void send(String kind, int id, String senderName, String content) {
+        login(senderName);
+        String key = key(kind, id);
+        String clientId = clientPrefix + '-' + clientIds.incrementAndGet();
+        if (!loaded.contains(key)) {
+            request(null, ServiceProtocol.SEND, kind, id, clientId, content);
+            return;
+        }
+
+        MessageStore store = histories.get(key);
+        long seq = store.append(new Message(localUser(senderName), content));
+        pendingSends.put(clientId, new Pending(key, seq));
+        notifyUpdate();
+        call(null, ServiceProtocol.SEND, kind, id, clientId, content).whenComplete((result, error) -> {
+            if (pendingSends.remove(clientId) == null || error == null) return; // Bestätigt
+            store.delete(seq);
+            rolledBack.incrementAndGet();
+            notifyUpdate();
+            RuntimeException failure = error instanceof RuntimeException
+                    ? (RuntimeException) error : new IllegalStateException(error);
+            for (Consumer<RuntimeException> listener : sendFailureListeners) listener.accept(failure);
+        });
+    }
+
+    /**
+     * Sendet das Signal, ohne auf die Antwort zu warten; ein verlorenes Signal wird mit
+     * dem nächsten Tastendruck ersetzt. Der Server meldet es für den angemeldeten Benutzer.
+     */
+    @Override
+    public void sendTyping(int chatId, boolean group, String userName) {
+        login(userName);
+        call(null, ServiceProtocol.TYPING, group ? ServiceProtocol.GROUP : ServiceProtocol.ROOM, chatId);
+    }
+
+    /**
+     * Übersetzt die lokale Sequenz in die des Servers. Unbestätigte Nachrichten und
+     * solche aus dem Snapshot haben keine; dann gilt die letzte davor bekannte. Der
+     * Server vermerkt die Marke für den angemeldeten Benutzer.
+     */
+    @Override
+    public void markGroupRead(int groupId, String userName, long seq) {
+        login(userName);
+        MessageStore store = histories.get(key(ServiceProtocol.GROUP, groupId));
+        if (store == null) return;
+        for (long local = Math.min(seq, store.nextSequence() - 1); local >= store.firstSequence(); local--) {
+            Message message = store.get(local);
+            Long serverSeq = message == null ? null : serverSeqs.get(message);
+            if (serverSeq != null) {
+                request(null, ServiceProtocol.READ, groupId, serverSeq);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Lädt die Datei über den {@link BlobClient} hoch und sendet dann nur den Verweis.
+     * Der Anhang erscheint erst mit dem Push des Servers im Verlauf.
+     */
+    @Override
+    public void sendFile(int chatId, boolean group, String senderName, Path file) {
+        if (blobs == null) throw new IllegalStateException("Server bietet keine Anhänge an");
+        login(senderName);
+        String uploadId;
+        try {
+            uploadId = blobs.startUpload(file.getFileName().toString(), Files.size(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Datei konnte nicht gelesen werden: " + file, e);
+        }
+        blobs.resume(uploadId, file);
+        request(null, ServiceProtocol.ATTACH, group ? ServiceProtocol.GROUP : ServiceProtocol.ROOM, chatId, uploadId);
+    }
+
+    @Override
+    public MessageStore getChatRoomHistory(int roomId) {
+        return history(ServiceProtocol.ROOM, roomId);
+    }
+
+    @Override
+    public MessageStore getGroupHistory(int groupId) {
+        return history(ServiceProtocol.GROUP, groupId);
+    }
+
+    /**
+     * Lädt beim ersten Zugriff die letzten Nachrichten eines Raums in den Cache. Liegt
+     * der Raum im Snapshot, wird dessen Seite sofort dekodiert und nur der Rest im
+     * Hintergrund nachgeladen. Der Verlauf wird im Lese-Thread ergänzt, bevor der
+     * nächste Push verarbeitet wird, sodass zwischen Antwort und Push keine Nachricht
+     * verloren geht.
+     */
+    private MessageStore history(String kind, int id) {
+        String key = key(kind, id);
+        MessageStore store = openStore(key);
+        if (loaded.contains(key)) return store;
+        if (loggedIn == null && snapshotOwner != null) login(snapshotOwner); // Der Snapshot gehört seinem Besitzer
+
+        ClientSnapshot.Page page = snapshotPages.remove(key);
+        if (page != null) {
+            for (Message message : page.messages(this::mirror)) store.append(message);
+            serverNext.put(key, page.serverNext);
+            call(fields -> catchUp(key, fields, true), ServiceProtocol.HISTORY, kind, id, RECENT_MESSAGES, page.serverNext);
+            return store;
+        }
+        request(fields -> catchUp(key, fields, false), ServiceProtocol.HISTORY, kind, id, RECENT_MESSAGES,
+                serverNext.getOrDefault(key, 0L));
+        return store;
+    }
+
+    /**
+     * Hängt die Antwort auf HISTORY an den Verlauf an (im Lese-Thread). Fehlen
+     * Nachrichten zwischen dem bisherigen Stand und der Antwort, wird der alte Stand
+     * verworfen.
+     */
+    private void catchUp(String key, List<String> fields, boolean notify) {
+        if (loaded.contains(key)) return; // Parallel bereits geladen
+        MessageStore store = openStore(key);
+        long from = Long.parseLong(fields.get(0));
+        boolean changed = from > serverNext.getOrDefault(key, 0L) && store.count() > 0;
+        if (changed) store.deleteBefore(store.nextSequence());
+        for (int i = 2; i + 5 < fields.size(); i += 6) {
+            Message message = message(fields, i + 1);
+            serverSeqs.put(message, Long.parseLong(fields.get(i)));
+            store.append(message);
+            changed = true;
+        }
+        serverNext.put(key, Long.parseLong(fields.get(1)));
+        loaded.add(key);
+        if (notify && changed) notifyUpdate();
+    }
+
+    @Override
+    public String updateUserProfile(String oldName, String newName, UserInfo newStatus, String newStatusText) {
+        login(oldName);
+        String name = request(null, ServiceProtocol.PROFILE, newName, newStatus, newStatusText).get(0);
+        synchronized (this) {
+            loggedIn = name;
+        }
+        return name;
+    }
+
+    /**
+     * Schreibt den Snapshot und trennt die Verbindung. Offene Anfragen schlagen fehl,
+     * unbestätigte Nachrichten werden aus dem Verlauf entfernt.
+     */
+    @Override
+    public void close() {
+        if (snapshotFile != null && !closed) save();
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException e) {
+        }
+    }
+
+    /** @return Optimistisch angezeigte Nachrichten, deren Bestätigung noch aussteht */
+    public int getPendingSends() { return pendingSends.size(); }
+
+    /** @return Vom Server abgelehnte und wieder entfernte Nachrichten */
+    public long getRolledBack() { return rolledBack.get(); }
+
+    // --- Verbindung ---
+
+    /**
+     * Sendet eine Anfrage und wartet auf die Antwort.
+     *
+     * @param apply Verarbeitet die Antwort im Lese-Thread, bevor weitere Zeilen gelesen werden (kann null sein)
+     * @return Die Nutzfelder der Antwort
+     * @throws IllegalArgumentException mit der Meldung des Servers, wenn er die Anfrage ablehnt
+     * @throws IllegalStateException    wenn keine Antwort kommt
+     */
+    private List<String> request(Consumer<List<String>> apply, String command, Object... args) {
+        return await(call(apply, command, args), command);
+    }
+
+    private List<String> await(CompletableFuture<List<String>> result, String command) {
+        try {
+            return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Keine Antwort vom Server auf " + command);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Unterbrochen beim Warten auf " + command);
+        }
+    }
+
+    private CompletableFuture<List<String>> call(Consumer<List<String>> apply, String command, Object... args) {
+        long requestId = requestIds.incrementAndGet();
+        Call call = new Call(apply);
+        calls.put(requestId, call);
+        List<Object> head = List.of(requestId, command);
+        out.println(ServiceProtocol.line(head, Arrays.asList(args))); // null wird als leeres Feld gesendet
+        if (closed || out.checkError()) {
+            calls.remove(requestId);
+            call.result.completeExceptionally(new IllegalStateException("Verbindung zum Server getrennt"));
+        }
+        return call.result;
+    }
+
+    /**
+     * Liest Antworten und Pushes, bis die Verbindung endet.
+     */
+    private void read(BufferedReader in) {
+        try (in) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                List<String> fields = ServiceProtocol.fields(line);
+                if (ServiceProtocol.PUSH.equals(fields.get(0))) {
+                    handlePush(fields);
+                    continue;
+                }
+                Call call = calls.remove(Long.parseLong(fields.get(0)));
+                if (call == null) continue;
+                List<String> payload = fields.subList(2, fields.size());
+                if (ServiceProtocol.OK.equals(fields.get(1))) {
+                    try {
+                        if (call.apply != null) call.apply.accept(payload);
+                        call.result.complete(payload);
+                    } catch (RuntimeException e) {
+                        call.result.completeExceptionally(e);
+                    }
+                } else {
+                    call.result.completeExceptionally(new IllegalArgumentException(payload.isEmpty() ? "" : payload.get(0)));
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) System.out.println("Verbindung zum Server verloren: " + e.getMessage());
+        } finally {
+            closed = true;
+            IllegalStateException failure = new IllegalStateException("Verbindung zum Server getrennt");
+            for (Long requestId : calls.keySet()) {
+                Call call = calls.remove(requestId);
+                if (call != null) call.result.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private void handlePush(List<String> fields) {
+        switch (fields.get(1)) {
+            case ServiceProtocol.MESSAGE: {
+                String key = key(fields.get(2), Integer.parseInt(fields.get(3)));
+                if (!loaded.contains(key)) return;
+                long seq = Long.parseLong(fields.get(4));
+                if (seq < serverNext.getOrDefault(key, 0L)) return; // Schon über HISTORY geladen
+                serverNext.merge(key, seq + 1, Math::max);
+                Pending own = fields.get(5).isEmpty() ? null : pendingSends.remove(fields.get(5));
+                if (own != null) {
+                    // Eigene Nachricht, bereits angezeigt: nur Absender und Sequenz des Servers übernehmen
+                    Message shown = histories.get(own.key).get(own.seq);
+                    if (shown != null) {
+                        shown.setSender(mirror(Integer.parseInt(fields.get(6)), fields.get(7)));
+                        serverSeqs.put(shown, seq);
+                    }
+                    return;
+                }
+                Message message = message(fields, 6);
+                serverSeqs.put(message, seq);
+                histories.get(key).append(message);
+                notifyUpdate();
+                break;
+            }
+            case ServiceProtocol.UPDATE:
+                sidebarVersion.incrementAndGet(); // Listen bleiben für den Snapshot erhalten, gelten aber als veraltet
+                notifyUpdate();
+                break;
+            case ServiceProtocol.UNWATCH:
+                loaded.remove(key(fields.get(2), fields.get(3))); // Nächster Zugriff lädt ab serverNext nach
+                break;
+            case ServiceProtocol.TYPING: {
+                boolean group = ServiceProtocol.GROUP.equals(fields.get(2));
+                int chatId = Integer.parseInt(fields.get(3));
+                for (TypingListener listener : typingListeners) listener.onTyping(chatId, group, fields.get(4));
+                break;
+            }
+            case ServiceProtocol.PRESENCE: {
+                List<PresenceState> changes = new ArrayList<>();
+                for (int i = 2; i + 4 < fields.size(); i += 5) {
+                    User user = mirror(Integer.parseInt(fields.get(i)), fields.get(i + 1));
+                    user.setOnline(Boolean.parseBoolean(fields.get(i + 2)));
+                    user.setUserInfo(UserInfo.valueOf(fields.get(i + 3)));
+                    user.setStatusText(fields.get(i + 4));
+                    changes.add(PresenceState.of(user));
+                }
+                for (PresenceListener listener : presenceListeners) listener.onPresenceChanged(changes);
+                break;
+            }
+            default:
+                // Unbekannte Pushes neuerer Server ignorieren
+        }
+    }
+
+    private void notifyUpdate() {
+        for (Runnable listener : updateListeners) {
+            listener.run();
+        }
+    }
+
+    // --- Lokaler Cache ---
+
+    private static String key(String kind, Object id) {
+        return kind + "-" + id;
+    }
+
+    private MessageStore openStore(String roomKey) {
+        return histories.computeIfAbsent(roomKey, key -> new InMemoryMessageStore());
+    }
+
+    /**
+     * Gibt das Abbild eines Benutzers zurück und übernimmt einen geänderten Namen.
+     */
+    private User mirror(int userId, String username) {
+        User user = users.computeIfAbsent(userId, id -> new User(id, username));
+        if (!user.getUsername().equals(username)) user.setUsername(username);
+        return user;
+    }
+
+    private User mirror(int userId) {
+        return users.computeIfAbsent(userId, id -> new User(id, ""));
+    }
+
+    private GruppenRoom mirrorGroup(int groupId, User creator, String name, String description) {
+        return groups.computeIfAbsent(groupId, id -> new GruppenRoom(id, creator, name, description, this::openStore));
+    }
+
+    private User localUser(String username) {
+        for (User user : users.values()) {
+            if (user.getUsername().equals(username)) return user;
+        }
+        return new User(-1, username); // Eigener Benutzer ohne bisherigen Push
+    }
+
+    private Message message(List<String> fields, int at) {
+        return new Message(mirror(Integer.parseInt(fields.get(at)), fields.get(at + 1)), fields.get(at + 4),
+                MessageType.valueOf(fields.get(at + 2)), LocalDateTime.parse(fields.get(at + 3)));
+    }
+
+    // --- Snapshot ---
+
+    /**
+     * Übernimmt den Snapshot, sofern er von derselben Serverinstanz stammt.
+     */
+    private void restore() {
+        ClientSnapshot snapshot;
+        try {
+            snapshot = ClientSnapshot.load(snapshotFile);
+        } catch (UncheckedIOException | IllegalArgumentException e) {
+            System.out.println("Snapshot wird verworfen: " + e.getMessage());
+            return;
+        }
+        if (snapshot == null || !snapshot.getServerId().equals(serverId)) return;
+
+        for (User user : snapshot.getUsers()) users.putIfAbsent(user.getUserId(), user);
+        String owner = snapshot.getOwner();
+        long version = sidebarVersion.get();
+        List<User> contactList = new ArrayList<>();
+        for (int contactId : snapshot.getContactIds()) contactList.add(mirror(contactId));
+        contacts.put(owner, new Cached<>(Collections.unmodifiableList(contactList), version));
+        unsyncedContacts.add(owner);
+
+        List<Object> groupList = new ArrayList<>();
+        for (ClientSnapshot.Group entry : snapshot.getGroups()) {
+            GruppenRoom group = mirrorGroup(entry.groupId, mirror(entry.creatorId), entry.name, entry.description);
+            for (int memberId : entry.memberIds) {
+                User member = mirror(memberId);
+                if (!group.isParticipant(member)) group.addParticipant(member);
+            }
+            groupList.add(group);
+        }
+        chats.put(owner, new Cached<>(Collections.unmodifiableList(groupList), version));
+        unsyncedChats.add(owner);
+
+        rooms.putAll(snapshot.getRooms());
+        snapshotPages.putAll(snapshot.getPages());
+        snapshotOwner = owner;
+    }
+
+    /**
+     * Schreibt Seitenleiste, Chats und die letzte Seite jedes Raums. Räume, die seit
+     * dem Start nicht geöffnet wurden, übernehmen ihre Seite unverändert.
+     */
+    private void save() {
+        String owner = loggedIn != null ? loggedIn : snapshotOwner;
+        if (owner == null) return;
+
+        Cached<List<User>> contactList = contacts.get(owner);
+        int[] contactIds = contactList == null ? new int[0]
+                : contactList.value.stream().mapToInt(User::getUserId).toArray();
+        List<ClientSnapshot.Group> groupList = new ArrayList<>();
+        Cached<List<Object>> chatList = chats.get(owner);
+        if (chatList != null) {
+            for (Object chat : chatList.value) groupList.add(ClientSnapshot.Group.of((GruppenRoom) chat));
+        }
+        Map<String, ClientSnapshot.Page> pages = new LinkedHashMap<>(snapshotPages);
+        for (Map.Entry<String, Long> room : serverNext.entrySet()) { // Geöffnete Räume, auch ohne Antwort des Servers
+            pages.put(room.getKey(), ClientSnapshot.Page.of(room.getValue(), recentConfirmed(room.getKey())));
+        }
+        try {
+            new ClientSnapshot(serverId, owner, new ArrayList<>(users.values()), contactIds, groupList,
+                    new LinkedHashMap<>(rooms), pages).save(snapshotFile);
+        } catch (UncheckedIOException e) {
+            System.out.println("Snapshot konnte nicht gespeichert werden: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gibt die letzten {@link #RECENT_MESSAGES} vom Server bestätigten Nachrichten eines
+     * Verlaufs zurück; unbestätigte kommen beim nächsten Start über HISTORY nach.
+     */
+    private List<Message> recentConfirmed(String key) {
+        MessageStore store = histories.get(key);
+        List<Long> pending = new ArrayList<>();
+        for (Pending send : pendingSends.values()) {
+            if (send.key.equals(key)) pending.add(send.seq);
+        }
+        List<Message> recent = new ArrayList<>();
+        for (long seq = store.nextSequence() - 1; seq >= store.firstSequence() && recent.size() < RECENT_MESSAGES; seq--) {
+            Message message = store.get(seq);
+            if (message != null && !pending.contains(seq) && message.getSender() != null
+                    && message.getSender().getUserId() >= 0) {
+                recent.add(message);
+            }
+        }
+        Collections.reverse(recent);
+        return recent;
+    }
+
+    /**
+     * Liste der Seitenleiste mit dem UPDATE-Stand, zu dem sie geladen wurde.
+     */
+    private static final class Cached<T> {
+        private final T value;
+        private final long version;
+
+        private Cached(T value, long version) {
+            this.value = value;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Optimistisch angezeigte Nachricht, deren Bestätigung aussteht.
+     */
+    private static final class Pending {
+        private final String key;
+        private final long seq;
+
+        private Pending(String key, long seq) {
+            this.key = key;
+            this.seq = seq;
+        }
+    }
+
+    /**
+     * Offene Anfrage.
+     */
+    private static final class Call {
+        private final CompletableFuture<List<String>> result = new CompletableFuture<>();
+        private final Consumer<List<String>> apply;     // Läuft im Lese-Thread vor Abschluss
+
+        private Call(Consumer<List<String>> apply) {
+            this.apply = apply;
+        }
+    }
+}
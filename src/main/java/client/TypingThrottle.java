@@ -0,0 +1,77 @@
+package client;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Begrenzt auf Client-Seite, wie oft Tipp-Signale gesendet werden.
+ *
+ * Pro Raum wird höchstens ein Signal je {@code interval} durchgelassen, egal wie viele
+ * Tastendrücke es gibt. Das Intervall muss kürzer sein als die Anzeigedauer auf dem
+ * Server ({@code TypingTracker.DEFAULT_TTL_MILLIS}), damit die Anzeige beim
+ * Weitertippen nicht flackert.
+ */
+public class TypingThrottle {
+    public static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(3);
+
+    private final Clock clock;
+    private final long intervalMillis;
+    private final Map<String, Long> lastSent = new HashMap<>(); // Raum -> Zeitpunkt des letzten Signals
+    private long suppressed;                                  // Unterdrückte Signale
+
+    /**
+     * Erstellt eine Drossel mit Standardintervall.
+     */
+    public TypingThrottle() {
+        this(Clock.systemUTC(), DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Erstellt eine Drossel.
+     *
+     * @param clock    Uhr für die Intervallprüfung
+     * @param interval Mindestabstand zweier Signale pro Raum
+     */
+    public TypingThrottle(Clock clock, Duration interval) {
+        this.clock = Objects.requireNonNull(clock, "Clock darf nicht null sein");
+        this.intervalMillis = interval.toMillis();
+    }
+
+    /**
+     * Meldet einen Tastendruck in einem Raum.
+     *
+     * @param roomKey Der Raum
+     * @return true wenn jetzt ein Tipp-Signal gesendet werden soll
+     */
+    public synchronized boolean onKeystroke(String roomKey) {
+        long now = clock.millis();
+        Long last = lastSent.get(roomKey);
+        if (last != null && now - last < intervalMillis) {
+            suppressed++;
+            return false;
+        }
+        lastSent.put(roomKey, now);
+        return true;
+    }
+
+    /**
+     * Setzt die Drossel eines Raums zurück, z.B. nachdem die Nachricht gesendet wurde.
+     *
+     * @param roomKey Der Raum
+     */
+    public synchronized void reset(String roomKey) {
+        lastSent.remove(roomKey);
+    }
+
+    /**
+     * Gibt die Anzahl der unterdrückten Signale zurück.
+     *
+     * @return Unterdrückte Signale
+     */
+    public synchronized long getSuppressed() {
+        return suppressed;
+    }
+}
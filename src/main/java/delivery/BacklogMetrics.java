@@ -0,0 +1,100 @@
+package delivery;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Kennzahlen der Zwischenspeicherung für abgemeldete Benutzer und volle Sitzungen:
+ * aktueller Rückstau, verworfene Einträge und Dauer des Abarbeitens.
+ */
+public class BacklogMetrics {
+    private final AtomicLong backlog = new AtomicLong();        // Aktuell wartende Zeiger
+    private final AtomicLong maxBacklog = new AtomicLong();     // Höchster Rückstau insgesamt
+    private final LongAdder dropped = new LongAdder();          // Wegen Kapazität verworfene Zeiger
+    private final LongAdder drains = new LongAdder();           // Abgeschlossene Abarbeitungen
+    private final LongAdder drained = new LongAdder();          // Zugestellte Zeiger
+    private final LongAdder drainNanos = new LongAdder();
+    private final AtomicLong maxDrainNanos = new AtomicLong();
+
+    void recordQueued(int count) {
+        long current = backlog.addAndGet(count);
+        maxBacklog.accumulateAndGet(current, Math::max);
+    }
+
+    void recordDropped(int count) {
+        dropped.add(count);
+        backlog.addAndGet(-count);
+    }
+
+    void recordDrained(int count) {
+        drained.add(count);
+        backlog.addAndGet(-count);
+    }
+
+    void recordDrain(long nanos) {
+        drains.increment();
+        drainNanos.add(nanos);
+        maxDrainNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Gibt die Anzahl der aktuell für abgemeldete Benutzer wartenden Zustellungen zurück.
+     *
+     * @return Aktueller Rückstau
+     */
+    public long getBacklog() {
+        return backlog.get();
+    }
+
+    /**
+     * Gibt den höchsten bisher beobachteten Rückstau zurück.
+     *
+     * @return Maximaler Rückstau
+     */
+    public long getMaxBacklog() {
+        return maxBacklog.get();
+    }
+
+    /**
+     * Gibt die Anzahl der wegen voller Warteschlangen verworfenen Zustellungen zurück.
+     *
+     * @return Verworfene Zustellungen
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Gibt die Anzahl der nach dem Anmelden nachgelieferten Zustellungen zurück.
+     *
+     * @return Nachgelieferte Zustellungen
+     */
+    public long getDrained() {
+        return drained.sum();
+    }
+
+    /**
+     * Gibt die durchschnittliche Dauer zurück, bis ein Rückstau nach dem Anmelden abgearbeitet war.
+     *
+     * @return Durchschnitt in Mikrosekunden oder 0 ohne Messwerte
+     */
+    public double getAverageDrainMicros() {
+        long count = drains.sum();
+        return count == 0 ? 0 : drainNanos.sum() / (count * 1000.0);
+    }
+
+    /**
+     * Gibt die längste Abarbeitungsdauer zurück.
+     *
+     * @return Maximum in Mikrosekunden
+     */
+    public long getMaxDrainMicros() {
+        return maxDrainNanos.get() / 1000;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BacklogMetrics{backlog=%d, max=%d, dropped=%d, drained=%d, drainAvg=%.1fµs, drainMax=%dµs}",
+                getBacklog(), getMaxBacklog(), getDropped(), getDrained(), getAverageDrainMicros(), getMaxDrainMicros());
+    }
+}
@@ -0,0 +1,35 @@
+package delivery;
+
+import domain.Message;
+
+/**
+ * Zustellungsauftrag für eine Gruppennachricht. Eine Instanz wird von allen
+ * Empfängern gemeinsam referenziert und daher nie verändert.
+ */
+public final class Delivery {
+    private final int groupId;          // Zielgruppe
+    private final long seq;             // Sequenznummer der Nachricht in der Gruppe
+    private final Message message;      // Gemeinsam referenzierte Nachricht
+
+    /**
+     * Erstellt einen Zustellungsauftrag.
+     *
+     * @param groupId Die Gruppe, in der die Nachricht gesendet wurde
+     * @param seq     Die Sequenznummer der Nachricht
+     * @param message Die Nachricht
+     */
+    public Delivery(int groupId, long seq, Message message) {
+        this.groupId = groupId;
+        this.seq = seq;
+        this.message = message;
+    }
+
+    /** @return Die ID der Zielgruppe */
+    public int getGroupId() { return groupId; }
+
+    /** @return Die Sequenznummer der Nachricht in der Gruppe */
+    public long getSeq() { return seq; }
+
+    /** @return Die gemeinsam referenzierte Nachricht */
+    public Message getMessage() { return message; }
+}
@@ -0,0 +1,113 @@
+package delivery;
+
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Zustellwarteschlange der Sitzung eines angemeldeten Benutzers.
+ * Fan-out-Worker schreiben hinein, die Sitzung liest in ihrem eigenen Tempo.
+ *
+ * Die Warteschlange ist begrenzt. Ist sie voll, merkt die {@link FanOutEngine} weitere
+ * Zustellungen als Zeiger vor und liefert sie nach, sobald die Sitzung wieder
+ * mindestens die Hälfte der Plätze freigegeben hat.
+ */
+public class DeliveryQueue {
+    private final int userId;                                       // Besitzer der Sitzung
+    private final BlockingQueue<Delivery> pending;
+    private final int resumeAt;                                     // Freie Plätze, ab denen nachgeliefert wird
+    private final AtomicReference<Runnable> onSpace = new AtomicReference<>(); // Wartendes Nachliefern
+
+    DeliveryQueue(int userId, int capacity) {
+        this.userId = userId;
+        this.pending = new LinkedBlockingQueue<>(capacity);
+        this.resumeAt = Math.max(1, capacity / 2);
+    }
+
+    /**
+     * @return false wenn die Warteschlange voll ist
+     */
+    boolean offer(Delivery delivery) {
+        return pending.offer(delivery);
+    }
+
+    /**
+     * Führt {@code resume} aus, sobald die Sitzung genug Platz freigegeben hat; sofort,
+     * wenn das schon der Fall ist. Ein früher übergebener Auftrag wird ersetzt.
+     */
+    void whenSpace(Runnable resume) {
+        onSpace.set(resume);
+        if (pending.remainingCapacity() >= resumeAt) signalSpace();
+    }
+
+    /**
+     * Nimmt den wartenden Auftrag zurück, z.B. weil die Sitzung abgemeldet wurde.
+     *
+     * @return Der Auftrag oder null, wenn keiner wartet
+     */
+    Runnable cancelWait() {
+        return onSpace.getAndSet(null);
+    }
+
+    private <T> T taken(T result) {
+        if (onSpace.get() != null && pending.remainingCapacity() >= resumeAt) signalSpace();
+        return result;
+    }
+
+    private void signalSpace() {
+        Runnable resume = onSpace.getAndSet(null);
+        if (resume != null) resume.run();
+    }
+
+    /**
+     * Entnimmt die nächste Zustellung, ohne zu warten.
+     *
+     * @return Die Zustellung oder null, wenn keine vorliegt
+     */
+    public Delivery poll() {
+        return taken(pending.poll());
+    }
+
+    /**
+     * Wartet höchstens die angegebene Zeit auf die nächste Zustellung.
+     *
+     * @param timeout Maximale Wartezeit
+     * @param unit    Einheit der Wartezeit
+     * @return Die Zustellung oder null bei Zeitüberschreitung
+     * @throws InterruptedException wenn der Thread unterbrochen wird
+     */
+    public Delivery poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return taken(pending.poll(timeout, unit));
+    }
+
+    /**
+     * Überträgt bis zu {@code max} Zustellungen in die angegebene Sammlung.
+     *
+     * @param target Ziel der Zustellungen
+     * @param max    Maximale Anzahl
+     * @return Anzahl der übertragenen Zustellungen
+     */
+    public int drainTo(Collection<? super Delivery> target, int max) {
+        return taken(pending.drainTo(target, max));
+    }
+
+    /**
+     * Gibt die Anzahl der noch nicht abgeholten Zustellungen zurück.
+     *
+     * @return Länge der Warteschlange
+     */
+    public int size() {
+        return pending.size();
+    }
+
+    /**
+     * Gibt die User-ID des Sitzungsinhabers zurück.
+     *
+     * @return Die User-ID
+     */
+    public int getUserId() {
+        return userId;
+    }
+}
@@ -0,0 +1,332 @@
+package delivery;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import domain.GruppenRoom;
+import domain.Message;
+
+/**
+ * Verteilt Gruppennachrichten abseits des Sendepfads an die Sitzungen der Mitglieder.
+ *
+ * {@link #publish} reicht nur einen Auftrag ein und kehrt sofort zurück. Ein Worker
+ * übernimmt die Mitglieder-IDs der Gruppe als Schnappschuss und legt eine gemeinsam
+ * genutzte {@link Delivery} in die Warteschlange jedes angemeldeten Mitglieds.
+ * Große Gruppen werden in Blöcke von {@code chunkSize} Mitgliedern geteilt, die
+ * parallel auf alle Worker verteilt werden.
+ *
+ * Für abgemeldete Mitglieder wird nur ein Zeiger aus Gruppen-ID und Sequenznummer
+ * in einer begrenzten {@link PendingQueue} vorgemerkt. Beim nächsten {@link #connect}
+ * werden diese Zeiger blockweise aufgelöst und nachgeliefert. Ebenso, wenn die
+ * {@link DeliveryQueue} einer langsamen Sitzung voll ist; dann wird nachgeliefert,
+ * sobald sie wieder Platz hat. Solange ein Rückstau
+ * besteht, werden auch neue Zustellungen hinten angestellt, damit sie ihn nicht
+ * überholen; pro Benutzer läuft höchstens eine Abarbeitung.
+ */
+public class FanOutEngine implements AutoCloseable {
+    public static final int DEFAULT_CHUNK_SIZE = 2048;
+    public static final int DEFAULT_PENDING_CAPACITY = 10_000;  // Vorgemerkte Zustellungen pro Benutzer
+    public static final int DEFAULT_SESSION_CAPACITY = 1024;    // Nicht abgeholte Zustellungen pro Sitzung
+    static final int DRAIN_BATCH = 256;                         // Nachgelieferte Zeiger pro Schritt
+
+    private final ExecutorService workers;
+    private final int chunkSize;                                     // Mitglieder pro Block
+    private final int pendingCapacity;                               // Obergrenze je PendingQueue
+    private final int sessionCapacity;                               // Obergrenze je DeliveryQueue
+    private final IntFunction<GruppenRoom> groups;                   // Löst Gruppen-IDs beim Nachliefern auf
+    private final Map<Integer, DeliveryQueue> sessions = new ConcurrentHashMap<>();
+    private final Map<Integer, PendingQueue> pending = new ConcurrentHashMap<>();
+    private final FanOutMetrics metrics = new FanOutMetrics();
+    private final BacklogMetrics backlogMetrics = new BacklogMetrics();
+
+    /**
+     * Erstellt eine Engine mit einem Worker pro Prozessorkern.
+     *
+     * @param groups Liefert die Gruppe zu einer Gruppen-ID
+     */
+    public FanOutEngine(IntFunction<GruppenRoom> groups) {
+        this(groups, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE, DEFAULT_PENDING_CAPACITY);
+    }
+
+    /**
+     * Erstellt eine Engine.
+     *
+     * @param groups          Liefert die Gruppe zu einer Gruppen-ID
+     * @param threads         Anzahl der Fan-out-Worker
+     * @param chunkSize       Anzahl der Mitglieder, die ein Worker am Stück bearbeitet
+     * @param pendingCapacity Maximale Anzahl vorgemerkter Zustellungen pro abgemeldetem Benutzer
+     * @throws IllegalArgumentException wenn einer der Werte nicht positiv ist
+     */
+    public FanOutEngine(IntFunction<GruppenRoom> groups, int threads, int chunkSize, int pendingCapacity) {
+        this(groups, threads, chunkSize, pendingCapacity, DEFAULT_SESSION_CAPACITY);
+    }
+
+    /**
+     * Erstellt eine Engine mit begrenzten Sitzungswarteschlangen.
+     *
+     * @param groups          Liefert die Gruppe zu einer Gruppen-ID
+     * @param threads         Anzahl der Fan-out-Worker
+     * @param chunkSize       Anzahl der Mitglieder, die ein Worker am Stück bearbeitet
+     * @param pendingCapacity Maximale Anzahl vorgemerkter Zustellungen pro Benutzer
+     * @param sessionCapacity Maximale Anzahl nicht abgeholter Zustellungen pro Sitzung
+     * @throws IllegalArgumentException wenn einer der Werte nicht positiv ist
+     */
+    public FanOutEngine(IntFunction<GruppenRoom> groups, int threads, int chunkSize, int pendingCapacity,
+            int sessionCapacity) {
+        this.groups = Objects.requireNonNull(groups, "Groups darf nicht null sein");
+        if (threads < 1 || chunkSize < 1 || pendingCapacity < 1 || sessionCapacity < 1) {
+            throw new IllegalArgumentException("Threads, ChunkSize und Kapazitäten müssen positiv sein");
+        }
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "fan-out-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.chunkSize = chunkSize;
+        this.pendingCapacity = pendingCapacity;
+        this.sessionCapacity = sessionCapacity;
+    }
+
+    /**
+     * Meldet die Sitzung eines Benutzers an. Eine bestehende Sitzung wird weiterverwendet.
+     * Während der Abmeldung vorgemerkte Zustellungen werden im Hintergrund nachgeliefert,
+     * vor allen Zustellungen, die nach der Anmeldung eintreffen.
+     *
+     * @param userId Die User-ID
+     * @return Die Zustellwarteschlange der Sitzung
+     */
+    public DeliveryQueue connect(int userId) {
+        PendingQueue backlog = backlog(userId);
+        synchronized (backlog) { // Sitzung und Abarbeitung gemeinsam veröffentlichen
+            DeliveryQueue queue = sessions.computeIfAbsent(userId, id -> new DeliveryQueue(id, sessionCapacity));
+            startDrain(userId, backlog, System.nanoTime());
+            return queue;
+        }
+    }
+
+    private PendingQueue backlog(int userId) {
+        return pending.computeIfAbsent(userId, id -> new PendingQueue(pendingCapacity));
+    }
+
+    /**
+     * Meldet die Sitzung eines Benutzers ab. Neue Zustellungen werden ab jetzt vorgemerkt.
+     *
+     * @param userId Die User-ID
+     */
+    public void disconnect(int userId) {
+        DeliveryQueue queue = sessions.remove(userId);
+        Runnable waiting = queue != null ? queue.cancelWait() : null;
+        if (waiting != null) waiting.run(); // Wartendes Nachliefern beenden, damit es freigegeben wird
+    }
+
+    /**
+     * Prüft ob ein Benutzer eine angemeldete Sitzung besitzt.
+     *
+     * @param userId Die User-ID
+     * @return true wenn der Benutzer angemeldet ist
+     */
+    public boolean isConnected(int userId) {
+        return sessions.containsKey(userId);
+    }
+
+    /**
+     * Gibt die Anzahl der für einen Benutzer vorgemerkten Zustellungen zurück.
+     *
+     * @param userId Die User-ID
+     * @return Anzahl der wartenden Zustellungen
+     */
+    public int getPendingCount(int userId) {
+        PendingQueue queue = pending.get(userId);
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Reicht eine bereits gespeicherte Gruppennachricht zur Verteilung ein.
+     *
+     * @param group   Die Zielgruppe
+     * @param seq     Die Sequenznummer der Nachricht in der Gruppe
+     * @param message Die Nachricht
+     * @throws IllegalStateException wenn die Engine bereits geschlossen wurde
+     */
+    public void publish(GruppenRoom group, long seq, Message message) {
+        Delivery delivery = new Delivery(group.getGroupId(), seq, message);
+        long submitted = System.nanoTime();
+        try {
+            workers.execute(() -> fanOut(group, delivery, submitted));
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("FanOutEngine ist geschlossen", e);
+        }
+    }
+
+    private void fanOut(GruppenRoom group, Delivery delivery, long submitted) {
+        int[] members = group.getParticipantIds(); // Schnappschuss unter Gruppensperre
+        int chunks = (members.length + chunkSize - 1) / chunkSize;
+        if (chunks <= 1) {
+            deliver(members, 0, members.length, delivery);
+            metrics.recordFanOut(members.length, System.nanoTime() - submitted);
+            return;
+        }
+
+        AtomicInteger remaining = new AtomicInteger(chunks);
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int from = chunk * chunkSize;
+            int to = Math.min(from + chunkSize, members.length);
+            Runnable task = () -> {
+                deliver(members, from, to, delivery);
+                if (remaining.decrementAndGet() == 0) {
+                    metrics.recordFanOut(members.length, System.nanoTime() - submitted);
+                }
+            };
+            if (chunk == chunks - 1) {
+                task.run(); // Letzten Block selbst bearbeiten statt zu warten
+                continue;
+            }
+            try {
+                workers.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.run(); // Beim Herunterfahren noch vollständig zustellen
+            }
+        }
+    }
+
+    private void deliver(int[] members, int from, int to, Delivery delivery) {
+        int delivered = 0;
+        int queued = 0;
+        int dropped = 0;
+        long pointer = PendingQueue.pointer(delivery.getGroupId(), delivery.getSeq());
+        for (int i = from; i < to; i++) {
+            int userId = members[i];
+            PendingQueue backlog = backlog(userId);
+            synchronized (backlog) {
+                DeliveryQueue queue = sessions.get(userId);
+                if (queue != null && !backlog.isDraining() && backlog.size() == 0 && queue.offer(delivery)) {
+                    delivered++;
+                    continue;
+                }
+
+                if (backlog.add(pointer)) dropped++; // Hinter dem Rückstau anstellen oder überlaufen
+                queued++;
+                if (queue != null) startDrain(userId, backlog, System.nanoTime());
+            }
+        }
+        metrics.recordDelivered(delivered);
+        backlogMetrics.recordQueued(queued);
+        if (dropped > 0) backlogMetrics.recordDropped(dropped);
+    }
+
+    /**
+     * Startet die Abarbeitung des Rückstaus, sofern keine läuft. Der Aufrufer hält die
+     * Sperre der {@link PendingQueue}.
+     */
+    private void startDrain(int userId, PendingQueue backlog, long started) {
+        if (backlog.isDraining() || backlog.size() == 0) return;
+        backlog.setDraining(true);
+        scheduleDrain(userId, backlog, started);
+    }
+
+    private void scheduleDrain(int userId, PendingQueue backlog, long started) {
+        try {
+            workers.execute(() -> drain(userId, backlog, started));
+        } catch (RejectedExecutionException e) {
+            backlog.setDraining(false); // Beim Herunterfahren bleibt der Rückstau vorgemerkt
+        }
+    }
+
+    /**
+     * Liefert einen Block vorgemerkter Zustellungen nach und plant den nächsten Block
+     * als eigenen Auftrag ein, damit andere Fan-outs nicht blockiert werden. Die
+     * Abarbeitung endet erst, wenn der Rückstau leer oder der Benutzer abgemeldet ist;
+     * ist die Sitzung voll, wartet sie, bis diese wieder Platz hat.
+     */
+    private void drain(int userId, PendingQueue backlog, long started) {
+        DeliveryQueue session = sessions.get(userId);
+        long[] batch = new long[DRAIN_BATCH];
+        int n = session != null ? backlog.drain(batch) : 0;
+        int delivered = 0;
+        for (int i = 0; i < n; i++) {
+            if (sessions.get(userId) != session) {
+                int lost = backlog.restore(batch, i, n); // Rest für die nächste Sitzung aufheben
+                if (lost > 0) backlogMetrics.recordDropped(lost);
+                break;
+            }
+            Delivery delivery = resolve(batch[i]);
+            if (delivery != null && !session.offer(delivery)) {
+                int lost = backlog.restore(batch, i, n);
+                backlogMetrics.recordDrained(delivered);
+                if (lost > 0) backlogMetrics.recordDropped(lost);
+                session.whenSpace(() -> scheduleDrain(userId, backlog, started)); // Bleibt die Abarbeitung
+                if (sessions.get(userId) != session) {
+                    Runnable waiting = session.cancelWait(); // Gleichzeitig abgemeldet
+                    if (waiting != null) waiting.run();
+                }
+                return;
+            }
+            delivered++;
+        }
+        backlogMetrics.recordDrained(delivered);
+
+        synchronized (backlog) {
+            if (backlog.size() > 0 && sessions.containsKey(userId)) {
+                scheduleDrain(userId, backlog, started); // Nächster Block, auch für eine neue Sitzung
+                return;
+            }
+            backlog.setDraining(false);
+            if (backlog.size() == 0 && n > 0) backlogMetrics.recordDrain(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Löst einen Zeiger wieder in eine Zustellung auf. Gibt null zurück, wenn Gruppe
+     * oder Nachricht inzwischen gelöscht wurden.
+     */
+    private Delivery resolve(long pointer) {
+        GruppenRoom group = groups.apply(PendingQueue.groupId(pointer));
+        if (group == null) return null;
+        long seq = PendingQueue.seq(pointer);
+        try {
+            Message message = group.getMessageStore().get(seq);
+            return message == null ? null : new Delivery(group.getGroupId(), seq, message);
+        } catch (IndexOutOfBoundsException e) {
+            return null; // Bereits durch Aufbewahrungsregeln entfernt
+        }
+    }
+
+    /**
+     * Gibt die Fan-out-Kennzahlen zurück.
+     *
+     * @return Die Metriken
+     */
+    public FanOutMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gibt die Kennzahlen der Zwischenspeicherung für abgemeldete Benutzer zurück.
+     *
+     * @return Die Rückstau-Metriken
+     */
+    public BacklogMetrics getBacklogMetrics() {
+        return backlogMetrics;
+    }
+
+    /**
+     * Beendet die Worker, nachdem alle eingereichten Aufträge verteilt wurden.
+     */
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package delivery;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fan-out-Latenz je Gruppengröße: Zeit vom Einreichen einer Nachricht bis zur
+ * Ablage in der letzten Zustellwarteschlange, getrennt nach Größenklassen.
+ */
+public class FanOutMetrics {
+    private static final int[] BUCKET_LIMITS = {10, 100, 1_000, 10_000, Integer.MAX_VALUE};
+    private static final String[] BUCKET_NAMES = {"<=10", "<=100", "<=1k", "<=10k", ">10k"};
+
+    private final LongAdder[] fanOuts = adders();           // Abgeschlossene Fan-outs je Klasse
+    private final LongAdder[] totalNanos = adders();        // Summierte Latenz je Klasse
+    private final AtomicLongArray maxNanos = new AtomicLongArray(BUCKET_LIMITS.length);
+    private final LongAdder delivered = new LongAdder();    // In Warteschlangen abgelegte Zustellungen
+
+    private static LongAdder[] adders() {
+        LongAdder[] adders = new LongAdder[BUCKET_LIMITS.length];
+        for (int i = 0; i < adders.length; i++) adders[i] = new LongAdder();
+        return adders;
+    }
+
+    private static int bucket(int members) {
+        int i = 0;
+        while (members > BUCKET_LIMITS[i]) i++;
+        return i;
+    }
+
+    void recordFanOut(int members, long nanos) {
+        int bucket = bucket(members);
+        fanOuts[bucket].increment();
+        totalNanos[bucket].add(nanos);
+        maxNanos.accumulateAndGet(bucket, nanos, Math::max);
+    }
+
+    void recordDelivered(int count) {
+        delivered.add(count);
+    }
+
+    /**
+     * Gibt die durchschnittliche Fan-out-Latenz für Gruppen dieser Größe zurück.
+     *
+     * @param members Anzahl der Gruppenmitglieder
+     * @return Durchschnitt in Mikrosekunden oder 0 ohne Messwerte
+     */
+    public double getAverageMicros(int members) {
+        int bucket = bucket(members);
+        long count = fanOuts[bucket].sum();
+        return count == 0 ? 0 : totalNanos[bucket].sum() / (count * 1000.0);
+    }
+
+    /**
+     * Gibt die höchste Fan-out-Latenz für Gruppen dieser Größe zurück.
+     *
+     * @param members Anzahl der Gruppenmitglieder
+     * @return Maximum in Mikrosekunden
+     */
+    public long getMaxMicros(int members) {
+        return TimeUnit.NANOSECONDS.toMicros(maxNanos.get(bucket(members)));
+    }
+
+    /**
+     * Gibt die Anzahl abgeschlossener Fan-outs zurück.
+     *
+     * @return Anzahl über alle Größenklassen
+     */
+    public long getFanOuts() {
+        long sum = 0;
+        for (LongAdder adder : fanOuts) sum += adder.sum();
+        return sum;
+    }
+
+    /**
+     * Gibt die Anzahl der insgesamt abgelegten Zustellungen zurück.
+     *
+     * @return Anzahl der Zustellungen
+     */
+    public long getDelivered() {
+        return delivered.sum();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("FanOutMetrics{");
+        for (int i = 0; i < BUCKET_LIMITS.length; i++) {
+            long count = fanOuts[i].sum();
+            if (count == 0) continue;
+            text.append(String.format("%s: n=%d avg=%.1fµs max=%dµs; ", BUCKET_NAMES[i], count,
+                    totalNanos[i].sum() / (count * 1000.0), TimeUnit.NANOSECONDS.toMicros(maxNanos.get(i))));
+        }
+        return text.append("delivered=").append(delivered.sum()).append('}').toString();
+    }
+}
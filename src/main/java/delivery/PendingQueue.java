@@ -0,0 +1,120 @@
+package delivery;
+
+/**
+ * Begrenzte Warteschlange noch nicht zugestellter Nachrichten eines abgemeldeten Benutzers.
+ *
+ * Gespeichert werden keine Nachrichten, sondern kompakte Zeiger {@code (groupId << 32) | seq}
+ * in einem wachsenden Ringpuffer aus {@code long}; Sequenznummern werden dabei auf
+ * 32 Bit gekürzt. Ist die Kapazität erreicht, wird der
+ * älteste Eintrag verworfen; die Nachricht bleibt im Verlauf der Gruppe erhalten.
+ *
+ * Die Sperre der Warteschlange ordnet zugleich direkte Zustellungen und das Abarbeiten
+ * für ihren Benutzer; {@link #isDraining()} wird nur unter ihr gelesen und gesetzt.
+ */
+final class PendingQueue {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final int maxCapacity;      // Obergrenze der Einträge
+    private long[] ring;
+    private int head;                   // Index des ältesten Eintrags
+    private int size;                   // Anzahl der Einträge
+    private boolean draining;           // Eine Abarbeitung ist eingeplant oder läuft
+
+    PendingQueue(int maxCapacity) {
+        this.maxCapacity = maxCapacity;
+        this.ring = new long[Math.min(INITIAL_CAPACITY, maxCapacity)];
+    }
+
+    static long pointer(int groupId, long seq) {
+        return ((long) groupId << 32) | (seq & 0xFFFFFFFFL);
+    }
+
+    static int groupId(long pointer) {
+        return (int) (pointer >>> 32);
+    }
+
+    static long seq(long pointer) {
+        return pointer & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Hängt einen Zeiger an.
+     *
+     * @return true wenn dafür der älteste Eintrag verworfen wurde
+     */
+    synchronized boolean add(long pointer) {
+        boolean dropped = false;
+        if (size == ring.length) {
+            if (ring.length < maxCapacity) {
+                grow();
+            } else {
+                head = (head + 1) % ring.length; // Ältesten Eintrag überschreiben
+                size--;
+                dropped = true;
+            }
+        }
+        ring[(head + size) % ring.length] = pointer;
+        size++;
+        return dropped;
+    }
+
+    /**
+     * Entnimmt bis zu {@code target.length} Zeiger in Einfügereihenfolge.
+     *
+     * @return Anzahl der entnommenen Zeiger
+     */
+    synchronized int drain(long[] target) {
+        int n = Math.min(size, target.length);
+        for (int i = 0; i < n; i++) {
+            target[i] = ring[(head + i) % ring.length];
+        }
+        head = (head + n) % ring.length;
+        size -= n;
+        if (size == 0 && ring.length > INITIAL_CAPACITY) {
+            ring = new long[INITIAL_CAPACITY]; // Speicher nach dem Abarbeiten freigeben
+            head = 0;
+        }
+        return n;
+    }
+
+    /**
+     * Stellt nicht zugestellte Zeiger wieder an den Anfang der Warteschlange.
+     *
+     * @return Anzahl der dabei verworfenen Zeiger, weil die Kapazität erreicht war
+     */
+    synchronized int restore(long[] pointers, int from, int to) {
+        int dropped = 0;
+        for (int i = to - 1; i >= from; i--) {
+            if (size == ring.length && ring.length < maxCapacity) grow();
+            if (size == ring.length) {
+                dropped++; // Neuere Einträge haben Vorrang
+                continue;
+            }
+            head = (head - 1 + ring.length) % ring.length;
+            ring[head] = pointers[i];
+            size++;
+        }
+        return dropped;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized boolean isDraining() {
+        return draining;
+    }
+
+    synchronized void setDraining(boolean draining) {
+        this.draining = draining;
+    }
+
+    private void grow() {
+        long[] larger = new long[Math.min(ring.length * 2, maxCapacity)];
+        for (int i = 0; i < size; i++) {
+            larger[i] = ring[(head + i) % ring.length];
+        }
+        ring = larger;
+        head = 0;
+    }
+}
@@ -1,18 +1,21 @@
 package domain;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+
+import id.IdGenerator;
+import id.IdKind;
+import store.MessageStore;
+import store.MessageStoreFactory;
+import store.MessageViews;
 
 /**
  * Repräsentiert einen Chatraum zwischen zwei Benutzern.
  * Verwaltet Nachrichten und Metadaten der Konversation.
  */
 public class ChatRoom {
-    private static int nextRoomId = 1000; // Zähler für automatische Raum-ID Vergabe
     private int roomId;                   // Eindeutige ID des Chatraums
-    private List<Message> messages;       // Liste aller Nachrichten im Raum
+    private MessageStore messages;        // Speicher aller Nachrichten im Raum
     private final LocalDateTime createdAt; // Erstellungszeitpunkt des Raums
     private User user1;                   // Erster Benutzer im Chat
     private User user2;                   // Zweiter Benutzer im Chat
@@ -24,8 +27,19 @@ public class ChatRoom {
      * @param user2 Der zweite Benutzer des Chats
      */
     public ChatRoom(User user1, User user2) {
-        this.roomId = nextRoomId++;         // Vergibt automatische ID
-        this.messages = new ArrayList<>();  // Initialisiert leere Nachrichtenliste
+        this(user1, user2, MessageStoreFactory.inMemory()); // Nachrichten im Heap
+    }
+
+    /**
+     * Erstellt einen neuen Chatraum, dessen Verlauf im angegebenen Backend gespeichert wird.
+     * 
+     * @param user1        Der erste Benutzer des Chats
+     * @param user2        Der zweite Benutzer des Chats
+     * @param storeFactory Legt den Nachrichtenspeicher des Raums an
+     */
+    public ChatRoom(User user1, User user2, MessageStoreFactory storeFactory) {
+        this.roomId = IdGenerator.getInstance().next(IdKind.CHAT_ROOM); // Vergibt automatische ID
+        this.messages = storeFactory.open("chat-" + roomId); // Öffnet den Nachrichtenspeicher
         this.createdAt = LocalDateTime.now(); // Setzt aktuellen Zeitpunkt
         this.user1 = user1;
         this.user2 = user2;
@@ -35,12 +49,10 @@ public class ChatRoom {
      * Fügt eine Nachricht zum Chatraum hinzu.
      * 
      * @param message Die hinzuzufügende Nachricht
+     * @return Die Sequenznummer der Nachricht im Raum
      */
-    public void addMessage(Message message) {
-        if (messages == null) 
-            messages = new ArrayList<>(); // Sicherstellt, dass Liste existiert
-        
-        messages.add(message); // Nachricht zur Liste hinzufügen
+    public long addMessage(Message message) {
+        return messages.append(message); // Nachricht im Speicher ablegen
     }
     
     // Getter-Methoden für Zugriff auf private Felder
@@ -74,10 +86,20 @@ public class ChatRoom {
     
     /**
      * Gibt die Liste aller Nachrichten im Chatraum zurück.
+     * Die Liste ist eine unveränderliche Sicht, die Nachrichten erst beim Zugriff lädt.
      * 
      * @return Liste von Message-Objekten
      */
     public List<Message> getMessages() {
+        return messages.view();
+    }
+
+    /**
+     * Gibt den Nachrichtenspeicher des Chatraums zurück.
+     * 
+     * @return Der MessageStore des Raums
+     */
+    public MessageStore getMessageStore() {
         return messages;
     }
 
@@ -96,12 +118,7 @@ public class ChatRoom {
      * @return Liste von Nachrichten-Strings oder leere Liste bei keinen Nachrichten
      */
     public List<String> showMessages(){
-        if (messages == null || messages.isEmpty())
-            return new ArrayList<>(); // Rückgabe leere Liste falls keine Nachrichten
-        
-        // Wandelt jede Nachricht in String um und sammelt in Liste
-        return messages.stream()
-                .map(Message::toString)
-                .collect(Collectors.toList());
+        // Wandelt jede Nachricht erst beim Zugriff in einen String um
+        return MessageViews.asStrings(messages.view());
     }
 }
\ No newline at end of file
@@ -1,25 +1,30 @@
 package domain;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
+
+import id.IdGenerator;
+import id.IdKind;
+import store.MessageStore;
+import store.MessageStoreFactory;
+import store.MessageViews;
 
 /**
  * Repräsentiert einen Gruppenchatraum mit mehreren Teilnehmern und Administratoren.
  * Bietet Funktionen zur Verwaltung von Teilnehmern, Nachrichten und Admin-Rechten.
  */
 public class GruppenRoom {
-    private static int nextGroupId = 1000;        // Zähler für automatische Gruppen-ID Vergabe
     private final int groupId;                    // Eindeutige ID der Gruppe
     private final User creator;                   // Ersteller der Gruppe
-    private List<User> admins;                    // Liste der Administratoren
-    private List<User> participants;              // Liste aller Teilnehmer
+    private final MemberSet admins;               // Administratoren, nach User-ID indiziert
+    private final MemberSet participants;         // Alle Teilnehmer, nach User-ID indiziert
     private String description;                   // Beschreibung der Gruppe
     private String name;                          // Name der Gruppe
-    private List<Message> messages;               // Liste aller Gruppen-Nachrichten
+    private MessageStore messages;                // Speicher aller Gruppen-Nachrichten
     private final LocalDateTime createdAt;        // Erstellungszeitpunkt der Gruppe
+    private long[] sortedReadMarks;               // Sortierte Lesemarken aller Teilnehmer (null = neu berechnen)
     
     /**
      * Erstellt eine neue Gruppe mit dem angegebenen Ersteller, Namen und Beschreibung.
@@ -29,18 +34,44 @@ public class GruppenRoom {
      * @param description Die Beschreibung der Gruppe (kann null sein)
      */
     public GruppenRoom(User creator, String name, String description) {
+        this(creator, name, description, MessageStoreFactory.inMemory()); // Nachrichten im Heap
+    }
+    
+    /**
+     * Erstellt eine neue Gruppe, deren Verlauf im angegebenen Backend gespeichert wird.
+     * 
+     * @param creator      Der Ersteller der Gruppe (darf nicht null sein)
+     * @param name         Der Name der Gruppe (darf nicht null sein)
+     * @param description  Die Beschreibung der Gruppe (kann null sein)
+     * @param storeFactory Legt den Nachrichtenspeicher der Gruppe an
+     */
+    public GruppenRoom(User creator, String name, String description, MessageStoreFactory storeFactory) {
+        this(IdGenerator.getInstance().next(IdKind.GROUP), creator, name, description, storeFactory);
+    }
+    
+    /**
+     * Erstellt das Abbild einer Gruppe, deren ID bereits vergeben wurde, z.B. auf dem
+     * Server. Wird vom Netzwerk-Client für seinen lokalen Cache verwendet.
+     * 
+     * @param groupId      Die vorhandene ID der Gruppe
+     * @param creator      Der Ersteller der Gruppe (darf nicht null sein)
+     * @param name         Der Name der Gruppe (darf nicht null sein)
+     * @param description  Die Beschreibung der Gruppe (kann null sein)
+     * @param storeFactory Legt den Nachrichtenspeicher der Gruppe an
+     */
+    public GruppenRoom(int groupId, User creator, String name, String description, MessageStoreFactory storeFactory) {
         Objects.requireNonNull(creator, "Creator darf nicht null sein");
         Objects.requireNonNull(name, "Name darf nicht null sein");
         
-        this.groupId = nextGroupId++;
+        this.groupId = groupId;
         this.creator = creator;
         this.name = name;
         this.description = description != null ? description : "";
         this.createdAt = LocalDateTime.now();
         
-        this.admins = new ArrayList<>();
-        this.participants = new ArrayList<>();
-        this.messages = new ArrayList<>();
+        this.admins = new MemberSet();
+        this.participants = new MemberSet();
+        this.messages = storeFactory.open("group-" + groupId);
         
         this.admins.add(creator);        // Ersteller wird automatisch Admin
         this.participants.add(creator);  // Ersteller wird automatisch Teilnehmer
@@ -57,7 +88,7 @@ public class GruppenRoom {
      * @throws IllegalArgumentException wenn der Benutzer bereits in der Gruppe ist
      * @throws IllegalStateException wenn die Gruppe nicht beim Benutzer registriert werden konnte
      */
-    public boolean addParticipant(User user) {
+    public synchronized boolean addParticipant(User user) {
         Objects.requireNonNull(user, "User darf nicht null sein");
         
         if (participants.contains(user)) {
@@ -70,6 +101,7 @@ public class GruppenRoom {
             throw new IllegalStateException("Gruppe konnte nicht beim User registriert werden");
         }
         
+        sortedReadMarks = null;
         return participants.add(user);
     }
     
@@ -82,7 +114,7 @@ public class GruppenRoom {
      * @throws IllegalArgumentException wenn der Entferner keine Berechtigung hat oder 
      *                                  der Creator entfernt werden soll
      */
-    public boolean removeParticipant(User remover, User userToRemove) {
+    public synchronized boolean removeParticipant(User remover, User userToRemove) {
         Objects.requireNonNull(remover, "Remover darf nicht null sein");
         Objects.requireNonNull(userToRemove, "UserToRemove darf nicht null sein");
         
@@ -98,10 +130,9 @@ public class GruppenRoom {
         userToRemove.getUserGruppenRoom().removeGruppenRoom(this);
         
         // Admin-Rechte entfernen falls nötig
-        if (admins.contains(userToRemove)) {
-            admins.remove(userToRemove);
-        }
+        admins.remove(userToRemove);
         
+        sortedReadMarks = null;
         return participants.remove(userToRemove);
     }
     
@@ -114,7 +145,7 @@ public class GruppenRoom {
      * @throws IllegalArgumentException wenn der Promoter kein Admin ist, der Benutzer
      *                                  nicht in der Gruppe ist oder bereits Admin ist
      */
-    public boolean addAdmin(User promoter, User userToPromote) {
+    public synchronized boolean addAdmin(User promoter, User userToPromote) {
         Objects.requireNonNull(promoter, "Promoter darf nicht null sein");
         Objects.requireNonNull(userToPromote, "UserToPromote darf nicht null sein");
         
@@ -142,7 +173,7 @@ public class GruppenRoom {
      * @throws IllegalArgumentException wenn der Demoter kein Admin ist, der Creator 
      *                                  betroffen ist oder der Benutzer kein Admin ist
      */
-    public boolean removeAdmin(User demoter, User userToDemote) {
+    public synchronized boolean removeAdmin(User demoter, User userToDemote) {
         Objects.requireNonNull(demoter, "Demoter darf nicht null sein");
         Objects.requireNonNull(userToDemote, "UserToDemote darf nicht null sein");
         
@@ -166,18 +197,31 @@ public class GruppenRoom {
      * 
      * @param sender  Der Absender der Nachricht (darf nicht null sein)
      * @param content Der Inhalt der Nachricht (darf nicht null sein)
+     * @return Die Sequenznummer der Nachricht in der Gruppe
      * @throws IllegalArgumentException wenn der Absender nicht Gruppenmitglied ist
      */
-    public void addMessage(User sender, String content) {
+    public long addMessage(User sender, String content) {
         Objects.requireNonNull(sender, "Sender darf nicht null sein");
         Objects.requireNonNull(content, "Content darf nicht null sein");
         
-        if (!participants.contains(sender)) {
+        return addMessage(new Message(sender, content));
+    }
+    
+    /**
+     * Fügt eine bereits erstellte Nachricht zur Gruppenkonversation hinzu.
+     * 
+     * @param message Die Nachricht (darf nicht null sein)
+     * @return Die Sequenznummer der Nachricht in der Gruppe
+     * @throws IllegalArgumentException wenn der Absender nicht Gruppenmitglied ist
+     */
+    public long addMessage(Message message) {
+        Objects.requireNonNull(message, "Message darf nicht null sein");
+        
+        if (!isParticipant(message.getSender())) {
             throw new IllegalArgumentException("Nur Gruppenmitglieder können Nachrichten senden");
         }
         
-        Message message = new Message(sender, content);
-        messages.add(message);
+        return messages.append(message);
     }
     
     /**
@@ -186,13 +230,66 @@ public class GruppenRoom {
      * @return Liste der Nachrichten-Strings oder leere Liste bei keinen Nachrichten
      */
     public List<String> showMessages() {
-        if (messages.isEmpty()) {
-            return new ArrayList<>();
+        // Wandelt jede Nachricht erst beim Zugriff in einen String um
+        return MessageViews.asStrings(messages.view());
+    }
+    
+    /**
+     * Setzt die Lesemarke eines Teilnehmers: Er hat alle Nachrichten bis einschließlich
+     * der angegebenen Sequenznummer gelesen. Die Marke wandert nur vorwärts.
+     * 
+     * @param user Der lesende Teilnehmer (darf nicht null sein)
+     * @param seq  Sequenznummer der zuletzt gelesenen Nachricht
+     * @return true wenn sich die Marke verändert hat
+     * @throws IllegalArgumentException wenn der Benutzer kein Teilnehmer ist oder
+     *                                  die Sequenznummer noch nicht vergeben wurde
+     */
+    public synchronized boolean markRead(User user, long seq) {
+        Objects.requireNonNull(user, "User darf nicht null sein");
+        if (!participants.contains(user)) {
+            throw new IllegalArgumentException("User ist nicht Teil der Gruppe");
+        }
+        if (seq >= messages.nextSequence()) {
+            throw new IllegalArgumentException("Nachricht existiert nicht: " + seq);
+        }
+        
+        boolean advanced = participants.advanceMark(user.getUserId(), seq);
+        if (advanced) sortedReadMarks = null;
+        return advanced;
+    }
+    
+    /**
+     * Gibt die Lesemarke eines Teilnehmers zurück.
+     * 
+     * @param user Der Teilnehmer
+     * @return Sequenznummer der zuletzt gelesenen Nachricht oder -1, wenn noch nichts gelesen wurde
+     */
+    public synchronized long getReadWatermark(User user) {
+        return user == null ? MemberSet.NO_MARK : participants.mark(user.getUserId());
+    }
+    
+    /**
+     * Gibt zurück, wie viele Teilnehmer die Nachricht bereits gelesen haben.
+     * Die Anzahl wird aus den sortierten Lesemarken per Binärsuche abgeleitet;
+     * sortiert wird nur nach einer Änderung.
+     * 
+     * @param seq Sequenznummer der Nachricht
+     * @return Anzahl der Teilnehmer, deren Lesemarke mindestens {@code seq} ist
+     */
+    public synchronized int getReadCount(long seq) {
+        if (sortedReadMarks == null) {
+            sortedReadMarks = participants.marks();
+            Arrays.sort(sortedReadMarks);
         }
         
-        return messages.stream()
-                .map(Message::toString)
-                .collect(Collectors.toList());
+        int low = 0;
+        int high = sortedReadMarks.length;
+        while (low < high) { // Erste Marke >= seq suchen
+            int mid = (low + high) >>> 1;
+            if (sortedReadMarks[mid] < seq) low = mid + 1;
+            else high = mid;
+        }
+        return sortedReadMarks.length - low;
     }
     
     /**
@@ -201,7 +298,7 @@ public class GruppenRoom {
      * @param user Der zu überprüfende Benutzer
      * @return true wenn der Benutzer Admin ist, sonst false
      */
-    public boolean isAdmin(User user) {
+    public synchronized boolean isAdmin(User user) {
         return admins.contains(user);
     }
     
@@ -211,7 +308,7 @@ public class GruppenRoom {
      * @param user Der zu überprüfende Benutzer
      * @return true wenn der Benutzer Teilnehmer ist, sonst false
      */
-    public boolean isParticipant(User user) {
+    public synchronized boolean isParticipant(User user) {
         return participants.contains(user);
     }
     
@@ -253,25 +350,55 @@ public class GruppenRoom {
     public LocalDateTime getCreatedAt() { return createdAt; }
     
     /**
-     * Gibt eine Kopie der Admin-Liste zurück.
+     * Gibt eine unveränderliche Kopie der Admin-Liste zurück.
      * 
      * @return Liste der Administratoren
      */
-    public List<User> getAdmins() { return new ArrayList<>(admins); }
+    public synchronized List<User> getAdmins() { return List.copyOf(admins.asList()); }
     
     /**
-     * Gibt eine Kopie der Teilnehmerliste zurück.
+     * Gibt eine unveränderliche Kopie der Teilnehmerliste zurück.
      * 
      * @return Liste der Teilnehmer
      */
-    public List<User> getParticipants() { return new ArrayList<>(participants); }
+    public synchronized List<User> getParticipants() { return List.copyOf(participants.asList()); }
+    
+    /**
+     * Gibt die Anzahl der Teilnehmer zurück.
+     * 
+     * @return Anzahl der Teilnehmer
+     */
+    public synchronized int getParticipantCount() { return participants.size(); }
     
     /**
-     * Gibt eine Kopie der Nachrichtenliste zurück.
+     * Gibt einen Schnappschuss der User-IDs aller Teilnehmer zurück.
+     * Wird von der Zustellung verwendet, die parallel zu Mitgliedschaftsänderungen läuft.
+     * 
+     * @return Array der Teilnehmer-IDs
+     */
+    public synchronized int[] getParticipantIds() { return participants.ids(); }
+    
+    /**
+     * Gibt eine unveränderliche Sicht auf die Nachrichtenliste zurück.
+     * Nachrichten werden erst beim Zugriff geladen.
      * 
      * @return Liste der Nachrichten
      */
-    public List<Message> getMessages() { return new ArrayList<>(messages); }
+    public List<Message> getMessages() { return messages.view(); }
+    
+    /**
+     * Gibt die Anzahl der Nachrichten in der Gruppe zurück.
+     * 
+     * @return Anzahl der Nachrichten
+     */
+    public long getMessageCount() { return messages.count(); }
+    
+    /**
+     * Gibt den Nachrichtenspeicher der Gruppe zurück.
+     * 
+     * @return Der MessageStore der Gruppe
+     */
+    public MessageStore getMessageStore() { return messages; }
     
     /**
      * Gibt eine String-Repräsentation der Gruppe zurück.
@@ -281,6 +408,6 @@ public class GruppenRoom {
     @Override
     public String toString() {
         return String.format("GruppenRoom{name='%s', id=%d, participants=%d, messages=%d}",
-                name, groupId, participants.size(), messages.size());
+                name, groupId, participants.size(), getMessageCount());
     }
 }
\ No newline at end of file
@@ -0,0 +1,252 @@
+package domain;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Kompakte Mitgliedermenge, die Benutzer über ihre User-ID indiziert.
+ *
+ * Die Mitglieder liegen dicht in einem Array, daneben führt eine offene Hashtabelle
+ * (lineares Sondieren über primitive {@code int}-Arrays) die Zuordnung User-ID → Position.
+ * Dadurch sind Prüfen, Hinzufügen und Entfernen O(1) und die Iteration kommt ohne Kopie aus.
+ * Beim Entfernen rückt das letzte Mitglied an die frei gewordene Stelle; die Reihenfolge
+ * ist daher nicht stabil.
+ *
+ * Optional führt die Menge pro Mitglied eine Marke vom Typ {@code long} (z.B. "gelesen bis
+ * Sequenz N"), die über denselben Index adressiert wird und mit dem Mitglied wandert.
+ */
+final class MemberSet {
+    private static final int EMPTY = -1;          // Markierung für freie Tabellenplätze
+    public static final long NO_MARK = -1L;       // Marke eines Mitglieds ohne gesetzten Wert
+
+    private User[] members = new User[4];         // Dicht gepackte Mitglieder
+    private long[] marks;                         // Lesemarken parallel zu members (lazy angelegt)
+    private int size;                             // Anzahl der Mitglieder
+    private int[] keys = new int[8];              // User-IDs der Hashtabelle
+    private int[] slots = filled(8);              // Position in members oder EMPTY
+    private final List<User> view = new AbstractList<>() {
+        @Override
+        public User get(int index) {
+            Objects.checkIndex(index, size);
+            return members[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof User && MemberSet.this.contains((User) o);
+        }
+    };
+
+    /**
+     * Prüft ob der Benutzer Mitglied ist.
+     *
+     * @param user Der zu prüfende Benutzer (null ergibt false)
+     * @return true wenn der Benutzer enthalten ist
+     */
+    public boolean contains(User user) {
+        if (user == null) return false;
+        int slot = slotOf(user.getUserId());
+        return slot != EMPTY && members[slot] == user;
+    }
+
+    /**
+     * Prüft ob ein Benutzer mit der angegebenen ID Mitglied ist.
+     *
+     * @param userId Die User-ID
+     * @return true wenn ein Mitglied mit dieser ID existiert
+     */
+    public boolean containsId(int userId) {
+        return slotOf(userId) != EMPTY;
+    }
+
+    /**
+     * Fügt einen Benutzer hinzu.
+     *
+     * @param user Der Benutzer (darf nicht null sein)
+     * @return true wenn der Benutzer neu hinzugefügt wurde
+     */
+    public boolean add(User user) {
+        Objects.requireNonNull(user, "User darf nicht null sein");
+        if (containsId(user.getUserId())) return false;
+        if ((size + 1) * 2 > keys.length) rehash(keys.length * 2);
+        if (size == members.length) {
+            members = Arrays.copyOf(members, size * 2);
+            if (marks != null) marks = Arrays.copyOf(marks, size * 2);
+        }
+
+        members[size] = user;
+        if (marks != null) marks[size] = NO_MARK;
+        insert(user.getUserId(), size);
+        size++;
+        return true;
+    }
+
+    /**
+     * Entfernt einen Benutzer.
+     *
+     * @param user Der Benutzer
+     * @return true wenn der Benutzer enthalten war
+     */
+    public boolean remove(User user) {
+        if (!contains(user)) return false;
+        int slot = slotOf(user.getUserId());
+        erase(user.getUserId());
+
+        int last = --size;
+        if (slot != last) {
+            User moved = members[last];
+            members[slot] = moved;
+            if (marks != null) marks[slot] = marks[last];
+            slots[indexOf(moved.getUserId())] = slot; // Verschobenes Mitglied neu zuordnen
+        }
+        members[last] = null;
+        return true;
+    }
+
+    /**
+     * Gibt die Anzahl der Mitglieder zurück.
+     *
+     * @return Anzahl der Mitglieder
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Hebt die Marke eines Mitglieds auf den angegebenen Wert an. Kleinere Werte
+     * werden ignoriert, die Marke wandert also nur vorwärts.
+     *
+     * @param userId Die User-ID
+     * @param value  Der neue Wert
+     * @return true wenn die Marke verändert wurde
+     */
+    public boolean advanceMark(int userId, long value) {
+        int slot = slotOf(userId);
+        if (slot == EMPTY) return false;
+        if (marks == null) {
+            marks = new long[members.length];
+            Arrays.fill(marks, NO_MARK);
+        }
+        if (value <= marks[slot]) return false;
+        marks[slot] = value;
+        return true;
+    }
+
+    /**
+     * Gibt die Marke eines Mitglieds zurück.
+     *
+     * @param userId Die User-ID
+     * @return Die Marke oder {@link #NO_MARK}, wenn keine gesetzt ist oder die ID fehlt
+     */
+    public long mark(int userId) {
+        int slot = slotOf(userId);
+        return slot == EMPTY || marks == null ? NO_MARK : marks[slot];
+    }
+
+    /**
+     * Kopiert die Marken aller Mitglieder in ein neues Array.
+     *
+     * @return Schnappschuss der Marken in Mitgliederreihenfolge
+     */
+    public long[] marks() {
+        if (marks == null) {
+            long[] none = new long[size];
+            Arrays.fill(none, NO_MARK);
+            return none;
+        }
+        return Arrays.copyOf(marks, size);
+    }
+
+    /**
+     * Kopiert die User-IDs aller Mitglieder in ein neues Array.
+     *
+     * @return Schnappschuss der Mitglieder-IDs
+     */
+    public int[] ids() {
+        int[] ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = members[i].getUserId();
+        }
+        return ids;
+    }
+
+    /**
+     * Gibt eine unveränderliche, live mitlaufende Sicht auf die Mitglieder zurück.
+     *
+     * @return Liste der Mitglieder ohne Kopie
+     */
+    public List<User> asList() {
+        return view;
+    }
+
+    private int slotOf(int userId) {
+        int index = indexOf(userId);
+        return index < 0 ? EMPTY : slots[index];
+    }
+
+    /**
+     * Sucht den Tabellenplatz einer ID oder gibt -1 zurück.
+     */
+    private int indexOf(int userId) {
+        int mask = keys.length - 1;
+        for (int i = mix(userId) & mask; slots[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == userId) return i;
+        }
+        return -1;
+    }
+
+    private void insert(int userId, int slot) {
+        int mask = keys.length - 1;
+        int i = mix(userId) & mask;
+        while (slots[i] != EMPTY) i = (i + 1) & mask;
+        keys[i] = userId;
+        slots[i] = slot;
+    }
+
+    /**
+     * Entfernt eine ID per Rückwärtsverschiebung, damit keine Grabsteine entstehen.
+     */
+    private void erase(int userId) {
+        int mask = keys.length - 1;
+        int hole = indexOf(userId);
+        for (int i = (hole + 1) & mask; slots[i] != EMPTY; i = (i + 1) & mask) {
+            int home = mix(keys[i]) & mask;
+            // Eintrag nur verschieben, wenn sein Heimatplatz nicht zwischen Lücke und i liegt
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                slots[hole] = slots[i];
+                hole = i;
+            }
+        }
+        slots[hole] = EMPTY;
+    }
+
+    private void rehash(int capacity) {
+        keys = new int[capacity];
+        slots = filled(capacity);
+        for (int i = 0; i < size; i++) {
+            insert(members[i].getUserId(), i);
+        }
+    }
+
+    private static int[] filled(int capacity) {
+        int[] array = new int[capacity];
+        Arrays.fill(array, EMPTY);
+        return array;
+    }
+
+    /**
+     * Streut die fortlaufenden IDs über die Tabelle (Fibonacci-Hashing).
+     */
+    private static int mix(int userId) {
+        int h = userId * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
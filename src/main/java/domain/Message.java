@@ -12,6 +12,7 @@ public class Message {
     private String content;                 // Inhalt der Nachricht
     private LocalDateTime timestamp;        // Zeitpunkt der Erstellung
     private MessageType type;               // Typ der Nachricht (TEXT, IMAGE, etc.)
+    private LocalDateTime expiresAt;        // Ablaufzeitpunkt bei Ephemeral-Nachrichten (sonst null)
     
     /**
      * Zeitformatierer für die Darstellung des Zeitstempels.
@@ -45,7 +46,23 @@ public class Message {
         this(sender, content);  // Ruft den Hauptkonstruktor auf
         this.type = type;       // Setzt den spezifischen Nachrichtentyp
     }
-    
+
+    /**
+     * Stellt eine gespeicherte Nachricht mit ihrem ursprünglichen Zeitstempel wieder her.
+     * Wird beim Dekodieren aus einem Nachrichtenspeicher verwendet.
+     *
+     * @param sender    Der Absender der Nachricht
+     * @param content   Der Inhalt der Nachricht
+     * @param type      Der Typ der Nachricht
+     * @param timestamp Der ursprüngliche Erstellungszeitpunkt
+     */
+    public Message(User sender, String content, MessageType type, LocalDateTime timestamp) {
+        this.sender = sender;
+        this.content = content;
+        this.type = type;
+        this.timestamp = timestamp;
+    }
+
     /**
      * Gibt die Nachricht mit Zeitstempel formatiert zurück.
      * Format: "[HH:mm] Absender: Nachricht"
@@ -54,9 +71,9 @@ public class Message {
      */
     public String toTimeString() {
         return String.format("[%s] %s: %s", 
-            timestamp.format(TIME_FORMATTER),  // Formatiert Zeit im HH:mm Format
-            sender.getUsername(),              // Holt den Benutzernamen des Absenders
-            content);                          // Nachrichteninhalt
+            getTimestamp().format(TIME_FORMATTER),  // Formatiert Zeit im HH:mm Format
+            getSender().getUsername(),              // Holt den Benutzernamen des Absenders
+            getContent());                          // Nachrichteninhalt
     }
    
     /**
@@ -143,4 +160,32 @@ public class Message {
     public void setType(MessageType type) {
         this.type = type;
     }
+
+    /**
+     * Gibt den Ablaufzeitpunkt einer Ephemeral-Nachricht zurück.
+     * 
+     * @return Ablaufzeitpunkt oder null, wenn die Nachricht nicht abläuft
+     */
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * Setzt den Ablaufzeitpunkt der Nachricht.
+     * 
+     * @param expiresAt Ablaufzeitpunkt oder null für eine dauerhafte Nachricht
+     */
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Prüft ob die Nachricht zum angegebenen Zeitpunkt abgelaufen ist.
+     * 
+     * @param now Der Vergleichszeitpunkt
+     * @return true wenn ein Ablaufzeitpunkt gesetzt und erreicht ist
+     */
+    public boolean isExpired(LocalDateTime now) {
+        return expiresAt != null && !expiresAt.isAfter(now);
+    }
 }
\ No newline at end of file
@@ -2,6 +2,9 @@ package domain;
 
 import java.util.List;
 
+import id.IdGenerator;
+import id.IdKind;
+
 /**
  * Repräsentiert einen Benutzer im Chat-System.
  * Enthält Benutzerinformationen, Kontakte, Chaträume und Gruppenmitgliedschaften.
@@ -9,7 +12,6 @@ import java.util.List;
  */
 public class User {
 
-	private static int nextUserId = 1000;    // Zähler für automatische User-ID Vergabe
 	private int userId;                      // Eindeutige ID des Benutzers
 	private String username;           // Benutzername (final, da unveränderlich)
 	private boolean isOnline;                // Online-Status des Benutzers
@@ -26,11 +28,22 @@ public class User {
 	 * @param username Der Benutzername für den neuen Benutzer (darf nicht null oder leer sein)
 	 */
 	public User(String username) {
-		this.userId = nextUserId++;           // Vergibt automatische eindeutige ID
+		this(IdGenerator.getInstance().next(IdKind.USER), username); // Vergibt automatische eindeutige ID
+	}
+
+	/**
+	 * Erstellt das Abbild eines Benutzers, dessen ID bereits vergeben wurde,
+	 * z.B. auf dem Server. Wird vom Netzwerk-Client für seinen lokalen Cache verwendet.
+	 * 
+	 * @param userId   Die vorhandene ID des Benutzers
+	 * @param username Der Benutzername
+	 */
+	public User(int userId, String username) {
+		this.userId = userId;
 		this.username = username;
 		this.isOnline = true;                 // Standardmäßig online
 		this.userInfo = UserInfo.VERFÜGBAR;   // Standard-Status "verfügbar"
-		this.userContacts = new UserContact();      // Initialisiert leere Kontaktliste
+		this.userContacts = new UserContact(this);  // Initialisiert leere Kontaktliste
 		this.chatRoom = new UserChatRoom();          // Initialisiert Chatraum-Verwaltung
 		this.gruppenRoom = new UserGruppenRoom();    // Initialisiert Gruppen-Verwaltung
 	}
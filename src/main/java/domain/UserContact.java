@@ -8,20 +8,33 @@ import java.util.stream.Collectors;
 /**
  * Verwaltet die Kontaktliste eines Benutzers.
  * Bietet Funktionen zum Hinzufügen, Entfernen und Verwalten von Kontakten.
+ * 
+ * Neben den eigenen Kontakten führt jede Liste einen Rückwärtsindex der Benutzer,
+ * die den Besitzer als Kontakt haben. Beide sind nach User-ID indiziert und werden
+ * beim Hinzufügen und Entfernen gemeinsam aktualisiert. Jede Liste wird über ihre eigene
+ * Sperre geschützt; Änderungen sperren beide beteiligten Listen in der Reihenfolge der
+ * User-IDs, sodass sich Vorgänge verschiedener Benutzer nicht gegenseitig blockieren.
  */
 public class UserContact {
-    private List<User> contacts; // Liste aller Kontakte des Benutzers
+    private final User owner;                        // Besitzer der Kontaktliste
+    private final MemberSet contacts;                // Wen der Besitzer als Kontakt führt
+    private final MemberSet followers;               // Wer den Besitzer als Kontakt führt
     
     /**
      * Konstruktor für UserContact.
-     * Initialisiert eine leere Kontaktliste.
+     * Initialisiert eine leere Kontaktliste und einen leeren Rückwärtsindex.
+     * 
+     * @param owner Der Benutzer, dem die Kontaktliste gehört
      */
-    public UserContact() {
-        this.contacts = new ArrayList<>();
+    public UserContact(User owner) {
+        this.owner = owner;
+        this.contacts = new MemberSet();
+        this.followers = new MemberSet();
     }
     
     /**
-     * Fügt einen neuen Kontakt zur Kontaktliste hinzu.
+     * Fügt einen neuen Kontakt zur Kontaktliste hinzu und trägt den Besitzer
+     * gleichzeitig im Rückwärtsindex des Kontakts ein.
      * 
      * @param user Der hinzuzufügende Benutzer (darf nicht null sein)
      * @return true wenn der Kontakt erfolgreich hinzugefügt wurde
@@ -31,15 +44,21 @@ public class UserContact {
     public boolean addContact(User user) {
     	if (user == null)
     		throw new NullPointerException("User darf nicht null sein");
-    	        
-        if (contacts.contains(user))
-        	throw new IllegalArgumentException("User existiert bereits in der Kontakt Liste");
-       
-        return contacts.add(user);
+    	
+    	UserContact other = user.getUserContacts();
+    	synchronized (first(other)) {
+    		synchronized (second(other)) {
+                if (contacts.contains(user))
+                	throw new IllegalArgumentException("User existiert bereits in der Kontakt Liste");
+                
+                other.followers.add(owner);
+                return contacts.add(user);
+    		}
+    	}
     }
     
     /**
-     * Entfernt einen Kontakt aus der Kontaktliste.
+     * Entfernt einen Kontakt aus der Kontaktliste und aus dem Rückwärtsindex.
      * 
      * @param user Der zu entfernende Benutzer (darf nicht null sein)
      * @return true wenn der Kontakt erfolgreich entfernt wurde, false wenn nicht vorhanden
@@ -48,7 +67,26 @@ public class UserContact {
     public boolean removeContact(User user) {
     	if (user == null)
     		throw new NullPointerException("User darf nicht null sein");
-        return contacts.remove(user);
+    	
+    	UserContact other = user.getUserContacts();
+    	synchronized (first(other)) {
+    		synchronized (second(other)) {
+                if (!contacts.remove(user)) return false;
+                other.followers.remove(owner);
+                return true;
+    		}
+    	}
+    }
+    
+    /**
+     * Gibt von dieser und der anderen Liste die mit der kleineren User-ID zurück.
+     */
+    private UserContact first(UserContact other) {
+        return owner.getUserId() <= other.owner.getUserId() ? this : other;
+    }
+    
+    private UserContact second(UserContact other) {
+        return first(other) == this ? other : this;
     }
     
     /**
@@ -61,7 +99,21 @@ public class UserContact {
     public boolean hasContact(User user) {
     	if (user == null)
     		throw new NullPointerException("User darf nicht null sein");
-        return contacts.contains(user);
+    	synchronized (this) {
+            return contacts.contains(user);
+    	}
+    }
+    
+    /**
+     * Überprüft ob ein Benutzer den Besitzer als Kontakt führt.
+     * 
+     * @param user Der zu überprüfende Benutzer
+     * @return true wenn der Benutzer dem Besitzer folgt, sonst false
+     */
+    public boolean hasFollower(User user) {
+    	synchronized (this) {
+            return followers.contains(user);
+    	}
     }
     
     /**
@@ -70,13 +122,11 @@ public class UserContact {
      * @return Liste von Kontakt-Strings oder leere Liste bei keinen Kontakten
      */
     public List<String> showAllContacts() {
-        if (contacts == null || contacts.isEmpty()) {
-            return new ArrayList<>();
-        }
-        
-        return contacts.stream()
-                .map(User::getUsername) // <--- Wir wollen nur den Namen!
-                .collect(Collectors.toList());
+    	synchronized (this) {
+            return contacts.asList().stream()
+                    .map(User::getUsername) // <--- Wir wollen nur den Namen!
+                    .collect(Collectors.toList());
+    	}
     }
     
     /**
@@ -85,7 +135,32 @@ public class UserContact {
      * @return Liste aller Kontakte (Kopie zur Wahrung der Encapsulation)
      */
     public List<User> getContacts() {
-        return new ArrayList<>(contacts); 
+    	synchronized (this) {
+            return new ArrayList<>(contacts.asList());
+    	}
+    }
+    
+    /**
+     * Gibt eine Kopie aller Benutzer zurück, die den Besitzer als Kontakt führen.
+     * 
+     * @return Liste der Follower
+     */
+    public List<User> getFollowers() {
+    	synchronized (this) {
+            return new ArrayList<>(followers.asList());
+    	}
+    }
+    
+    /**
+     * Gibt die User-IDs aller Benutzer zurück, die den Besitzer als Kontakt führen.
+     * Wird von Präsenz- und Profil-Verteilung genutzt, ohne alle Benutzer zu durchsuchen.
+     * 
+     * @return Schnappschuss der Follower-IDs
+     */
+    public int[] getFollowerIds() {
+    	synchronized (this) {
+            return followers.ids();
+    	}
     }
     
     /**
@@ -94,6 +169,19 @@ public class UserContact {
      * @return Anzahl der Kontakte in der Liste
      */
     public int getContactCount() {
-        return contacts.size();
+    	synchronized (this) {
+            return contacts.size();
+    	}
+    }
+    
+    /**
+     * Gibt die Anzahl der Benutzer zurück, die den Besitzer als Kontakt führen.
+     * 
+     * @return Anzahl der Follower
+     */
+    public int getFollowerCount() {
+    	synchronized (this) {
+            return followers.size();
+    	}
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,137 @@
+package fassade;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import domain.User;
+import domain.UserInfo;
+import presence.PresenceListener;
+import store.MessageStore;
+
+/**
+ * Die Service-Schnittstelle, die die Oberfläche verwendet. Implementiert vom lokalen
+ * {@link ChatService} und vom Netzwerk-Client {@code client.RemoteChatService}, der
+ * dieselben Aufrufe an einen gemeinsamen Server weiterreicht.
+ *
+ * Aufrufe können blockieren (beim Netzwerk-Client bis zur Antwort des Servers) und
+ * sollten daher nicht auf dem FX-Thread erfolgen.
+ */
+public interface ChatApi {
+
+    /**
+     * Registriert einen Listener, der bei jeder Änderung aufgerufen wird.
+     *
+     * @param listener Der Listener (wird in einem beliebigen Thread aufgerufen)
+     */
+    void addUpdateListener(Runnable listener);
+
+    /**
+     * Registriert einen Listener für Tipp-Signale in allen Räumen.
+     *
+     * @param listener Der Listener (wird in einem beliebigen Thread aufgerufen)
+     */
+    void addTypingListener(TypingListener listener);
+
+    /**
+     * Registriert einen Listener für Präsenzänderungen der Kontakte und Raumpartner.
+     *
+     * @param userName Der empfangende Benutzer
+     * @param listener Der Listener
+     */
+    void subscribePresence(String userName, PresenceListener listener);
+
+    /**
+     * Erstellt einen neuen Benutzer.
+     *
+     * @param userName Der Benutzername
+     * @return true wenn der Benutzer angelegt wurde
+     * @throws IllegalArgumentException wenn der Name bereits vergeben ist
+     */
+    boolean createUser(String userName);
+
+    /**
+     * Fügt einen Kontakt hinzu.
+     *
+     * @return true wenn der Kontakt neu ist
+     */
+    boolean addContact(String contactUserName, String currentUserName);
+
+    /**
+     * @return Kontakte des Benutzers
+     */
+    List<User> getUserContacts(String userName);
+
+    /**
+     * @return Private Chats und Gruppen des Benutzers (ChatRoom oder GruppenRoom)
+     */
+    List<Object> getAllChatsForUser(String username);
+
+    /**
+     * Gibt den privaten Chat zweier Benutzer zurück und legt ihn bei Bedarf an.
+     *
+     * @return Die Raum-ID
+     */
+    int createChatRoom(String user1Name, String user2Name);
+
+    /**
+     * Erstellt eine Gruppe.
+     *
+     * @return Die Gruppen-ID
+     */
+    int createGruppenRoom(String creatorName, String groupName, String description);
+
+    /**
+     * Sendet eine Nachricht in einen privaten Chat.
+     */
+    void sendMessage(int roomId, String senderName, String content);
+
+    /**
+     * Sendet eine Nachricht in eine Gruppe.
+     */
+    void sendGroupMessage(int groupId, String senderName, String content);
+
+    /**
+     * Lädt eine Datei in den Blob-Bereich hoch und sendet den Verweis darauf als
+     * Anhangsnachricht.
+     *
+     * @param file Die Datei
+     * @throws IllegalStateException wenn kein Blob-Bereich verfügbar ist
+     */
+    void sendFile(int chatId, boolean group, String senderName, Path file);
+
+    /**
+     * Meldet, dass der Benutzer gerade tippt. Aufrufer drosseln selbst, z.B. mit
+     * {@code client.TypingThrottle}.
+     */
+    void sendTyping(int chatId, boolean group, String userName);
+
+    /**
+     * Vermerkt, dass ein Teilnehmer alle Gruppennachrichten bis einschließlich
+     * {@code seq} gelesen hat.
+     *
+     * @param seq Sequenznummer im Verlauf aus {@link #getGroupHistory}
+     */
+    void markGroupRead(int groupId, String userName, long seq);
+
+    /**
+     * @return Verlauf eines privaten Chats
+     */
+    MessageStore getChatRoomHistory(int roomId);
+
+    /**
+     * @return Verlauf einer Gruppe
+     */
+    MessageStore getGroupHistory(int groupId);
+
+    /**
+     * Aktualisiert Namen und Status eines Benutzers.
+     *
+     * @return Der neue Name
+     */
+    String updateUserProfile(String oldName, String newName, UserInfo newStatus, String newStatusText);
+
+    /**
+     * Gibt alle Ressourcen frei.
+     */
+    void close();
+}
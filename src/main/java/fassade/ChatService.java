@@ -1,24 +1,62 @@
 package fassade;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import blob.AttachmentStoreFactory;
+import blob.BlobRef;
+import blob.BlobStore;
+import delivery.BacklogMetrics;
+import delivery.DeliveryQueue;
+import delivery.FanOutEngine;
+import delivery.FanOutMetrics;
 import domain.*;
+import presence.PresenceListener;
+import presence.PresenceService;
+import store.HistoryMetrics;
+import store.MappedSegmentStore;
+import store.MessageStore;
+import store.MessageStoreFactory;
+import store.RetentionPolicy;
+import store.RetentionSweeper;
+import store.TieredHistoryStore;
 
 /**
  * Zentrale Service-Klasse für die Chat-Anwendungslogik.
  * Verwaltet Benutzer, Chaträume, Gruppen und Nachrichten.
  * Implementiert das Observer-Pattern zur UI-Aktualisierung.
  */
-public class ChatService {
+public class ChatService implements ChatApi {
     private Map<Integer, ChatRoom> chatrooms;        // Speichert alle Chaträume nach ID
     private Map<Integer, GruppenRoom> gruppenRooms;  // Speichert alle Gruppenräume nach ID
     private Map<String, User> users;                 // Speichert Benutzer nach Benutzername
     private Map<Integer, User> usersById;            // Speichert Benutzer nach User-ID
+    private MessageStoreFactory storeFactory;        // Backend für den Nachrichtenverlauf
+    private MessageStoreFactory roomStores;          // Öffnet die Raumverläufe (ggf. mit Blob-Referenzen)
+    private BlobStore blobs;                         // Blob-Bereich der Anhänge (optional)
+    private RetentionSweeper sweeper;                // Kürzt Verläufe im Hintergrund
+    private FanOutEngine fanOut;                     // Verteilt Gruppennachrichten an Sitzungen
+    private PresenceService presence;                // Verteilt Statusänderungen an Kontakte und Raumpartner
     
     // --- OBSERVER PATTERN: Liste der Zuhörer (z.B. Chat-Fenster) ---
-    private List<Runnable> updateListeners = new ArrayList<>();
+    // CopyOnWrite, da auch der Sweeper-Thread benachrichtigt
+    private List<Runnable> updateListeners = new CopyOnWriteArrayList<>();
+    private List<ReceiptListener> receiptListeners = new CopyOnWriteArrayList<>(); // Nur Lesemarken
+    private List<TypingListener> typingListeners = new CopyOnWriteArrayList<>();   // Flüchtige Tipp-Signale
 
     /**
      * Konstruktor für den ChatService.
@@ -26,9 +64,214 @@ public class ChatService {
      */
     public ChatService() {
         chatrooms = new HashMap<>();
-        gruppenRooms = new HashMap<>();
-        users = new HashMap<>();
-        usersById = new HashMap<>();
+        gruppenRooms = new ConcurrentHashMap<>(); // Fan-out-Worker lösen Gruppen beim Nachliefern auf
+        users = new ConcurrentHashMap<>();        // Präsenz und Fan-out lesen aus Hintergrund-Threads
+        usersById = new ConcurrentHashMap<>();
+        storeFactory = MessageStoreFactory.inMemory();
+        roomStores = storeFactory;
+        sweeper = new RetentionSweeper();
+        sweeper.setOnRemoved(this::notifyUpdate); // UI nach Löschungen aktualisieren
+        fanOut = new FanOutEngine(gruppenRooms::get);
+        presence = new PresenceService(this::getUser, this::presenceAudience, PresenceService.DEFAULT_INTERVAL_MILLIS);
+    }
+    
+    /**
+     * Konstruktor für einen ChatService, der den Nachrichtenverlauf aller Räume
+     * in memory-mapped Segmentdateien im angegebenen Verzeichnis ablegt.
+     * Im Heap bleibt pro Raum nur ein kleiner Hot-Tail der letzten Nachrichten.
+     * 
+     * @param historyDir Verzeichnis für die Segmentdateien
+     */
+    public ChatService(Path historyDir) {
+        this(users -> new TieredHistoryStore(new MappedSegmentStore(historyDir, users)));
+    }
+    
+    /**
+     * Konstruktor für einen ChatService mit frei wählbarem Speicher-Backend.
+     * Die Funktion erhält einen Resolver für User-IDs, mit dem das Backend
+     * gespeicherte Absender wieder auflösen kann, z.B.
+     * {@code new ChatService(users -> new JdbcMessageStoreFactory("jdbc:h2:./history", users))}.
+     * 
+     * @param backend Erzeugt die Fabrik für die Nachrichtenspeicher der Räume
+     */
+    public ChatService(Function<IntFunction<User>, MessageStoreFactory> backend) {
+        this();
+        storeFactory = backend.apply(this::getUser);
+        roomStores = storeFactory;
+    }
+    
+    /**
+     * Verbindet den Service mit einem Blob-Bereich. Danach hält jede gespeicherte
+     * Anhangsnachricht eine Referenz auf ihren Blob; gelöschte Nachrichten geben sie
+     * wieder frei und unreferenzierte Blobs werden im Hintergrund entfernt.
+     * 
+     * @param blobs Der Blob-Bereich
+     * @throws IllegalStateException wenn bereits Räume angelegt wurden
+     */
+    public void setBlobStore(BlobStore blobs) {
+        if (!chatrooms.isEmpty() || !gruppenRooms.isEmpty()) {
+            throw new IllegalStateException("Blob-Bereich muss vor dem ersten Raum gesetzt werden");
+        }
+        this.blobs = blobs;
+        roomStores = new AttachmentStoreFactory(storeFactory, blobs);
+        blobs.startCollector(Duration.ofMinutes(1));
+    }
+    
+    /**
+     * Gibt den Blob-Bereich der Anhänge zurück.
+     * 
+     * @return Blob-Bereich oder null, wenn keiner gesetzt ist
+     */
+    public BlobStore getBlobStore() {
+        return blobs;
+    }
+    
+    /**
+     * Gibt die Kennzahlen des gestuften Verlaufs zurück.
+     * 
+     * @return Metriken oder null, wenn kein gestufter Speicher verwendet wird
+     */
+    public HistoryMetrics getHistoryMetrics() {
+        return storeFactory instanceof TieredHistoryStore
+                ? ((TieredHistoryStore) storeFactory).getMetrics()
+                : null;
+    }
+    
+    /**
+     * Stoppt Retention-Sweeper und Fan-out-Worker, schließt das Speicher-Backend
+     * und gibt dessen Ressourcen frei.
+     */
+    public void close() {
+        sweeper.close();
+        fanOut.close();
+        presence.close();
+        if (blobs != null) blobs.close();
+        roomStores.close();
+    }
+    
+    // --- ZUSTELLUNG ---
+    
+    /**
+     * Meldet eine Sitzung des Benutzers an und setzt ihn online. Gruppennachrichten
+     * werden ab jetzt in die zurückgegebene Warteschlange zugestellt; während der
+     * Abwesenheit vorgemerkte Nachrichten werden im Hintergrund nachgeliefert.
+     * 
+     * @param userName Der Benutzername
+     * @return Die Zustellwarteschlange der Sitzung
+     * @throws IllegalArgumentException wenn der Benutzer nicht existiert
+     */
+    public DeliveryQueue connect(String userName) {
+        User user = getUser(userName);
+        if (user == null) throw new IllegalArgumentException("User existiert nicht: " + userName);
+        user.setOnline(true);
+        DeliveryQueue queue = fanOut.connect(user.getUserId());
+        presence.update(user); // Nur Kontakte und Raumpartner benachrichtigen
+        return queue;
+    }
+    
+    /**
+     * Meldet die Sitzung des Benutzers ab und setzt ihn offline. Neue Gruppennachrichten
+     * werden bis zur nächsten Anmeldung vorgemerkt.
+     * 
+     * @param userName Der Benutzername
+     */
+    public void disconnect(String userName) {
+        User user = getUser(userName);
+        if (user == null) return;
+        fanOut.disconnect(user.getUserId());
+        user.setOnline(false);
+        presence.update(user); // Nur Kontakte und Raumpartner benachrichtigen
+    }
+    
+    /**
+     * Gibt den aktuellen Namen eines Benutzers zurück.
+     * 
+     * @param userId Die User-ID
+     * @return Der Benutzername oder null, wenn es den Benutzer nicht gibt
+     */
+    public String getUserName(int userId) {
+        User user = getUser(userId);
+        return user == null ? null : user.getUsername();
+    }
+    
+    /**
+     * Gibt die Anzahl der für einen Benutzer vorgemerkten Gruppennachrichten zurück.
+     * 
+     * @param userName Der Benutzername
+     * @return Anzahl der noch nicht zugestellten Nachrichten
+     */
+    public int getPendingDeliveries(String userName) {
+        User user = getUser(userName);
+        return user == null ? 0 : fanOut.getPendingCount(user.getUserId());
+    }
+    
+    /**
+     * Gibt Rückstau und Nachlieferzeiten der Zwischenspeicherung zurück.
+     * 
+     * @return Die Rückstau-Metriken
+     */
+    public BacklogMetrics getBacklogMetrics() {
+        return fanOut.getBacklogMetrics();
+    }
+    
+    /**
+     * Gibt die Fan-out-Latenzen je Gruppengröße zurück.
+     * 
+     * @return Die Fan-out-Metriken
+     */
+    public FanOutMetrics getFanOutMetrics() {
+        return fanOut.getMetrics();
+    }
+    
+    // --- AUFBEWAHRUNG ---
+    
+    /**
+     * Setzt die Aufbewahrungsregel für alle Räume ohne eigene Regel und startet
+     * den Hintergrund-Sweeper.
+     * 
+     * @param policy Die globale Aufbewahrungsregel
+     */
+    public void setRetentionPolicy(RetentionPolicy policy) {
+        sweeper.setGlobalPolicy(policy);
+        sweeper.start();
+    }
+    
+    /**
+     * Setzt eine eigene Aufbewahrungsregel für einen Chatraum.
+     * 
+     * @param roomId Die ID des Chatraums
+     * @param policy Die Regel oder null für die globale Regel
+     */
+    public void setChatRoomRetentionPolicy(int roomId, RetentionPolicy policy) {
+        ChatRoom room = chatrooms.get(roomId);
+        if (room == null) 
+            throw new IllegalArgumentException("Chatroom existiert nicht: " + roomId);
+        
+        sweeper.setRoomPolicy(room.getMessageStore(), policy);
+        sweeper.start();
+    }
+    
+    /**
+     * Setzt eine eigene Aufbewahrungsregel für eine Gruppe.
+     * 
+     * @param groupId Die ID der Gruppe
+     * @param policy  Die Regel oder null für die globale Regel
+     */
+    public void setGroupRetentionPolicy(int groupId, RetentionPolicy policy) {
+        GruppenRoom group = gruppenRooms.get(groupId);
+        if (group == null) throw new IllegalArgumentException("Gruppe existiert nicht: " + groupId);
+        
+        sweeper.setRoomPolicy(group.getMessageStore(), policy);
+        sweeper.start();
+    }
+    
+    /**
+     * Gibt den Retention-Sweeper zurück (z.B. für Kennzahlen).
+     * 
+     * @return Der Sweeper des Services
+     */
+    public RetentionSweeper getRetentionSweeper() {
+        return sweeper;
     }
     
     // --- NEUE METHODEN FÜR OBSERVER ---
@@ -41,6 +284,66 @@ public class ChatService {
         updateListeners.add(listener);
     }
 
+    /**
+     * Fügt einen Listener für vorgerückte Lesemarken hinzu. Lesemarken lösen kein
+     * allgemeines Update aus, da sie weder Seitenleiste noch Verlauf ändern.
+     * @param listener Erhält Gruppe, Leser und Sequenz
+     */
+    public void addReceiptListener(ReceiptListener listener) {
+        receiptListeners.add(listener);
+    }
+
+    /**
+     * Fügt einen Listener für Tipp-Signale hinzu.
+     * @param listener Erhält Raum und tippenden Benutzer
+     */
+    public void addTypingListener(TypingListener listener) {
+        typingListeners.add(listener);
+    }
+
+    /**
+     * Meldet, dass ein Benutzer in einem Raum tippt. Das Signal wird nur an die
+     * Listener weitergereicht und weder gespeichert noch als Update gemeldet.
+     * 
+     * @param chatId   Der Chatraum oder die Gruppe
+     * @param group    true für eine Gruppe
+     * @param userName Der tippende Benutzer
+     * @throws IllegalArgumentException wenn Raum oder Benutzer nicht existieren oder der
+     *                                  Benutzer nicht Teil des Raums ist
+     */
+    public void sendTyping(int chatId, boolean group, String userName) {
+        requireMember(chatId, group, userName);
+        
+        for (TypingListener listener : typingListeners) {
+            listener.onTyping(chatId, group, userName);
+        }
+    }
+
+    /**
+     * Prüft, ob ein Benutzer Teil eines Chatraums oder einer Gruppe ist.
+     * 
+     * @param chatId   Der Chatraum oder die Gruppe
+     * @param group    true für eine Gruppe
+     * @param userName Der Benutzer
+     * @throws IllegalArgumentException wenn Raum oder Benutzer nicht existieren oder der
+     *                                  Benutzer nicht Teil des Raums ist
+     */
+    public void requireMember(int chatId, boolean group, String userName) {
+        User user = getUser(userName);
+        if (user == null) throw new IllegalArgumentException("User existiert nicht: " + userName);
+        if (group) {
+            GruppenRoom room = gruppenRooms.get(chatId);
+            if (room == null) throw new IllegalArgumentException("Gruppe existiert nicht: " + chatId);
+            if (!room.isParticipant(user)) throw new IllegalArgumentException("User ist nicht Teil der Gruppe");
+        } else {
+            ChatRoom room = chatrooms.get(chatId);
+            if (room == null) throw new IllegalArgumentException("Chatroom existiert nicht: " + chatId);
+            if (!room.getUser1().equals(user) && !room.getUser2().equals(user)) {
+                throw new IllegalArgumentException("User ist nicht Teil des Chatrooms");
+            }
+        }
+    }
+
     /**
      * Benachrichtigt alle registrierten Listener über eine Änderung.
      */
@@ -94,8 +397,9 @@ public class ChatService {
         }
         
         // Erstellt neuen Chatraum
-        ChatRoom tempChatRoom = new ChatRoom(user1, user2);
+        ChatRoom tempChatRoom = new ChatRoom(user1, user2, roomStores);
         chatrooms.put(tempChatRoom.getRoomId(), tempChatRoom);
+        sweeper.register(tempChatRoom.getMessageStore());
         user1.getUserChatRoom().addChat(tempChatRoom);
         user2.getUserChatRoom().addChat(tempChatRoom);
         
@@ -107,6 +411,55 @@ public class ChatService {
      * Sendet eine Nachricht.
      */
     public void sendMessage(int roomId, String senderName, String content) {
+        sendMessage(roomId, senderName, content, null);
+    }
+    
+    /**
+     * Sendet eine Ephemeral-Nachricht, die nach Ablauf der Lebensdauer gelöscht wird.
+     * 
+     * @param ttl Lebensdauer der Nachricht oder null für eine dauerhafte Nachricht
+     */
+    public void sendMessage(int roomId, String senderName, String content, Duration ttl) {
+        sendMessage(roomId, senderName, content, MessageType.TEXT, ttl);
+    }
+    
+    /**
+     * Sendet einen hochgeladenen Anhang. Die Nachricht trägt nur den Verweis auf den
+     * Blob, die Dateibytes bleiben im Blob-Bereich des Servers. Zum Weiterleiten wird
+     * derselbe Verweis erneut gesendet; der Inhalt bleibt nur einmal gespeichert.
+     * 
+     * @param ref Verweis auf den fertigen Upload
+     */
+    public void sendAttachment(int roomId, String senderName, BlobRef ref) {
+        sendMessage(roomId, senderName, ref.toContent(), attachmentType(ref), null);
+    }
+    
+    /**
+     * Lädt eine Datei in den gesetzten Blob-Bereich und sendet sie als Anhang.
+     * 
+     * @param chatId     Der Chatraum oder die Gruppe
+     * @param group      true für eine Gruppe
+     * @param senderName Der Absender
+     * @param file       Die Datei
+     * @throws IllegalStateException wenn kein Blob-Bereich gesetzt ist
+     * @throws UncheckedIOException  wenn die Datei nicht gelesen werden kann
+     */
+    public void sendFile(int chatId, boolean group, String senderName, Path file) {
+        if (blobs == null) throw new IllegalStateException("Kein Blob-Bereich gesetzt");
+        BlobRef ref;
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = source.size();
+            String uploadId = blobs.startUpload(file.getFileName().toString(), size);
+            blobs.writeChunk(uploadId, 0, source, size);
+            ref = blobs.complete(uploadId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Datei konnte nicht gelesen werden: " + file, e);
+        }
+        if (group) sendGroupAttachment(chatId, senderName, ref);
+        else sendAttachment(chatId, senderName, ref);
+    }
+    
+    private void sendMessage(int roomId, String senderName, String content, MessageType type, Duration ttl) {
         ChatRoom room = chatrooms.get(roomId);
         if (room == null) 
             throw new IllegalArgumentException("Chatroom existiert nicht: " + roomId);
@@ -120,8 +473,10 @@ public class ChatService {
             throw new IllegalArgumentException("Sender ist nicht Teil des Chatrooms");
         }
         
-        Message message = new Message(sender, content);
-        room.addMessage(message);
+        Message message = new Message(sender, content, type);
+        if (ttl != null) message.setExpiresAt(message.getTimestamp().plus(ttl));
+        long seq = room.addMessage(message);
+        scheduleExpiry(room.getMessageStore(), seq, message.getExpiresAt());
         
         notifyUpdate(); // WICHTIG: Alle Fenster benachrichtigen!
     }
@@ -132,8 +487,8 @@ public class ChatService {
        if (room == null) 
            throw new IllegalArgumentException("Chatroom existiert nicht: " + roomId);
        
-       // Wir geben direkt die Liste zurück (oder eine Kopie)
-       return new ArrayList<>(room.getMessages());
+       // Unveränderliche Sicht statt Kopie: Nachrichten werden erst beim Lesen geladen
+       return room.getMessages();
    }
     
     /**
@@ -191,8 +546,9 @@ public class ChatService {
             throw new IllegalArgumentException("Creator existiert nicht: " + creatorName);
         }
         
-        GruppenRoom gruppenRoom = new GruppenRoom(creator, groupName, description);
+        GruppenRoom gruppenRoom = new GruppenRoom(creator, groupName, description, roomStores);
         gruppenRooms.put(gruppenRoom.getGroupId(), gruppenRoom);
+        sweeper.register(gruppenRoom.getMessageStore());
         
         notifyUpdate(); // UI aktualisieren
         return gruppenRoom.getGroupId();
@@ -218,16 +574,132 @@ public class ChatService {
     }
     
     public void sendGroupMessage(int groupId, String senderName, String content) {
+        sendGroupMessage(groupId, senderName, content, null);
+    }
+    
+    /**
+     * Sendet eine Ephemeral-Nachricht an eine Gruppe.
+     * 
+     * @param ttl Lebensdauer der Nachricht oder null für eine dauerhafte Nachricht
+     */
+    public void sendGroupMessage(int groupId, String senderName, String content, Duration ttl) {
+        sendGroupMessage(groupId, senderName, content, MessageType.TEXT, ttl);
+    }
+    
+    /**
+     * Sendet einen hochgeladenen Anhang an eine Gruppe. Verteilt wird nur der Verweis.
+     * 
+     * @param ref Verweis auf den fertigen Upload
+     */
+    public void sendGroupAttachment(int groupId, String senderName, BlobRef ref) {
+        sendGroupMessage(groupId, senderName, ref.toContent(), attachmentType(ref), null);
+    }
+    
+    private void sendGroupMessage(int groupId, String senderName, String content, MessageType type, Duration ttl) {
         GruppenRoom group = gruppenRooms.get(groupId);
         User sender = getUser(senderName);
         
         if (group == null) throw new IllegalArgumentException("Gruppe existiert nicht: " + groupId);
         if (sender == null) throw new IllegalArgumentException("Sender existiert nicht: " + senderName);
+        if (content == null) throw new NullPointerException("Content darf nicht null sein");
+        
+        Message message = new Message(sender, content, type);
+        if (ttl != null) message.setExpiresAt(message.getTimestamp().plus(ttl));
+        long seq = group.addMessage(message);
+        scheduleExpiry(group.getMessageStore(), seq, message.getExpiresAt());
+        fanOut.publish(group, seq, message); // Zustellung läuft im Hintergrund
         
-        group.addMessage(sender, content);
         notifyUpdate(); // WICHTIG: Alle Fenster benachrichtigen!
     }
     
+    private static MessageType attachmentType(BlobRef ref) {
+        String name = ref.getFileName().toLowerCase();
+        return name.matches(".*\\.(png|jpe?g|gif|bmp|webp)") ? MessageType.IMAGE : MessageType.FILE;
+    }
+    
+    private void scheduleExpiry(MessageStore store, long seq, LocalDateTime expiresAt) {
+        if (expiresAt == null) return;
+        sweeper.scheduleExpiry(store, seq, expiresAt);
+        sweeper.start();
+    }
+    
+    /**
+     * Vermerkt, dass ein Teilnehmer alle Gruppennachrichten bis einschließlich
+     * {@code seq} gelesen hat.
+     * 
+     * @param groupId  Die Gruppe
+     * @param userName Der lesende Teilnehmer
+     * @param seq      Sequenznummer der zuletzt gelesenen Nachricht
+     */
+    public void markGroupRead(int groupId, String userName, long seq) {
+        GruppenRoom group = gruppenRooms.get(groupId);
+        User user = getUser(userName);
+        
+        if (group == null) throw new IllegalArgumentException("Gruppe existiert nicht: " + groupId);
+        if (user == null) throw new IllegalArgumentException("User existiert nicht: " + userName);
+        
+        if (!group.markRead(user, seq)) return;
+        for (ReceiptListener listener : receiptListeners) {
+            listener.onGroupRead(groupId, user.getUserId(), seq); // Nur die Lesemarke melden
+        }
+    }
+    
+    /**
+     * Gibt zurück, wie viele Teilnehmer eine Gruppennachricht gelesen haben.
+     * 
+     * @param groupId Die Gruppe
+     * @param seq     Sequenznummer der Nachricht
+     * @return Anzahl der Leser
+     */
+    public int getGroupReadCount(int groupId, long seq) {
+        GruppenRoom group = gruppenRooms.get(groupId);
+        if (group == null) throw new IllegalArgumentException("Gruppe existiert nicht: " + groupId);
+        return group.getReadCount(seq);
+    }
+    
+    /**
+     * Gibt den Verlaufsspeicher eines Chatraums zurück, z.B. damit die Ansicht nur neue
+     * Sequenzen nachlädt. Der Speicher darf nur gelesen werden.
+     * 
+     * @param roomId Der Chatraum
+     * @return Der Nachrichtenspeicher des Raums
+     */
+    public MessageStore getChatRoomHistory(int roomId) {
+        ChatRoom room = chatrooms.get(roomId);
+        if (room == null) 
+            throw new IllegalArgumentException("Chatroom existiert nicht: " + roomId);
+        return room.getMessageStore();
+    }
+    
+    /**
+     * Gibt den Verlaufsspeicher einer Gruppe zurück. Der Speicher darf nur gelesen werden.
+     * 
+     * @param groupId Die Gruppe
+     * @return Der Nachrichtenspeicher der Gruppe
+     */
+    public MessageStore getGroupHistory(int groupId) {
+        GruppenRoom group = gruppenRooms.get(groupId);
+        if (group == null) {
+            throw new IllegalArgumentException("Gruppe existiert nicht: " + groupId);
+        }
+        return group.getMessageStore();
+    }
+    
+    /**
+     * Gibt eine unveränderliche, lazy ladende Sicht auf den Verlauf einer Gruppe zurück.
+     * 
+     * @param groupId Die Gruppe
+     * @return Nachrichten der Gruppe
+     */
+    public List<Message> showGroupMessages(int groupId) {
+        GruppenRoom group = gruppenRooms.get(groupId);
+        if (group == null) {
+            throw new IllegalArgumentException("Gruppe existiert nicht: " + groupId);
+        }
+        
+        return group.getMessages();
+    }
+    
     public List<String> getGroupMessages(int groupId) {
         GruppenRoom group = gruppenRooms.get(groupId);
         if (group == null) {
@@ -304,7 +776,7 @@ public class ChatService {
             user.setStatusText("");
         }
         
-        notifyUpdate();
+        presence.update(user); // Nur Kontakte und Raumpartner benachrichtigen
         return user.getUsername();
     }
     
@@ -312,7 +784,68 @@ public class ChatService {
         User user = users.get(username);
         if (user != null) {
             user.setUserInfo(newInfo);
-            notifyUpdate();
+            presence.update(user); // Nur Kontakte und Raumpartner benachrichtigen
+        }
+    }
+    
+    // --- PRÄSENZ ---
+    
+    /**
+     * Registriert einen Listener, der Präsenzänderungen der Kontakte und Raumpartner
+     * des Benutzers (sowie eigene) gebündelt einmal pro Intervall erhält.
+     * 
+     * @param userName Der empfangende Benutzer
+     * @param listener Der Listener
+     * @throws IllegalArgumentException wenn der Benutzer nicht existiert
+     */
+    public void subscribePresence(String userName, PresenceListener listener) {
+        User user = getUser(userName);
+        if (user == null) throw new IllegalArgumentException("User existiert nicht: " + userName);
+        presence.subscribe(user.getUserId(), listener);
+        presence.start();
+    }
+
+    /**
+     * Entfernt einen mit {@link #subscribePresence} registrierten Listener, z.B. wenn
+     * die Verbindung eines Clients endet.
+     *
+     * @param userName Der empfangende Benutzer
+     * @param listener Der Listener
+     */
+    public void unsubscribePresence(String userName, PresenceListener listener) {
+        User user = getUser(userName);
+        if (user != null) presence.unsubscribe(user.getUserId(), listener);
+    }
+
+    /**
+     * Gibt den Präsenzdienst zurück.
+     * 
+     * @return Der PresenceService
+     */
+    public PresenceService getPresenceService() {
+        return presence;
+    }
+    
+    /**
+     * Ermittelt alle Benutzer, die Präsenzänderungen eines Benutzers sehen:
+     * ihn selbst, alle, die ihn als Kontakt führen, seine Chatpartner und die
+     * Mitglieder seiner Gruppen.
+     */
+    private Set<Integer> presenceAudience(User user) {
+        Set<Integer> audience = new HashSet<>();
+        audience.add(user.getUserId());
+        for (int followerId : user.getUserContacts().getFollowerIds()) {
+            audience.add(followerId); // Rückwärtsindex statt Suche über alle Benutzer
+        }
+        for (ChatRoom room : user.getUserChatRoom().getAllChatRooms()) {
+            audience.add(room.getUser1().getUserId());
+            audience.add(room.getUser2().getUserId());
+        }
+        for (GruppenRoom group : user.getUserGruppenRoom().getGruppenRooms()) {
+            for (int memberId : group.getParticipantIds()) {
+                audience.add(memberId);
+            }
         }
+        return audience;
     }
 }
\ No newline at end of file
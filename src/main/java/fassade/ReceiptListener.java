@@ -0,0 +1,17 @@
+package fassade;
+
+/**
+ * Empfängt vorgerückte Lesemarken einer Gruppe.
+ */
+@FunctionalInterface
+public interface ReceiptListener {
+
+    /**
+     * Wird aufgerufen, wenn ein Teilnehmer weitergelesen hat.
+     *
+     * @param groupId Die Gruppe
+     * @param userId  Der lesende Teilnehmer
+     * @param seq     Sequenznummer der zuletzt gelesenen Nachricht
+     */
+    void onGroupRead(int groupId, int userId, long seq);
+}
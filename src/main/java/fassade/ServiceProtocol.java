@@ -0,0 +1,158 @@
+package fassade;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Zeilenprotokoll zwischen {@code server.ServiceServer} und {@code client.RemoteChatService}.
+ *
+ * Jede Zeile besteht aus Feldern, die durch Tabulatoren getrennt sind; Tabulator,
+ * Zeilenumbruch und Backslash werden in Feldern maskiert. Eine Anfrage beginnt mit
+ * einer Anfrage-ID und dem Befehl, die Antwort mit derselben ID und {@link #OK} oder
+ * {@link #ERROR} (gefolgt von der Fehlermeldung). Zeilen, die der Server von sich aus
+ * sendet, beginnen mit {@link #PUSH}.
+ *
+ * <pre>
+ * HELLO                                            -&gt; serverId blobPort
+ * LOGIN          user                              -&gt; -   (abonniert PUSH PRESENCE)
+ * CREATE_USER    user                              -&gt; -
+ * CONTACTS       user                              -&gt; (id name info text online)*
+ * GROUPS         user                              -&gt; (id name description creatorId creator n (memberId member)^n)*
+ * OPEN_ROOM      user partner                      -&gt; roomId
+ * HISTORY        kind id limit [after]             -&gt; from next (seq senderId sender type timestamp content)*
+ * SEND           kind id clientId content          -&gt; -
+ * ATTACH         kind id uploadId                  -&gt; -
+ * ADD_CONTACT    contact user                      -&gt; added
+ * CREATE_GROUP   user name description             -&gt; groupId
+ * PROFILE        newName info text                 -&gt; name
+ * READ           groupId seq                       -&gt; -
+ * TYPING         kind id                           -&gt; -
+ *
+ * PUSH MESSAGE   kind id seq clientId senderId sender type timestamp content
+ * PUSH UPDATE
+ * PUSH PRESENCE  (id name online info text)*
+ * PUSH READ      groupId userId seq
+ * PUSH TYPING    kind id user
+ * PUSH UNWATCH   kind id
+ * </pre>
+ *
+ * Außer HELLO, LOGIN und CREATE_USER setzen alle Anfragen ein LOGIN voraus und
+ * handeln im Namen des angemeldeten Benutzers; ein {@code user}-Feld muss ihm
+ * entsprechen. Eine Verbindung bleibt an ihren ersten Benutzer gebunden. HISTORY,
+ * READ und TYPING sind nur für Teilnehmer des Raums erlaubt.
+ * {@code kind} ist {@link #ROOM} oder {@link #GROUP}. HISTORY liefert die Nachrichten
+ * ab der Server-Sequenz {@code from}, höchstens aber die letzten {@code limit}; mit
+ * {@code after} nur die seit einem früheren Stand neuen. {@code next} ist die Sequenz
+ * der nächsten Nachricht. Liegt {@code from} hinter {@code after}, fehlen dem Client
+ * Nachrichten dazwischen. Die {@code serverId} wechselt mit jedem Serverstart, da IDs
+ * dann neu vergeben werden. Anhänge werden zuerst über den {@code server.BlobServer} auf
+ * {@code blobPort} hochgeladen (0 ohne Blob-Server); ATTACH nennt danach nur die
+ * geheime ID des abgeschlossenen Uploads, die der Server einmalig gegen den Verweis
+ * tauscht. Ein Hash allein berechtigt nicht zum Versand. Nach HISTORY erhält die Verbindung jede neue Nachricht des Raums als PUSH
+ * MESSAGE, bis der Server den Raum mit PUSH UNWATCH abgibt, weil die Verbindung zu
+ * viele Räume beobachtet. Die {@code clientId}
+ * einer gesendeten Nachricht kommt darin zurück, damit der Absender seine optimistisch
+ * angezeigte Nachricht zuordnen kann. PUSH UPDATE meldet Änderungen an Kontakten und
+ * Gruppen, nicht aber neue Nachrichten. READ rückt die Lesemarke in Server-Sequenzen
+ * vor; PUSH READ geht nur an Verbindungen, die die Gruppe beobachten. Ebenso PUSH
+ * TYPING, das über die niedrig priorisierte Spur geht: Ein neueres Signal desselben
+ * Benutzers im selben Raum ersetzt ein noch nicht gesendetes.
+ */
+public final class ServiceProtocol {
+    public static final int DEFAULT_PORT = 12347;
+
+    public static final String HELLO = "HELLO";
+    public static final String LOGIN = "LOGIN";
+    public static final String CREATE_USER = "CREATE_USER";
+    public static final String CONTACTS = "CONTACTS";
+    public static final String GROUPS = "GROUPS";
+    public static final String OPEN_ROOM = "OPEN_ROOM";
+    public static final String HISTORY = "HISTORY";
+    public static final String SEND = "SEND";
+    public static final String ATTACH = "ATTACH";
+    public static final String ADD_CONTACT = "ADD_CONTACT";
+    public static final String CREATE_GROUP = "CREATE_GROUP";
+    public static final String PROFILE = "PROFILE";
+    public static final String READ = "READ";
+    public static final String TYPING = "TYPING";
+
+    public static final String OK = "OK";
+    public static final String ERROR = "ERROR";
+    public static final String PUSH = "*";
+    public static final String MESSAGE = "MESSAGE";
+    public static final String UPDATE = "UPDATE";
+    public static final String PRESENCE = "PRESENCE";
+    public static final String UNWATCH = "UNWATCH";
+
+    public static final String ROOM = "room";
+    public static final String GROUP = "group";
+
+    private ServiceProtocol() {
+    }
+
+    /**
+     * Setzt Felder zu einer Zeile zusammen.
+     *
+     * @param fields Die Felder (null wird als leeres Feld gesendet)
+     * @return Die Zeile ohne Zeilenumbruch
+     */
+    public static String line(Object... fields) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) line.append('\t');
+            escape(fields[i] == null ? "" : fields[i].toString(), line);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Setzt Kopf- und Nutzfelder zu einer Zeile zusammen.
+     *
+     * @param head    Die ersten Felder, z.B. Anfrage-ID und Befehl
+     * @param payload Weitere Felder
+     * @return Die Zeile ohne Zeilenumbruch
+     */
+    public static String line(List<?> head, List<?> payload) {
+        List<Object> fields = new ArrayList<>(head);
+        fields.addAll(payload);
+        return line(fields.toArray());
+    }
+
+    private static void escape(String field, StringBuilder out) {
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            switch (c) {
+                case '\\': out.append("\\\\"); break;
+                case '\t': out.append("\\t"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                default: out.append(c);
+            }
+        }
+    }
+
+    /**
+     * Zerlegt eine Zeile in ihre Felder.
+     *
+     * @param line Die empfangene Zeile
+     * @return Die Felder ohne Maskierung
+     */
+    public static List<String> fields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\t') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\\' && i + 1 < line.length()) {
+                char next = line.charAt(++i);
+                field.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,18 @@
+package fassade;
+
+/**
+ * Empfängt Tipp-Signale. Ein Signal gilt nur kurz; solange weitergetippt wird, kommt
+ * spätestens alle {@code client.TypingThrottle.DEFAULT_INTERVAL} ein neues.
+ */
+@FunctionalInterface
+public interface TypingListener {
+
+    /**
+     * Wird aufgerufen, wenn ein Benutzer in einem Raum tippt.
+     *
+     * @param chatId   Der Chatraum oder die Gruppe
+     * @param group    true für eine Gruppe
+     * @param userName Der tippende Benutzer
+     */
+    void onTyping(int chatId, boolean group, String userName);
+}
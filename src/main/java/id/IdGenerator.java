@@ -0,0 +1,197 @@
+package id;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Vergibt kollisionsfreie IDs für Benutzer, Chaträume und Gruppen.
+ *
+ * Eine ID ist ein positiver {@code int} mit dem Aufbau
+ * {@code [Art: 2 Bit][Knoten: 5 Bit][Sequenz: 24 Bit]}. Die Art trennt die Namensräume,
+ * die Knoten-ID trennt bis zu 32 Server, die Sequenz wird pro Art lock-frei über einen
+ * atomaren Zähler hochgezählt.
+ *
+ * Damit nach einem Neustart keine IDs doppelt vergeben werden, reserviert der Generator
+ * Sequenzen blockweise und schreibt die Obergrenze vor der Vergabe in eine Lease-Datei.
+ * Nach einem Absturz gehen höchstens die ungenutzten Reste eines Blocks verloren.
+ * Nur das Reservieren eines neuen Blocks ist synchronisiert.
+ */
+public final class IdGenerator {
+    static final int SEQUENCE_BITS = 24;
+    static final int NODE_BITS = 5;
+    static final int KIND_SHIFT = SEQUENCE_BITS + NODE_BITS;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    public static final int MAX_SEQUENCE = (1 << SEQUENCE_BITS) - 1;
+    public static final int DEFAULT_BLOCK_SIZE = 1024;      // Reservierte Sequenzen pro Lease
+    private static final int FIRST_SEQUENCE = 1000;         // Erste vergebene Sequenz pro Art
+
+    private static volatile IdGenerator instance = new IdGenerator(0, null, DEFAULT_BLOCK_SIZE);
+
+    private final int nodeId;                   // Knoten-ID dieses Servers
+    private final Path leaseFile;               // Persistierte Obergrenzen (null = nur im Speicher)
+    private final int blockSize;                // Größe eines reservierten Blocks
+    private final Map<IdKind, Sequence> sequences = new EnumMap<>(IdKind.class);
+
+    /**
+     * Erstellt einen Generator.
+     *
+     * @param nodeId    Knoten-ID zwischen 0 und {@link #MAX_NODE_ID}
+     * @param leaseFile Datei für die reservierten Obergrenzen oder null ohne Persistenz
+     * @param blockSize Anzahl der pro Schreibvorgang reservierten Sequenzen
+     * @throws IllegalArgumentException bei ungültiger Knoten-ID oder Blockgröße
+     * @throws UncheckedIOException wenn die Lease-Datei nicht gelesen werden kann
+     */
+    public IdGenerator(int nodeId, Path leaseFile, int blockSize) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Knoten-ID muss zwischen 0 und " + MAX_NODE_ID + " liegen: " + nodeId);
+        }
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Blockgröße muss positiv sein: " + blockSize);
+        }
+
+        this.nodeId = nodeId;
+        this.leaseFile = leaseFile;
+        this.blockSize = leaseFile != null ? blockSize : MAX_SEQUENCE + 1; // Ohne Datei gibt es nichts zu reservieren
+        Map<IdKind, Integer> leased = readLeases();
+        for (IdKind kind : IdKind.values()) {
+            int start = leased.getOrDefault(kind, FIRST_SEQUENCE);
+            sequences.put(kind, new Sequence(kind, start));
+        }
+    }
+
+    /**
+     * Gibt den prozessweit verwendeten Generator zurück.
+     *
+     * @return Der aktuelle Generator
+     */
+    public static IdGenerator getInstance() {
+        return instance;
+    }
+
+    /**
+     * Ersetzt den prozessweit verwendeten Generator, z.B. beim Serverstart mit
+     * Knoten-ID und Lease-Datei. Sollte vor dem Anlegen der ersten Entität erfolgen.
+     *
+     * @param generator Der neue Generator
+     */
+    public static void install(IdGenerator generator) {
+        instance = Objects.requireNonNull(generator, "Generator darf nicht null sein");
+    }
+
+    /**
+     * Vergibt die nächste ID im Namensraum der angegebenen Art.
+     *
+     * @param kind Die Entitätsart
+     * @return Eine eindeutige, positive ID
+     * @throws IllegalStateException wenn der Sequenzraum erschöpft ist
+     */
+    public int next(IdKind kind) {
+        int seq = sequences.get(kind).next();
+        return (kind.ordinal() << KIND_SHIFT) | (nodeId << SEQUENCE_BITS) | seq;
+    }
+
+    /**
+     * Gibt die Knoten-ID zurück, die eine ID vergeben hat.
+     *
+     * @param id Eine vergebene ID
+     * @return Die Knoten-ID
+     */
+    public static int nodeOf(int id) {
+        return (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+
+    /**
+     * Gibt die Knoten-ID dieses Generators zurück.
+     *
+     * @return Die Knoten-ID
+     */
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    private Map<IdKind, Integer> readLeases() {
+        Map<IdKind, Integer> leased = new EnumMap<>(IdKind.class);
+        if (leaseFile == null || !Files.exists(leaseFile)) return leased;
+        try {
+            List<String> lines = Files.readAllLines(leaseFile, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                int split = line.indexOf('=');
+                if (split < 0) continue;
+                leased.put(IdKind.valueOf(line.substring(0, split).trim()),
+                        Integer.parseInt(line.substring(split + 1).trim()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lease-Datei konnte nicht gelesen werden: " + leaseFile, e);
+        }
+        return leased;
+    }
+
+    /**
+     * Schreibt die Obergrenzen aller Arten atomar in die Lease-Datei, für
+     * {@code leasing} bereits mit der neuen Obergrenze.
+     */
+    private void writeLeases(IdKind leasing, int newLimit) {
+        StringBuilder content = new StringBuilder();
+        for (Map.Entry<IdKind, Sequence> entry : sequences.entrySet()) {
+            int limit = entry.getKey() == leasing ? newLimit : entry.getValue().limit;
+            content.append(entry.getKey()).append('=').append(limit).append('\n');
+        }
+        Path temp = leaseFile.resolveSibling(leaseFile.getFileName() + ".tmp");
+        try {
+            Files.writeString(temp, content, StandardCharsets.UTF_8);
+            Files.move(temp, leaseFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lease-Datei konnte nicht geschrieben werden: " + leaseFile, e);
+        }
+    }
+
+    /**
+     * Zähler einer Art. Der schnelle Pfad ist ein CAS auf {@code next}; nur wenn der
+     * reservierte Block aufgebraucht ist, wird unter Sperre ein neuer Block geleast.
+     */
+    private final class Sequence {
+        private final IdKind kind;          // Namensraum dieses Zählers
+        private final AtomicInteger next;   // Nächste zu vergebende Sequenz
+        private volatile int limit;         // Exklusive Obergrenze des reservierten Bereichs
+
+        Sequence(IdKind kind, int start) {
+            this.kind = kind;
+            this.next = new AtomicInteger(start);
+            this.limit = start;
+        }
+
+        int next() {
+            while (true) {
+                int current = next.get();
+                if (current >= limit) {
+                    lease(current);
+                } else if (next.compareAndSet(current, current + 1)) {
+                    return current;
+                }
+            }
+        }
+
+        private void lease(int current) {
+            synchronized (IdGenerator.this) {
+                if (current < limit) return; // Ein anderer Thread hat bereits reserviert
+                if (current > MAX_SEQUENCE) {
+                    throw new IllegalStateException("Sequenzraum für Knoten " + nodeId + " erschöpft");
+                }
+                int newLimit = (int) Math.min((long) limit + blockSize, MAX_SEQUENCE + 1L);
+                if (leaseFile != null) {
+                    writeLeases(kind, newLimit); // Erst persistieren, dann freigeben
+                }
+                limit = newLimit;
+            }
+        }
+    }
+}
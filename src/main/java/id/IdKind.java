@@ -0,0 +1,26 @@
+package id;
+
+/**
+ * Entitätsarten, für die IDs vergeben werden. Jede Art besitzt einen eigenen
+ * Namensraum, sodass z.B. Chatraum- und Gruppen-IDs nie kollidieren.
+ */
+public enum IdKind {
+    USER,       // Benutzer
+    CHAT_ROOM,  // Zweier-Chaträume
+    GROUP;      // Gruppenräume
+
+    /**
+     * Ermittelt die Entitätsart, aus deren Namensraum eine ID stammt.
+     *
+     * @param id Eine von {@link IdGenerator} vergebene ID
+     * @return Die zugehörige Entitätsart
+     * @throws IllegalArgumentException wenn die ID keinem Namensraum zugeordnet ist
+     */
+    public static IdKind of(int id) {
+        int tag = id >>> IdGenerator.KIND_SHIFT;
+        if (id < 0 || tag >= values().length) {
+            throw new IllegalArgumentException("Ungültige ID: " + id);
+        }
+        return values()[tag];
+    }
+}
@@ -0,0 +1,17 @@
+package presence;
+
+import java.util.List;
+
+/**
+ * Empfängt Präsenzänderungen für die Sitzung eines Benutzers.
+ */
+@FunctionalInterface
+public interface PresenceListener {
+
+    /**
+     * Wird einmal pro Intervall mit allen relevanten Änderungen aufgerufen.
+     *
+     * @param changes Neue Präsenzzustände, höchstens einer pro Benutzer
+     */
+    void onPresenceChanged(List<PresenceState> changes);
+}
@@ -0,0 +1,186 @@
+package presence;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import domain.User;
+
+/**
+ * Verfolgt Online-Status und Status pro Benutzer und verteilt Änderungen gezielt.
+ *
+ * Änderungen werden nur vorgemerkt und einmal pro Intervall zusammengefasst verteilt.
+ * Springt ein Benutzer innerhalb eines Intervalls hin und her (z.B. Verbindungsabbrüche),
+ * wird nur der Endzustand gesendet, und auch das nur, wenn er sich vom zuletzt
+ * verteilten Zustand unterscheidet. Empfänger sind ausschließlich die Benutzer, die der
+ * Publikumsfunktion zufolge betroffen sind, etwa Kontakte und Raumpartner.
+ */
+public class PresenceService implements AutoCloseable {
+    public static final long DEFAULT_INTERVAL_MILLIS = 250;
+
+    private final IntFunction<User> users;                       // Löst User-IDs auf
+    private final Function<User, Set<Integer>> audience;         // Wer die Präsenz eines Benutzers sieht
+    private final Map<Integer, PresenceState> published = new ConcurrentHashMap<>();  // Zuletzt verteilt
+    private final Map<Integer, List<PresenceListener>> listeners = new ConcurrentHashMap<>();
+    private final Set<Integer> dirty = new LinkedHashSet<>();   // Seit dem letzten Intervall geändert
+    private final AtomicLong changes = new AtomicLong();         // Gemeldete Änderungen
+    private final AtomicLong pushed = new AtomicLong();          // Verteilte Zustände
+    private final AtomicLong notifications = new AtomicLong();   // Listener-Aufrufe
+    private ScheduledExecutorService scheduler;
+    private final long intervalMillis;
+
+    /**
+     * Erstellt einen Präsenzdienst.
+     *
+     * @param users          Liefert den Benutzer zu einer User-ID
+     * @param audience       Liefert die IDs aller Benutzer, die Änderungen eines Benutzers sehen
+     * @param intervalMillis Intervall, in dem Änderungen zusammengefasst werden
+     */
+    public PresenceService(IntFunction<User> users, Function<User, Set<Integer>> audience, long intervalMillis) {
+        this.users = Objects.requireNonNull(users, "Users darf nicht null sein");
+        this.audience = Objects.requireNonNull(audience, "Audience darf nicht null sein");
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("Intervall muss positiv sein: " + intervalMillis);
+        }
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Startet die periodische Verteilung, falls noch nicht geschehen.
+     */
+    public synchronized void start() {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "presence");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registriert einen Listener für die Sitzung eines Benutzers.
+     *
+     * @param userId   Der empfangende Benutzer
+     * @param listener Der Listener
+     */
+    public void subscribe(int userId, PresenceListener listener) {
+        Objects.requireNonNull(listener, "Listener darf nicht null sein");
+        listeners.computeIfAbsent(userId, id -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * Entfernt einen Listener.
+     *
+     * @param userId   Der empfangende Benutzer
+     * @param listener Der Listener
+     */
+    public void unsubscribe(int userId, PresenceListener listener) {
+        List<PresenceListener> registered = listeners.get(userId);
+        if (registered != null) registered.remove(listener);
+    }
+
+    /**
+     * Merkt eine Präsenzänderung zur Verteilung im nächsten Intervall vor.
+     *
+     * @param user Der geänderte Benutzer
+     */
+    public void update(User user) {
+        changes.incrementAndGet();
+        synchronized (dirty) {
+            dirty.add(user.getUserId());
+        }
+    }
+
+    /**
+     * Gibt den zuletzt verteilten Zustand eines Benutzers zurück.
+     *
+     * @param userId Die User-ID
+     * @return Der Zustand oder null, wenn noch nichts verteilt wurde
+     */
+    public PresenceState getPublished(int userId) {
+        return published.get(userId);
+    }
+
+    /**
+     * Verteilt alle vorgemerkten Änderungen sofort. Jeder betroffene Empfänger
+     * erhält genau einen Aufruf mit allen für ihn relevanten Zuständen.
+     */
+    public void flush() {
+        List<Integer> batch;
+        synchronized (dirty) {
+            if (dirty.isEmpty()) return;
+            batch = new ArrayList<>(dirty);
+            dirty.clear();
+        }
+
+        Map<Integer, List<PresenceState>> outgoing = new HashMap<>();
+        for (int userId : batch) {
+            User user = users.apply(userId);
+            if (user == null) continue;
+            PresenceState state = PresenceState.of(user);
+            if (state.equals(published.put(userId, state))) continue; // Hin und zurück: nichts zu senden
+            pushed.incrementAndGet();
+            for (int watcher : audience.apply(user)) {
+                if (listeners.containsKey(watcher)) {
+                    outgoing.computeIfAbsent(watcher, id -> new ArrayList<>()).add(state);
+                }
+            }
+        }
+
+        for (Map.Entry<Integer, List<PresenceState>> entry : outgoing.entrySet()) {
+            for (PresenceListener listener : listeners.getOrDefault(entry.getKey(), List.of())) {
+                listener.onPresenceChanged(entry.getValue());
+                notifications.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Gibt die Anzahl der gemeldeten Änderungen zurück.
+     *
+     * @return Gemeldete Änderungen
+     */
+    public long getChanges() {
+        return changes.get();
+    }
+
+    /**
+     * Gibt die Anzahl der tatsächlich verteilten Zustände zurück.
+     * Die Differenz zu {@link #getChanges()} wurde durch Zusammenfassen eingespart.
+     *
+     * @return Verteilte Zustände
+     */
+    public long getPushed() {
+        return pushed.get();
+    }
+
+    /**
+     * Gibt die Anzahl der Listener-Aufrufe zurück.
+     *
+     * @return Listener-Aufrufe
+     */
+    public long getNotifications() {
+        return notifications.get();
+    }
+
+    /**
+     * Beendet die periodische Verteilung.
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,70 @@
+package presence;
+
+import java.util.Objects;
+
+import domain.User;
+import domain.UserInfo;
+
+/**
+ * Unveränderlicher Schnappschuss der Präsenz eines Benutzers.
+ */
+public final class PresenceState {
+    private final int userId;           // Betroffener Benutzer
+    private final String username;      // Aktueller Benutzername
+    private final boolean online;       // Angemeldet oder nicht
+    private final UserInfo userInfo;    // Status (verfügbar, beschäftigt, ...)
+    private final String statusText;    // Eigener Statustext bei CUSTOM
+
+    private PresenceState(User user) {
+        this.userId = user.getUserId();
+        this.username = user.getUsername();
+        this.online = user.isOnline();
+        this.userInfo = user.getUserInfo();
+        this.statusText = user.getStatusText();
+    }
+
+    /**
+     * Hält den aktuellen Präsenzzustand eines Benutzers fest.
+     *
+     * @param user Der Benutzer
+     * @return Schnappschuss seiner Präsenz
+     */
+    public static PresenceState of(User user) {
+        return new PresenceState(Objects.requireNonNull(user, "User darf nicht null sein"));
+    }
+
+    /** @return Die User-ID */
+    public int getUserId() { return userId; }
+
+    /** @return Der Benutzername zum Zeitpunkt des Schnappschusses */
+    public String getUsername() { return username; }
+
+    /** @return true wenn der Benutzer angemeldet ist */
+    public boolean isOnline() { return online; }
+
+    /** @return Der Status des Benutzers */
+    public UserInfo getUserInfo() { return userInfo; }
+
+    /** @return Der Statustext */
+    public String getStatusText() { return statusText; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PresenceState)) return false;
+        PresenceState other = (PresenceState) o;
+        return userId == other.userId && online == other.online && username.equals(other.username)
+                && userInfo == other.userInfo && Objects.equals(statusText, other.statusText);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId, username, online, userInfo, statusText);
+    }
+
+    @Override
+    public String toString() {
+        return "PresenceState [userId=" + userId + ", username=" + username + ", online=" + online
+                + ", userInfo=" + userInfo + "]";
+    }
+}
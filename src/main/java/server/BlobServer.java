@@ -0,0 +1,170 @@
+package server;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Objects;
+
+import blob.BlobProtocol;
+import blob.BlobRef;
+import blob.BlobStore;
+
+/**
+ * Nimmt Anhänge entgegen und liefert sie aus. Läuft neben dem zeilenbasierten
+ * Chat-Server auf einem eigenen Port, da Dateibytes nicht in ein Textprotokoll passen.
+ *
+ * Blöcke werden direkt vom Socket-Kanal in die Upload-Datei übertragen, Downloads
+ * per {@code FileChannel.transferTo} direkt in den Socket-Kanal. Die Dateibytes
+ * laufen damit in keiner Richtung durch den Heap. Pro Verbindung läuft ein Thread.
+ */
+public class BlobServer implements Runnable {
+    private final BlobStore store;              // Blob-Bereich auf der Platte
+    private final ServerSocketChannel server;   // Wartet auf Verbindungen
+    private volatile boolean closed;
+
+    /**
+     * Öffnet den Server-Port.
+     *
+     * @param store Blob-Bereich
+     * @param port  Port oder 0 für einen freien Port
+     * @throws UncheckedIOException wenn der Port nicht geöffnet werden kann
+     */
+    public BlobServer(BlobStore store, int port) {
+        this.store = Objects.requireNonNull(store, "Store darf nicht null sein");
+        try {
+            server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(port));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Blob-Port konnte nicht geöffnet werden: " + port, e);
+        }
+    }
+
+    /**
+     * Startet den Annahme-Thread als Daemon.
+     */
+    public void start() {
+        Thread thread = new Thread(this, "blob-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Nimmt Verbindungen an, bis der Server geschlossen wird.
+     */
+    @Override
+    public void run() {
+        while (!closed) {
+            try {
+                SocketChannel client = server.accept();
+                Thread handler = new Thread(() -> serve(client), "blob-" + client.socket().getPort());
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                if (!closed) System.out.println("Blob-Server Fehler: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Gibt den tatsächlich gebundenen Port zurück.
+     *
+     * @return Der Port
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Schließt den Server-Port. Laufende Übertragungen werden nicht abgebrochen.
+     */
+    public void close() {
+        closed = true;
+        try {
+            server.close();
+        } catch (IOException e) {
+        }
+    }
+
+    /**
+     * Bearbeitet Anfragen einer Verbindung nacheinander. Der Eingabestrom ist nicht
+     * gepuffert, damit nach dem Kopf eines Blocks die Bytes direkt aus dem Kanal
+     * gelesen werden können.
+     */
+    private void serve(SocketChannel channel) {
+        try (channel) {
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            while (true) {
+                int command;
+                try {
+                    command = in.readByte();
+                } catch (EOFException e) {
+                    return; // Client hat die Verbindung beendet
+                }
+                try {
+                    handle(command, in, out, channel);
+                } catch (IllegalArgumentException | IllegalStateException | UncheckedIOException e) {
+                    out.writeByte(BlobProtocol.ERROR);
+                    out.writeUTF(String.valueOf(e.getMessage()));
+                    out.flush();
+                    return; // Strom ist nicht mehr synchron, Client setzt über OFFSET fort
+                }
+            }
+        } catch (IOException e) {
+            // Verbindungsabbruch: bestätigte Bytes bleiben in der Upload-Datei erhalten
+        }
+    }
+
+    private void handle(int command, DataInputStream in, DataOutputStream out, SocketChannel channel)
+            throws IOException {
+        switch (command) {
+            case BlobProtocol.START: {
+                String uploadId = store.startUpload(in.readUTF(), in.readLong());
+                out.writeByte(BlobProtocol.OK);
+                out.writeUTF(uploadId);
+                break;
+            }
+            case BlobProtocol.OFFSET: {
+                long offset = store.getOffset(in.readUTF());
+                out.writeByte(BlobProtocol.OK);
+                out.writeLong(offset);
+                break;
+            }
+            case BlobProtocol.WRITE: {
+                String uploadId = in.readUTF();
+                long offset = in.readLong();
+                long length = in.readLong();
+                long committed = store.writeChunk(uploadId, offset, channel, length);
+                out.writeByte(BlobProtocol.OK);
+                out.writeLong(committed);
+                break;
+            }
+            case BlobProtocol.COMPLETE: {
+                BlobRef ref = store.complete(in.readUTF());
+                out.writeByte(BlobProtocol.OK);
+                out.writeUTF(ref.toContent());
+                break;
+            }
+            case BlobProtocol.GET: {
+                String blobId = in.readUTF();
+                long offset = Math.max(0, in.readLong());
+                long size = store.size(blobId);
+                out.writeByte(BlobProtocol.OK);
+                out.writeLong(Math.max(0, size - offset));
+                out.flush(); // Kopf vor den Dateibytes senden
+                store.transferTo(blobId, offset, channel);
+                return;
+            }
+            default:
+                throw new IllegalArgumentException("Unbekannter Befehl: " + command);
+        }
+        out.flush();
+    }
+}
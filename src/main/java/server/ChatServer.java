@@ -2,24 +2,79 @@ package server;
 
 import java.io.*;
 import java.net.*;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import blob.BlobProtocol;
+import blob.BlobStore;
+import fassade.ChatService;
+import fassade.ServiceProtocol;
+import id.IdGenerator;
 
 /**
  * Der Chat-Server verwaltet die Netzwerkverbindungen und Nachrichtenverteilung.
  * Empfängt Nachrichten von Clients und verteilt sie an alle verbundenen Clients.
+ *
+ * Neben normalen Textzeilen versteht der Server Steuerzeilen:
+ * {@code /join <raum>} meldet den Client als Zuhörer eines Raums an,
+ * {@code /typing <raum>} und {@code /typing-stop <raum>} signalisieren Tippen.
+ * Tipp-Signale werden zusammengefasst, über ein Timer-Rad beendet und nur an die
+ * Zuhörer des Raums über die niedrig priorisierte Spur verteilt.
+ * Anhänge laufen nicht über diese Verbindung, sondern über den {@link BlobServer}
+ * auf Port 12346; im Chat wird nur der Blob-Verweis gesendet. Der {@link ServiceServer}
+ * auf Port 12347 stellt einen gemeinsamen {@code ChatService} für die JavaFX-Clients bereit.
+ *
+ * Es gibt genau einen {@code ChatService} pro Server. Der Zeilen-Chat auf Port 12345 ist
+ * veraltet und nur noch für bestehende Text-Clients da: Er leitet Zeilen direkt weiter,
+ * ohne den Service zu berühren, sodass seine Nachrichten weder gespeichert werden noch
+ * bei den JavaFX-Clients ankommen. Neue Clients verwenden {@code client.RemoteChatService}.
  */
 public class ChatServer {
-    private static List<PrintWriter> clientWriters = new ArrayList<>(); // Liste aller Client-OutputStreams
+    private static List<ClientHandler> clients = new CopyOnWriteArrayList<>(); // Alle verbundenen Clients
+    private static Map<String, Set<ClientHandler>> rooms = new ConcurrentHashMap<>(); // Zuhörer pro Raum
+    private static TypingTracker typing = new TypingTracker(System.currentTimeMillis());
     
     /**
      * Startet den Chat-Server auf Port 12345.
      * Akzeptiert eingehende Client-Verbindungen und verwaltet sie in separaten Threads.
+     * Knoten-ID und Lease-Datei der ID-Vergabe kommen aus den System-Properties
+     * {@code chat.node} (Standard 0) und {@code chat.idLease} (Standard {@code ids.lease}).
      */
     public static void startServer() {
         System.out.println("Starte Chat-Server auf Port 12345...");
         
+        // Vor dem ersten Benutzer oder Raum, damit alle IDs aus diesem Knoten stammen
+        IdGenerator.install(new IdGenerator(Integer.getInteger("chat.node", 0),
+                Path.of(System.getProperty("chat.idLease", "ids.lease")), IdGenerator.DEFAULT_BLOCK_SIZE));
+        
+        // Ein einziger Takt beendet alle abgelaufenen Tipp-Anzeigen
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "typing-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(ChatServer::expireTyping, TypingTracker.DEFAULT_TICK_MILLIS,
+                TypingTracker.DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS);
+        
+        // Ein Blob-Bereich für Uploads und Anhangsnachrichten; setBlobStore vor dem ersten
+        // Raum, damit jede Anhangsnachricht ihren Blob referenziert und die GC ihn nicht löscht
+        ChatService service = new ChatService();
+        BlobStore blobStore = new BlobStore(Path.of("blobs"));
+        service.setBlobStore(blobStore);
+        BlobServer blobs = new BlobServer(blobStore, BlobProtocol.DEFAULT_PORT);
+        blobs.start();
+        ServiceServer services = new ServiceServer(service, ServiceProtocol.DEFAULT_PORT);
+        services.setBlobPort(blobs.getPort());
+        services.start();
+        
         try (ServerSocket serverSocket = new ServerSocket(12345)) {
-            System.out.println("Server läuft und wartet auf Verbindungen...");
+            System.out.println("Server läuft und wartet auf Verbindungen (Port 12345 ist veraltet, "
+                    + "JavaFX-Clients nutzen Port " + ServiceProtocol.DEFAULT_PORT + ")...");
             
             while (true) {
                 Socket clientSocket = serverSocket.accept(); // Wartet auf Client-Verbindung
@@ -28,16 +83,24 @@ public class ChatServer {
             }
         } catch (IOException e) {
             System.out.println("Server Fehler: " + e.getMessage());
+        } finally {
+            timer.shutdownNow();
+            blobs.close();
+            services.close();
+            service.close(); // Beendet auch die Blob-GC
         }
     }
     
     /**
      * Behandelt die Kommunikation mit einem einzelnen Client.
      * Verwaltet den Nachrichtenaustausch und die Verbindung.
+     *
+     * @deprecated Zeilen-Chat ohne gemeinsamen Zustand; ersetzt durch {@link ServiceServer}
      */
+    @Deprecated
     private static class ClientHandler implements Runnable {
         private Socket socket;      // Client-Socket
-        private PrintWriter out;    // OutputStream zum Client
+        private Outbox outbox;      // Ausgangswarteschlange zum Client
         private String username;    // Benutzername des Clients
         
         /**
@@ -55,29 +118,104 @@ public class ChatServer {
          */
         public void run() {
             try {
-                out = new PrintWriter(socket.getOutputStream(), true);
+                outbox = new Outbox(new PrintWriter(socket.getOutputStream(), true));
+                Thread writer = new Thread(outbox, "outbox-" + socket.getPort());
+                writer.setDaemon(true);
+                writer.start();
                 BufferedReader in = new BufferedReader(
                     new InputStreamReader(socket.getInputStream()));
                 
                 // Erste Nachricht ist der Benutzername
                 username = in.readLine();
                 
-                clientWriters.add(out); // Fügt Client zur Broadcast-Liste hinzu
+                clients.add(this); // Fügt Client zur Broadcast-Liste hinzu
                 broadcast(username + " hat den Chat betreten"); // Begrüßungsnachricht
                 
                 // Empfängt und verteilt Nachrichten
                 String message;
                 while ((message = in.readLine()) != null) {
+                    if (message.startsWith("/")) {
+                        handleCommand(message);
+                        continue;
+                    }
+                    stopTyping(typing.stopAll(username)); // Abgeschickt: Tipp-Anzeigen beenden
                     broadcast(username + ": " + message); // Verteilt Nachricht an alle
                 }
             } catch (IOException e) {
             } finally {
                 // Aufräumarbeiten bei Verbindungsabbruch
-                clientWriters.remove(out);
+                clients.remove(this);
+                for (Set<ClientHandler> audience : rooms.values()) {
+                    audience.remove(this);
+                }
+                if (username != null) stopTyping(typing.stopAll(username));
                 broadcast(username +  "hat den Chat verlassen");
+                if (outbox != null) outbox.close();
                 try { socket.close(); } catch (IOException e) {}
             }
         }
+        
+        /**
+         * Verarbeitet eine Steuerzeile des Clients.
+         * 
+         * @param command Die Zeile inklusive führendem Schrägstrich
+         */
+        private void handleCommand(String command) {
+            String[] parts = command.split(" ", 2);
+            if (parts.length < 2 || parts[1].isBlank()) return;
+            String roomKey = parts[1].trim();
+            
+            switch (parts[0]) {
+                case "/join":
+                    rooms.computeIfAbsent(roomKey, key -> ConcurrentHashMap.newKeySet()).add(this);
+                    break;
+                case "/typing":
+                    if (typing.onTyping(roomKey, username, System.currentTimeMillis())) {
+                        signalRoom(roomKey, username, "/typing " + roomKey + " " + username, this);
+                    }
+                    break;
+                case "/typing-stop":
+                    if (typing.stop(roomKey, username)) {
+                        signalRoom(roomKey, username, "/typing-stop " + roomKey + " " + username, this);
+                    }
+                    break;
+                default:
+                    break; // Unbekannte Befehle ignorieren
+            }
+        }
+    }
+    
+    /**
+     * Beendet abgelaufene Tipp-Anzeigen. Wird vom Takt-Thread aufgerufen.
+     */
+    private static void expireTyping() {
+        List<TypingTracker.Indicator> expired = typing.expire(System.currentTimeMillis());
+        stopTyping(expired);
+    }
+    
+    private static void stopTyping(List<TypingTracker.Indicator> indicators) {
+        for (TypingTracker.Indicator indicator : indicators) {
+            signalRoom(indicator.getRoomKey(), indicator.getUsername(),
+                    "/typing-stop " + indicator.getRoomKey() + " " + indicator.getUsername(), null);
+        }
+    }
+    
+    /**
+     * Stellt ein Signal über die niedrig priorisierte Spur an alle Zuhörer eines Raums zu.
+     * Signale desselben Benutzers im selben Raum ersetzen sich gegenseitig.
+     * 
+     * @param roomKey Der Raum
+     * @param username Der Benutzer, auf den sich das Signal bezieht
+     * @param line    Die zu sendende Zeile
+     * @param sender  Client, der das Signal ausgelöst hat und es nicht erhält (kann null sein)
+     */
+    private static void signalRoom(String roomKey, String username, String line, ClientHandler sender) {
+        Set<ClientHandler> audience = rooms.get(roomKey);
+        if (audience == null) return;
+        String key = "typing\0" + roomKey + '\0' + username;
+        for (ClientHandler client : audience) {
+            if (client != sender) client.outbox.signal(key, line);
+        }
     }
     
     /**
@@ -86,8 +224,8 @@ public class ChatServer {
      * @param message Die zu sendende Nachricht
      */
     private static void broadcast(String message) {
-        for (PrintWriter writer : clientWriters) {
-            writer.println(message); // Sendet Nachricht an jeden Client
+        for (ClientHandler client : clients) {
+            client.outbox.send(message); // Sendet Nachricht an jeden Client
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,67 @@
+package server;
+
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ausgangswarteschlange eines Clients mit zwei Spuren.
+ *
+ * Chatnachrichten haben Vorrang und werden vollständig in Reihenfolge gesendet.
+ * Signale wie Tipp-Anzeigen laufen über eine niedrig priorisierte Spur, werden pro
+ * Schlüssel zusammengefasst (nur der neueste Stand zählt) und nur gesendet, wenn
+ * keine Chatnachricht wartet. Ein eigener Thread schreibt auf den Socket, sodass ein
+ * langsamer Client andere nicht ausbremst.
+ */
+final class Outbox implements Runnable {
+    private final PrintWriter out;
+    private final ArrayDeque<String> messages = new ArrayDeque<>();           // Vorrangige Spur
+    private final Map<String, String> signals = new LinkedHashMap<>();       // Schlüssel -> neueste Zeile
+    private boolean closed;
+
+    Outbox(PrintWriter out) {
+        this.out = out;
+    }
+
+    synchronized void send(String line) {
+        messages.add(line);
+        notifyAll();
+    }
+
+    synchronized void signal(String key, String line) {
+        signals.remove(key); // Neuester Stand ans Ende
+        signals.put(key, line);
+        notifyAll();
+    }
+
+    synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                String line;
+                synchronized (this) {
+                    while (!closed && messages.isEmpty() && signals.isEmpty()) {
+                        wait();
+                    }
+                    if (closed) return;
+                    line = messages.poll();
+                    if (line == null) {
+                        Iterator<String> it = signals.values().iterator();
+                        line = it.next();
+                        it.remove();
+                    }
+                }
+                out.println(line); // Außerhalb der Sperre schreiben
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,572 @@
+package server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import blob.BlobRef;
+import blob.BlobStore;
+import delivery.Delivery;
+import delivery.DeliveryQueue;
+import domain.GruppenRoom;
+import domain.Message;
+import domain.User;
+import domain.UserInfo;
+import fassade.ChatService;
+import fassade.ServiceProtocol;
+import presence.PresenceListener;
+import presence.PresenceState;
+import store.MessageStore;
+
+/**
+ * Stellt einen {@link ChatService} über das {@link ServiceProtocol} im Netz bereit,
+ * sodass mehrere {@code client.RemoteChatService} denselben Zustand teilen.
+ *
+ * Der Service ist nicht threadsicher; alle Aufrufe laufen daher unter seiner Sperre.
+ * Nach HISTORY beobachtet eine Verbindung den Raum und erhält jede neue Nachricht als
+ * Push, höchstens aber die {@link #MAX_WATCHES} zuletzt geöffneten Räume; für einen
+ * verdrängten Raum geht PUSH UNWATCH an den Client. Änderungen an Kontakten und Gruppen werden als zusammengefasstes UPDATE über
+ * die niedrig priorisierte Spur der {@link Outbox} gemeldet. Pro Verbindung läuft ein
+ * Lese- und ein Schreib-Thread.
+ *
+ * LOGIN meldet den Benutzer beim Service an ({@link ChatService#connect}); mit der
+ * letzten Verbindung eines Benutzers wird er wieder abgemeldet. Ein Thread pro
+ * angemeldetem Benutzer leert dessen Zustellwarteschlange und reicht Gruppennachrichten,
+ * auch die während der Abwesenheit vorgemerkten, an seine Verbindungen weiter, sofern
+ * sie die Gruppe nicht ohnehin beobachten.
+ *
+ * Eine Verbindung ist an den Benutzer ihres ersten LOGIN gebunden. Davor sind nur
+ * HELLO, LOGIN und CREATE_USER erlaubt; danach handelt jede Anfrage im Namen dieses
+ * Benutzers, Absender und alter Name kommen nie vom Client.
+ */
+public class ServiceServer implements Runnable {
+    public static final int MAX_HISTORY = 1000;     // Höchstens so viele Nachrichten pro HISTORY
+    public static final int MAX_WATCHES = 32;       // Höchstens so viele beobachtete Räume pro Verbindung
+
+    private final ChatService service;              // Gemeinsamer Zustand aller Clients
+    private final String instanceId = UUID.randomUUID().toString();   // Wechselt mit jedem Start
+    private final ServerSocket server;              // Wartet auf Verbindungen
+    private final List<Session> sessions = new CopyOnWriteArrayList<>();
+    private final Map<Integer, Login> logins = new HashMap<>();       // Angemeldete Benutzer (unter der Sperre des Service)
+    private Sending sending;                        // Gerade gesendete Nachricht (unter der Sperre des Service)
+    private volatile int blobPort;                  // Port des BlobServers, 0 ohne
+    private volatile boolean closed;
+
+    /**
+     * Öffnet den Server-Port.
+     *
+     * @param service Der bereitgestellte Service
+     * @param port    Port oder 0 für einen freien Port
+     * @throws UncheckedIOException wenn der Port nicht geöffnet werden kann
+     */
+    public ServiceServer(ChatService service, int port) {
+        this.service = Objects.requireNonNull(service, "Service darf nicht null sein");
+        try {
+            server = new ServerSocket(port);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Service-Port konnte nicht geöffnet werden: " + port, e);
+        }
+        service.addUpdateListener(this::publish);
+        service.addReceiptListener(this::publishReceipt);
+        service.addTypingListener(this::publishTyping);
+    }
+
+    /**
+     * Startet den Annahme-Thread als Daemon.
+     */
+    public void start() {
+        Thread thread = new Thread(this, "service-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Nimmt Verbindungen an, bis der Server geschlossen wird.
+     */
+    @Override
+    public void run() {
+        while (!closed) {
+            try {
+                Socket client = server.accept();
+                Session session = new Session(client);
+                sessions.add(session);
+                Thread handler = new Thread(session, "service-" + client.getPort());
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                if (!closed) System.out.println("Service-Server Fehler: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Teilt den Clients mit, wo sie Anhänge hochladen. Der {@code BlobServer} muss
+     * denselben Blob-Bereich verwenden wie der Service.
+     *
+     * @param blobPort Port des {@code BlobServer}
+     */
+    public void setBlobPort(int blobPort) {
+        this.blobPort = blobPort;
+    }
+
+    /**
+     * Gibt den tatsächlich gebundenen Port zurück.
+     *
+     * @return Der Port
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Schließt den Server-Port und alle Verbindungen.
+     */
+    public void close() {
+        closed = true;
+        try {
+            server.close();
+        } catch (IOException e) {
+        }
+        for (Session session : sessions) session.close();
+    }
+
+    /**
+     * Wird bei jeder Änderung des Service aufgerufen. Verteilt neue Nachrichten an die
+     * Verbindungen, die den Raum beobachten; alle anderen Änderungen als UPDATE.
+     */
+    private void publish() {
+        synchronized (service) {
+            for (Session session : sessions) {
+                session.publishMessages();
+                if (sending == null) session.outbox.signal(ServiceProtocol.UPDATE,
+                        ServiceProtocol.line(ServiceProtocol.PUSH, ServiceProtocol.UPDATE));
+            }
+        }
+    }
+
+    /**
+     * Meldet eine vorgerückte Lesemarke an die Verbindungen, die die Gruppe beobachten.
+     */
+    private void publishReceipt(int groupId, int userId, long seq) {
+        synchronized (service) {
+            for (Session session : sessions) {
+                if (!session.watched.containsKey(ServiceProtocol.GROUP + groupId)) continue;
+                session.outbox.send(ServiceProtocol.line(ServiceProtocol.PUSH, ServiceProtocol.READ, groupId, userId, seq));
+            }
+        }
+    }
+
+    /**
+     * Reicht ein Tipp-Signal über die niedrig priorisierte Spur an die Verbindungen
+     * weiter, die den Raum beobachten.
+     */
+    private void publishTyping(int chatId, boolean group, String userName) {
+        String kind = group ? ServiceProtocol.GROUP : ServiceProtocol.ROOM;
+        String line = ServiceProtocol.line(ServiceProtocol.PUSH, ServiceProtocol.TYPING, kind, chatId, userName);
+        synchronized (service) {
+            for (Session session : sessions) {
+                if (session.watched.containsKey(kind + chatId)) {
+                    session.outbox.signal(ServiceProtocol.TYPING + '\0' + kind + chatId + '\0' + userName, line);
+                }
+            }
+        }
+    }
+
+    /**
+     * Meldet eine Verbindung des Benutzers an; die erste startet seine Zustellung.
+     * Läuft unter der Sperre des Service.
+     *
+     * @return Die User-ID
+     */
+    private int login(String userName) {
+        DeliveryQueue deliveries = service.connect(userName);
+        Login login = logins.computeIfAbsent(deliveries.getUserId(), id -> new Login(deliveries));
+        login.connections++;
+        return deliveries.getUserId();
+    }
+
+    /**
+     * Meldet eine Verbindung des Benutzers ab; mit der letzten endet seine Zustellung
+     * und der Benutzer gilt als offline. Läuft unter der Sperre des Service.
+     */
+    private void logout(int userId) {
+        Login login = logins.get(userId);
+        if (login == null || --login.connections > 0) return;
+        logins.remove(userId);
+        login.stop();
+        String userName = service.getUserName(userId);
+        if (userName != null) service.disconnect(userName);
+    }
+
+    private MessageStore history(String kind, int id) {
+        switch (kind) {
+            case ServiceProtocol.ROOM: return service.getChatRoomHistory(id);
+            case ServiceProtocol.GROUP: return service.getGroupHistory(id);
+            default: throw new IllegalArgumentException("Unbekannte Raumart: " + kind);
+        }
+    }
+
+    /**
+     * Liest eine Sequenz, die der {@code RetentionSweeper} außerhalb der Service-Sperre
+     * jederzeit löschen kann, und gibt dann null zurück.
+     */
+    private static Message readConcurrently(MessageStore store, long seq) {
+        try {
+            return store.get(seq);
+        } catch (IndexOutOfBoundsException e) {
+            return null; // Schon vom Anfang abgeschnitten
+        }
+    }
+
+    private static void addMessage(List<Object> fields, Message message) {
+        User sender = message.getSender();
+        fields.add(sender != null ? sender.getUserId() : -1);
+        fields.add(sender != null ? sender.getUsername() : "");
+        fields.add(message.getType());
+        fields.add(message.getTimestamp());
+        fields.add(message.getContent());
+    }
+
+    /**
+     * Verbindung eines Clients.
+     */
+    private final class Session implements Runnable {
+        private final Socket socket;
+        private final Outbox outbox;                                // Antworten und Pushes in Reihenfolge
+        private final Map<String, Watch> watched = new LinkedHashMap<>(16, 0.75f, true) { // Zuletzt geöffnete Räume (unter der Sperre des Service)
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Watch> eldest) {
+                if (size() <= MAX_WATCHES) return false;
+                Watch watch = eldest.getValue(); // Der Client lädt den Raum beim nächsten Öffnen nach
+                outbox.send(ServiceProtocol.line(ServiceProtocol.PUSH, ServiceProtocol.UNWATCH, watch.kind, watch.id));
+                return true;
+            }
+        };
+        private int userId = -1;                                    // Angemeldeter Benutzer nach LOGIN
+        private PresenceListener presence;
+
+        Session(Socket socket) throws IOException {
+            this.socket = socket;
+            this.outbox = new Outbox(new PrintWriter(
+                    new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true));
+        }
+
+        @Override
+        public void run() {
+            Thread writer = new Thread(outbox, "service-out-" + socket.getPort());
+            writer.setDaemon(true);
+            writer.start();
+            try (BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    List<String> fields = ServiceProtocol.fields(line);
+                    String requestId = fields.get(0);
+                    try {
+                        List<Object> result;
+                        synchronized (service) {
+                            result = handle(fields.size() > 1 ? fields.get(1) : "", fields.subList(Math.min(2, fields.size()), fields.size()));
+                        }
+                        outbox.send(ServiceProtocol.line(List.of(requestId, ServiceProtocol.OK), result));
+                    } catch (IllegalArgumentException | IllegalStateException | NullPointerException e) {
+                        outbox.send(ServiceProtocol.line(requestId, ServiceProtocol.ERROR, e.getMessage()));
+                    } catch (IndexOutOfBoundsException e) {
+                        outbox.send(ServiceProtocol.line(requestId, ServiceProtocol.ERROR, "Unvollständige Anfrage: " + line));
+                    }
+                }
+            } catch (IOException e) {
+                // Verbindungsabbruch
+            } finally {
+                close();
+            }
+        }
+
+        private List<Object> handle(String command, List<String> args) {
+            List<Object> result = new ArrayList<>();
+            if (userId < 0 && !ServiceProtocol.HELLO.equals(command) && !ServiceProtocol.LOGIN.equals(command)
+                    && !ServiceProtocol.CREATE_USER.equals(command)) {
+                throw new IllegalStateException("Nicht angemeldet");
+            }
+            switch (command) {
+                case ServiceProtocol.HELLO:
+                    result.add(instanceId);
+                    result.add(blobPort);
+                    break;
+                case ServiceProtocol.LOGIN:
+                    if (userId >= 0) {
+                        if (args.get(0).equals(self())) break;
+                        throw new IllegalStateException("Bereits angemeldet als " + self());
+                    }
+                    userId = login(args.get(0));
+                    presence = this::sendPresence;
+                    service.subscribePresence(args.get(0), presence);
+                    break;
+                case ServiceProtocol.CREATE_USER:
+                    service.createUser(args.get(0));
+                    break;
+                case ServiceProtocol.CONTACTS:
+                    for (User user : service.getUserContacts(requireSelf(args.get(0)))) {
+                        result.add(user.getUserId());
+                        result.add(user.getUsername());
+                        result.add(user.getUserInfo());
+                        result.add(user.getStatusText());
+                        result.add(user.isOnline());
+                    }
+                    break;
+                case ServiceProtocol.GROUPS:
+                    for (Object chat : service.getAllChatsForUser(requireSelf(args.get(0)))) {
+                        if (!(chat instanceof GruppenRoom)) continue;
+                        GruppenRoom group = (GruppenRoom) chat;
+                        result.add(group.getGroupId());
+                        result.add(group.getName());
+                        result.add(group.getDescription());
+                        result.add(group.getCreator().getUserId());
+                        result.add(group.getCreator().getUsername());
+                        List<User> members = group.getParticipants();
+                        result.add(members.size());
+                        for (User member : members) {
+                            result.add(member.getUserId());
+                            result.add(member.getUsername());
+                        }
+                    }
+                    break;
+                case ServiceProtocol.OPEN_ROOM:
+                    result.add(service.createChatRoom(requireSelf(args.get(0)), args.get(1)));
+                    break;
+                case ServiceProtocol.HISTORY: {
+                    String kind = args.get(0);
+                    int id = Integer.parseInt(args.get(1));
+                    int limit = Math.min(Integer.parseInt(args.get(2)), MAX_HISTORY);
+                    long after = args.size() > 3 ? Long.parseLong(args.get(3)) : 0;
+                    service.requireMember(id, ServiceProtocol.GROUP.equals(kind), self()); // Vor Daten und Watch
+                    MessageStore store = history(kind, id);
+                    long next = store.nextSequence();
+                    long from = Math.max(store.firstSequence(), Math.max(after, next - limit));
+                    result.add(from);
+                    result.add(next);
+                    for (long seq = from; seq < next; seq++) { // Höchstens limit Sequenzen
+                        Message message = readConcurrently(store, seq);
+                        if (message == null) continue; // Gelöscht, auch während des Lesens
+                        result.add(seq);
+                        addMessage(result, message);
+                    }
+                    watched.put(kind + id, new Watch(kind, id, store, next));
+                    break;
+                }
+                case ServiceProtocol.SEND: {
+                    String kind = args.get(0);
+                    int id = Integer.parseInt(args.get(1));
+                    sending = new Sending(kind, id, history(kind, id).nextSequence(), args.get(2));
+                    try {
+                        if (ServiceProtocol.ROOM.equals(kind)) service.sendMessage(id, self(), args.get(3));
+                        else service.sendGroupMessage(id, self(), args.get(3));
+                    } finally {
+                        sending = null;
+                    }
+                    break;
+                }
+                case ServiceProtocol.ATTACH: {
+                    BlobStore blobs = service.getBlobStore();
+                    if (blobs == null) throw new IllegalStateException("Kein Blob-Bereich gesetzt");
+                    String kind = args.get(0);
+                    int id = Integer.parseInt(args.get(1));
+                    BlobRef ref = blobs.claim(args.get(2)); // Nur eigene Uploads, Größe und Name vom Server
+                    if (ServiceProtocol.ROOM.equals(kind)) service.sendAttachment(id, self(), ref);
+                    else service.sendGroupAttachment(id, self(), ref);
+                    break;
+                }
+                case ServiceProtocol.ADD_CONTACT:
+                    result.add(service.addContact(args.get(0), requireSelf(args.get(1))));
+                    break;
+                case ServiceProtocol.CREATE_GROUP:
+                    result.add(service.createGruppenRoom(requireSelf(args.get(0)), args.get(1), args.get(2)));
+                    break;
+                case ServiceProtocol.PROFILE:
+                    result.add(service.updateUserProfile(self(), args.get(0), UserInfo.valueOf(args.get(1)), args.get(2)));
+                    break;
+                case ServiceProtocol.READ:
+                    service.markGroupRead(Integer.parseInt(args.get(0)), self(), Long.parseLong(args.get(1)));
+                    break;
+                case ServiceProtocol.TYPING:
+                    service.sendTyping(Integer.parseInt(args.get(1)), ServiceProtocol.GROUP.equals(args.get(0)), self());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unbekannter Befehl: " + command);
+            }
+            return result;
+        }
+
+        /**
+         * Gibt den aktuellen Namen des angemeldeten Benutzers zurück; er folgt Umbenennungen.
+         */
+        private String self() {
+            return service.getUserName(userId);
+        }
+
+        /**
+         * Lässt nur Anfragen im Namen des angemeldeten Benutzers zu.
+         */
+        private String requireSelf(String userName) {
+            if (!userName.equals(self())) {
+                throw new IllegalArgumentException("Nur für den angemeldeten Benutzer erlaubt: " + userName);
+            }
+            return userName;
+        }
+
+        /**
+         * Sendet alle Nachrichten, die seit dem letzten Aufruf in beobachteten Räumen
+         * angekommen sind. Läuft unter der Sperre des Service.
+         */
+        private void publishMessages() {
+            for (Watch watch : watched.values()) {
+                long end = watch.store.nextSequence();
+                for (long seq = Math.max(watch.next, watch.store.firstSequence()); seq < end; seq++) {
+                    Message message = watch.store.get(seq);
+                    if (message == null) continue;
+                    boolean own = sending != null && sending.seq == seq
+                            && sending.kind.equals(watch.kind) && sending.id == watch.id;
+                    List<Object> fields = new ArrayList<>(List.of(ServiceProtocol.PUSH, ServiceProtocol.MESSAGE,
+                            watch.kind, watch.id, seq, own ? sending.clientId : ""));
+                    addMessage(fields, message);
+                    outbox.send(ServiceProtocol.line(fields.toArray()));
+                }
+                watch.next = end;
+            }
+        }
+
+        private void sendPresence(List<PresenceState> changes) {
+            List<Object> fields = new ArrayList<>(List.of(ServiceProtocol.PUSH, ServiceProtocol.PRESENCE));
+            for (PresenceState state : changes) {
+                fields.add(state.getUserId());
+                fields.add(state.getUsername());
+                fields.add(state.isOnline());
+                fields.add(state.getUserInfo());
+                fields.add(state.getStatusText());
+            }
+            outbox.send(ServiceProtocol.line(fields.toArray()));
+        }
+
+        /**
+         * Reicht eine Gruppennachricht aus der Zustellwarteschlange weiter, wenn die
+         * Verbindung die Gruppe nicht schon beobachtet. Läuft unter der Sperre des Service.
+         */
+        private void deliver(Delivery delivery) {
+            if (watched.containsKey(ServiceProtocol.GROUP + delivery.getGroupId())) return; // Kommt über publishMessages
+            List<Object> fields = new ArrayList<>(List.of(ServiceProtocol.PUSH, ServiceProtocol.MESSAGE,
+                    ServiceProtocol.GROUP, delivery.getGroupId(), delivery.getSeq(), ""));
+            addMessage(fields, delivery.getMessage());
+            outbox.send(ServiceProtocol.line(fields.toArray()));
+        }
+
+        /**
+         * Meldet die Verbindung ab. Läuft unter der Sperre des Service.
+         */
+        private void logout() {
+            if (presence != null) service.unsubscribePresence(self(), presence);
+            presence = null;
+            if (userId >= 0) ServiceServer.this.logout(userId);
+            userId = -1;
+        }
+
+        private void close() {
+            if (!sessions.remove(this)) return;
+            synchronized (service) {
+                logout();
+            }
+            outbox.close();
+            try {
+                socket.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    /**
+     * Angemeldeter Benutzer: zählt seine Verbindungen und leert seine Zustellwarteschlange
+     * in einem eigenen Thread.
+     */
+    private final class Login implements Runnable {
+        private final DeliveryQueue deliveries;
+        private final Thread thread;
+        private int connections;                    // Verbindungen des Benutzers (unter der Sperre des Service)
+        private volatile boolean stopped;
+
+        private Login(DeliveryQueue deliveries) {
+            this.deliveries = deliveries;
+            this.thread = new Thread(this, "service-deliveries-" + deliveries.getUserId());
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!stopped) {
+                    Delivery delivery = deliveries.poll(1, TimeUnit.SECONDS);
+                    if (delivery == null) continue;
+                    synchronized (service) {
+                        for (Session session : sessions) {
+                            if (session.userId == deliveries.getUserId()) session.deliver(delivery);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Abgemeldet
+            }
+        }
+
+        private void stop() {
+            stopped = true;
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Von einer Verbindung beobachteter Raum und die nächste noch nicht gesendete Sequenz.
+     */
+    private static final class Watch {
+        private final String kind;
+        private final int id;
+        private final MessageStore store;
+        private long next;
+
+        private Watch(String kind, int id, MessageStore store, long next) {
+            this.kind = kind;
+            this.id = id;
+            this.store = store;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Nachricht, die gerade über SEND angehängt wird; ihre clientId geht mit dem Push zurück.
+     */
+    private static final class Sending {
+        private final String kind;
+        private final int id;
+        private final long seq;
+        private final String clientId;
+
+        private Sending(String kind, int id, long seq, String clientId) {
+            this.kind = kind;
+            this.id = id;
+            this.seq = seq;
+            this.clientId = clientId;
+        }
+    }
+}
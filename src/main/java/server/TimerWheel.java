@@ -0,0 +1,102 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gehashtes Timer-Rad für viele kurzlebige Zeitgeber.
+ *
+ * Einträge landen in einem von {@code slots} Fächern; ein einziger Takt-Thread ruft
+ * {@link #advance} auf und erhält alle fälligen Einträge zurück. Einplanen und Ablaufen
+ * kosten O(1), unabhängig davon, wie viele Zeitgeber gleichzeitig aktiv sind.
+ * Die Auflösung entspricht der Taktlänge. Nicht threadsicher; Aufrufer synchronisieren.
+ *
+ * @param <T> Typ der eingeplanten Einträge
+ */
+public class TimerWheel<T> {
+    private final long tickMillis;              // Länge eines Takts
+    private final List<Entry<T>>[] buckets;     // Fächer des Rads
+    private long tickTime;                      // Zeitpunkt des zuletzt verarbeiteten Takts
+    private int cursor;                         // Fach des zuletzt verarbeiteten Takts
+    private int size;                           // Anzahl eingeplanter Einträge
+
+    private static final class Entry<T> {
+        final T item;
+        long rounds;                            // Verbleibende Umdrehungen bis zum Ablauf
+
+        Entry(T item, long rounds) {
+            this.item = item;
+            this.rounds = rounds;
+        }
+    }
+
+    /**
+     * Erstellt ein Timer-Rad.
+     *
+     * @param tickMillis Länge eines Takts in Millisekunden
+     * @param slots      Anzahl der Fächer
+     * @param startMillis Startzeitpunkt
+     * @throws IllegalArgumentException wenn Taktlänge oder Fächerzahl nicht positiv sind
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickMillis, int slots, long startMillis) {
+        if (tickMillis <= 0 || slots <= 0) {
+            throw new IllegalArgumentException("Taktlänge und Fächerzahl müssen positiv sein");
+        }
+        this.tickMillis = tickMillis;
+        this.buckets = new List[slots];
+        for (int i = 0; i < slots; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+        this.tickTime = startMillis;
+    }
+
+    /**
+     * Plant einen Eintrag ein, der frühestens nach {@code delayMillis} abläuft.
+     *
+     * @param item        Der Eintrag
+     * @param delayMillis Verzögerung ab dem zuletzt verarbeiteten Takt
+     */
+    public void schedule(T item, long delayMillis) {
+        long ticks = Math.max(1, (delayMillis + tickMillis - 1) / tickMillis);
+        int slot = (int) ((cursor + ticks) % buckets.length);
+        buckets[slot].add(new Entry<>(item, (ticks - 1) / buckets.length));
+        size++;
+    }
+
+    /**
+     * Verarbeitet alle Takte bis {@code nowMillis} und gibt die fälligen Einträge zurück.
+     *
+     * @param nowMillis Aktuelle Zeit
+     * @return Abgelaufene Einträge, in Reihenfolge ihrer Takte
+     */
+    public List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+        while (tickTime + tickMillis <= nowMillis) {
+            tickTime += tickMillis;
+            cursor = (cursor + 1) % buckets.length;
+            List<Entry<T>> bucket = buckets[cursor];
+            for (int i = bucket.size() - 1; i >= 0; i--) {
+                Entry<T> entry = bucket.get(i);
+                if (entry.rounds > 0) {
+                    entry.rounds--;
+                    continue;
+                }
+                expired.add(entry.item);
+                bucket.set(i, bucket.get(bucket.size() - 1)); // Ohne Verschieben entfernen
+                bucket.remove(bucket.size() - 1);
+                size--;
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Gibt die Anzahl der eingeplanten Einträge zurück.
+     *
+     * @return Anzahl der Einträge
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,150 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Verwaltet flüchtige Tipp-Anzeigen auf dem Server. Tipp-Signale werden nie gespeichert.
+ *
+ * Wiederholte Signale desselben Benutzers im selben Raum werden zusammengefasst: Nur
+ * das erste Signal startet eine Anzeige, weitere verlängern lediglich ihre Frist.
+ * Abgelaufene Anzeigen liefert ein {@link TimerWheel}, statt pro Anzeige eine
+ * eigene Aufgabe einzuplanen. Eine Anzeige, deren Frist inzwischen verlängert wurde,
+ * wird beim Ablauf mit der Restzeit neu eingeplant.
+ */
+public class TypingTracker {
+    public static final long DEFAULT_TTL_MILLIS = 5_000;   // Sichtbarkeit ohne neues Signal
+    public static final long DEFAULT_TICK_MILLIS = 100;
+
+    private final long ttlMillis;
+    private final TimerWheel<Indicator> wheel;
+    private final Map<String, Indicator> active = new HashMap<>(); // "raum\0benutzer" -> Anzeige
+
+    /**
+     * Eine aktive Tipp-Anzeige.
+     */
+    public static final class Indicator {
+        private final String roomKey;
+        private final String username;
+        private long deadline;                  // Ablaufzeitpunkt in Millisekunden
+
+        Indicator(String roomKey, String username, long deadline) {
+            this.roomKey = roomKey;
+            this.username = username;
+            this.deadline = deadline;
+        }
+
+        /** @return Der Raum, in dem getippt wird */
+        public String getRoomKey() { return roomKey; }
+
+        /** @return Der tippende Benutzer */
+        public String getUsername() { return username; }
+    }
+
+    /**
+     * Erstellt einen Tracker mit Standard-Frist und -Taktlänge.
+     *
+     * @param nowMillis Aktuelle Zeit
+     */
+    public TypingTracker(long nowMillis) {
+        this(DEFAULT_TTL_MILLIS, DEFAULT_TICK_MILLIS, nowMillis);
+    }
+
+    /**
+     * Erstellt einen Tracker.
+     *
+     * @param ttlMillis  Sichtbarkeit einer Anzeige ohne neues Signal
+     * @param tickMillis Auflösung des Timer-Rads
+     * @param nowMillis  Aktuelle Zeit
+     */
+    public TypingTracker(long ttlMillis, long tickMillis, long nowMillis) {
+        this.ttlMillis = ttlMillis;
+        int slots = (int) Math.max(8, Long.highestOneBit(ttlMillis / tickMillis) * 2); // Eine Umdrehung > TTL
+        this.wheel = new TimerWheel<>(tickMillis, slots, nowMillis);
+    }
+
+    private static String key(String roomKey, String username) {
+        return roomKey + '\0' + username;
+    }
+
+    /**
+     * Verarbeitet ein Tipp-Signal.
+     *
+     * @param roomKey   Der Raum
+     * @param username  Der tippende Benutzer
+     * @param nowMillis Aktuelle Zeit
+     * @return true wenn damit eine neue Anzeige beginnt, die verteilt werden muss
+     */
+    public synchronized boolean onTyping(String roomKey, String username, long nowMillis) {
+        Indicator indicator = active.get(key(roomKey, username));
+        if (indicator != null) {
+            indicator.deadline = nowMillis + ttlMillis; // Nur verlängern, nichts senden
+            return false;
+        }
+        indicator = new Indicator(roomKey, username, nowMillis + ttlMillis);
+        active.put(key(roomKey, username), indicator);
+        wheel.schedule(indicator, ttlMillis);
+        return true;
+    }
+
+    /**
+     * Beendet eine Anzeige vorzeitig, z.B. wenn der Benutzer die Nachricht abschickt.
+     *
+     * @param roomKey  Der Raum
+     * @param username Der Benutzer
+     * @return true wenn eine Anzeige aktiv war
+     */
+    public synchronized boolean stop(String roomKey, String username) {
+        return active.remove(key(roomKey, username)) != null;
+    }
+
+    /**
+     * Beendet alle Anzeigen eines Benutzers.
+     *
+     * @param username Der Benutzer
+     * @return Die beendeten Anzeigen
+     */
+    public synchronized List<Indicator> stopAll(String username) {
+        List<Indicator> stopped = new ArrayList<>();
+        for (Iterator<Indicator> it = active.values().iterator(); it.hasNext();) {
+            Indicator indicator = it.next();
+            if (indicator.username.equals(username)) {
+                stopped.add(indicator);
+                it.remove();
+            }
+        }
+        return stopped;
+    }
+
+    /**
+     * Lässt das Timer-Rad bis {@code nowMillis} laufen.
+     *
+     * @param nowMillis Aktuelle Zeit
+     * @return Die abgelaufenen Anzeigen
+     */
+    public synchronized List<Indicator> expire(long nowMillis) {
+        List<Indicator> expired = new ArrayList<>();
+        for (Indicator indicator : wheel.advance(nowMillis)) {
+            if (active.get(key(indicator.roomKey, indicator.username)) != indicator) continue; // Bereits beendet
+            if (indicator.deadline > nowMillis) {
+                wheel.schedule(indicator, indicator.deadline - nowMillis); // Zwischenzeitlich verlängert
+                continue;
+            }
+            active.remove(key(indicator.roomKey, indicator.username));
+            expired.add(indicator);
+        }
+        return expired;
+    }
+
+    /**
+     * Gibt die Anzahl der aktiven Anzeigen zurück.
+     *
+     * @return Aktive Anzeigen
+     */
+    public synchronized int getActiveCount() {
+        return active.size();
+    }
+}
@@ -0,0 +1,153 @@
+package store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+import domain.Message;
+import domain.User;
+
+/**
+ * Kompakter, spaltenorientierter Nachrichtenspeicher eines Raums.
+ *
+ * Statt eines Objektgraphen pro Nachricht (Message, String, LocalDateTime, ...) werden
+ * parallele primitive Arrays gehalten: Absender-ID (int), Zeitstempel in Epoch-Millis
+ * (long), Typ-Ordinal (byte) und Start-Offset des Inhalts in einem gepackten
+ * UTF-8-Puffer. Beim Lesen wird eine eigenständige {@link Message} aus den Spalten
+ * dekodiert; sie bleibt gültig und veränderbar, auch wenn die Zeile später gelöscht wird.
+ */
+public class ColumnarMessageStore implements MessageStore {
+    private static final byte DELETED = Byte.MIN_VALUE;  // Typ-Markierung für gelöschte Einträge
+
+    private final IntFunction<User> userResolver;        // Löst Absender-IDs beim Lesen auf
+    private int[] senderIds = new int[16];
+    private long[] epochMillis = new long[16];
+    private byte[] types = new byte[16];
+    private int[] contentStart = new int[17];            // Offsets in content; Ende = Start des Nachfolgers
+    private byte[] content = new byte[256];              // Gepackte UTF-8-Inhalte
+    private int size;                                    // Belegte Einträge
+    private long firstSeq;                               // Sequenz des ersten Eintrags
+    private long count;                                  // Nicht gelöschte Einträge
+
+    /**
+     * Erstellt einen leeren spaltenorientierten Speicher.
+     *
+     * @param userResolver Liefert den Benutzer zu einer User-ID
+     */
+    public ColumnarMessageStore(IntFunction<User> userResolver) {
+        this.userResolver = Objects.requireNonNull(userResolver, "UserResolver darf nicht null sein");
+    }
+
+    /**
+     * Gibt eine Fabrik zurück, die jeden Raum spaltenorientiert speichert.
+     *
+     * @param userResolver Liefert den Benutzer zu einer User-ID
+     * @return Fabrik für {@link ColumnarMessageStore}
+     */
+    public static MessageStoreFactory factory(IntFunction<User> userResolver) {
+        return roomKey -> new ColumnarMessageStore(userResolver);
+    }
+
+    @Override
+    public synchronized long append(Message message) {
+        Objects.requireNonNull(message, "Message darf nicht null sein");
+        byte[] bytes = MessageCodec.content(message);
+        if (size == senderIds.length) grow();
+        int start = contentStart[size];
+        if (start + bytes.length > content.length) {
+            content = Arrays.copyOf(content, Math.max(content.length * 2, start + bytes.length));
+        }
+
+        senderIds[size] = MessageCodec.senderId(message);
+        epochMillis[size] = MessageCodec.epochMillis(message.getTimestamp());
+        types[size] = MessageCodec.typeOrdinal(message.getType());
+        System.arraycopy(bytes, 0, content, start, bytes.length);
+        contentStart[size + 1] = start + bytes.length;
+        size++;
+        count++;
+        return firstSeq + size - 1;
+    }
+
+    private void grow() {
+        int capacity = senderIds.length * 2;
+        senderIds = Arrays.copyOf(senderIds, capacity);
+        epochMillis = Arrays.copyOf(epochMillis, capacity);
+        types = Arrays.copyOf(types, capacity);
+        contentStart = Arrays.copyOf(contentStart, capacity + 1);
+    }
+
+    @Override
+    public synchronized Message get(long seq) {
+        Objects.checkIndex(seq - firstSeq, size);
+        int index = (int) (seq - firstSeq);
+        if (types[index] == DELETED) return null;
+        int senderId = senderIds[index];
+        int start = contentStart[index];
+        return new Message(senderId >= 0 ? userResolver.apply(senderId) : null,
+                new String(content, start, contentStart[index + 1] - start, StandardCharsets.UTF_8),
+                MessageCodec.type(types[index]), MessageCodec.toTimestamp(epochMillis[index]));
+    }
+
+    @Override
+    public synchronized boolean contains(long seq) {
+        return seq >= firstSeq && seq < firstSeq + size && types[(int) (seq - firstSeq)] != DELETED;
+    }
+
+    @Override
+    public synchronized long firstSequence() {
+        return firstSeq;
+    }
+
+    @Override
+    public synchronized long nextSequence() {
+        return firstSeq + size;
+    }
+
+    @Override
+    public synchronized long count() {
+        return count;
+    }
+
+    @Override
+    public synchronized boolean delete(long seq) {
+        if (!contains(seq)) return false;
+        types[(int) (seq - firstSeq)] = DELETED; // Inhalt wird erst beim Kürzen freigegeben
+        count--;
+        return true;
+    }
+
+    @Override
+    public synchronized long deleteBefore(long seq) {
+        int end = (int) Math.min(Math.max(seq - firstSeq, 0), size);
+        if (end == 0) return 0;
+
+        long removed = 0;
+        for (int i = 0; i < end; i++) {
+            if (types[i] != DELETED) removed++;
+        }
+
+        int shift = contentStart[end];
+        System.arraycopy(content, shift, content, 0, contentStart[size] - shift);
+        System.arraycopy(senderIds, end, senderIds, 0, size - end);
+        System.arraycopy(epochMillis, end, epochMillis, 0, size - end);
+        System.arraycopy(types, end, types, 0, size - end);
+        for (int i = end; i <= size; i++) {
+            contentStart[i - end] = contentStart[i] - shift;
+        }
+
+        size -= end;
+        firstSeq += end;
+        count -= removed;
+        return removed;
+    }
+
+    /**
+     * Gibt die Größe des gepackten Inhaltspuffers in Bytes zurück.
+     *
+     * @return Belegte Bytes im UTF-8-Puffer
+     */
+    public synchronized int getContentBytes() {
+        return contentStart[size];
+    }
+}
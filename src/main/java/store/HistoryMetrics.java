@@ -0,0 +1,95 @@
+package store;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Kennzahlen des gestuften Nachrichtenverlaufs: Trefferquote von Hot-Tail und
+ * Cache, im Heap gehaltene Bytes und Latenz beim Nachladen aus dem Cold-Tier.
+ */
+public class HistoryMetrics {
+    private final LongAdder hotHits = new LongAdder();      // Zugriffe aus dem Hot-Tail
+    private final LongAdder cacheHits = new LongAdder();    // Zugriffe aus dem LRU-Cache
+    private final LongAdder coldLoads = new LongAdder();    // Nachladevorgänge vom Cold-Tier
+    private final LongAdder coldLoadNanos = new LongAdder();
+    private final AtomicLong maxColdLoadNanos = new AtomicLong();
+    private final AtomicLong hotBytes = new AtomicLong();   // Geschätzte Bytes im Hot-Tail
+    private final LruCache<?, ?> cache;
+
+    HistoryMetrics(LruCache<?, ?> cache) {
+        this.cache = cache;
+    }
+
+    void recordHotHit() {
+        hotHits.increment();
+    }
+
+    void recordCacheHit() {
+        cacheHits.increment();
+    }
+
+    void recordColdLoad(long nanos) {
+        coldLoads.increment();
+        coldLoadNanos.add(nanos);
+        maxColdLoadNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    void addHotBytes(long delta) {
+        hotBytes.addAndGet(delta);
+    }
+
+    /**
+     * Gibt den Anteil der Lesezugriffe zurück, die ohne Nachladen bedient wurden.
+     *
+     * @return Trefferquote zwischen 0 und 1 (1 wenn noch nicht gelesen wurde)
+     */
+    public double getHitRate() {
+        long hits = hotHits.sum() + cacheHits.sum();
+        long total = hits + coldLoads.sum();
+        return total == 0 ? 1.0 : (double) hits / total;
+    }
+
+    /**
+     * Gibt die geschätzten Bytes zurück, die Hot-Tails und Cache im Heap belegen.
+     *
+     * @return Belegte Bytes
+     */
+    public long getResidentBytes() {
+        return hotBytes.get() + cache.getResidentBytes();
+    }
+
+    /**
+     * Gibt die Anzahl der Nachladevorgänge aus dem Cold-Tier zurück.
+     *
+     * @return Anzahl der Cold-Loads
+     */
+    public long getColdLoads() {
+        return coldLoads.sum();
+    }
+
+    /**
+     * Gibt die durchschnittliche Latenz eines Cold-Loads in Mikrosekunden zurück.
+     *
+     * @return Durchschnittliche Latenz (0 wenn noch nichts nachgeladen wurde)
+     */
+    public double getAverageColdLoadMicros() {
+        long loads = coldLoads.sum();
+        return loads == 0 ? 0 : coldLoadNanos.sum() / (loads * 1000.0);
+    }
+
+    /**
+     * Gibt die höchste gemessene Latenz eines Cold-Loads in Mikrosekunden zurück.
+     *
+     * @return Maximale Latenz
+     */
+    public long getMaxColdLoadMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxColdLoadNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HistoryMetrics{hitRate=%.3f, residentBytes=%d, coldLoads=%d, avgColdLoad=%.1fµs, maxColdLoad=%dµs}",
+                getHitRate(), getResidentBytes(), getColdLoads(), getAverageColdLoadMicros(), getMaxColdLoadMicros());
+    }
+}
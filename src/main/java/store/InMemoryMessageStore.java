@@ -0,0 +1,76 @@
+package store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import domain.Message;
+
+/**
+ * Speichert den Verlauf eines Raums als Liste im Heap. Entspricht dem
+ * ursprünglichen Verhalten der Räume.
+ */
+public class InMemoryMessageStore implements MessageStore {
+    private final List<Message> messages = new ArrayList<>(); // Nachrichten ab firstSeq
+    private long firstSeq;                                    // Sequenz des ersten Listeneintrags
+    private long count;                                       // Anzahl nicht gelöschter Nachrichten
+
+    @Override
+    public synchronized long append(Message message) {
+        Objects.requireNonNull(message, "Message darf nicht null sein");
+        messages.add(message);
+        count++;
+        return firstSeq + messages.size() - 1;
+    }
+
+    @Override
+    public synchronized Message get(long seq) {
+        return messages.get(index(seq));
+    }
+
+    @Override
+    public synchronized boolean contains(long seq) {
+        return seq >= firstSeq && seq < nextSequence() && messages.get((int) (seq - firstSeq)) != null;
+    }
+
+    @Override
+    public synchronized long firstSequence() {
+        return firstSeq;
+    }
+
+    @Override
+    public synchronized long nextSequence() {
+        return firstSeq + messages.size();
+    }
+
+    @Override
+    public synchronized long count() {
+        return count;
+    }
+
+    @Override
+    public synchronized boolean delete(long seq) {
+        if (!contains(seq)) return false;
+        messages.set(index(seq), null); // Lücke statt Verschieben, Sequenzen bleiben stabil
+        count--;
+        return true;
+    }
+
+    @Override
+    public synchronized long deleteBefore(long seq) {
+        int end = (int) (Math.min(seq, nextSequence()) - firstSeq);
+        if (end <= 0) return 0;
+
+        List<Message> removed = messages.subList(0, end);
+        long live = removed.stream().filter(Objects::nonNull).count();
+        removed.clear();
+        firstSeq += end;
+        count -= live;
+        return live;
+    }
+
+    private int index(long seq) {
+        Objects.checkIndex(seq - firstSeq, messages.size());
+        return (int) (seq - firstSeq);
+    }
+}
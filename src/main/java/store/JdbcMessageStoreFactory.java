@@ -0,0 +1,425 @@
+package store;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+import java.util.function.ObjLongConsumer;
+
+import domain.Message;
+import domain.User;
+
+/**
+ * Speichert den Verlauf aller Räume in einer eingebetteten SQL-Datenbank
+ * (z.B. H2 mit {@code jdbc:h2:./chat-history}).
+ *
+ * Neue Nachrichten werden pro Raum gepuffert und gebündelt per Prepared-Statement-Batch
+ * eingefügt. Vor jedem Lesezugriff wird der Puffer geschrieben, so dass Lesen
+ * immer den vollständigen Stand sieht.
+ *
+ * Benutzer und Räume leben nur im Speicher, ihre IDs beginnen also nach einem Neustart
+ * von vorn. Jede Fabrik belegt deshalb eine neue Epoche in der Tabelle {@code store_epochs}
+ * und stellt sie den Raumschlüsseln voran, damit Verläufe früherer Starts nie einem neuen
+ * Raum oder Absender zugeordnet werden. Da sie nicht mehr lesbar sind, löscht die Fabrik
+ * beim Öffnen alle älteren Epochen. Eine Datenbank gehört also jeweils einem laufenden
+ * Server; ein zweiter Start auf derselben Datenbank räumt den Verlauf des ersten ab.
+ */
+public class JdbcMessageStoreFactory implements MessageStoreFactory {
+    public static final int DEFAULT_BATCH_SIZE = 64; // Nachrichten pro Insert-Batch
+    public static final int VIEW_PAGE_SIZE = 64;     // Zeilen pro Abfrage beim Lesen einer Sicht
+
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS messages ("
+            + "room_key VARCHAR(64) NOT NULL, seq BIGINT NOT NULL, sender_id INT NOT NULL, "
+            + "sent_at BIGINT NOT NULL, type TINYINT NOT NULL, content CLOB NOT NULL, "
+            + "PRIMARY KEY (room_key, seq))";
+    private static final String INSERT = "INSERT INTO messages "
+            + "(room_key, seq, sender_id, sent_at, type, content) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_RANGE = "SELECT seq, sender_id, sent_at, type, content FROM messages "
+            + "WHERE room_key = ? AND seq >= ? ORDER BY seq FETCH FIRST ? ROWS ONLY";
+    private static final String SELECT_ONE = "SELECT seq, sender_id, sent_at, type, content FROM messages "
+            + "WHERE room_key = ? AND seq = ?";
+    private static final String DELETE_ONE = "DELETE FROM messages WHERE room_key = ? AND seq = ?";
+    private static final String DELETE_BEFORE = "DELETE FROM messages WHERE room_key = ? AND seq < ?";
+    private static final String CREATE_EPOCHS = "CREATE TABLE IF NOT EXISTS store_epochs ("
+            + "epoch BIGINT NOT NULL PRIMARY KEY, opened_at BIGINT NOT NULL)";
+    private static final String NEXT_EPOCH = "SELECT COALESCE(MAX(epoch), 0) + 1 FROM store_epochs";
+    private static final String INSERT_EPOCH = "INSERT INTO store_epochs (epoch, opened_at) VALUES (?, ?)";
+    private static final String STALE_EPOCHS = "SELECT epoch FROM store_epochs WHERE epoch < ?";
+    private static final String DELETE_EPOCH_ROWS = "DELETE FROM messages WHERE room_key LIKE ?";
+    private static final String DELETE_EPOCH = "DELETE FROM store_epochs WHERE epoch = ?";
+    private static final int EPOCH_ATTEMPTS = 16; // Versuche, wenn ein anderer Start dieselbe Epoche belegt
+
+    private final Connection connection;            // Gemeinsame Verbindung aller Räume
+    private final IntFunction<User> userResolver;   // Löst Absender-IDs beim Lesen auf
+    private final int batchSize;
+    private final long epoch;                       // Namensraum der Raumschlüssel dieses Starts
+    private final Map<String, SqlMessageStore> rooms = new HashMap<>();
+
+    /**
+     * Öffnet die Datenbank unter der angegebenen JDBC-URL.
+     *
+     * @param jdbcUrl      JDBC-URL der eingebetteten Datenbank
+     * @param userResolver Liefert den Benutzer zu einer User-ID
+     * @throws IllegalStateException wenn die Datenbank nicht geöffnet werden kann
+     */
+    public JdbcMessageStoreFactory(String jdbcUrl, IntFunction<User> userResolver) {
+        this(connect(jdbcUrl), userResolver, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Verwendet eine bestehende Verbindung.
+     *
+     * @param connection   Offene JDBC-Verbindung
+     * @param userResolver Liefert den Benutzer zu einer User-ID
+     * @param batchSize    Anzahl der Nachrichten pro Insert-Batch
+     * @throws IllegalStateException wenn die Tabellen nicht angelegt werden können
+     */
+    public JdbcMessageStoreFactory(Connection connection, IntFunction<User> userResolver, int batchSize) {
+        this.connection = Objects.requireNonNull(connection, "Connection darf nicht null sein");
+        this.userResolver = Objects.requireNonNull(userResolver, "UserResolver darf nicht null sein");
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("BatchSize muss positiv sein: " + batchSize);
+        }
+        this.batchSize = batchSize;
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_TABLE);
+            statement.execute(CREATE_EPOCHS);
+            this.epoch = nextEpoch(statement);
+            purgeStaleEpochs();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Tabelle konnte nicht angelegt werden", e);
+        }
+    }
+
+    /**
+     * Belegt die nächste freie Epoche. Der Primärschlüssel entscheidet, wenn zwei Starts
+     * gleichzeitig dieselbe Nummer lesen; der unterlegene versucht die folgende.
+     */
+    private long nextEpoch(Statement statement) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            long next;
+            try (ResultSet rs = statement.executeQuery(NEXT_EPOCH)) {
+                rs.next();
+                next = rs.getLong(1);
+            }
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_EPOCH)) {
+                ps.setLong(1, next);
+                ps.setLong(2, System.currentTimeMillis());
+                ps.executeUpdate();
+                return next;
+            } catch (SQLException e) {
+                if (attempt >= EPOCH_ATTEMPTS || !isDuplicateKey(e)) throw e;
+            }
+        }
+    }
+
+    private static boolean isDuplicateKey(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("23"); // Integritätsverletzung
+    }
+
+    /**
+     * Löscht die Nachrichten und Einträge aller Epochen vor der eigenen.
+     */
+    private void purgeStaleEpochs() throws SQLException {
+        List<Long> stale = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement(STALE_EPOCHS)) {
+            ps.setLong(1, epoch);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) stale.add(rs.getLong(1));
+            }
+        }
+        try (PreparedStatement rows = connection.prepareStatement(DELETE_EPOCH_ROWS);
+                PreparedStatement epochs = connection.prepareStatement(DELETE_EPOCH)) {
+            for (long old : stale) {
+                rows.setString(1, old + "/%");
+                rows.executeUpdate();
+                epochs.setLong(1, old);
+                epochs.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Gibt die Epoche zurück, unter der diese Fabrik ihre Räume speichert.
+     *
+     * @return Die Epoche dieses Starts
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    private static Connection connect(String jdbcUrl) {
+        try {
+            return DriverManager.getConnection(jdbcUrl);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Datenbank konnte nicht geöffnet werden: " + jdbcUrl, e);
+        }
+    }
+
+    @Override
+    public synchronized SqlMessageStore open(String roomKey) {
+        Objects.requireNonNull(roomKey, "RoomKey darf nicht null sein");
+        return rooms.computeIfAbsent(roomKey, SqlMessageStore::new);
+    }
+
+    /**
+     * Schreibt alle gepufferten Nachrichten und schließt die Verbindung.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            for (SqlMessageStore store : rooms.values()) {
+                store.flush();
+            }
+            connection.close();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Datenbank konnte nicht geschlossen werden", e);
+        }
+    }
+
+    private Message readRow(ResultSet rs) throws SQLException {
+        int senderId = rs.getInt(2);
+        User sender = senderId >= 0 ? userResolver.apply(senderId) : null;
+        return new Message(sender, rs.getString(5), MessageCodec.type(rs.getByte(4)),
+                MessageCodec.toTimestamp(rs.getLong(3)));
+    }
+
+    /**
+     * Verlauf eines Raums in der Tabelle {@code messages}. Grenzen, Anzahl und einzeln
+     * gelöschte Sequenzen werden im Speicher mitgeführt, damit {@link #count()} und
+     * {@link #contains(long)} keine Abfrage auslösen. Jede Epoche beginnt mit leeren Räumen.
+     */
+    public class SqlMessageStore implements MessageStore {
+        private final String roomKey;                            // Schlüssel in der Tabelle, mit Epoche
+        private final List<Message> pending = new ArrayList<>(); // Noch nicht geschriebene Nachrichten
+        private final NavigableSet<Long> deleted = new TreeSet<>(); // Lücken zwischen firstSeq und nextSeq
+        private long firstSeq;
+        private long nextSeq;
+        private long count;
+
+        private SqlMessageStore(String roomKey) {
+            this.roomKey = epoch + "/" + roomKey;
+        }
+
+        @Override
+        public long append(Message message) {
+            Objects.requireNonNull(message, "Message darf nicht null sein");
+            synchronized (JdbcMessageStoreFactory.this) {
+                pending.add(message);
+                long seq = nextSeq++;
+                count++;
+                if (pending.size() >= batchSize) flush();
+                return seq;
+            }
+        }
+
+        /**
+         * Schreibt alle gepufferten Nachrichten in einem Batch und einer Transaktion.
+         * Schlägt das Einfügen fehl, wird der Batch zurückgerollt und verworfen; seine
+         * Sequenzen bleiben als Lücken stehen, damit der Raum weiter benutzbar ist.
+         *
+         * @throws IllegalStateException wenn das Einfügen fehlschlägt
+         */
+        public void flush() {
+            synchronized (JdbcMessageStoreFactory.this) {
+                if (pending.isEmpty()) return;
+                long first = nextSeq - pending.size(); // Gepufferte Nachrichten belegen die letzten Sequenzen
+                try {
+                    boolean autoCommit = connection.getAutoCommit();
+                    connection.setAutoCommit(false);
+                    try {
+                        insertPending(first);
+                        connection.commit();
+                    } catch (SQLException e) {
+                        connection.rollback();
+                        throw e;
+                    } finally {
+                        connection.setAutoCommit(autoCommit);
+                    }
+                } catch (SQLException e) {
+                    for (long seq = first; seq < nextSeq; seq++) deleted.add(seq);
+                    count -= pending.size();
+                    pending.clear();
+                    throw new IllegalStateException("Nachrichten konnten nicht gespeichert werden", e);
+                }
+                pending.clear();
+            }
+        }
+
+        private void insertPending(long seq) throws SQLException {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT)) {
+                for (Message message : pending) {
+                    ps.setString(1, roomKey);
+                    ps.setLong(2, seq++);
+                    ps.setInt(3, MessageCodec.senderId(message));
+                    ps.setLong(4, MessageCodec.epochMillis(message.getTimestamp()));
+                    ps.setByte(5, MessageCodec.typeOrdinal(message.getType()));
+                    ps.setString(6, message.getContent() != null ? message.getContent() : "");
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+
+        @Override
+        public Message get(long seq) {
+            synchronized (JdbcMessageStoreFactory.this) {
+                Objects.checkIndex(seq - firstSeq, nextSeq - firstSeq);
+                flush();
+                try (PreparedStatement ps = connection.prepareStatement(SELECT_ONE)) {
+                    ps.setString(1, roomKey);
+                    ps.setLong(2, seq);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        return rs.next() ? readRow(rs) : null;
+                    }
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Nachricht konnte nicht gelesen werden", e);
+                }
+            }
+        }
+
+        @Override
+        public List<Message> read(long fromSeq, int limit) {
+            List<Message> result = new ArrayList<>();
+            query(fromSeq, limit, (message, seq) -> result.add(message));
+            return result;
+        }
+
+        /**
+         * Lädt beim Zugriff jeweils eine ganze Seite von {@link #VIEW_PAGE_SIZE} Sequenzen
+         * mit einer Bereichsabfrage, statt jede Nachricht einzeln abzufragen.
+         */
+        @Override
+        public List<Message> view() {
+            synchronized (JdbcMessageStoreFactory.this) {
+                long first = firstSeq;
+                long[] sequences = new long[(int) count];
+                int size = 0;
+                for (long seq = first; seq < nextSeq && size < sequences.length; seq++) {
+                    if (!deleted.contains(seq)) sequences[size++] = seq;
+                }
+                int viewSize = size;
+                return new AbstractList<Message>() {
+                    private long pageStart = -1;
+                    private final Message[] page = new Message[VIEW_PAGE_SIZE];
+
+                    @Override
+                    public Message get(int index) {
+                        Objects.checkIndex(index, viewSize);
+                        long seq = sequences[index];
+                        synchronized (JdbcMessageStoreFactory.this) {
+                            if (pageStart < 0 || seq < pageStart || seq >= pageStart + VIEW_PAGE_SIZE) {
+                                pageStart = seq - (seq - first) % VIEW_PAGE_SIZE; // Seiten ab first ausrichten
+                                Arrays.fill(page, null);
+                                query(pageStart, VIEW_PAGE_SIZE, (message, found) -> {
+                                    if (found < pageStart + VIEW_PAGE_SIZE) page[(int) (found - pageStart)] = message;
+                                });
+                            }
+                            return page[(int) (seq - pageStart)];
+                        }
+                    }
+
+                    @Override
+                    public int size() {
+                        return viewSize;
+                    }
+                };
+            }
+        }
+
+        /**
+         * Liest bis zu {@code limit} Zeilen ab {@code fromSeq} mit {@link #SELECT_RANGE}.
+         */
+        private void query(long fromSeq, int limit, ObjLongConsumer<Message> rows) {
+            synchronized (JdbcMessageStoreFactory.this) {
+                flush();
+                try (PreparedStatement ps = connection.prepareStatement(SELECT_RANGE)) {
+                    ps.setString(1, roomKey);
+                    ps.setLong(2, fromSeq);
+                    ps.setInt(3, limit);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) rows.accept(readRow(rs), rs.getLong(1));
+                    }
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Nachrichten konnten nicht gelesen werden", e);
+                }
+            }
+        }
+
+        @Override
+        public boolean contains(long seq) {
+            synchronized (JdbcMessageStoreFactory.this) {
+                return seq >= firstSeq && seq < nextSeq && !deleted.contains(seq);
+            }
+        }
+
+        @Override
+        public long firstSequence() {
+            synchronized (JdbcMessageStoreFactory.this) {
+                return firstSeq;
+            }
+        }
+
+        @Override
+        public long nextSequence() {
+            synchronized (JdbcMessageStoreFactory.this) {
+                return nextSeq;
+            }
+        }
+
+        @Override
+        public long count() {
+            synchronized (JdbcMessageStoreFactory.this) {
+                return count;
+            }
+        }
+
+        @Override
+        public boolean delete(long seq) {
+            synchronized (JdbcMessageStoreFactory.this) {
+                if (!contains(seq)) return false;
+                flush();
+                update(DELETE_ONE, seq);
+                deleted.add(seq);
+                count--;
+                return true;
+            }
+        }
+
+        @Override
+        public long deleteBefore(long seq) {
+            synchronized (JdbcMessageStoreFactory.this) {
+                if (seq <= firstSeq) return 0;
+                flush();
+                int removed = update(DELETE_BEFORE, seq);
+                firstSeq = Math.min(seq, nextSeq);
+                deleted.headSet(firstSeq).clear();
+                count -= removed;
+                return removed;
+            }
+        }
+
+        private int update(String sql, long seq) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, roomKey);
+                ps.setLong(2, seq);
+                return ps.executeUpdate();
+            } catch (SQLException e) {
+                throw new IllegalStateException("Nachrichten konnten nicht gelöscht werden", e);
+            }
+        }
+    }
+}
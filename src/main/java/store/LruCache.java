@@ -0,0 +1,117 @@
+package store;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+
+/**
+ * Größenbeschränkter LRU-Cache. Die Grenze wird nicht in Einträgen, sondern in
+ * geschätzten Bytes angegeben; das Gewicht eines Eintrags liefert ein Weigher.
+ *
+ * @param <K> Typ der Schlüssel
+ * @param <V> Typ der Werte
+ */
+public class LruCache<K, V> {
+    private final long maxBytes;                      // Obergrenze des Caches in Bytes
+    private final ToIntFunction<V> weigher;           // Schätzt die Größe eines Werts
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long residentBytes;                       // Aktuell belegte Bytes
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Erstellt einen neuen Cache.
+     *
+     * @param maxBytes Obergrenze in Bytes
+     * @param weigher  Liefert die geschätzte Größe eines Werts in Bytes
+     */
+    public LruCache(long maxBytes, ToIntFunction<V> weigher) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("MaxBytes darf nicht negativ sein: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.weigher = Objects.requireNonNull(weigher, "Weigher darf nicht null sein");
+    }
+
+    /**
+     * Gibt den Wert zu einem Schlüssel zurück und markiert ihn als zuletzt verwendet.
+     *
+     * @param key Der Schlüssel
+     * @return Der Wert oder null, falls nicht im Cache
+     */
+    public synchronized V get(K key) {
+        V value = entries.get(key);
+        if (value != null) hits++;
+        else misses++;
+        return value;
+    }
+
+    /**
+     * Legt einen Wert im Cache ab und verdrängt bei Bedarf die ältesten Einträge.
+     *
+     * @param key   Der Schlüssel
+     * @param value Der Wert (darf nicht null sein)
+     */
+    public synchronized void put(K key, V value) {
+        Objects.requireNonNull(value, "Value darf nicht null sein");
+        V previous = entries.put(key, value);
+        if (previous != null) residentBytes -= weigher.applyAsInt(previous);
+        residentBytes += weigher.applyAsInt(value);
+
+        Iterator<Map.Entry<K, V>> it = entries.entrySet().iterator();
+        while (residentBytes > maxBytes && it.hasNext()) {
+            V evicted = it.next().getValue();
+            it.remove();
+            residentBytes -= weigher.applyAsInt(evicted);
+            evictions++;
+        }
+    }
+
+    /**
+     * Entfernt einen Eintrag aus dem Cache.
+     *
+     * @param key Der Schlüssel
+     */
+    public synchronized void remove(K key) {
+        V removed = entries.remove(key);
+        if (removed != null) residentBytes -= weigher.applyAsInt(removed);
+    }
+
+    /**
+     * Gibt die aktuell belegten Bytes zurück.
+     *
+     * @return Geschätzte Größe aller Einträge
+     */
+    public synchronized long getResidentBytes() { return residentBytes; }
+
+    /**
+     * Gibt die Anzahl der Einträge zurück.
+     *
+     * @return Anzahl der Einträge
+     */
+    public synchronized int size() { return entries.size(); }
+
+    /**
+     * Gibt die Anzahl der Treffer zurück.
+     *
+     * @return Anzahl der Cache-Treffer
+     */
+    public synchronized long getHits() { return hits; }
+
+    /**
+     * Gibt die Anzahl der Fehlzugriffe zurück.
+     *
+     * @return Anzahl der Cache-Fehlzugriffe
+     */
+    public synchronized long getMisses() { return misses; }
+
+    /**
+     * Gibt die Anzahl der verdrängten Einträge zurück.
+     *
+     * @return Anzahl der Verdrängungen
+     */
+    public synchronized long getEvictions() { return evictions; }
+}
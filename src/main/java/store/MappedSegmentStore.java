@@ -0,0 +1,321 @@
+package store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+import domain.Message;
+import domain.User;
+
+/**
+ * Speichert den Nachrichtenverlauf außerhalb des Heaps in Segmentdateien fester Größe,
+ * die per Memory-Mapping eingeblendet werden. Das Caching übernimmt der Page-Cache
+ * des Betriebssystems.
+ *
+ * Jeder Raum besitzt ein eigenes {@link RoomLog} mit einem Offset-Index, über den
+ * Nachrichten erst beim Lesen aus dem gemappten Puffer dekodiert werden.
+ * Der Index lebt nur für die Laufzeit des Prozesses; vorhandene Segmente werden
+ * beim Öffnen überschrieben. Der Speicher lagert den Verlauf also nur aus dem Heap
+ * aus und übersteht bewusst keinen Neustart. Segmente, deren Datensätze alle gelöscht
+ * wurden, werden freigegeben und ihre Dateien entfernt; das aktuelle Segment erst,
+ * sobald ein neues begonnen wird.
+ */
+public class MappedSegmentStore implements MessageStoreFactory {
+    public static final int DEFAULT_SEGMENT_SIZE = 8 * 1024 * 1024; // 8 MiB pro Segment
+
+    private final Path directory;                     // Verzeichnis der Segmentdateien
+    private final int segmentSize;                    // Feste Größe eines Segments in Bytes
+    private final IntFunction<User> userResolver;     // Löst Absender-IDs beim Lesen auf
+    private final List<FileChannel> channels = new ArrayList<>();
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final Map<String, RoomLog> rooms = new HashMap<>();
+    private int[] liveRecords = new int[4];           // Nicht gelöschte Datensätze pro Segment
+    private int writeOffset;                          // Schreibposition im aktuellen Segment
+    private boolean closed;
+
+    /**
+     * Erstellt einen Segmentspeicher mit Standard-Segmentgröße.
+     *
+     * @param directory    Verzeichnis für die Segmentdateien
+     * @param userResolver Liefert den Benutzer zu einer User-ID
+     */
+    public MappedSegmentStore(Path directory, IntFunction<User> userResolver) {
+        this(directory, DEFAULT_SEGMENT_SIZE, userResolver);
+    }
+
+    /**
+     * Erstellt einen Segmentspeicher.
+     *
+     * @param directory    Verzeichnis für die Segmentdateien
+     * @param segmentSize  Größe eines Segments in Bytes
+     * @param userResolver Liefert den Benutzer zu einer User-ID
+     * @throws UncheckedIOException wenn das Verzeichnis nicht angelegt werden kann
+     */
+    public MappedSegmentStore(Path directory, int segmentSize, IntFunction<User> userResolver) {
+        Objects.requireNonNull(directory, "Directory darf nicht null sein");
+        Objects.requireNonNull(userResolver, "UserResolver darf nicht null sein");
+        if (segmentSize <= MessageCodec.HEADER_BYTES) {
+            throw new IllegalArgumentException("Segmentgröße zu klein: " + segmentSize);
+        }
+
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.userResolver = userResolver;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Verzeichnis konnte nicht angelegt werden: " + directory, e);
+        }
+    }
+
+    /**
+     * Öffnet das Log eines Raums oder legt es an.
+     *
+     * @param roomKey Eindeutiger Schlüssel des Raums (z.B. "chat-1000")
+     * @return Das Log des Raums
+     */
+    @Override
+    public synchronized RoomLog open(String roomKey) {
+        Objects.requireNonNull(roomKey, "RoomKey darf nicht null sein");
+        return rooms.computeIfAbsent(roomKey, RoomLog::new);
+    }
+
+    /**
+     * Schreibt eine Nachricht in das aktuelle Segment und gibt ihre Position zurück.
+     * Passt der Datensatz nicht mehr hinein, wird ein neues Segment begonnen.
+     */
+    private synchronized long append(Message message) {
+        ensureOpen();
+        byte[] content = MessageCodec.content(message);
+        int length = MessageCodec.HEADER_BYTES + content.length;
+        if (length > segmentSize) {
+            throw new IllegalArgumentException("Nachricht größer als ein Segment: " + length + " Bytes");
+        }
+
+        if (segments.isEmpty() || writeOffset + length > segmentSize) {
+            openSegment();
+        }
+
+        int segment = segments.size() - 1;
+        int offset = writeOffset;
+        writeOffset += MessageCodec.write(segments.get(segment), offset, message, content);
+        liveRecords[segment]++;
+        return ((long) segment << 32) | offset;
+    }
+
+    /**
+     * Vermerkt das Löschen eines Datensatzes. Enthält ein abgeschlossenes Segment
+     * keine lebenden Datensätze mehr, wird seine Datei gelöscht.
+     */
+    private void release(long position) {
+        int segment = (int) (position >>> 32);
+        if (--liveRecords[segment] > 0 || segment == segments.size() - 1) return;
+        deleteSegment(segment);
+    }
+
+    private void deleteSegment(int segment) {
+        Path file = segmentFile(segment);
+        try {
+            channels.get(segment).close();
+            segments.set(segment, null); // Mapping wird vom GC freigegeben
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Segment konnte nicht gelöscht werden: " + file, e);
+        }
+    }
+
+    /**
+     * Dekodiert die Nachricht an der angegebenen Position.
+     */
+    private synchronized Message readAt(long position) {
+        ensureOpen();
+        int segment = (int) (position >>> 32);
+        int offset = (int) position;
+        return MessageCodec.read(segments.get(segment), offset, userResolver);
+    }
+
+    private Path segmentFile(int segment) {
+        return directory.resolve(String.format("segment-%05d.log", segment));
+    }
+
+    private void openSegment() {
+        int previous = segments.size() - 1;
+        if (previous >= 0 && liveRecords[previous] == 0) {
+            deleteSegment(previous); // Wurde geleert, solange es noch das aktuelle war
+        }
+
+        Path file = segmentFile(segments.size());
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            channels.add(channel);
+            segments.add(channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+            if (segments.size() > liveRecords.length) {
+                liveRecords = Arrays.copyOf(liveRecords, liveRecords.length * 2);
+            }
+            writeOffset = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Segment konnte nicht angelegt werden: " + file, e);
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("MappedSegmentStore ist geschlossen");
+        }
+    }
+
+    /**
+     * Gibt die Anzahl der vorhandenen Segmentdateien zurück.
+     * Bereits freigegebene Segmente werden nicht mitgezählt.
+     *
+     * @return Anzahl der Segmentdateien
+     */
+    public synchronized int getSegmentCount() {
+        int count = 0;
+        for (MappedByteBuffer segment : segments) {
+            if (segment != null) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Schließt alle Segmentdateien. Danach sind keine Lese- oder Schreibzugriffe mehr möglich.
+     * 
+     * @throws UncheckedIOException wenn eine Segmentdatei nicht geschlossen werden kann
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            for (MappedByteBuffer segment : segments) {
+                if (segment != null) segment.force();
+            }
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Segmente konnten nicht geschlossen werden", e);
+        }
+    }
+
+    /**
+     * Nachrichtenlog eines einzelnen Raums. Hält nur die Positionen der Datensätze
+     * im Heap, die Nachrichten selbst liegen in den gemappten Segmenten.
+     * Gelöschte Nachrichten werden im Index mit {@link #DELETED} markiert.
+     */
+    public class RoomLog implements MessageStore {
+        private static final long DELETED = -1L;    // Markierung für gelöschte Einträge
+
+        private final String roomKey;               // Schlüssel des Raums
+        private long[] positions = new long[16];    // Offset-Index: (Sequenz - firstSeq) -> Position
+        private int size;                           // Belegte Einträge im Index
+        private long firstSeq;                      // Sequenz des ersten Index-Eintrags
+        private long count;                         // Anzahl nicht gelöschter Nachrichten
+
+        private RoomLog(String roomKey) {
+            this.roomKey = roomKey;
+        }
+
+        @Override
+        public long append(Message message) {
+            Objects.requireNonNull(message, "Message darf nicht null sein");
+            synchronized (MappedSegmentStore.this) {
+                long position = MappedSegmentStore.this.append(message);
+                if (size == positions.length) {
+                    positions = Arrays.copyOf(positions, size * 2);
+                }
+                positions[size++] = position;
+                count++;
+                return firstSeq + size - 1;
+            }
+        }
+
+        @Override
+        public Message get(long seq) {
+            synchronized (MappedSegmentStore.this) {
+                Objects.checkIndex(seq - firstSeq, size);
+                long position = positions[(int) (seq - firstSeq)];
+                return position == DELETED ? null : readAt(position);
+            }
+        }
+
+        @Override
+        public boolean contains(long seq) {
+            synchronized (MappedSegmentStore.this) {
+                return seq >= firstSeq && seq < firstSeq + size && positions[(int) (seq - firstSeq)] != DELETED;
+            }
+        }
+
+        @Override
+        public long firstSequence() {
+            synchronized (MappedSegmentStore.this) {
+                return firstSeq;
+            }
+        }
+
+        @Override
+        public long nextSequence() {
+            synchronized (MappedSegmentStore.this) {
+                return firstSeq + size;
+            }
+        }
+
+        @Override
+        public long count() {
+            synchronized (MappedSegmentStore.this) {
+                return count;
+            }
+        }
+
+        @Override
+        public boolean delete(long seq) {
+            synchronized (MappedSegmentStore.this) {
+                if (!contains(seq)) return false;
+                release(positions[(int) (seq - firstSeq)]);
+                positions[(int) (seq - firstSeq)] = DELETED;
+                count--;
+                return true;
+            }
+        }
+
+        @Override
+        public long deleteBefore(long seq) {
+            synchronized (MappedSegmentStore.this) {
+                int end = (int) Math.min(Math.max(seq - firstSeq, 0), size);
+                long removed = 0;
+                for (int i = 0; i < end; i++) {
+                    if (positions[i] == DELETED) continue;
+                    release(positions[i]);
+                    removed++;
+                }
+                System.arraycopy(positions, end, positions, 0, size - end);
+                size -= end;
+                firstSeq += end;
+                count -= removed;
+                return removed;
+            }
+        }
+
+        /**
+         * Gibt den Schlüssel des Raums zurück.
+         *
+         * @return Der Raumschlüssel
+         */
+        public String getRoomKey() {
+            return roomKey;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package store;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.function.IntFunction;
+
+import domain.Message;
+import domain.MessageType;
+import domain.User;
+
+/**
+ * Kodiert Nachrichten in ein kompaktes Binärformat und wieder zurück.
+ * Aufbau eines Datensatzes: Länge (int), Absender-ID (int), Zeitstempel in
+ * Epoch-Millis (long), Typ-Ordinal (byte), Inhalt als UTF-8.
+ */
+final class MessageCodec {
+    static final int HEADER_BYTES = 4 + 4 + 8 + 1; // Länge, Absender, Zeit, Typ
+
+    private static final MessageType[] TYPES = MessageType.values();
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private MessageCodec() {
+    }
+
+    /**
+     * Gibt die Absender-ID einer Nachricht zurück (-1 falls kein Absender).
+     */
+    static int senderId(Message message) {
+        return message.getSender() != null ? message.getSender().getUserId() : -1;
+    }
+
+    /**
+     * Wandelt den Zeitstempel einer Nachricht in Epoch-Millis um.
+     */
+    static long epochMillis(LocalDateTime timestamp) {
+        return timestamp.atZone(ZONE).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Wandelt Epoch-Millis zurück in einen lokalen Zeitstempel.
+     */
+    static LocalDateTime toTimestamp(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZONE);
+    }
+
+    /**
+     * Gibt das Ordinal des Nachrichtentyps zurück (-1 falls kein Typ gesetzt).
+     */
+    static byte typeOrdinal(MessageType type) {
+        return (byte) (type != null ? type.ordinal() : -1);
+    }
+
+    /**
+     * Gibt den Nachrichtentyp zu einem Ordinal zurück.
+     */
+    static MessageType type(byte ordinal) {
+        return ordinal >= 0 ? TYPES[ordinal] : null;
+    }
+
+    /**
+     * Kodiert den Inhalt einer Nachricht als UTF-8.
+     */
+    static byte[] content(Message message) {
+        String content = message.getContent();
+        return content != null ? content.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+
+    /**
+     * Schreibt einen Datensatz ab der angegebenen Position in den Puffer.
+     *
+     * @return Anzahl der geschriebenen Bytes
+     */
+    static int write(ByteBuffer buffer, int offset, Message message, byte[] content) {
+        int length = HEADER_BYTES + content.length;
+        buffer.putInt(offset, length);
+        buffer.putInt(offset + 4, senderId(message));
+        buffer.putLong(offset + 8, epochMillis(message.getTimestamp()));
+        buffer.put(offset + 16, typeOrdinal(message.getType()));
+        buffer.put(offset + HEADER_BYTES, content);
+        return length;
+    }
+
+    /**
+     * Liest den Datensatz an der angegebenen Position und erzeugt daraus eine Nachricht.
+     */
+    static Message read(ByteBuffer buffer, int offset, IntFunction<User> userResolver) {
+        int length = buffer.getInt(offset);
+        int senderId = buffer.getInt(offset + 4);
+        long millis = buffer.getLong(offset + 8);
+        byte type = buffer.get(offset + 16);
+
+        byte[] content = new byte[length - HEADER_BYTES];
+        buffer.get(offset + HEADER_BYTES, content);
+
+        User sender = senderId >= 0 ? userResolver.apply(senderId) : null;
+        return new Message(sender, new String(content, StandardCharsets.UTF_8), type(type), toTimestamp(millis));
+    }
+}
@@ -0,0 +1,85 @@
+package store;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+import domain.Message;
+import domain.User;
+
+/**
+ * Kodiert eine Seite von Nachrichten im Format von {@link MessageCodec}, z.B. für einen
+ * Snapshot auf der Platte. Aufbau: Anzahl (int), danach die Datensätze hintereinander.
+ *
+ * Beim Lesen werden nur die Längen der Datensätze durchlaufen; eine Nachricht wird erst
+ * beim Zugriff dekodiert, sodass ein gemappter Puffer nur für tatsächlich gelesene
+ * Seiten angefasst wird.
+ */
+public final class MessagePage {
+
+    private MessagePage() {
+    }
+
+    /**
+     * Kodiert Nachrichten in eine Seite.
+     *
+     * @param messages Die Nachrichten in Anzeigereihenfolge
+     * @return Die kodierte Seite
+     */
+    public static byte[] encode(List<Message> messages) {
+        byte[][] contents = new byte[messages.size()][];
+        int size = 4;
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = MessageCodec.content(messages.get(i));
+            size += MessageCodec.HEADER_BYTES + contents[i].length;
+        }
+        ByteBuffer page = ByteBuffer.allocate(size);
+        page.putInt(0, contents.length);
+        int offset = 4;
+        for (int i = 0; i < contents.length; i++) {
+            offset += MessageCodec.write(page, offset, messages.get(i), contents[i]);
+        }
+        return page.array();
+    }
+
+    /**
+     * Gibt eine unveränderliche Sicht auf eine kodierte Seite zurück. Jeder Zugriff
+     * dekodiert die Nachricht neu; wer sie mehrfach braucht, kopiert sie.
+     *
+     * @param page  Die Seite ab Position 0
+     * @param users Löst Absender-IDs auf
+     * @return Lazy dekodierende Nachrichtenliste
+     * @throws IllegalArgumentException wenn die Seite beschädigt ist
+     */
+    public static List<Message> view(ByteBuffer page, IntFunction<User> users) {
+        Objects.requireNonNull(users, "Users darf nicht null sein");
+        int count = page.limit() >= 4 ? page.getInt(0) : -1;
+        if (count < 0 || count > (page.limit() - 4) / MessageCodec.HEADER_BYTES) {
+            throw new IllegalArgumentException("Ungültige Seite: " + count + " Nachrichten");
+        }
+        int[] offsets = new int[count];
+        int offset = 4;
+        for (int i = 0; i < count; i++) {
+            int length = offset + 4 <= page.limit() ? page.getInt(offset) : -1;
+            if (length < MessageCodec.HEADER_BYTES || offset + length > page.limit()) {
+                throw new IllegalArgumentException("Seite ist beschädigt bei Nachricht " + i);
+            }
+            offsets[i] = offset;
+            offset += length;
+        }
+        return new AbstractList<Message>() {
+            @Override
+            public Message get(int index) {
+                Objects.checkIndex(index, count);
+                return MessageCodec.read(page, offsets[index], users);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+}
@@ -0,0 +1,145 @@
+package store;
+
+import java.io.Closeable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import domain.Message;
+
+/**
+ * Speicher für den Nachrichtenverlauf eines einzelnen Raums.
+ *
+ * Jede Nachricht erhält beim Anhängen eine fortlaufende Sequenznummer, die sich
+ * auch nach Löschungen nicht ändert. Gelöschte Nachrichten hinterlassen eine Lücke;
+ * {@link #deleteBefore(long)} entfernt den Anfang des Verlaufs und gibt den Platz frei.
+ */
+public interface MessageStore extends Closeable {
+
+    /**
+     * Hängt eine Nachricht an den Verlauf an.
+     *
+     * @param message Die zu speichernde Nachricht (darf nicht null sein)
+     * @return Die Sequenznummer der Nachricht
+     */
+    long append(Message message);
+
+    /**
+     * Liest die Nachricht mit der angegebenen Sequenznummer.
+     *
+     * @param seq Die Sequenznummer
+     * @return Die Nachricht oder null, falls sie gelöscht wurde
+     * @throws IndexOutOfBoundsException wenn die Sequenz außerhalb des Verlaufs liegt
+     */
+    Message get(long seq);
+
+    /**
+     * Prüft ob die Nachricht mit der angegebenen Sequenznummer noch vorhanden ist,
+     * ohne sie zu laden.
+     *
+     * @param seq Die Sequenznummer
+     * @return true wenn die Nachricht existiert und nicht gelöscht ist
+     */
+    boolean contains(long seq);
+
+    /**
+     * Gibt die kleinste noch gespeicherte Sequenznummer zurück.
+     *
+     * @return Erste Sequenz des Verlaufs
+     */
+    long firstSequence();
+
+    /**
+     * Gibt die Sequenznummer zurück, die die nächste Nachricht erhält.
+     *
+     * @return Nächste freie Sequenz
+     */
+    long nextSequence();
+
+    /**
+     * Gibt die Anzahl der vorhandenen (nicht gelöschten) Nachrichten zurück.
+     *
+     * @return Anzahl der Nachrichten
+     */
+    long count();
+
+    /**
+     * Löscht eine einzelne Nachricht.
+     *
+     * @param seq Die Sequenznummer
+     * @return true wenn die Nachricht vorhanden war und gelöscht wurde
+     */
+    boolean delete(long seq);
+
+    /**
+     * Entfernt alle Nachrichten mit kleinerer Sequenznummer und gibt ihren Speicher frei.
+     *
+     * @param seq Erste Sequenz, die erhalten bleibt
+     * @return Anzahl der entfernten Nachrichten
+     */
+    long deleteBefore(long seq);
+
+    /**
+     * Liest bis zu {@code limit} vorhandene Nachrichten ab der angegebenen Sequenz.
+     *
+     * @param fromSeq Erste zu lesende Sequenz
+     * @param limit   Maximale Anzahl der Nachrichten
+     * @return Nachrichten in Sequenzreihenfolge
+     */
+    default List<Message> read(long fromSeq, int limit) {
+        List<Message> result = new ArrayList<>(Math.min(limit, 64));
+        long end = nextSequence();
+        for (long seq = Math.max(fromSeq, firstSequence()); seq < end && result.size() < limit; seq++) {
+            Message message = get(seq);
+            if (message != null) result.add(message);
+        }
+        return result;
+    }
+
+    /**
+     * Gibt eine unveränderliche Sicht auf den aktuellen Stand des Verlaufs zurück.
+     * Nachrichten werden erst beim Zugriff geladen; gelöschte Nachrichten sind
+     * nicht enthalten.
+     *
+     * @return Lazy ladende Nachrichtenliste
+     */
+    default List<Message> view() {
+        long first = firstSequence();
+        long end = nextSequence();
+        int size = (int) count();
+
+        long[] live = null; // Nur bei Lücken wird eine Abbildung Index -> Sequenz benötigt
+        if (size != end - first) {
+            live = new long[size];
+            int i = 0;
+            for (long seq = first; seq < end && i < size; seq++) {
+                if (contains(seq)) live[i++] = seq;
+            }
+            if (i < size) live = Arrays.copyOf(live, i);
+        }
+
+        long[] sequences = live;
+        int viewSize = live != null ? live.length : size;
+        return new AbstractList<Message>() {
+            @Override
+            public Message get(int index) {
+                Objects.checkIndex(index, viewSize);
+                return MessageStore.this.get(sequences != null ? sequences[index] : first + index);
+            }
+
+            @Override
+            public int size() {
+                return viewSize;
+            }
+        };
+    }
+
+    /**
+     * Gibt belegte Ressourcen frei. Standardmäßig ohne Wirkung.
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,34 @@
+package store;
+
+import java.io.Closeable;
+
+/**
+ * Legt für jeden Raum einen {@link MessageStore} an. Über die Fabrik wird pro
+ * Deployment entschieden, welches Backend den Verlauf speichert.
+ */
+public interface MessageStoreFactory extends Closeable {
+
+    /**
+     * Öffnet den Speicher eines Raums oder legt ihn an.
+     *
+     * @param roomKey Eindeutiger Schlüssel des Raums (z.B. "chat-1000")
+     * @return Der Nachrichtenspeicher des Raums
+     */
+    MessageStore open(String roomKey);
+
+    /**
+     * Gibt alle Ressourcen des Backends frei. Standardmäßig ohne Wirkung.
+     */
+    @Override
+    default void close() {
+    }
+
+    /**
+     * Gibt eine Fabrik zurück, die jeden Raum im Heap speichert.
+     *
+     * @return Fabrik für {@link InMemoryMessageStore}
+     */
+    static MessageStoreFactory inMemory() {
+        return roomKey -> new InMemoryMessageStore();
+    }
+}
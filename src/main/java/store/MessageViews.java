@@ -0,0 +1,36 @@
+package store;
+
+import java.util.AbstractList;
+import java.util.List;
+
+import domain.Message;
+
+/**
+ * Hilfsmethoden für lazy Sichten auf Nachrichtenlisten.
+ */
+public final class MessageViews {
+
+    private MessageViews() {
+    }
+
+    /**
+     * Gibt eine Sicht zurück, die jede Nachricht erst beim Zugriff in ihre
+     * String-Darstellung umwandelt.
+     *
+     * @param messages Die zugrunde liegende Nachrichtenliste
+     * @return Liste der Nachrichten-Strings
+     */
+    public static List<String> asStrings(List<Message> messages) {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return messages.get(index).toString();
+            }
+
+            @Override
+            public int size() {
+                return messages.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package store;
+
+import java.time.Duration;
+
+/**
+ * Aufbewahrungsregel für den Nachrichtenverlauf eines Raums: höchstens
+ * {@code maxMessages} Nachrichten und keine Nachricht älter als {@code maxAge}.
+ * Nicht gesetzte Grenzen gelten als unbegrenzt.
+ */
+public final class RetentionPolicy {
+    private static final RetentionPolicy UNLIMITED = new RetentionPolicy(0, null);
+
+    private final int maxMessages;   // Maximale Anzahl Nachrichten (0 = unbegrenzt)
+    private final Duration maxAge;   // Maximales Alter einer Nachricht (null = unbegrenzt)
+
+    private RetentionPolicy(int maxMessages, Duration maxAge) {
+        if (maxMessages < 0) {
+            throw new IllegalArgumentException("MaxMessages darf nicht negativ sein: " + maxMessages);
+        }
+        if (maxAge != null && (maxAge.isNegative() || maxAge.isZero())) {
+            throw new IllegalArgumentException("MaxAge muss positiv sein: " + maxAge);
+        }
+        this.maxMessages = maxMessages;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Gibt eine Regel ohne Grenzen zurück.
+     *
+     * @return Unbegrenzte Aufbewahrung
+     */
+    public static RetentionPolicy unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * Erstellt eine Regel mit beiden Grenzen.
+     *
+     * @param maxMessages Maximale Anzahl Nachrichten (0 = unbegrenzt)
+     * @param maxAge      Maximales Alter (null = unbegrenzt)
+     * @return Die Aufbewahrungsregel
+     */
+    public static RetentionPolicy of(int maxMessages, Duration maxAge) {
+        return new RetentionPolicy(maxMessages, maxAge);
+    }
+
+    /**
+     * Erstellt eine Regel, die nur die letzten Nachrichten behält.
+     *
+     * @param maxMessages Maximale Anzahl Nachrichten
+     * @return Die Aufbewahrungsregel
+     */
+    public static RetentionPolicy maxMessages(int maxMessages) {
+        return new RetentionPolicy(maxMessages, null);
+    }
+
+    /**
+     * Erstellt eine Regel, die nur Nachrichten bis zu einem Höchstalter behält.
+     *
+     * @param maxAge Maximales Alter
+     * @return Die Aufbewahrungsregel
+     */
+    public static RetentionPolicy maxAge(Duration maxAge) {
+        return new RetentionPolicy(0, maxAge);
+    }
+
+    /**
+     * Gibt die maximale Anzahl Nachrichten zurück.
+     *
+     * @return Obergrenze oder 0 für unbegrenzt
+     */
+    public int getMaxMessages() { return maxMessages; }
+
+    /**
+     * Gibt das maximale Alter einer Nachricht zurück.
+     *
+     * @return Höchstalter oder null für unbegrenzt
+     */
+    public Duration getMaxAge() { return maxAge; }
+
+    /**
+     * Prüft ob die Regel überhaupt etwas begrenzt.
+     *
+     * @return true wenn keine Grenze gesetzt ist
+     */
+    public boolean isUnlimited() {
+        return maxMessages == 0 && maxAge == null;
+    }
+
+    @Override
+    public String toString() {
+        return "RetentionPolicy{maxMessages=" + maxMessages + ", maxAge=" + maxAge + "}";
+    }
+}
@@ -0,0 +1,263 @@
+package store;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import domain.Message;
+
+/**
+ * Setzt Aufbewahrungsregeln im Hintergrund durch und löscht abgelaufene
+ * Ephemeral-Nachrichten.
+ *
+ * Pro Takt arbeitet der Sweeper nur ein kleines Zeitbudget ab und löscht pro Schritt
+ * höchstens {@code batchSize} Nachrichten eines Raums. Da die Speicher nur für
+ * die Dauer eines Schritts gesperrt werden, entstehen beim Senden keine Latenzspitzen.
+ */
+public class RetentionSweeper implements AutoCloseable {
+    public static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(1);
+    public static final Duration DEFAULT_SLICE = Duration.ofMillis(2);
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final Clock clock;
+    private final long intervalMillis;               // Abstand zwischen zwei Takten
+    private final long sliceNanos;                   // Zeitbudget pro Takt
+    private final int batchSize;                     // Maximale Löschungen pro Schritt
+    private final List<MessageStore> stores = new ArrayList<>();
+    private final Map<MessageStore, RetentionPolicy> roomPolicies = new IdentityHashMap<>();
+    private final PriorityQueue<Expiry> expiries = new PriorityQueue<>();
+    private final AtomicLong removedMessages = new AtomicLong();
+    private volatile RetentionPolicy globalPolicy = RetentionPolicy.unlimited();
+    private volatile Runnable onRemoved = () -> { };
+    private ScheduledExecutorService executor;
+    private int cursor;                              // Nächster Raum im Round-Robin
+
+    /**
+     * Erstellt einen Sweeper mit Standardtakt, -budget und -batchgröße.
+     */
+    public RetentionSweeper() {
+        this(Clock.systemDefaultZone(), DEFAULT_INTERVAL, DEFAULT_SLICE, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Erstellt einen Sweeper.
+     *
+     * @param clock     Uhr für Alters- und Ablaufprüfungen
+     * @param interval  Abstand zwischen zwei Takten
+     * @param slice     Zeitbudget pro Takt
+     * @param batchSize Maximale Anzahl Löschungen pro Schritt
+     */
+    public RetentionSweeper(Clock clock, Duration interval, Duration slice, int batchSize) {
+        this.clock = Objects.requireNonNull(clock, "Clock darf nicht null sein");
+        this.intervalMillis = interval.toMillis();
+        this.sliceNanos = slice.toNanos();
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("BatchSize muss positiv sein: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Meldet den Speicher eines Raums beim Sweeper an.
+     *
+     * @param store Der Nachrichtenspeicher des Raums
+     */
+    public synchronized void register(MessageStore store) {
+        Objects.requireNonNull(store, "Store darf nicht null sein");
+        stores.add(store);
+    }
+
+    /**
+     * Setzt die Regel, die für alle Räume ohne eigene Regel gilt.
+     *
+     * @param policy Die globale Aufbewahrungsregel
+     */
+    public void setGlobalPolicy(RetentionPolicy policy) {
+        globalPolicy = Objects.requireNonNull(policy, "Policy darf nicht null sein");
+    }
+
+    /**
+     * Setzt eine eigene Regel für einen Raum. {@code null} entfernt sie wieder.
+     *
+     * @param store  Der Nachrichtenspeicher des Raums
+     * @param policy Die Regel des Raums oder null für die globale Regel
+     */
+    public synchronized void setRoomPolicy(MessageStore store, RetentionPolicy policy) {
+        if (policy == null) roomPolicies.remove(store);
+        else roomPolicies.put(store, policy);
+    }
+
+    /**
+     * Plant das Löschen einer Ephemeral-Nachricht.
+     *
+     * @param store     Der Nachrichtenspeicher des Raums
+     * @param seq       Die Sequenznummer der Nachricht
+     * @param expiresAt Ablaufzeitpunkt
+     */
+    public synchronized void scheduleExpiry(MessageStore store, long seq, LocalDateTime expiresAt) {
+        expiries.add(new Expiry(store, seq, expiresAt));
+    }
+
+    /**
+     * Setzt einen Callback, der nach jedem Takt mit Löschungen aufgerufen wird.
+     *
+     * @param onRemoved Aufruf aus dem Sweeper-Thread
+     */
+    public void setOnRemoved(Runnable onRemoved) {
+        this.onRemoved = Objects.requireNonNull(onRemoved, "Callback darf nicht null sein");
+    }
+
+    /**
+     * Startet den Hintergrund-Thread, falls er noch nicht läuft.
+     */
+    public synchronized void start() {
+        if (executor != null) return;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "retention-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::tick, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void tick() {
+        try {
+            if (sweepOnce() > 0) onRemoved.run();
+        } catch (RuntimeException e) {
+            System.err.println("Retention-Sweep fehlgeschlagen: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Führt einen Takt aus: erst fällige Ephemeral-Nachrichten, dann die Räume
+     * im Round-Robin, jeweils bis das Zeitbudget aufgebraucht ist.
+     *
+     * @return Anzahl der in diesem Takt gelöschten Nachrichten
+     */
+    public long sweepOnce() {
+        long deadline = System.nanoTime() + sliceNanos;
+        long before = removedMessages.get();
+        sweepExpiries(deadline);
+
+        int idleRooms = 0;
+        while (System.nanoTime() < deadline) {
+            MessageStore store;
+            RetentionPolicy policy;
+            synchronized (this) {
+                if (stores.isEmpty() || idleRooms >= stores.size()) break;
+                cursor = cursor % stores.size();
+                store = stores.get(cursor);
+                policy = roomPolicies.getOrDefault(store, globalPolicy);
+            }
+
+            if (!trim(store, policy)) {
+                idleRooms++;
+                synchronized (this) { cursor++; }
+            } else {
+                idleRooms = 0; // Raum hat noch Arbeit, im nächsten Schritt weiter
+            }
+        }
+
+        return removedMessages.get() - before;
+    }
+
+    private void sweepExpiries(long deadline) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        while (System.nanoTime() < deadline) {
+            List<Expiry> due = new ArrayList<>();
+            synchronized (this) {
+                while (due.size() < batchSize && !expiries.isEmpty() && !expiries.peek().expiresAt.isAfter(now)) {
+                    due.add(expiries.poll());
+                }
+            }
+            if (due.isEmpty()) break;
+            for (Expiry expiry : due) {
+                if (expiry.store.delete(expiry.seq)) removedMessages.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Löscht höchstens {@code batchSize} Nachrichten vom Anfang des Verlaufs,
+     * die gegen die Regel verstoßen.
+     *
+     * @return true wenn der Verlauf gekürzt wurde
+     */
+    private boolean trim(MessageStore store, RetentionPolicy policy) {
+        if (policy.isUnlimited()) return false;
+
+        long first = store.firstSequence();
+        long limit = first + batchSize;
+        long cut = first;
+
+        if (policy.getMaxMessages() > 0) {
+            cut = Math.max(cut, Math.min(limit, store.nextSequence() - policy.getMaxMessages()));
+        }
+
+        if (policy.getMaxAge() != null) {
+            LocalDateTime cutoff = LocalDateTime.now(clock).minus(policy.getMaxAge());
+            long end = Math.min(limit, store.nextSequence());
+            long seq = cut;
+            while (seq < end) {
+                Message message = store.get(seq);
+                if (message != null && !message.getTimestamp().isBefore(cutoff)) break;
+                seq++;
+            }
+            cut = seq;
+        }
+
+        if (cut <= first) return false;
+        removedMessages.addAndGet(store.deleteBefore(cut));
+        return true;
+    }
+
+    /**
+     * Gibt die Anzahl aller bisher gelöschten Nachrichten zurück.
+     *
+     * @return Gelöschte Nachrichten seit dem Start
+     */
+    public long getRemovedMessages() {
+        return removedMessages.get();
+    }
+
+    /**
+     * Stoppt den Hintergrund-Thread.
+     */
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Geplantes Löschen einer Ephemeral-Nachricht, sortiert nach Ablaufzeit.
+     */
+    private static class Expiry implements Comparable<Expiry> {
+        private final MessageStore store;
+        private final long seq;
+        private final LocalDateTime expiresAt;
+
+        Expiry(MessageStore store, long seq, LocalDateTime expiresAt) {
+            this.store = store;
+            this.seq = seq;
+            this.expiresAt = expiresAt;
+        }
+
+        @Override
+        public int compareTo(Expiry other) {
+            return expiresAt.compareTo(other.expiresAt);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package store;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import domain.Message;
+
+/**
+ * Gestufter Nachrichtenverlauf: Jeder Raum hält nur die letzten Nachrichten
+ * (Hot-Tail) im Heap. Der vollständige Verlauf liegt im Cold-Tier (z.B. dem
+ * {@link MappedSegmentStore}); ältere Nachrichten werden beim Zurückscrollen über
+ * einen raumübergreifenden, in Bytes begrenzten LRU-Cache nachgeladen.
+ */
+public class TieredHistoryStore implements MessageStoreFactory {
+    public static final int DEFAULT_HOT_TAIL = 50;                  // Nachrichten pro Raum im Heap
+    public static final long DEFAULT_CACHE_BYTES = 16L * 1024 * 1024; // Budget des LRU-Caches
+
+    private final MessageStoreFactory coldTier;         // Vollständiger Verlauf
+    private final int hotTailSize;                      // Größe des Hot-Tails pro Raum
+    private final LruCache<CacheKey, Message> cache;    // Nachgeladene ältere Nachrichten
+    private final HistoryMetrics metrics;
+    private final Map<String, TieredRoomHistory> rooms = new HashMap<>();
+
+    /**
+     * Erstellt einen gestuften Speicher mit Standardgrößen.
+     *
+     * @param coldTier Backend für den vollständigen Verlauf
+     */
+    public TieredHistoryStore(MessageStoreFactory coldTier) {
+        this(coldTier, DEFAULT_HOT_TAIL, DEFAULT_CACHE_BYTES);
+    }
+
+    /**
+     * Erstellt einen gestuften Speicher.
+     *
+     * @param coldTier    Backend für den vollständigen Verlauf
+     * @param hotTailSize Anzahl der Nachrichten, die pro Raum im Heap bleiben
+     * @param cacheBytes  Obergrenze des LRU-Caches in Bytes
+     */
+    public TieredHistoryStore(MessageStoreFactory coldTier, int hotTailSize, long cacheBytes) {
+        this.coldTier = Objects.requireNonNull(coldTier, "ColdTier darf nicht null sein");
+        if (hotTailSize < 0) {
+            throw new IllegalArgumentException("HotTailSize darf nicht negativ sein: " + hotTailSize);
+        }
+        this.hotTailSize = hotTailSize;
+        this.cache = new LruCache<>(cacheBytes, TieredHistoryStore::estimateBytes);
+        this.metrics = new HistoryMetrics(cache);
+    }
+
+    @Override
+    public synchronized TieredRoomHistory open(String roomKey) {
+        Objects.requireNonNull(roomKey, "RoomKey darf nicht null sein");
+        return rooms.computeIfAbsent(roomKey,
+                key -> new TieredRoomHistory(rooms.size(), coldTier.open(key)));
+    }
+
+    /**
+     * Gibt die Kennzahlen des Speichers zurück.
+     *
+     * @return Metriken zu Trefferquote, Heap-Belegung und Nachladelatenz
+     */
+    public HistoryMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Schätzt den Heap-Bedarf einer Nachricht: Objektkopf und Felder, der
+     * LocalDateTime-Objektgraph sowie der String mit seinem Zeichen-Array.
+     */
+    static int estimateBytes(Message message) {
+        String content = message.getContent();
+        return 160 + (content != null ? 2 * content.length() : 0);
+    }
+
+    @Override
+    public void close() {
+        coldTier.close();
+    }
+
+    /**
+     * Verlauf eines Raums mit Hot-Tail als Ringpuffer. Geschrieben wird immer
+     * auch in den Cold-Tier, so dass aus dem Hot-Tail verdrängte Nachrichten
+     * dort bereits vorliegen.
+     */
+    public class TieredRoomHistory implements MessageStore {
+        private final int roomIndex;                       // Raumnummer im Cache-Key
+        private final MessageStore cold;                   // Vollständiger Verlauf des Raums
+        private final Message[] hot = new Message[hotTailSize]; // Ringpuffer der letzten Nachrichten
+        private long firstSeq;                             // Erste noch gespeicherte Sequenz
+        private long nextSeq;                              // Nächste freie Sequenz
+
+        private TieredRoomHistory(int roomIndex, MessageStore cold) {
+            this.roomIndex = roomIndex;
+            this.cold = cold;
+            this.firstSeq = cold.firstSequence();
+            this.nextSeq = cold.nextSequence();
+        }
+
+        @Override
+        public synchronized long append(Message message) {
+            long seq = cold.append(message);
+            if (hot.length > 0) {
+                int slot = slot(seq);
+                if (hot[slot] != null) metrics.addHotBytes(-estimateBytes(hot[slot]));
+                hot[slot] = message;
+                metrics.addHotBytes(estimateBytes(message));
+            }
+            nextSeq = seq + 1;
+            return seq;
+        }
+
+        @Override
+        public Message get(long seq) {
+            synchronized (this) {
+                Objects.checkIndex(seq - firstSeq, nextSeq - firstSeq);
+                if (isHot(seq)) {
+                    metrics.recordHotHit();
+                    return hot[slot(seq)]; // null, falls die Nachricht gelöscht wurde
+                }
+            }
+
+            CacheKey key = new CacheKey(roomIndex, seq);
+            Message cached = cache.get(key);
+            if (cached != null) {
+                metrics.recordCacheHit();
+                return cached;
+            }
+
+            long start = System.nanoTime();
+            Message loaded = cold.get(seq);
+            metrics.recordColdLoad(System.nanoTime() - start);
+            if (loaded != null) cache.put(key, loaded);
+            return loaded;
+        }
+
+        @Override
+        public boolean contains(long seq) {
+            return cold.contains(seq);
+        }
+
+        @Override
+        public synchronized long firstSequence() {
+            return firstSeq;
+        }
+
+        @Override
+        public synchronized long nextSequence() {
+            return nextSeq;
+        }
+
+        @Override
+        public long count() {
+            return cold.count();
+        }
+
+        @Override
+        public synchronized boolean delete(long seq) {
+            if (!cold.delete(seq)) return false;
+            evict(seq);
+            return true;
+        }
+
+        @Override
+        public synchronized long deleteBefore(long seq) {
+            long removed = cold.deleteBefore(seq);
+            long newFirst = cold.firstSequence();
+            for (long s = firstSeq; s < newFirst; s++) {
+                evict(s);
+            }
+            firstSeq = newFirst;
+            return removed;
+        }
+
+        private void evict(long seq) {
+            if (isHot(seq) && hot[slot(seq)] != null) {
+                metrics.addHotBytes(-estimateBytes(hot[slot(seq)]));
+                hot[slot(seq)] = null;
+            }
+            cache.remove(new CacheKey(roomIndex, seq));
+        }
+
+        private boolean isHot(long seq) {
+            return seq >= nextSeq - hot.length;
+        }
+
+        private int slot(long seq) {
+            return (int) (seq % hot.length);
+        }
+    }
+
+    /**
+     * Schlüssel des raumübergreifenden Caches aus Raumnummer und voller Sequenz, damit
+     * auch Sequenzen ab 2^32 nicht mit denen des nächsten Raums zusammenfallen.
+     */
+    private static final class CacheKey {
+        private final int room;
+        private final long seq;
+
+        private CacheKey(int room, long seq) {
+            this.room = room;
+            this.seq = seq;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CacheKey)) return false;
+            CacheKey other = (CacheKey) o;
+            return room == other.room && seq == other.seq;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * room + Long.hashCode(seq);
+        }
+    }
+}
@@ -1,23 +1,49 @@
 package ui;
 
+import client.RemoteChatService;
+import fassade.ChatApi;
 import fassade.ChatService;
+import fassade.ServiceProtocol;
 import javafx.application.Application;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+
 public class ChatApplication extends Application {
 
     // Zentrale Instanz des Services, die wir durchreichen
-    private ChatService chatService;
+    private ChatApi chatService;
 
     @Override
     public void start(Stage primaryStage) {
-        this.chatService = new ChatService();
+        // Mit --server=host[:port] als Client eines gemeinsamen ServiceServers, sonst lokal
+        String server = getParameters().getNamed().get("server");
+        this.chatService = server != null ? connect(server) : new ChatService();
         
         // Starte mit dem Login-Screen
         showLoginView(primaryStage);
     }
 
+    private static ChatApi connect(String server) {
+        int colon = server.lastIndexOf(':');
+        String host = colon < 0 ? server : server.substring(0, colon);
+        int port = colon < 0 ? ServiceProtocol.DEFAULT_PORT : Integer.parseInt(server.substring(colon + 1));
+        // Lokaler Snapshot pro Server: Seitenleiste und letzte Seiten sind beim Start sofort da
+        Path snapshot = Path.of(System.getProperty("user.home"), ".mylocalchat", host + "-" + port + ".snapshot");
+        return new RemoteChatService(new InetSocketAddress(host, port), RemoteChatService.DEFAULT_TIMEOUT_MILLIS, snapshot);
+    }
+
+    @Override
+    public void stop() {
+        chatService.close();
+    }
+
     public void showLoginView(Stage stage) {
         LoginView loginView = new LoginView(this, chatService);
         Scene scene = new Scene(loginView, 400, 500);
@@ -31,8 +57,18 @@ public class ChatApplication extends Application {
 
     public void showMainView(String username) {
         Stage mainStage = new Stage();
-        MainView mainView = new MainView(username, chatService);
-        Scene scene = new Scene(mainView, 1000, 700);
+        UiMetrics metrics = new UiMetrics();
+        MainView mainView = new MainView(username, chatService, metrics);
+        
+        // Debug-Overlay (F12): Pulse-, Queue- und Refresh-Zeiten, auch als JFR-Ereignisse
+        DebugOverlay overlay = new DebugOverlay(metrics);
+        StackPane root = new StackPane(mainView, overlay);
+        StackPane.setAlignment(overlay, Pos.TOP_RIGHT);
+        Scene scene = new Scene(root, 1000, 700);
+        metrics.install(scene);
+        scene.addEventFilter(KeyEvent.KEY_PRESSED, e -> {
+            if (e.getCode() == KeyCode.F12) overlay.toggle();
+        });
         
         mainStage.setTitle("MyLocalChat - Angemeldet als: " + username);
         mainStage.setScene(scene);
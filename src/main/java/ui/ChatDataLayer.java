@@ -0,0 +1,172 @@
+package ui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import domain.GruppenRoom;
+import domain.User;
+import fassade.ChatApi;
+import store.MessageStore;
+
+/**
+ * Clientseitige Datenschicht zwischen {@link MainView} und {@link ChatApi}.
+ *
+ * Alle Aufrufe des Service laufen auf dem Hintergrund-Executor; der FX-Thread erhält
+ * nur unveränderliche Snapshots ({@link SidebarSnapshot}, {@link ChatSnapshot}) und
+ * wendet sie an. Da der Service selbst nicht threadsicher ist, sollte der Executor
+ * die Aufgaben nacheinander ausführen.
+ *
+ * Veraltete Ergebnisse werden verworfen: Wechselt der Benutzer den Chat, bevor der
+ * vorherige geladen ist, wird dessen Snapshot nicht mehr angezeigt. Mehrere
+ * Aktualisierungen der Seitenleiste, die sich stauen, werden zu einer zusammengefasst.
+ */
+public class ChatDataLayer {
+    private final ChatApi service;
+    private final Executor background;      // Führt die Service-Aufrufe aus
+    private final Executor fxThread;        // Wendet die Ergebnisse an, z.B. Platform::runLater
+    private final AtomicBoolean sidebarQueued = new AtomicBoolean(); // Ladevorgang wartet noch
+    private long chatGeneration;            // Zählt Chatwechsel (nur FX-Thread)
+    private long discarded;                 // Verworfene veraltete Ergebnisse (Statistik)
+
+    /**
+     * Erstellt die Datenschicht.
+     *
+     * @param service    Der Chat-Service
+     * @param background Führt Service-Aufrufe aus, z.B. ein Single-Thread-Executor
+     * @param fxThread   Wendet Ergebnisse an, z.B. {@code Platform::runLater}
+     */
+    public ChatDataLayer(ChatApi service, Executor background, Executor fxThread) {
+        this.service = Objects.requireNonNull(service, "Service darf nicht null sein");
+        this.background = Objects.requireNonNull(background, "Background darf nicht null sein");
+        this.fxThread = Objects.requireNonNull(fxThread, "FxThread darf nicht null sein");
+    }
+
+    /**
+     * Lädt Kontakte und Gruppen im Hintergrund. Wartet bereits ein Ladevorgang, wird
+     * kein weiterer eingeplant; er liest ohnehin den neuesten Stand. Ein Ergebnis, hinter
+     * dem bereits ein neuerer Ladevorgang wartet, wird verworfen.
+     *
+     * @param userName Der angemeldete Benutzer
+     * @param apply    Erhält auf dem FX-Thread den neuesten Snapshot
+     */
+    public void loadSidebar(String userName, Consumer<SidebarSnapshot> apply) {
+        if (!sidebarQueued.compareAndSet(false, true)) return;
+        background.execute(() -> {
+            sidebarQueued.set(false);
+            SidebarSnapshot snapshot = buildSidebar(userName);
+            fxThread.execute(() -> {
+                if (sidebarQueued.get()) {
+                    discarded++; // Neuerer Ladevorgang ist bereits unterwegs
+                    return;
+                }
+                apply.accept(snapshot);
+            });
+        });
+    }
+
+    private SidebarSnapshot buildSidebar(String userName) {
+        List<SidebarSnapshot.Contact> contacts = new ArrayList<>();
+        for (User user : service.getUserContacts(userName)) {
+            contacts.add(new SidebarSnapshot.Contact(user));
+        }
+        List<SidebarSnapshot.Group> groups = new ArrayList<>();
+        for (Object chat : service.getAllChatsForUser(userName)) {
+            if (chat instanceof GruppenRoom) groups.add(new SidebarSnapshot.Group((GruppenRoom) chat));
+        }
+        return new SidebarSnapshot(contacts, groups);
+    }
+
+    /**
+     * Öffnet (bzw. erstellt) den privaten Chat mit einem Kontakt im Hintergrund.
+     *
+     * @param userName Der angemeldete Benutzer
+     * @param partner  Der Kontakt aus der Seitenleiste
+     * @param apply    Erhält den Snapshot, sofern inzwischen kein anderer Chat geöffnet wurde
+     * @param onError  Erhält auf dem FX-Thread einen aufgetretenen Fehler
+     */
+    public void openPrivateChat(String userName, SidebarSnapshot.Contact partner,
+            Consumer<ChatSnapshot> apply, Consumer<RuntimeException> onError) {
+        openChat(() -> {
+            int roomId = service.createChatRoom(userName, partner.getUsername());
+            return new ChatSnapshot(roomId, false, partner.getUsername(), partner.getInfo(),
+                    partner.getStatusText(), partner.isOnline(), openHistory(service.getChatRoomHistory(roomId)));
+        }, apply, onError);
+    }
+
+    /**
+     * Öffnet einen Gruppenchat im Hintergrund.
+     *
+     * @param group   Die Gruppe aus der Seitenleiste
+     * @param apply   Erhält den Snapshot, sofern inzwischen kein anderer Chat geöffnet wurde
+     * @param onError Erhält auf dem FX-Thread einen aufgetretenen Fehler
+     */
+    public void openGroupChat(SidebarSnapshot.Group group, Consumer<ChatSnapshot> apply,
+            Consumer<RuntimeException> onError) {
+        openChat(() -> new ChatSnapshot(group.getGroupId(), true, group.getName(), null,
+                group.getParticipantCount() + " Teilnehmer", false,
+                openHistory(service.getGroupHistory(group.getGroupId()))), apply, onError);
+    }
+
+    private void openChat(Supplier<ChatSnapshot> load, Consumer<ChatSnapshot> apply,
+            Consumer<RuntimeException> onError) {
+        long generation = ++chatGeneration;
+        submit(load, snapshot -> {
+            if (generation != chatGeneration) {
+                discarded++; // Benutzer hat bereits einen anderen Chat gewählt
+                return;
+            }
+            apply.accept(snapshot);
+        }, onError);
+    }
+
+    /**
+     * Liest die letzte Seite des Verlaufs; weitere Seiten lädt das Modell selbst über
+     * denselben Executor nach.
+     */
+    private MessageListModel openHistory(MessageStore history) {
+        return new MessageListModel(history, MessageListModel.DEFAULT_PAGE_SIZE,
+                MessageListModel.DEFAULT_MAX_PAGES, background, fxThread);
+    }
+
+    /**
+     * Führt einen Service-Aufruf im Hintergrund aus und meldet Ergebnis oder Fehler
+     * auf dem FX-Thread.
+     *
+     * @param call    Der Aufruf
+     * @param apply   Erhält das Ergebnis
+     * @param onError Erhält einen aufgetretenen Fehler
+     */
+    public <T> void submit(Supplier<T> call, Consumer<T> apply, Consumer<RuntimeException> onError) {
+        background.execute(() -> {
+            T result;
+            try {
+                result = call.get();
+            } catch (RuntimeException e) {
+                fxThread.execute(() -> onError.accept(e));
+                return;
+            }
+            fxThread.execute(() -> apply.accept(result));
+        });
+    }
+
+    /**
+     * Führt einen Service-Aufruf ohne Ergebnis im Hintergrund aus.
+     *
+     * @param call    Der Aufruf
+     * @param onError Erhält auf dem FX-Thread einen aufgetretenen Fehler
+     */
+    public void run(Runnable call, Consumer<RuntimeException> onError) {
+        submit(() -> {
+            call.run();
+            return null;
+        }, result -> { }, onError);
+    }
+
+    /** @return Anzahl der verworfenen veralteten Ergebnisse */
+    public long getDiscarded() { return discarded; }
+}
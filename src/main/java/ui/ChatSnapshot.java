@@ -0,0 +1,49 @@
+package ui;
+
+import domain.UserInfo;
+
+/**
+ * Ergebnis beim Öffnen eines Chats: Kopfzeile als Werte und das bereits mit der
+ * letzten Seite gefüllte Nachrichtenfenster. Wird im Hintergrund erstellt.
+ */
+public final class ChatSnapshot {
+    private final int chatId;
+    private final boolean group;
+    private final String title;             // Partner- oder Gruppenname
+    private final UserInfo info;            // Status des Partners (null bei Gruppen)
+    private final String statusText;        // Eigener Statustext oder Teilnehmerzahl
+    private final boolean online;
+    private final MessageListModel messages;
+
+    ChatSnapshot(int chatId, boolean group, String title, UserInfo info, String statusText,
+            boolean online, MessageListModel messages) {
+        this.chatId = chatId;
+        this.group = group;
+        this.title = title;
+        this.info = info;
+        this.statusText = statusText;
+        this.online = online;
+        this.messages = messages;
+    }
+
+    /** @return Raum- bzw. Gruppen-ID */
+    public int getChatId() { return chatId; }
+
+    /** @return true für Gruppenchats */
+    public boolean isGroup() { return group; }
+
+    /** @return Partner- oder Gruppenname */
+    public String getTitle() { return title; }
+
+    /** @return Status des Partners oder null bei Gruppen */
+    public UserInfo getInfo() { return info; }
+
+    /** @return Statustext des Partners bzw. Teilnehmerzeile der Gruppe */
+    public String getStatusText() { return statusText; }
+
+    /** @return true wenn der Partner online ist */
+    public boolean isOnline() { return online; }
+
+    /** @return Nachrichtenfenster mit der letzten Seite */
+    public MessageListModel getMessages() { return messages; }
+}
@@ -0,0 +1,52 @@
+package ui;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.scene.control.Label;
+import javafx.util.Duration;
+
+/**
+ * Einblendbare Anzeige der {@link UiMetrics}: Pulse- und Frame-Zeiten, Wartezeit
+ * der {@code runLater}-Warteschlange, Refresh-Methoden und Knotenzahl der letzten
+ * Sekunde. Solange sie ausgeblendet ist, laufen weder Timeline noch Frame-Messung.
+ */
+public class DebugOverlay extends Label {
+    private final UiMetrics metrics;
+    private final Timeline ticker;
+
+    /**
+     * Erstellt die (zunächst ausgeblendete) Anzeige.
+     *
+     * @param metrics Die angezeigten Messwerte; die Szene muss bereits installiert sein,
+     *                bevor die Anzeige eingeblendet wird
+     */
+    public DebugOverlay(UiMetrics metrics) {
+        this.metrics = metrics;
+        this.ticker = new Timeline(new KeyFrame(Duration.seconds(1), e -> setText(metrics.drain())));
+        ticker.setCycleCount(Animation.INDEFINITE);
+
+        setStyle("-fx-font-family: monospace; -fx-font-size: 11px; -fx-text-fill: white; "
+                + "-fx-background-color: rgba(0, 0, 0, 0.7); -fx-background-radius: 6px;");
+        setPadding(new Insets(8));
+        setMouseTransparent(true);
+        setVisible(false);
+    }
+
+    /**
+     * Blendet die Anzeige ein oder aus.
+     */
+    public void toggle() {
+        boolean show = !isVisible();
+        setVisible(show);
+        metrics.setFrameTracking(show);
+        if (show) {
+            metrics.drain(); // Werte aus der Zeit davor verwerfen
+            setText("...");
+            ticker.play();
+        } else {
+            ticker.stop();
+        }
+    }
+}
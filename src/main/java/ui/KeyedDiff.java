@@ -0,0 +1,103 @@
+package ui;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+import javafx.collections.ObservableList;
+
+/**
+ * Gleicht eine beobachtbare Liste über Schlüssel mit einem neuen Stand ab.
+ *
+ * Statt die Liste mit {@code setAll} neu zu füllen, werden nur die Unterschiede als
+ * Einfügen, Entfernen, Verschieben oder Ersetzen angewendet. Eine {@code ListView}
+ * befüllt dadurch nur die betroffenen Zellen neu; Auswahl und Scrollposition der
+ * übrigen Einträge bleiben erhalten. Ersetzt wird ein Eintrag nur, wenn er sich laut
+ * {@code equals} geändert hat.
+ */
+public final class KeyedDiff {
+    private int inserted;
+    private int removed;
+    private int moved;
+    private int updated;
+
+    private KeyedDiff() {
+    }
+
+    /**
+     * Bringt {@code target} auf den Stand von {@code next}.
+     *
+     * @param target Die angezeigte Liste
+     * @param next   Der neue Stand (Schlüssel müssen eindeutig sein)
+     * @param key    Liefert den Schlüssel eines Eintrags, z.B. die User-ID
+     * @return Anzahl der angewendeten Änderungen je Art
+     * @throws IllegalArgumentException wenn ein Schlüssel in {@code next} doppelt vorkommt
+     */
+    public static <T, K> KeyedDiff apply(ObservableList<T> target, List<? extends T> next, Function<? super T, K> key) {
+        Objects.requireNonNull(target, "Target darf nicht null sein");
+        Objects.requireNonNull(next, "Next darf nicht null sein");
+        KeyedDiff diff = new KeyedDiff();
+
+        Set<K> wanted = new HashSet<>();
+        for (T item : next) {
+            if (!wanted.add(key.apply(item))) {
+                throw new IllegalArgumentException("Doppelter Schlüssel: " + key.apply(item));
+            }
+        }
+        for (int i = target.size() - 1; i >= 0; i--) {
+            if (wanted.contains(key.apply(target.get(i)))) continue;
+            target.remove(i);
+            diff.removed++;
+        }
+
+        Set<K> present = new HashSet<>();
+        for (T item : target) present.add(key.apply(item));
+
+        for (int i = 0; i < next.size(); i++) {
+            T item = next.get(i);
+            K k = key.apply(item);
+            if (i < target.size() && k.equals(key.apply(target.get(i)))) {
+                if (!item.equals(target.get(i))) {
+                    target.set(i, item);
+                    diff.updated++;
+                }
+                continue;
+            }
+            if (present.contains(k)) {
+                target.remove(indexOf(target, key, k, i + 1));
+                diff.moved++;
+            } else {
+                diff.inserted++;
+            }
+            target.add(i, item);
+        }
+        return diff;
+    }
+
+    /**
+     * Sucht den Schlüssel ab {@code from}; vor {@code from} steht die Liste bereits richtig.
+     */
+    private static <T, K> int indexOf(List<T> list, Function<? super T, K> key, K k, int from) {
+        for (int i = from; i < list.size(); i++) {
+            if (k.equals(key.apply(list.get(i)))) return i;
+        }
+        throw new IllegalStateException("Schlüssel nicht gefunden: " + k);
+    }
+
+    /** @return Anzahl der eingefügten Einträge */
+    public int getInserted() { return inserted; }
+
+    /** @return Anzahl der entfernten Einträge */
+    public int getRemoved() { return removed; }
+
+    /** @return Anzahl der verschobenen Einträge */
+    public int getMoved() { return moved; }
+
+    /** @return Anzahl der ersetzten (geänderten) Einträge */
+    public int getUpdated() { return updated; }
+
+    /** @return true wenn keine Änderung nötig war */
+    public boolean isEmpty() { return inserted + removed + moved + updated == 0; }
+}
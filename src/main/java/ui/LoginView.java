@@ -1,6 +1,6 @@
 package ui;
 
-import fassade.ChatService;
+import fassade.ChatApi;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
@@ -12,9 +12,9 @@ import javafx.stage.Stage;
 public class LoginView extends VBox {
 
     private ChatApplication app;
-    private ChatService chatService;
+    private ChatApi chatService;
 
-    public LoginView(ChatApplication app, ChatService chatService) {
+    public LoginView(ChatApplication app, ChatApi chatService) {
         this.app = app;
         this.chatService = chatService;
 
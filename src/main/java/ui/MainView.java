@@ -1,53 +1,86 @@
 package ui;
 
-import domain.GruppenRoom;
+import client.ReceiptBatcher;
+import client.TypingThrottle;
 import domain.Message;
-import domain.User;
 import domain.UserInfo;
-import fassade.ChatService;
+import fassade.ChatApi;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
+import javafx.scene.control.skin.VirtualFlow;
+import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
+import javafx.scene.paint.ImagePattern;
 import javafx.scene.shape.Circle;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
-import javafx.scene.text.Text;
-import javafx.scene.text.TextFlow;
+import javafx.stage.FileChooser;
+import javafx.util.Duration;
 
-import java.time.format.DateTimeFormatter;
-import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainView extends BorderPane {
 
     private String currentUser;
-    private ChatService chatService;
+    private ChatApi chatService;
+    private ChatDataLayer data;         // Führt alle Service-Aufrufe außerhalb des FX-Threads aus
+    private UiMetrics metrics;          // Zeiten der Refresh-Methoden und der runLater-Warteschlange
+    private ReceiptBatcher receipts;    // Bündelt Lesebestätigungen beim Scrollen durch Gruppen
+    private TypingThrottle typingThrottle = new TypingThrottle(); // Höchstens ein Tipp-Signal pro Raum und Intervall
     
     // UI Komponenten Listen
-    private ListView<User> contactList;
-    private ListView<Object> groupList; // Zeigt Gruppenräume an
+    private ListView<SidebarSnapshot.Contact> contactList;
+    private ListView<SidebarSnapshot.Group> groupList; // Zeigt Gruppenräume an
     
     // Chat Area Komponenten
-    private VBox messageContainer;
-    private ScrollPane messageScrollPane;
+    private ListView<Message> messageList; // Virtualisiert: Zellen werden beim Scrollen wiederverwendet
+    private MessageListModel messageModel; // Fenster auf den Verlauf des offenen Chats
+    private VirtualFlow<?> messageFlow;    // Scrollbereich der Nachrichtenliste
+    private int anchorIndex = -1;          // Oberste sichtbare Zeile beim letzten Scrollen
+    private double anchorOffset;           // Deren Verschiebung nach oben in Pixeln
+    private boolean anchoring;             // Scrollen durch keepAnchor, nicht durch den Benutzer
+    
+    // Service-Aufrufe und Seiten des Verlaufs laufen nacheinander außerhalb des FX-Threads
+    private static final ExecutorService DATA_LOADER = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "chat-data");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    // Avatare und Blasenhöhen werden über alle Zellen hinweg wiederverwendet
+    private static final RenderCache RENDER_CACHE = new RenderCache();
     
     // Header Komponenten
     private HBox chatHeaderBox;
     private Label headerNameLabel;
     private Label headerStatusLabel;
     private Circle headerStatusDot;
+    private String headerStatusText;            // Status des offenen Chats ohne Tipp-Anzeige
+    private PauseTransition typingTimeout;      // Blendet die Tipp-Anzeige ohne neues Signal aus
     
     // Status Variablen
     private int currentChatId = -1;
     private boolean isGroupChat = false; // WICHTIG: Merken, ob wir in einer Gruppe sind
     
-    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+    public MainView(String username, ChatApi chatService) {
+        this(username, chatService, new UiMetrics());
+    }
 
-    public MainView(String username, ChatService chatService) {
+    public MainView(String username, ChatApi chatService, UiMetrics metrics) {
         this.currentUser = username;
         this.chatService = chatService;
+        this.metrics = metrics;
+        Executor fxThread = metrics.measureQueue(Platform::runLater);
+        this.data = new ChatDataLayer(chatService, DATA_LOADER, fxThread);
+        this.receipts = new ReceiptBatcher((groupId, seq) ->
+                data.run(() -> chatService.markGroupRead(groupId, username, seq), this::showError));
 
         // 1. CSS Laden
         java.net.URL cssUrl = getClass().getResource("/styles.css");
@@ -57,13 +90,19 @@ public class MainView extends BorderPane {
         initLayout();
 
         // 3. Listener registrieren
-        chatService.addUpdateListener(() -> Platform.runLater(() -> {
+        chatService.addUpdateListener(() -> fxThread.execute(() -> {
             refreshLists();
-            if (currentChatId != -1) loadMessages();
+            if (currentChatId != -1) refreshMessages();
         }));
+        chatService.addTypingListener((chatId, group, user) -> fxThread.execute(() -> showTyping(chatId, group, user)));
 
-        // 4. Daten initial laden
+        // 4. Daten initial laden (beim Netzwerk-Client zuerst aus dem lokalen Snapshot)
         refreshLists();
+
+        // Statusänderungen kommen nur von Kontakten und Raumpartnern; die Anmeldung beim
+        // Server läuft nach dem ersten Laden, damit sie die Anzeige nicht verzögert
+        data.run(() -> chatService.subscribePresence(username, changes -> fxThread.execute(this::refreshLists)),
+                this::showError);
     }
 
     private void initLayout() {
@@ -86,7 +125,7 @@ public class MainView extends BorderPane {
         // Klick-Action -> Dialog öffnen
         myProfileBox.setOnMouseClicked(e -> showEditProfileDialog());
 
-        Circle myAvatar = createAvatar(currentUser, 22);
+        ImageView myAvatar = createAvatar(currentUser, 22);
         
         VBox profileText = new VBox(2);
         Label userLabel = new Label(currentUser);
@@ -107,6 +146,7 @@ public class MainView extends BorderPane {
         // Tab 1: Kontakte
         Tab contactsTab = new Tab("Kontakte");
         contactList = new ListView<>();
+        contactList.setId("contact-list"); // Für Lookups in UI-Benchmarks
         initContactListFactory(); // CellFactory setzen
         
         VBox contactsBox = new VBox(5);
@@ -123,6 +163,7 @@ public class MainView extends BorderPane {
         // Tab 2: Gruppen
         Tab groupsTab = new Tab("Gruppen");
         groupList = new ListView<>();
+        groupList.setId("group-list");
         initGroupListFactory(); // CellFactory setzen
 
         VBox groupsBox = new VBox(5);
@@ -164,16 +205,17 @@ public class MainView extends BorderPane {
         
         chatHeaderBox.getChildren().addAll(headerAvatar, headerInfo);
 
-        // Nachrichten Bereich
-        messageContainer = new VBox(8);
-        messageContainer.setPadding(new Insets(20));
-        messageScrollPane = new ScrollPane(messageContainer);
-        messageScrollPane.setFitToWidth(true);
-        messageScrollPane.setStyle("-fx-background: transparent; -fx-background-color: transparent;");
-        messageScrollPane.setHbarPolicy(ScrollPane.ScrollBarPolicy.NEVER);
-        // Auto-Scroll
-        messageContainer.heightProperty().addListener((o, old, nev) -> messageScrollPane.setVvalue(1.0));
-        VBox.setVgrow(messageScrollPane, Priority.ALWAYS);
+        // Nachrichten Bereich: nur sichtbare Nachrichten erhalten Knoten
+        messageList = new ListView<>();
+        messageList.setId("message-list");
+        messageList.getStyleClass().add("message-list");
+        messageList.setFocusTraversable(false);
+        messageList.setCellFactory(list -> new MessageCell(() -> currentUser, () -> isGroupChat, RENDER_CACHE));
+        messageList.skinProperty().addListener((obs, old, skin) -> {
+            messageFlow = (VirtualFlow<?>) messageList.lookup(".virtual-flow");
+            if (messageFlow != null) messageFlow.positionProperty().addListener((o, oldPos, pos) -> onMessagesScrolled());
+        });
+        VBox.setVgrow(messageList, Priority.ALWAYS);
 
         // Input Area
         HBox inputArea = new HBox(10);
@@ -193,37 +235,45 @@ public class MainView extends BorderPane {
         Runnable sendAction = () -> {
             String text = messageInput.getText().trim();
             if (!text.isEmpty() && currentChatId != -1) {
+                int chatId = currentChatId;
+                String sender = currentUser;
                 if (isGroupChat) {
-                    chatService.sendGroupMessage(currentChatId, currentUser, text);
+                    data.run(() -> chatService.sendGroupMessage(chatId, sender, text), this::showError);
                 } else {
-                    chatService.sendMessage(currentChatId, currentUser, text);
+                    data.run(() -> chatService.sendMessage(chatId, sender, text), this::showError);
                 }
+                typingThrottle.reset(typingKey());
                 messageInput.clear();
             }
         };
+        Button attachBtn = new Button("📎");
+        attachBtn.setPrefSize(40, 40);
+        attachBtn.setOnAction(e -> sendFile());
+
         sendBtn.setOnAction(e -> sendAction.run());
         messageInput.setOnAction(e -> sendAction.run());
+        messageInput.setOnKeyTyped(e -> onKeystroke());
 
-        inputArea.getChildren().addAll(messageInput, sendBtn);
-        chatArea.getChildren().addAll(chatHeaderBox, messageScrollPane, inputArea);
+        inputArea.getChildren().addAll(attachBtn, messageInput, sendBtn);
+        chatArea.getChildren().addAll(chatHeaderBox, messageList, inputArea);
         this.setCenter(chatArea);
     }
 
     // --- Cell Factories (Aussehen der Listen) ---
 
     private void initContactListFactory() {
-        contactList.setCellFactory(param -> new ListCell<User>() {
+        contactList.setCellFactory(param -> new ListCell<SidebarSnapshot.Contact>() {
             @Override
-            protected void updateItem(User user, boolean empty) {
+            protected void updateItem(SidebarSnapshot.Contact user, boolean empty) {
                 super.updateItem(user, empty);
                 if (empty || user == null) {
                     setGraphic(null);
                 } else {
-                    Circle avatar = createAvatar(user.getUsername(), 20);
+                    ImageView avatar = createAvatar(user.getUsername(), 20);
                     VBox textBox = new VBox(3);
                     Label name = new Label(user.getUsername());
                     name.setStyle("-fx-font-weight: bold;");
-                    Label status = new Label(formatUserInfo(user));
+                    Label status = new Label(formatUserInfo(user.getInfo(), user.getStatusText()));
                     status.setStyle("-fx-text-fill: gray; -fx-font-size: 11px;");
                     textBox.getChildren().addAll(name, status);
                     
@@ -238,28 +288,22 @@ public class MainView extends BorderPane {
         });
         
         contactList.getSelectionModel().selectedItemProperty().addListener((obs, old, user) -> {
-            if (user != null) openPrivateChat(user);
+            // Ersetzt der Abgleich den ausgewählten Eintrag, bleibt der Chat offen
+            if (user != null && (old == null || old.getUserId() != user.getUserId())) openPrivateChat(user);
         });
     }
 
     private void initGroupListFactory() {
-        groupList.setCellFactory(param -> new ListCell<Object>() {
+        groupList.setCellFactory(param -> new ListCell<SidebarSnapshot.Group>() {
             @Override
-            protected void updateItem(Object item, boolean empty) {
+            protected void updateItem(SidebarSnapshot.Group item, boolean empty) {
                 super.updateItem(item, empty);
                 if (empty || item == null) {
                     setGraphic(null);
                 } else {
-                    // Wir erwarten hier eigentlich GruppenRoom Objekte
-                    // Falls du nur Strings hast (aus alten Versionen), müssen wir das anpassen
-                    // Hier gehe ich davon aus, dass wir Objekte in die Liste packen (siehe refreshLists)
-                    
-                    String name = item.toString(); // Fallback
-                    if (item instanceof GruppenRoom) {
-                        name = ((GruppenRoom) item).getName();
-                    }
+                    String name = item.getName();
                     
-                    Circle avatar = createAvatar(name, 20);
+                    ImageView avatar = createAvatar(name, 20);
                     Label nameLabel = new Label(name);
                     nameLabel.setStyle("-fx-font-weight: bold;");
                     
@@ -271,126 +315,167 @@ public class MainView extends BorderPane {
         });
 
         groupList.getSelectionModel().selectedItemProperty().addListener((obs, old, item) -> {
-            if (item != null && item instanceof GruppenRoom) {
-                openGroupChat((GruppenRoom) item);
-            }
+            if (item != null && (old == null || old.getGroupId() != item.getGroupId())) openGroupChat(item);
         });
     }
 
     // --- Logik Methoden ---
 
+    /**
+     * Lädt Kontakte und Gruppen im Hintergrund und gleicht die Listen über ihre IDs
+     * ab, sodass z.B. eine Statusänderung nur die Zelle des Kontakts neu befüllt.
+     */
     private void refreshLists() {
-        try {
-            // Kontakte laden
-            List<User> contacts = chatService.getUserContacts(currentUser);
-            contactList.getItems().setAll(contacts);
-            
-            // Gruppen laden (Hier nutzen wir den Service)
-            // HINWEIS: Damit das sauber geht, brauchen wir idealerweise eine Methode
-            // im ChatService, die echte GruppenRoom-Objekte zurückgibt.
-            // Ich nutze hier einen Trick und hole sie über die 'getAllChatsForUser' Logik
-            // oder wir nutzen die Namen und suchen sie.
-            // Fürs erste nehmen wir an, wir bekommen Objekte.
-            
-            List<Object> allChats = chatService.getAllChatsForUser(currentUser);
-            groupList.getItems().clear();
-            for(Object chat : allChats) {
-                if (chat instanceof GruppenRoom) {
-                    groupList.getItems().add(chat);
-                }
-            }
-            
-        } catch (Exception e) {
-            // Fehler ignorieren beim Refresh
+        data.loadSidebar(currentUser, snapshot -> metrics.time("refreshLists", () -> {
+            KeyedDiff.apply(contactList.getItems(), snapshot.getContacts(), SidebarSnapshot.Contact::getUserId);
+            KeyedDiff.apply(groupList.getItems(), snapshot.getGroups(), SidebarSnapshot.Group::getGroupId);
+        }));
+    }
+
+    private void openPrivateChat(SidebarSnapshot.Contact partner) {
+        data.openPrivateChat(currentUser, partner, chat -> metrics.time("loadMessages", () -> showChat(chat)), this::showError);
+    }
+    
+    private void openGroupChat(SidebarSnapshot.Group group) {
+        data.openGroupChat(group, chat -> metrics.time("loadMessages", () -> showChat(chat)), this::showError);
+    }
+
+    /**
+     * Zeigt einen im Hintergrund geöffneten Chat an: Kopfzeile und die bereits
+     * geladene letzte Seite des Verlaufs.
+     */
+    private void showChat(ChatSnapshot chat) {
+        this.isGroupChat = chat.isGroup();
+        this.currentChatId = chat.getChatId();
+
+        // Header Update
+        chatHeaderBox.setVisible(true);
+        headerNameLabel.setText(chat.getTitle());
+        headerStatusText = chat.isGroup() ? chat.getStatusText() : formatUserInfo(chat.getInfo(), chat.getStatusText());
+        headerStatusLabel.setText(headerStatusText);
+        if (typingTimeout != null) typingTimeout.stop();
+        headerStatusDot.setFill(chat.isGroup() ? Color.TRANSPARENT : chat.isOnline() ? Color.LIMEGREEN : Color.GRAY);
+        chatHeaderBox.getChildren().set(0, createAvatar(chat.getTitle(), 20));
+
+        messageModel = chat.getMessages();
+        messageModel.addListener(this::keepAnchor);
+        anchorIndex = -1;
+        messageList.setItems(messageModel);
+        if (!messageModel.isEmpty()) messageList.scrollTo(messageModel.size() - 1); // Auto-Scroll
+    }
+
+    /**
+     * Hängt nach einer Änderungsmeldung nur neue Nachrichten an; der Verlauf wird im
+     * Hintergrund gelesen. Stand die Ansicht am Ende, scrollt sie mit.
+     */
+    private void refreshMessages() {
+        if (messageModel == null) return;
+        MessageListModel model = messageModel;
+        long start = System.nanoTime();
+        model.refreshAsync(appended -> {
+            metrics.record("refreshMessages", System.nanoTime() - start); // Inkl. Hintergrund-Scan
+            if (appended == 0 || model != messageModel) return;
+            IndexedCell<?> last = messageFlow != null ? messageFlow.getLastVisibleCell() : null;
+            boolean atBottom = last == null || last.getIndex() >= model.size() - 1 - appended;
+            if (atBottom) messageList.scrollTo(model.size() - 1);
+            markVisibleRead();
+        });
+    }
+
+    /**
+     * Merkt sich die oberste sichtbare Zeile und lädt Seiten nach, wenn der Rand des
+     * geladenen Fensters in die Nähe kommt.
+     */
+    private void onMessagesScrolled() {
+        if (anchoring || messageModel == null || messageFlow == null) return;
+        IndexedCell<?> first = messageFlow.getFirstVisibleCell();
+        IndexedCell<?> last = messageFlow.getLastVisibleCell();
+        if (first == null || last == null) return;
+
+        anchorIndex = first.getIndex();
+        anchorOffset = first.getLayoutY();
+        markVisibleRead();
+        int threshold = MessageListModel.DEFAULT_PAGE_SIZE / 2;
+        if (anchorIndex < threshold) {
+            messageModel.loadOlder();
+        } else if (last.getIndex() >= messageModel.size() - threshold) {
+            messageModel.loadNewer();
         }
     }
 
-    private void openPrivateChat(User partner) {
-        try {
-            this.isGroupChat = false; 
-            this.currentChatId = chatService.createChatRoom(currentUser, partner.getUsername());
-            
-            // Header Update
-            chatHeaderBox.setVisible(true);
-            headerNameLabel.setText(partner.getUsername());
-            
-            // HIER WAR DER FEHLER:
-            headerStatusLabel.setText(formatUserInfo(partner)); 
-            
-            headerStatusDot.setFill(partner.isOnline() ? Color.LIMEGREEN : Color.GRAY);
-            chatHeaderBox.getChildren().set(0, createAvatar(partner.getUsername(), 20));
+    /**
+     * Lässt eine Datei auswählen und sendet sie im Hintergrund als Anhang; hochgeladen
+     * wird nur der Inhalt, im Chat steht danach der Verweis.
+     */
+    private void sendFile() {
+        if (currentChatId == -1) return;
+        java.io.File file = new FileChooser().showOpenDialog(getScene().getWindow());
+        if (file == null) return;
+        int chatId = currentChatId;
+        boolean group = isGroupChat;
+        data.run(() -> chatService.sendFile(chatId, group, currentUser, file.toPath()), this::showError);
+    }
 
-            loadMessages();
-        } catch (Exception e) { e.printStackTrace(); }
+    private String typingKey() {
+        return (isGroupChat ? "group-" : "room-") + currentChatId;
     }
-    
-    private void openGroupChat(GruppenRoom group) {
-        try {
-            this.isGroupChat = true; // WICHTIG
-            this.currentChatId = group.getGroupId();
-            
-            // Header Update
-            chatHeaderBox.setVisible(true);
-            headerNameLabel.setText(group.getName());
-            headerStatusLabel.setText(group.getParticipants().size() + " Teilnehmer");
-            headerStatusDot.setFill(Color.TRANSPARENT);
-            chatHeaderBox.getChildren().set(0, createAvatar(group.getName(), 20));
-            
-            loadMessages();
-        } catch (Exception e) { e.printStackTrace(); }
+
+    /**
+     * Meldet einen Tastendruck im Eingabefeld; die Drossel lässt höchstens ein
+     * Tipp-Signal pro Intervall durch.
+     */
+    private void onKeystroke() {
+        if (currentChatId == -1 || !typingThrottle.onKeystroke(typingKey())) return;
+        int chatId = currentChatId;
+        boolean group = isGroupChat;
+        data.run(() -> chatService.sendTyping(chatId, group, currentUser), this::showError);
     }
 
-    private void loadMessages() {
-        messageContainer.getChildren().clear();
-        try {
-            List<String> rawMessages;
-            // Unterscheidung woher wir Nachrichten laden
-            if (isGroupChat) {
-                rawMessages = chatService.getGroupMessages(currentChatId);
-            } else {
-                // Hier müssen wir aufpassen: showMessage gibt bei dir Strings zurück
-                // Falls du es auf Message-Objekte geändert hast (wie empfohlen), ist das hier anders.
-                // Ich nutze hier die String-Variante als Fallback, da ich deinen aktuellen Service-Stand nicht zu 100% kenne.
-                // Falls du Message-Objekte hast, musst du das Casting anpassen.
-                 // Annahme: Du hast es auf List<Message> geändert wie im vorletzten Schritt.
-                 List<Message> msgs = chatService.showMessage(currentChatId);
-                 for (Message m : msgs) {
-                     addMessageBubble(m);
-                 }
-                 return; 
-            }
-            
-            // Fallback für Gruppen (da getGroupMessages oft noch Strings liefert in alter Version)
-            // Falls du auch getGroupMessages auf List<Message> umgestellt hast, nutze die Logik oben!
-            for (String s : rawMessages) {
-                // Simples Anzeigen für Strings
-                Label l = new Label(s);
-                messageContainer.getChildren().add(l);
-            }
-            
-        } catch (Exception e) { e.printStackTrace(); }
+    /**
+     * Zeigt im Kopf des offenen Chats an, dass ein anderer Teilnehmer tippt. Ohne
+     * neues Signal verschwindet die Anzeige nach einer Weile wieder.
+     */
+    private void showTyping(int chatId, boolean group, String user) {
+        if (chatId != currentChatId || group != isGroupChat || user.equals(currentUser)) return;
+        if (typingTimeout == null) {
+            // Länger als das Intervall der Drossel, damit die Anzeige beim Weitertippen stehen bleibt
+            typingTimeout = new PauseTransition(Duration.millis(TypingThrottle.DEFAULT_INTERVAL.toMillis() + 2000));
+            typingTimeout.setOnFinished(e -> headerStatusLabel.setText(headerStatusText));
+        }
+        headerStatusLabel.setText(user + " tippt...");
+        typingTimeout.playFromStart();
     }
 
-    private void addMessageBubble(Message msg) {
-        boolean isOwn = msg.getSender().getUsername().equals(currentUser);
-        
-        Text text = new Text(msg.getContent());
-        text.setFill(Color.BLACK);
-        text.setFont(Font.font("Segoe UI", 14));
-        TextFlow textFlow = new TextFlow(text);
-        
-        Label timeLabel = new Label(msg.getTimestamp().format(TIME_FORMATTER));
-        timeLabel.getStyleClass().add("timestamp");
-        timeLabel.setPadding(new Insets(5, 0, 0, 8));
-        
-        HBox contentBox = new HBox(textFlow, timeLabel);
-        contentBox.setAlignment(Pos.BOTTOM_RIGHT); 
-        contentBox.getStyleClass().add(isOwn ? "bubble-own" : "bubble-other");
-        contentBox.setMaxWidth(400);
-
-        HBox container = new HBox(contentBox);
-        container.setAlignment(isOwn ? Pos.CENTER_RIGHT : Pos.CENTER_LEFT);
-        messageContainer.getChildren().add(container);
+    /**
+     * Meldet in Gruppen die unterste sichtbare Nachricht als gelesen.
+     */
+    private void markVisibleRead() {
+        if (!isGroupChat || messageModel == null || messageFlow == null) return;
+        IndexedCell<?> last = messageFlow.getLastVisibleCell();
+        if (last == null || last.getIndex() < 0 || last.getIndex() >= messageModel.size()) return;
+        receipts.markRead(currentChatId, messageModel.sequenceAt(last.getIndex()));
+    }
+
+    /**
+     * Hält die oberste sichtbare Nachricht an ihrer Position, wenn oberhalb Zeilen
+     * eingefügt (ältere Seite) oder verdrängt werden.
+     */
+    private void keepAnchor(ListChangeListener.Change<? extends Message> change) {
+        if (anchorIndex < 0) return;
+        int shift = 0;
+        while (change.next()) {
+            if (change.getFrom() > anchorIndex + shift) continue;
+            shift += change.getAddedSize() - change.getRemovedSize();
+        }
+        if (shift == 0) return;
+        anchorIndex = Math.max(0, anchorIndex + shift);
+        anchoring = true;
+        try {
+            messageList.scrollTo(anchorIndex);
+            if (messageFlow != null) messageFlow.scrollPixels(-anchorOffset);
+        } finally {
+            anchoring = false;
+        }
     }
 
     // Dialoge
@@ -399,8 +484,8 @@ public class MainView extends BorderPane {
         dialog.setTitle("Kontakt");
         dialog.setHeaderText("Name eingeben:");
         dialog.showAndWait().ifPresent(name -> {
-            try { chatService.addContact(name, currentUser); } 
-            catch (Exception ex) { new Alert(Alert.AlertType.ERROR, ex.getMessage()).show(); }
+            String user = currentUser;
+            data.run(() -> chatService.addContact(name, user), this::showError);
         });
     }
     
@@ -409,32 +494,26 @@ public class MainView extends BorderPane {
         dialog.setTitle("Neue Gruppe");
         dialog.setHeaderText("Gruppenname:");
         dialog.showAndWait().ifPresent(name -> {
-            try { 
-                chatService.createGruppenRoom(currentUser, name, "Eine neue Gruppe"); 
-            } catch (Exception ex) { 
-                new Alert(Alert.AlertType.ERROR, ex.getMessage()).show(); 
-            }
+            String user = currentUser;
+            data.run(() -> chatService.createGruppenRoom(user, name, "Eine neue Gruppe"), this::showError);
         });
     }
 
     // Utilities
-    private Circle createAvatar(String name, double radius) {
-        Circle circle = new Circle(radius);
-        int hash = name.hashCode();
-        int r = (hash & 0xFF0000) >> 16;
-        int g = (hash & 0x00FF00) >> 8;
-        int b = hash & 0x0000FF;
-        circle.setFill(Color.rgb(Math.abs(r % 200), Math.abs(g % 200), Math.abs(b % 200)));
-        return circle;
+    private void showError(RuntimeException e) {
+        new Alert(Alert.AlertType.ERROR, e.getMessage()).show();
+    }
+
+    private ImageView createAvatar(String name, int radius) {
+        return new ImageView(RENDER_CACHE.avatar(name, radius)); // Bild wird nur einmal gerendert
     }
     
-    private String formatUserInfo(User user) {
-        UserInfo info = user.getUserInfo();
+    private String formatUserInfo(UserInfo info, String statusText) {
         if (info == null) return "";
         
         // Wenn Custom gewählt wurde und Text da ist -> Zeige Text
-        if (info == UserInfo.CUSTOM && user.getStatusText() != null && !user.getStatusText().isEmpty()) {
-            return user.getStatusText();
+        if (info == UserInfo.CUSTOM && statusText != null && !statusText.isEmpty()) {
+            return statusText;
         }
         
         // Sonst: Enum schön formatieren (z.B. IN_DER_SCHULE -> In der Schule)
@@ -463,7 +542,7 @@ public class MainView extends BorderPane {
         headerTitle.setStyle("-fx-text-fill: white; -fx-font-size: 18px; -fx-font-weight: bold;");
         
         // Großes Avatar im Header
-        Circle bigAvatar = createAvatar(currentUser, 45);
+        Circle bigAvatar = new Circle(45, new ImagePattern(RENDER_CACHE.avatar(currentUser, 45)));
         bigAvatar.setStroke(Color.WHITE);
         bigAvatar.setStrokeWidth(3);
         
@@ -526,28 +605,24 @@ public class MainView extends BorderPane {
         // Ergebnis konvertieren
         dialog.setResultConverter(btn -> {
             if (btn == saveType) {
-                try {
-                    String newName = nameField.getText().trim();
-                    UserInfo newStatus = statusCombo.getValue();
-                    String statusText = customStatusField.getText().trim();
-                    
-                    if (!newName.isEmpty()) {
-                        // Update im Service aufrufen (mit 4 Parametern!)
-                        this.currentUser = chatService.updateUserProfile(currentUser, newName, newStatus, statusText);
-                        return true;
-                    }
-                } catch (Exception e) {
-                    new Alert(Alert.AlertType.ERROR, e.getMessage()).show();
+                String newName = nameField.getText().trim();
+                UserInfo newStatus = statusCombo.getValue();
+                String statusText = customStatusField.getText().trim();
+                
+                if (!newName.isEmpty()) {
+                    // Update im Hintergrund, danach UI neu laden um Avatar/Namen im Header zu aktualisieren
+                    String oldName = currentUser;
+                    data.submit(() -> chatService.updateUserProfile(oldName, newName, newStatus, statusText), name -> {
+                        this.currentUser = name;
+                        initLayout();
+                        refreshLists();
+                    }, this::showError);
+                    return true;
                 }
             }
             return false;
         });
 
-        dialog.showAndWait().ifPresent(success -> {
-            if (success) {
-                // UI neu laden um Avatar/Namen im Header zu aktualisieren
-                initLayout(); 
-            }
-        });
+        dialog.showAndWait();
     }
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package ui;
+
+import domain.Message;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.scene.control.Label;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextFlow;
+
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Sprechblase einer Nachricht: {@code HBox} (Ausrichtung) → {@code HBox} (Blase) →
+ * {@code TextFlow} + Zeitstempel. Der Knotengraph wird einmal aufgebaut und über
+ * {@link #show} mit wechselnden Nachrichten befüllt, damit Zellen einer virtualisierten
+ * Liste ihn wiederverwenden können.
+ */
+public class MessageBubble extends HBox {
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+    private static final Font TEXT_FONT = Font.font("Segoe UI", 14);
+
+    private final HBox contentBox;      // Die eigentliche Blase
+    private final Label senderLabel;    // Absender, nur in Gruppen bei fremden Nachrichten
+    private final Text text;            // Nachrichtentext
+    private final Label timeLabel;      // Uhrzeit
+
+    /**
+     * Baut den Knotengraph einer leeren Sprechblase auf.
+     */
+    public MessageBubble() {
+        text = new Text();
+        text.setFill(Color.BLACK);
+        text.setFont(TEXT_FONT);
+        TextFlow textFlow = new TextFlow(text);
+
+        senderLabel = new Label();
+        senderLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 11px; -fx-text-fill: #00a884;");
+        VBox body = new VBox(2, senderLabel, textFlow);
+
+        timeLabel = new Label();
+        timeLabel.getStyleClass().add("timestamp");
+        timeLabel.setPadding(new Insets(5, 0, 0, 8));
+
+        contentBox = new HBox(body, timeLabel);
+        contentBox.setAlignment(Pos.BOTTOM_RIGHT);
+        contentBox.setMaxWidth(400);
+        getChildren().add(contentBox);
+    }
+
+    /**
+     * Zeigt eine Nachricht in der Blase an.
+     *
+     * @param message    Die Nachricht
+     * @param own        true für eigene Nachrichten (rechts, grün)
+     * @param showSender true wenn der Absender über dem Text stehen soll
+     */
+    public void show(Message message, boolean own, boolean showSender) {
+        text.setText(message.getContent());
+        timeLabel.setText(message.getTimestamp().format(TIME_FORMATTER));
+
+        senderLabel.setText(showSender ? message.getSender().getUsername() : null);
+        senderLabel.setVisible(showSender);
+        senderLabel.setManaged(showSender);
+
+        contentBox.getStyleClass().setAll(own ? "bubble-own" : "bubble-other");
+        setAlignment(own ? Pos.CENTER_RIGHT : Pos.CENTER_LEFT);
+    }
+}
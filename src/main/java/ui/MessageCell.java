@@ -0,0 +1,71 @@
+package ui;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import domain.Message;
+import javafx.scene.control.ContentDisplay;
+import javafx.scene.control.ListCell;
+
+/**
+ * Zelle der virtualisierten Nachrichtenliste. Jede Zelle besitzt genau eine
+ * {@link MessageBubble}, die beim Scrollen mit der jeweils sichtbaren Nachricht neu
+ * befüllt wird. Die Anzahl der Knoten hängt damit von der Höhe des Sichtbereichs ab,
+ * nicht von der Länge des Verlaufs. Mit einem {@link RenderCache} wird die Höhe einer
+ * Blase pro Nachricht und Breite nur einmal gemessen.
+ */
+public class MessageCell extends ListCell<Message> {
+    private final MessageBubble bubble = new MessageBubble();
+    private final Supplier<String> currentUser;     // Für die Unterscheidung eigene/fremde Nachricht
+    private final BooleanSupplier groupChat;        // In Gruppen wird der Absender angezeigt
+    private final RenderCache cache;                // Gemessene Blasenhöhen (optional)
+    private boolean showSender;                     // Absenderzeile der aktuellen Nachricht
+
+    /**
+     * Erstellt eine Zelle.
+     *
+     * @param currentUser Liefert den Namen des angemeldeten Benutzers
+     * @param groupChat   Liefert true, wenn gerade ein Gruppenchat angezeigt wird
+     */
+    public MessageCell(Supplier<String> currentUser, BooleanSupplier groupChat) {
+        this(currentUser, groupChat, null);
+    }
+
+    /**
+     * Erstellt eine Zelle, die gemessene Höhen im Cache ablegt.
+     *
+     * @param currentUser Liefert den Namen des angemeldeten Benutzers
+     * @param groupChat   Liefert true, wenn gerade ein Gruppenchat angezeigt wird
+     * @param cache       Cache für Blasenhöhen oder null
+     */
+    public MessageCell(Supplier<String> currentUser, BooleanSupplier groupChat, RenderCache cache) {
+        this.currentUser = currentUser;
+        this.groupChat = groupChat;
+        this.cache = cache;
+        getStyleClass().add("message-cell");
+        setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
+    }
+
+    @Override
+    protected void updateItem(Message message, boolean empty) {
+        super.updateItem(message, empty);
+        if (empty || message == null) {
+            setGraphic(null);
+            return;
+        }
+        boolean own = message.getSender().getUsername().equals(currentUser.get());
+        showSender = groupChat.getAsBoolean() && !own;
+        bubble.show(message, own, showSender);
+        setGraphic(bubble);
+    }
+
+    @Override
+    protected double computePrefHeight(double width) {
+        Message message = getItem();
+        // Vor dem ersten CSS-Durchlauf stimmen Schrift und Abstände noch nicht
+        if (cache == null || message == null || isEmpty() || getSkin() == null || width <= 0) {
+            return super.computePrefHeight(width);
+        }
+        return cache.bubbleHeight(message, width, showSender, () -> super.computePrefHeight(width));
+    }
+}
@@ -0,0 +1,401 @@
+package ui;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+import domain.Message;
+import javafx.collections.ObservableListBase;
+import store.MessageStore;
+
+/**
+ * Beobachtbare Nachrichtenliste für die virtualisierte Chatansicht.
+ *
+ * Die Liste hält nur ein Fenster des Verlaufs: Beim Öffnen die letzte Seite, ältere
+ * Seiten werden über {@link #loadOlder()} im Hintergrund nachgeladen und vorne
+ * eingefügt. Wächst das Fenster über {@code maxPages} Seiten, wird am anderen Ende
+ * verdrängt; das Fenster folgt dann nicht mehr dem Ende des Verlaufs, bis
+ * {@link #loadNewer()} es wieder erreicht. Der Speicherbedarf bleibt so unabhängig
+ * davon, wie weit zurückgescrollt wird.
+ *
+ * {@link #refresh()} hängt nur neu hinzugekommene Nachrichten an und entfernt
+ * gelöschte aus dem Fenster; beides wird als Einfüge- bzw. Löschänderung gemeldet,
+ * sodass die {@code ListView} nur betroffene Zeilen neu befüllt. {@link #refreshAsync}
+ * liest den Verlauf dafür im Hintergrund und ändert die Liste erst auf dem FX-Thread.
+ */
+public class MessageListModel extends ObservableListBase<Message> {
+    public static final int DEFAULT_PAGE_SIZE = 50;     // Nachrichten pro nachgeladener Seite
+    public static final int DEFAULT_MAX_PAGES = 5;      // Seiten, die höchstens im Fenster bleiben
+
+    private final MessageStore store;       // Verlauf des Raums (wird nur gelesen)
+    private final int pageSize;
+    private final int maxWindow;            // Maximale Anzahl Nachrichten im Fenster
+    private final Executor loader;           // Lädt Seiten im Hintergrund
+    private final Executor fxThread;        // Wendet geladene Seiten an
+    private long[] seqs;                    // Sequenzen des Fensters in Reihenfolge
+    private Message[] items;                // Zugehörige Nachrichten
+    private int size;
+    private long windowStart;               // Erste durchsuchte Sequenz des Fensters
+    private long windowEnd;                 // Sequenz nach der letzten durchsuchten
+    private boolean following;              // Fenster reicht bis zum Ende des Verlaufs
+    private boolean loading;                // Eine Seite wird gerade geladen
+    private IntConsumer queuedRefresh;      // Während des Ladens angeforderter Abgleich
+    private long appends;                   // Angehängte Nachrichten (Statistik)
+    private long pagesLoaded;               // Nachgeladene Seiten (Statistik)
+    private long evicted;                   // Verdrängte Nachrichten (Statistik)
+
+    /**
+     * Erstellt die Liste mit Standardgrößen, die Seiten synchron lädt.
+     *
+     * @param store Verlauf des Raums
+     */
+    public MessageListModel(MessageStore store) {
+        this(store, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES, Runnable::run, Runnable::run);
+    }
+
+    /**
+     * Erstellt die Liste und lädt sofort die letzte Seite.
+     *
+     * @param store    Verlauf des Raums
+     * @param pageSize Nachrichten pro Seite
+     * @param maxPages Seiten, die höchstens im Fenster bleiben (mindestens 2)
+     * @param loader   Führt das Laden einer Seite aus, z.B. ein Hintergrund-Executor
+     * @param fxThread Wendet das Ergebnis an, z.B. {@code Platform::runLater}
+     */
+    public MessageListModel(MessageStore store, int pageSize, int maxPages, Executor loader, Executor fxThread) {
+        this.store = Objects.requireNonNull(store, "Store darf nicht null sein");
+        if (pageSize < 1 || maxPages < 2) {
+            throw new IllegalArgumentException("Ungültige Seitengröße: " + pageSize + " x " + maxPages);
+        }
+        this.pageSize = pageSize;
+        this.maxWindow = pageSize * maxPages;
+        this.loader = Objects.requireNonNull(loader, "Loader darf nicht null sein");
+        this.fxThread = Objects.requireNonNull(fxThread, "FxThread darf nicht null sein");
+        this.seqs = new long[maxWindow + pageSize];
+        this.items = new Message[maxWindow + pageSize];
+
+        Page latest = scanBack(store.nextSequence(), pageSize);
+        System.arraycopy(latest.seqs, 0, seqs, 0, latest.count);
+        System.arraycopy(latest.items, 0, items, 0, latest.count);
+        size = latest.count;
+        windowStart = latest.start;
+        windowEnd = latest.end;
+        following = true;
+    }
+
+    /**
+     * Gleicht das Fenster mit dem Verlauf ab: gelöschte Nachrichten werden entfernt
+     * und, solange das Fenster dem Ende folgt, neue angehängt. Muss auf dem FX-Thread
+     * aufgerufen werden.
+     *
+     * @return Anzahl der neu angehängten Nachrichten
+     */
+    public int refresh() {
+        Page fresh = scanChanges(Arrays.copyOf(seqs, size), windowEnd, following);
+        return applyChanges(fresh);
+    }
+
+    /**
+     * Wie {@link #refresh()}, liest den Verlauf aber im Hintergrund. Hat sich das
+     * Fenster bis zum Ergebnis verschoben, wird es verworfen. Läuft gerade ein
+     * Ladevorgang, wird der Abgleich danach nachgeholt.
+     *
+     * @param done Erhält auf dem FX-Thread die Anzahl der angehängten Nachrichten
+     */
+    public void refreshAsync(IntConsumer done) {
+        Objects.requireNonNull(done, "Done darf nicht null sein");
+        if (loading) {
+            queuedRefresh = done;
+            return;
+        }
+        loading = true;
+        long[] window = Arrays.copyOf(seqs, size);
+        long from = windowEnd;
+        boolean follow = following;
+        loader.execute(() -> deliver(() -> scanChanges(window, from, follow), page -> {
+            if (from != windowEnd) return; // Fenster hat sich inzwischen verschoben
+            done.accept(applyChanges(page));
+        }));
+    }
+
+    /**
+     * Sucht gelöschte Nachrichten im Fenster und, falls es dem Ende folgt, neue dahinter.
+     */
+    private Page scanChanges(long[] window, long from, boolean follow) {
+        Page fresh = follow ? scanForward(from, Integer.MAX_VALUE) : new Page(0);
+        if (!follow) fresh.end = from;
+        fresh.first = store.firstSequence();
+        fresh.gone = Arrays.stream(window).filter(seq -> !store.contains(seq)).toArray();
+        return fresh;
+    }
+
+    private int applyChanges(Page fresh) {
+        removeAll(fresh.gone);
+        windowStart = Math.max(windowStart, fresh.first);
+        if (!following) return 0;
+
+        windowEnd = fresh.end;
+        if (fresh.count == 0) return 0;
+        append(fresh);
+        appends += fresh.count;
+        evictOldest();
+        return fresh.count;
+    }
+
+    /**
+     * Lädt die Seite vor dem Fenster im Hintergrund und fügt sie vorne ein.
+     *
+     * @return false wenn bereits geladen wird oder es keine älteren Nachrichten gibt
+     */
+    public boolean loadOlder() {
+        if (loading || !hasOlder()) return false;
+        loading = true;
+        long from = windowStart;
+        loader.execute(() -> deliver(() -> scanBack(from, pageSize), page -> {
+            if (from != windowStart) return; // Fenster hat sich inzwischen verschoben
+            windowStart = page.start;
+            prepend(page);
+            pagesLoaded++;
+            evictNewest();
+        }));
+        return true;
+    }
+
+    /**
+     * Lädt die Seite nach dem Fenster im Hintergrund und hängt sie an. Erreicht sie
+     * das Ende des Verlaufs, folgt das Fenster wieder neuen Nachrichten.
+     *
+     * @return false wenn bereits geladen wird oder das Fenster schon am Ende ist
+     */
+    public boolean loadNewer() {
+        if (loading || following) return false;
+        loading = true;
+        long from = windowEnd;
+        loader.execute(() -> deliver(() -> scanForward(from, pageSize), page -> {
+            if (from != windowEnd) return;
+            windowEnd = page.end;
+            following = page.reachedEnd;
+            append(page);
+            pagesLoaded++;
+            evictOldest();
+        }));
+        return true;
+    }
+
+    /**
+     * Lädt eine Seite im aufrufenden Thread und übergibt sie dem FX-Thread.
+     */
+    private void deliver(Supplier<Page> scan, Consumer<Page> apply) {
+        Page page;
+        try {
+            page = scan.get();
+        } catch (RuntimeException e) {
+            fxThread.execute(() -> loading = false);
+            throw e;
+        }
+        fxThread.execute(() -> {
+            loading = false;
+            apply.accept(page);
+            IntConsumer queued = queuedRefresh;
+            queuedRefresh = null;
+            if (queued != null) refreshAsync(queued);
+        });
+    }
+
+    /**
+     * Sucht rückwärts ab {@code end} bis zu {@code limit} vorhandene Nachrichten.
+     */
+    private Page scanBack(long end, int limit) {
+        Page page = new Page(limit);
+        long first = store.firstSequence();
+        long seq = end;
+        while (seq > first && page.count < limit) {
+            seq--;
+            Message message = store.contains(seq) ? store.get(seq) : null;
+            if (message != null) page.add(seq, message);
+        }
+        page.reverse();
+        page.start = seq;
+        page.end = end;
+        return page;
+    }
+
+    /**
+     * Sucht vorwärts ab {@code start} bis zu {@code limit} vorhandene Nachrichten.
+     */
+    private Page scanForward(long start, int limit) {
+        long next = store.nextSequence();
+        Page page = new Page((int) Math.min(limit, Math.max(next - start, 0)));
+        long seq = Math.max(start, store.firstSequence());
+        while (seq < next && page.count < limit) {
+            Message message = store.contains(seq) ? store.get(seq) : null;
+            if (message != null) page.add(seq, message);
+            seq++;
+        }
+        page.start = start;
+        page.end = Math.max(seq, start);
+        page.reachedEnd = seq >= next;
+        return page;
+    }
+
+    /**
+     * Entfernt die angegebenen Sequenzen (aufsteigend) aus dem Fenster.
+     */
+    private void removeAll(long[] gone) {
+        if (gone.length == 0) return;
+        int kept = 0;
+        int next = 0;
+        boolean changed = false;
+        for (int i = 0; i < size; i++) {
+            while (next < gone.length && gone[next] < seqs[i]) next++;
+            if (next == gone.length || gone[next] != seqs[i]) {
+                seqs[kept] = seqs[i];
+                items[kept++] = items[i];
+                continue;
+            }
+            if (!changed) {
+                beginChange();
+                changed = true;
+            }
+            nextRemove(kept, items[i]); // Index in der Liste nach den vorherigen Löschungen
+        }
+        if (!changed) return;
+        Arrays.fill(items, kept, size, null);
+        size = kept;
+        endChange();
+    }
+
+    private void prepend(Page page) {
+        ensureCapacity(size + page.count);
+        System.arraycopy(seqs, 0, seqs, page.count, size);
+        System.arraycopy(items, 0, items, page.count, size);
+        System.arraycopy(page.seqs, 0, seqs, 0, page.count);
+        System.arraycopy(page.items, 0, items, 0, page.count);
+        size += page.count;
+        if (page.count == 0) return;
+        beginChange();
+        nextAdd(0, page.count);
+        endChange();
+    }
+
+    private void append(Page page) {
+        ensureCapacity(size + page.count);
+        System.arraycopy(page.seqs, 0, seqs, size, page.count);
+        System.arraycopy(page.items, 0, items, size, page.count);
+        int from = size;
+        size += page.count;
+        if (page.count == 0) return;
+        beginChange();
+        nextAdd(from, size);
+        endChange();
+    }
+
+    /**
+     * Verdrängt die neuesten Nachrichten, wenn das Fenster zu groß ist.
+     */
+    private void evictNewest() {
+        int excess = size - maxWindow;
+        if (excess <= 0) return;
+        beginChange();
+        nextRemove(size - excess, Arrays.asList(Arrays.copyOfRange(items, size - excess, size)));
+        Arrays.fill(items, size - excess, size, null);
+        size -= excess;
+        windowEnd = seqs[size - 1] + 1;
+        following = false;
+        evicted += excess;
+        endChange();
+    }
+
+    /**
+     * Verdrängt die ältesten Nachrichten, wenn das Fenster zu groß ist.
+     */
+    private void evictOldest() {
+        int excess = size - maxWindow;
+        if (excess <= 0) return;
+        beginChange();
+        nextRemove(0, Arrays.asList(Arrays.copyOfRange(items, 0, excess)));
+        System.arraycopy(seqs, excess, seqs, 0, size - excess);
+        System.arraycopy(items, excess, items, 0, size - excess);
+        Arrays.fill(items, size - excess, size, null);
+        size -= excess;
+        windowStart = seqs[0];
+        evicted += excess;
+        endChange();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= seqs.length) return;
+        int grown = Math.max(capacity, seqs.length * 2);
+        seqs = Arrays.copyOf(seqs, grown);
+        items = Arrays.copyOf(items, grown);
+    }
+
+    @Override
+    public Message get(int index) {
+        Objects.checkIndex(index, size);
+        return items[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /** @return true wenn es vor dem Fenster noch Nachrichten gibt */
+    public boolean hasOlder() { return windowStart > store.firstSequence(); }
+
+    /** @return true wenn das Fenster nicht bis zum Ende des Verlaufs reicht */
+    public boolean hasNewer() { return !following; }
+
+    /** @return true während eine Seite geladen wird */
+    public boolean isLoading() { return loading; }
+
+    /** @return Sequenz der Nachricht an der Position */
+    public long sequenceAt(int index) {
+        Objects.checkIndex(index, size);
+        return seqs[index];
+    }
+
+    /** @return Anzahl der seit dem Öffnen angehängten Nachrichten */
+    public long getAppends() { return appends; }
+
+    /** @return Anzahl der nachgeladenen Seiten */
+    public long getPagesLoaded() { return pagesLoaded; }
+
+    /** @return Anzahl der verdrängten Nachrichten */
+    public long getEvicted() { return evicted; }
+
+    /**
+     * Ergebnis einer Suche im Verlauf: gefundene Nachrichten und durchsuchter Bereich.
+     */
+    private static final class Page {
+        private final long[] seqs;
+        private final Message[] items;
+        private int count;
+        private long start;             // Erste durchsuchte Sequenz
+        private long end;               // Sequenz nach der letzten durchsuchten
+        private boolean reachedEnd;     // Suche hat das Ende des Verlaufs erreicht
+        private long first;             // Erste Sequenz des Verlaufs beim Abgleich
+        private long[] gone = new long[0]; // Beim Abgleich nicht mehr vorhandene Sequenzen
+
+        private Page(int capacity) {
+            seqs = new long[capacity];
+            items = new Message[capacity];
+        }
+
+        private void add(long seq, Message message) {
+            seqs[count] = seq;
+            items[count++] = message;
+        }
+
+        private void reverse() {
+            for (int i = 0, j = count - 1; i < j; i++, j--) {
+                long s = seqs[i]; seqs[i] = seqs[j]; seqs[j] = s;
+                Message m = items[i]; items[i] = items[j]; items[j] = m;
+            }
+        }
+    }
+}
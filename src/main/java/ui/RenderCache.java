@@ -0,0 +1,173 @@
+package ui;
+
+import java.util.Objects;
+import java.util.function.DoubleSupplier;
+
+import domain.Message;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import store.LruCache;
+
+/**
+ * Cache für wiederkehrende Darstellungsarbeit der Oberfläche.
+ *
+ * Avatare werden einmal pro Name und Radius als Bild gerendert und danach nur noch
+ * von {@code ImageView}s referenziert. Für Sprechblasen wird die gemessene Höhe pro
+ * Nachricht, Breite und Absenderzeile gemerkt, sodass beim Scrollen und Neubefüllen
+ * von Zellen kein erneutes Text-Layout zum Messen nötig ist. Beide Caches sind in
+ * Bytes begrenzt und verdrängen die am längsten nicht genutzten Einträge.
+ *
+ * Höhen werden über die Identität der Nachricht zugeordnet; sie bleiben gültig,
+ * solange das Nachrichtenfenster dieselben Objekte hält.
+ */
+public class RenderCache {
+    public static final long DEFAULT_AVATAR_BYTES = 4 * 1024 * 1024;   // Gerenderte Avatare
+    public static final long DEFAULT_LAYOUT_BYTES = 1024 * 1024;       // Gemessene Blasenhöhen
+    private static final int LAYOUT_ENTRY_BYTES = 64;                   // Geschätzt: Schlüssel + Eintrag
+
+    private final LruCache<String, Image> avatars;
+    private final LruCache<LayoutKey, Double> layouts;
+
+    /**
+     * Erstellt einen Cache mit Standardgrenzen.
+     */
+    public RenderCache() {
+        this(DEFAULT_AVATAR_BYTES, DEFAULT_LAYOUT_BYTES);
+    }
+
+    /**
+     * Erstellt einen Cache.
+     *
+     * @param avatarBytes Obergrenze für gerenderte Avatare in Bytes
+     * @param layoutBytes Obergrenze für gemessene Blasenhöhen in Bytes
+     */
+    public RenderCache(long avatarBytes, long layoutBytes) {
+        this.avatars = new LruCache<>(avatarBytes, image -> (int) (image.getWidth() * image.getHeight() * 4));
+        this.layouts = new LruCache<>(layoutBytes, height -> LAYOUT_ENTRY_BYTES);
+    }
+
+    /**
+     * Gibt den Avatar eines Namens zurück und rendert ihn beim ersten Zugriff.
+     *
+     * @param name   Benutzer- oder Gruppenname
+     * @param radius Radius in Pixeln
+     * @return Quadratisches Bild mit einem Kreis in der Farbe des Namens
+     */
+    public Image avatar(String name, int radius) {
+        Objects.requireNonNull(name, "Name darf nicht null sein");
+        String key = radius + ":" + name;
+        Image image = avatars.get(key);
+        if (image == null) {
+            image = renderAvatar(avatarColor(name), radius);
+            avatars.put(key, image);
+        }
+        return image;
+    }
+
+    /**
+     * Gibt die Höhe einer Sprechblase zurück und misst sie nur beim ersten Zugriff.
+     *
+     * @param message    Die angezeigte Nachricht
+     * @param width      Verfügbare Breite
+     * @param showSender true wenn die Absenderzeile angezeigt wird
+     * @param measure    Misst die Höhe, falls sie nicht im Cache liegt
+     * @return Die bevorzugte Höhe
+     */
+    public double bubbleHeight(Message message, double width, boolean showSender, DoubleSupplier measure) {
+        LayoutKey key = new LayoutKey(message, width, showSender);
+        Double height = layouts.get(key);
+        if (height == null) {
+            height = measure.getAsDouble();
+            layouts.put(key, height);
+        }
+        return height;
+    }
+
+    /**
+     * Berechnet die Farbe eines Avatars aus dem Hash des Namens.
+     *
+     * @param name Der Name
+     * @return Farbe als 0xRRGGBB
+     */
+    static int avatarColor(String name) {
+        int hash = name.hashCode();
+        int r = Math.abs(((hash & 0xFF0000) >> 16) % 200);
+        int g = Math.abs(((hash & 0x00FF00) >> 8) % 200);
+        int b = Math.abs((hash & 0x0000FF) % 200);
+        return (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Zeichnet einen geglätteten Kreis; die Deckkraft am Rand ergibt sich aus dem
+     * Abstand des Pixelmittelpunkts zum Kreisrand.
+     */
+    private static Image renderAvatar(int rgb, int radius) {
+        int size = radius * 2;
+        WritableImage image = new WritableImage(size, size);
+        PixelWriter pixels = image.getPixelWriter();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                double dx = x + 0.5 - radius;
+                double dy = y + 0.5 - radius;
+                double coverage = Math.min(1, Math.max(0, radius - Math.sqrt(dx * dx + dy * dy) + 0.5));
+                pixels.setArgb(x, y, ((int) Math.round(coverage * 255) << 24) | rgb);
+            }
+        }
+        return image;
+    }
+
+    /** @return Trefferquote des Avatar-Caches (1 wenn noch nicht gelesen wurde) */
+    public double getAvatarHitRate() { return hitRate(avatars); }
+
+    /** @return Trefferquote des Layout-Caches (1 wenn noch nicht gelesen wurde) */
+    public double getLayoutHitRate() { return hitRate(layouts); }
+
+    /** @return Anzahl der verdrängten Avatare */
+    public long getAvatarEvictions() { return avatars.getEvictions(); }
+
+    /** @return Anzahl der verdrängten Blasenhöhen */
+    public long getLayoutEvictions() { return layouts.getEvictions(); }
+
+    /** @return Geschätzte Bytes beider Caches */
+    public long getResidentBytes() { return avatars.getResidentBytes() + layouts.getResidentBytes(); }
+
+    private static double hitRate(LruCache<?, ?> cache) {
+        long hits = cache.getHits();
+        long total = hits + cache.getMisses();
+        return total == 0 ? 1.0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RenderCache{avatarHitRate=%.3f, layoutHitRate=%.3f, avatarEvictions=%d, layoutEvictions=%d, residentBytes=%d}",
+                getAvatarHitRate(), getLayoutHitRate(), getAvatarEvictions(), getLayoutEvictions(), getResidentBytes());
+    }
+
+    /**
+     * Schlüssel einer gemessenen Blasenhöhe. Die Nachricht wird über ihre Identität verglichen.
+     */
+    private static final class LayoutKey {
+        private final Message message;
+        private final double width;
+        private final boolean showSender;
+
+        private LayoutKey(Message message, double width, boolean showSender) {
+            this.message = Objects.requireNonNull(message, "Message darf nicht null sein");
+            this.width = width;
+            this.showSender = showSender;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof LayoutKey)) return false;
+            LayoutKey other = (LayoutKey) o;
+            return message == other.message && width == other.width && showSender == other.showSender;
+        }
+
+        @Override
+        public int hashCode() {
+            return (System.identityHashCode(message) * 31 + Double.hashCode(width)) * 31 + (showSender ? 1 : 0);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package ui;
+
+import java.util.List;
+import java.util.Objects;
+
+import domain.GruppenRoom;
+import domain.User;
+import domain.UserInfo;
+
+/**
+ * Unveränderlicher Stand der Seitenleiste: Kontakte und Gruppen des angemeldeten
+ * Benutzers. Wird im Hintergrund erstellt und enthält nur Werte, sodass der FX-Thread
+ * beim Anzeigen nicht mehr auf den {@code ChatService} zugreifen muss.
+ */
+public final class SidebarSnapshot {
+    private final List<Contact> contacts;
+    private final List<Group> groups;
+
+    SidebarSnapshot(List<Contact> contacts, List<Group> groups) {
+        this.contacts = List.copyOf(contacts);
+        this.groups = List.copyOf(groups);
+    }
+
+    /** @return Kontakte in Anzeigereihenfolge */
+    public List<Contact> getContacts() { return contacts; }
+
+    /** @return Gruppen in Anzeigereihenfolge */
+    public List<Group> getGroups() { return groups; }
+
+    /**
+     * Ein Kontakt, wie er in der Seitenleiste angezeigt wird.
+     */
+    public static final class Contact {
+        private final int userId;
+        private final String username;
+        private final UserInfo info;
+        private final String statusText;
+        private final boolean online;
+
+        Contact(User user) {
+            this.userId = user.getUserId();
+            this.username = user.getUsername();
+            this.info = user.getUserInfo();
+            this.statusText = user.getStatusText();
+            this.online = user.isOnline();
+        }
+
+        /** @return Die User-ID */
+        public int getUserId() { return userId; }
+
+        /** @return Der Benutzername */
+        public String getUsername() { return username; }
+
+        /** @return Der Status */
+        public UserInfo getInfo() { return info; }
+
+        /** @return Der eigene Statustext (nur bei CUSTOM) */
+        public String getStatusText() { return statusText; }
+
+        /** @return true wenn der Kontakt online ist */
+        public boolean isOnline() { return online; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Contact)) return false;
+            Contact other = (Contact) o;
+            return userId == other.userId && online == other.online && info == other.info
+                    && username.equals(other.username) && Objects.equals(statusText, other.statusText);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, username, info, statusText, online);
+        }
+    }
+
+    /**
+     * Eine Gruppe, wie sie in der Seitenleiste angezeigt wird.
+     */
+    public static final class Group {
+        private final int groupId;
+        private final String name;
+        private final int participantCount;
+
+        Group(GruppenRoom group) {
+            this.groupId = group.getGroupId();
+            this.name = group.getName();
+            this.participantCount = group.getParticipantCount();
+        }
+
+        /** @return Die Gruppen-ID */
+        public int getGroupId() { return groupId; }
+
+        /** @return Der Gruppenname */
+        public String getName() { return name; }
+
+        /** @return Anzahl der Teilnehmer */
+        public int getParticipantCount() { return participantCount; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Group)) return false;
+            Group other = (Group) o;
+            return groupId == other.groupId && participantCount == other.participantCount && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(groupId, name, participantCount);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package ui;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+
+/**
+ * Messwerte der Oberfläche: Dauer der Layout-Pulses, Abstand der Frames, Wartezeit in
+ * der {@code Platform.runLater}-Warteschlange, Zeit in einzelnen Refresh-Methoden und
+ * Anzahl der Knoten im Szenengraph.
+ *
+ * Jeder Messwert wird zusätzlich als JFR-Ereignis ({@code chat.ui.Timing},
+ * {@code chat.ui.NodeCount}) ausgegeben, sofern eine Aufzeichnung läuft. Die
+ * Frame-Messung hält die Pulses dauerhaft aktiv und läuft daher nur, solange sie über
+ * {@link #setFrameTracking(boolean)} eingeschaltet ist.
+ */
+public class UiMetrics {
+    public static final String PULSE = "pulse";         // CSS und Layout eines Pulses
+    public static final String FRAME = "frame";         // Abstand zweier Pulses
+    public static final String QUEUE = "runLater";      // Wartezeit bis zur Ausführung auf dem FX-Thread
+
+    private final Map<String, Timing> timings = new ConcurrentSkipListMap<>();
+    private volatile int nodeCount;
+    private AnimationTimer frameTimer;                  // Misst Frames, solange eingeschaltet
+
+    /**
+     * Erfasst eine Zeitspanne.
+     *
+     * @param section Name des Abschnitts, z.B. {@link #PULSE} oder eine Methode
+     * @param nanos   Dauer in Nanosekunden
+     */
+    public void record(String section, long nanos) {
+        timings.computeIfAbsent(section, name -> new Timing()).record(nanos);
+        UiTimingEvent event = new UiTimingEvent();
+        if (!event.isEnabled()) return;
+        event.section = section;
+        event.elapsed = nanos;
+        event.commit();
+    }
+
+    /**
+     * Führt eine Aktion aus und erfasst ihre Dauer.
+     *
+     * @param section Name des Abschnitts
+     * @param action  Die Aktion
+     */
+    public void time(String section, Runnable action) {
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            record(section, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Umhüllt den Executor des FX-Threads, sodass die Wartezeit jeder Aufgabe bis zu
+     * ihrer Ausführung als {@link #QUEUE} erfasst wird.
+     *
+     * @param fxThread z.B. {@code Platform::runLater}
+     * @return Der messende Executor
+     */
+    public Executor measureQueue(Executor fxThread) {
+        Objects.requireNonNull(fxThread, "FxThread darf nicht null sein");
+        return task -> {
+            long queued = System.nanoTime();
+            fxThread.execute(() -> {
+                record(QUEUE, System.nanoTime() - queued);
+                task.run();
+            });
+        };
+    }
+
+    /**
+     * Misst die Layout-Pulses einer Szene. Muss auf dem FX-Thread aufgerufen werden.
+     *
+     * @param scene Die Szene des Hauptfensters
+     */
+    public void install(Scene scene) {
+        long[] pulseStart = new long[1];
+        scene.addPreLayoutPulseListener(() -> pulseStart[0] = System.nanoTime());
+        scene.addPostLayoutPulseListener(() -> record(PULSE, System.nanoTime() - pulseStart[0]));
+        frameTimer = new AnimationTimer() {
+            private long last;
+            private long lastCount;
+
+            @Override
+            public void handle(long now) {
+                if (last != 0) record(FRAME, now - last);
+                last = now;
+                if (now - lastCount < TimeUnit.SECONDS.toNanos(1)) return;
+                lastCount = now;
+                updateNodeCount(scene.getRoot());
+            }
+
+            @Override
+            public void stop() {
+                super.stop();
+                last = 0;
+            }
+        };
+    }
+
+    /**
+     * Schaltet die Frame-Messung und die Knotenzählung ein oder aus.
+     *
+     * @param enabled true zum Einschalten
+     * @throws IllegalStateException wenn noch keine Szene installiert wurde
+     */
+    public void setFrameTracking(boolean enabled) {
+        if (frameTimer == null) {
+            throw new IllegalStateException("Keine Szene installiert");
+        }
+        if (enabled) frameTimer.start();
+        else frameTimer.stop();
+    }
+
+    /**
+     * Zählt die Knoten unterhalb von {@code root} und gibt sie als JFR-Ereignis aus.
+     *
+     * @param root Wurzel des Szenengraphs
+     * @return Anzahl der Knoten
+     */
+    public int updateNodeCount(Node root) {
+        nodeCount = countNodes(root);
+        UiNodeCountEvent event = new UiNodeCountEvent();
+        if (event.isEnabled()) {
+            event.nodes = nodeCount;
+            event.commit();
+        }
+        return nodeCount;
+    }
+
+    private static int countNodes(Node node) {
+        int count = 1;
+        if (node instanceof Parent) {
+            for (Node child : ((Parent) node).getChildrenUnmodifiable()) count += countNodes(child);
+        }
+        return count;
+    }
+
+    /**
+     * Gibt die Messwerte eines Abschnitts zurück.
+     *
+     * @param section Name des Abschnitts
+     * @return Die Messwerte oder null, wenn noch nichts erfasst wurde
+     */
+    public Timing getTiming(String section) {
+        return timings.get(section);
+    }
+
+    /** @return Zuletzt gezählte Knoten im Szenengraph */
+    public int getNodeCount() { return nodeCount; }
+
+    /**
+     * Fasst die Messwerte seit dem letzten Aufruf zeilenweise zusammen und beginnt ein
+     * neues Messfenster. Wird vom Debug-Overlay periodisch aufgerufen.
+     *
+     * @return Text mit Anzahl, Durchschnitt und Maximum je Abschnitt
+     */
+    public String drain() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("nodes %d%n", nodeCount));
+        for (Map.Entry<String, Timing> entry : timings.entrySet()) {
+            Timing timing = entry.getValue();
+            synchronized (timing) {
+                if (timing.windowCount == 0) continue;
+                text.append(String.format("%-16s %5d  avg %7.2f ms  max %7.2f ms%n", entry.getKey(), timing.windowCount,
+                        timing.windowNanos / (timing.windowCount * 1e6), timing.windowMax / 1e6));
+                timing.windowCount = 0;
+                timing.windowNanos = 0;
+                timing.windowMax = 0;
+            }
+        }
+        return text.toString().trim();
+    }
+
+    /**
+     * Messwerte eines Abschnitts seit dem Start.
+     */
+    public static final class Timing {
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private long windowCount;       // Seit dem letzten drain()
+        private long windowNanos;
+        private long windowMax;
+
+        private synchronized void record(long nanos) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            windowCount++;
+            windowNanos += nanos;
+            windowMax = Math.max(windowMax, nanos);
+        }
+
+        /** @return Anzahl der Messungen */
+        public synchronized long getCount() { return count; }
+
+        /** @return Durchschnitt in Mikrosekunden (0 ohne Messwerte) */
+        public synchronized double getAverageMicros() { return count == 0 ? 0 : totalNanos / (count * 1000.0); }
+
+        /** @return Höchster Messwert in Mikrosekunden */
+        public synchronized long getMaxMicros() { return TimeUnit.NANOSECONDS.toMicros(maxNanos); }
+    }
+}
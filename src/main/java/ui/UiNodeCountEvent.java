@@ -0,0 +1,19 @@
+package ui;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR-Ereignis mit der Anzahl der Knoten im Szenengraph, einmal pro Sekunde erfasst.
+ */
+@Name("chat.ui.NodeCount")
+@Label("UI Node Count")
+@Category({"Chat", "UI"})
+@Description("Anzahl der Knoten im Szenengraph des Hauptfensters")
+final class UiNodeCountEvent extends Event {
+    @Label("Knoten")
+    int nodes;
+}
@@ -0,0 +1,25 @@
+package ui;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR-Ereignis für eine gemessene Zeitspanne der Oberfläche, z.B. einen Layout-Pulse,
+ * die Wartezeit in der {@code runLater}-Warteschlange oder eine Refresh-Methode.
+ */
+@Name("chat.ui.Timing")
+@Label("UI Timing")
+@Category({"Chat", "UI"})
+@Description("Gemessene Zeitspanne auf dem JavaFX-Thread")
+final class UiTimingEvent extends Event {
+    @Label("Abschnitt")
+    String section;
+
+    @Label("Dauer")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+}
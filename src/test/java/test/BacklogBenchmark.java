@@ -0,0 +1,66 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import delivery.BacklogMetrics;
+import delivery.DeliveryQueue;
+import delivery.FanOutEngine;
+import domain.GruppenRoom;
+import domain.User;
+
+/**
+ * Misst die Zwischenspeicherung für abgemeldete Mitglieder: Eine Gruppe sendet,
+ * während alle Mitglieder außer dem Sender abgemeldet sind; danach melden sich alle
+ * gleichzeitig an und der Rückstau wird nachgeliefert.
+ *
+ * Start: {@code mvn test-compile exec:java -Dexec.mainClass=test.BacklogBenchmark -Dexec.classpathScope=test}
+ * Optionale Argumente: Mitglieder (Standard 1000), Nachrichten (Standard 1000).
+ */
+public class BacklogBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int members = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int messages = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+
+        User creator = new User("Creator");
+        GruppenRoom group = new GruppenRoom(creator, "Bench", null);
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i < members; i++) {
+            User user = new User("U" + i);
+            group.addParticipant(user);
+            users.add(user);
+        }
+
+        try (FanOutEngine engine = new FanOutEngine(id -> group)) {
+            engine.connect(creator.getUserId()); // Nur der Sender ist angemeldet
+            for (int i = 0; i < messages; i++) {
+                engine.publish(group, group.addMessage(creator, "Nachricht " + i), group.getMessages().get(i));
+            }
+            while (engine.getMetrics().getFanOuts() < messages) {
+                Thread.sleep(1);
+            }
+            BacklogMetrics metrics = engine.getBacklogMetrics();
+            long backlog = metrics.getBacklog();
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            long heap = runtime.totalMemory() - runtime.freeMemory();
+
+            long start = System.nanoTime();
+            List<DeliveryQueue> queues = new ArrayList<>();
+            for (User user : users) {
+                queues.add(engine.connect(user.getUserId()));
+            }
+            while (metrics.getBacklog() > 0) {
+                Thread.sleep(1);
+            }
+            double totalMillis = (System.nanoTime() - start) / 1e6;
+
+            System.out.printf("Mitglieder: %d, Nachrichten: %d%n", members, messages);
+            System.out.printf("Rückstau vor Anmeldung: %d Zeiger (Heap gesamt %.1f MiB)%n", backlog, heap / 1048576.0);
+            System.out.printf("Nachgeliefert in %.1f ms, %.0f Zustellungen/s%n", totalMillis, backlog / (totalMillis / 1000));
+            System.out.println(metrics);
+            System.out.printf("Zustellungen in Warteschlangen: %d%n", queues.stream().mapToLong(DeliveryQueue::size).sum());
+        }
+    }
+}
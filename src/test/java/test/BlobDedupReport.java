@@ -0,0 +1,61 @@
+package test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import blob.BlobRef;
+import blob.BlobStore;
+import fassade.ChatService;
+
+/**
+ * Simuliert weitergeleitete Anhänge und gibt Deduplizierungsquote und eingesparten
+ * Plattenplatz aus. Ein Teil der Uploads ist ein erneuter Upload bereits vorhandener
+ * Dateien, jeder Anhang wird zusätzlich in mehrere Chats weitergeleitet.
+ *
+ * Start: {@code mvn test-compile exec:java -Dexec.mainClass=test.BlobDedupReport -Dexec.classpathScope=test}
+ * Optionale Argumente: Anzahl Uploads (Standard 500), Weiterleitungen pro Anhang (Standard 5).
+ */
+public class BlobDedupReport {
+    private static final int DISTINCT_FILES = 100;   // Verschiedene Dateiinhalte
+    private static final int FILE_SIZE = 64 * 1024;  // Größe einer Datei
+
+    public static void main(String[] args) throws IOException {
+        int uploads = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int forwards = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        BlobStore blobs = new BlobStore(Files.createTempDirectory("blob-report"));
+        ChatService service = new ChatService();
+        service.setBlobStore(blobs);
+        service.createUser("Sender");
+        List<Integer> rooms = new ArrayList<>();
+        for (int i = 0; i < forwards; i++) {
+            service.createUser("Empfänger" + i);
+            rooms.add(service.createChatRoom("Sender", "Empfänger" + i));
+        }
+
+        Random random = new Random(42);
+        byte[][] files = new byte[DISTINCT_FILES][FILE_SIZE];
+        for (byte[] file : files) random.nextBytes(file);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < uploads; i++) {
+            byte[] data = files[random.nextInt(DISTINCT_FILES)];
+            String uploadId = blobs.startUpload("datei-" + i + ".bin", data.length);
+            blobs.writeChunk(uploadId, 0, Channels.newChannel(new ByteArrayInputStream(data)), data.length);
+            BlobRef ref = blobs.complete(uploadId);
+            for (int room : rooms) {
+                service.sendAttachment(room, "Sender", ref);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d Uploads, %d Weiterleitungen pro Anhang, %.2f s%n", uploads, forwards, seconds);
+        System.out.println(blobs.getReport());
+        service.close();
+    }
+}
@@ -0,0 +1,267 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import blob.BlobRef;
+import blob.BlobReport;
+import blob.BlobStore;
+import client.BlobClient;
+import client.RemoteChatService;
+import domain.Message;
+import domain.MessageType;
+import fassade.ChatService;
+import server.BlobServer;
+import server.ServiceServer;
+import store.RetentionPolicy;
+
+public class BlobStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(7).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static BlobRef store(BlobStore store, String name, byte[] data) {
+        String uploadId = store.startUpload(name, data.length);
+        store.writeChunk(uploadId, 0, Channels.newChannel(new ByteArrayInputStream(data)), data.length);
+        return store.complete(uploadId);
+    }
+
+    @Test
+    public void testChunkedUploadResumesAtCommittedOffset() throws Exception {
+        BlobStore store = new BlobStore(folder.newFolder("blobs").toPath());
+        byte[] data = randomBytes(10_000);
+        String uploadId = store.startUpload("bild.png", data.length);
+
+        // Verbindung bricht nach 3000 von 4000 Bytes ab
+        byte[] partial = Arrays.copyOfRange(data, 0, 3000);
+        try {
+            store.writeChunk(uploadId, 0, Channels.newChannel(new ByteArrayInputStream(partial)), 4000);
+            fail("Abgebrochener Block erwartet");
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(3000, store.getOffset(uploadId));
+
+        try {
+            store.writeChunk(uploadId, 0, Channels.newChannel(new ByteArrayInputStream(data)), 100);
+            fail("Falscher Offset erwartet");
+        } catch (IllegalStateException expected) {
+        }
+
+        byte[] rest = Arrays.copyOfRange(data, 3000, data.length);
+        assertEquals(data.length, store.writeChunk(uploadId, 3000,
+                Channels.newChannel(new ByteArrayInputStream(rest)), rest.length));
+        BlobRef ref = store.complete(uploadId);
+        assertEquals(data.length, ref.getSize());
+        assertEquals("bild.png", ref.getFileName());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(data.length, store.transferTo(ref.getBlobId(), 0, Channels.newChannel(out)));
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testIncompleteUploadCannotComplete() throws Exception {
+        BlobStore store = new BlobStore(folder.newFolder("blobs").toPath());
+        String uploadId = store.startUpload("a.txt", 10);
+        store.complete(uploadId);
+    }
+
+    @Test
+    public void testUploadAndDownloadOverServer() throws Exception {
+        BlobServer server = new BlobServer(new BlobStore(folder.newFolder("blobs").toPath()), 0);
+        server.start();
+        try {
+            byte[] data = randomBytes(100_000);
+            Path file = folder.newFile("bericht.pdf").toPath();
+            Files.write(file, data);
+
+            BlobClient client = new BlobClient(new InetSocketAddress("localhost", server.getPort()), 4096);
+            BlobRef ref = client.upload(file);
+            assertEquals(data.length, ref.getSize());
+
+            Path target = folder.getRoot().toPath().resolve("download.pdf");
+            Files.write(target, Arrays.copyOf(data, 1234)); // Abgebrochener Download wird fortgesetzt
+            assertEquals(data.length, client.download(ref, target));
+            assertArrayEquals(data, Files.readAllBytes(target));
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testAttachmentMessageCarriesOnlyReference() {
+        ChatService service = new ChatService();
+        service.createUser("Alice");
+        service.createUser("Bob");
+        int roomId = service.createChatRoom("Alice", "Bob");
+
+        BlobRef ref = new BlobRef("abc-123", 2048, "urlaub.jpg");
+        service.sendAttachment(roomId, "Alice", ref);
+
+        List<Message> messages = service.showMessage(roomId);
+        assertEquals(MessageType.IMAGE, messages.get(0).getType());
+        assertEquals(ref, BlobRef.parse(messages.get(0).getContent()));
+    }
+
+    @Test
+    public void testRemoteClientUploadsBeforeSendingReference() throws Exception {
+        ChatService service = new ChatService();
+        BlobStore store = new BlobStore(folder.newFolder("blobs").toPath());
+        service.setBlobStore(store);
+        BlobServer blobs = new BlobServer(store, 0);
+        blobs.start();
+        ServiceServer services = new ServiceServer(service, 0);
+        services.setBlobPort(blobs.getPort());
+        services.start();
+        RemoteChatService client = new RemoteChatService(new InetSocketAddress("localhost", services.getPort()), 5000);
+        try {
+            client.createUser("Alice");
+            client.createUser("Bob");
+            client.subscribePresence("Alice", changes -> { });
+            int roomId = client.createChatRoom("Alice", "Bob");
+            Path file = folder.newFile("urlaub.jpg").toPath();
+            Files.write(file, randomBytes(10_000));
+
+            client.sendFile(roomId, false, "Alice", file);
+            BlobRef ref = BlobRef.parse(service.showMessage(roomId).get(0).getContent());
+            assertEquals(10_000, ref.getSize());
+            assertEquals("urlaub.jpg", ref.getFileName());
+            assertEquals(1, store.getReferenceCount(ref.getBlobId()));
+            try {
+                store.claim(ref.getBlobId()); // Der Hash ersetzt keine Upload-ID
+                fail("Fremde Blobs dürfen nicht angehängt werden");
+            } catch (IllegalArgumentException expected) {
+            }
+        } finally {
+            client.close();
+            services.close();
+            blobs.close();
+            service.close();
+        }
+    }
+
+    @Test
+    public void testCompletedUploadIsClaimedOnce() throws Exception {
+        BlobStore store = new BlobStore(folder.newFolder("blobs").toPath());
+        byte[] data = randomBytes(100);
+        String uploadId = store.startUpload("a.bin", data.length);
+        store.writeChunk(uploadId, 0, Channels.newChannel(new ByteArrayInputStream(data)), data.length);
+        BlobRef ref = store.complete(uploadId);
+
+        assertEquals(ref.getBlobId(), store.claim(uploadId).getBlobId());
+        try {
+            store.claim(uploadId);
+            fail("Ein Upload darf nur einmal angehängt werden");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static void sweep(ChatService service) {
+        for (int i = 0; i < 10; i++) {
+            service.getRetentionSweeper().sweepOnce(); // Zeitbudget pro Takt ist klein
+        }
+    }
+
+    @Test
+    public void testSameContentIsStoredOnce() throws Exception {
+        BlobStore store = new BlobStore(folder.newFolder("blobs").toPath());
+        byte[] data = randomBytes(5000);
+        BlobRef first = store(store, "a.png", data);
+        BlobRef second = store(store, "kopie.png", data);
+
+        assertEquals(first.getBlobId(), second.getBlobId());
+        assertEquals("kopie.png", second.getFileName());
+        BlobReport report = store.getReport();
+        assertEquals(1, report.getBlobCount());
+        assertEquals(1, report.getDedupHits());
+        assertEquals(5000, report.getStoredBytes());
+    }
+
+    @Test
+    public void testForwardedAttachmentIsReferenceCountedAndCollected() throws Exception {
+        BlobStore blobs = new BlobStore(folder.newFolder("blobs").toPath(), BlobStore.DEFAULT_MAX_SIZE,
+                BlobStore.DEFAULT_CACHE_BYTES, Clock.systemUTC(), Duration.ZERO);
+        ChatService service = new ChatService();
+        service.setBlobStore(blobs);
+        service.createUser("Alice");
+        service.createUser("Bob");
+        service.createUser("Carol");
+        int toBob = service.createChatRoom("Alice", "Bob");
+        int toCarol = service.createChatRoom("Alice", "Carol");
+        int group = service.createGruppenRoom("Alice", "Team", null);
+
+        BlobRef ref = store(blobs, "urlaub.jpg", randomBytes(20_000));
+        service.sendAttachment(toBob, "Alice", ref);
+        service.sendAttachment(toCarol, "Alice", ref);
+        service.sendGroupAttachment(group, "Alice", ref);
+        assertEquals(3, blobs.getReferenceCount(ref.getBlobId()));
+
+        BlobReport report = blobs.getReport();
+        assertEquals(60_000, report.getLogicalBytes());
+        assertEquals(40_000, report.getBytesSaved());
+        assertEquals(3.0, report.getDedupRatio(), 0.0001);
+
+        // Aufbewahrungsregeln entfernen die Anhänge aus den Einzelchats
+        for (int roomId : new int[] { toBob, toCarol }) {
+            service.setChatRoomRetentionPolicy(roomId, RetentionPolicy.maxMessages(1));
+            service.sendMessage(roomId, "Alice", "danach");
+        }
+        sweep(service);
+        assertEquals(1, blobs.getReferenceCount(ref.getBlobId()));
+        assertEquals(0, blobs.collectGarbage()); // Gruppe verweist noch darauf
+
+        service.setGroupRetentionPolicy(group, RetentionPolicy.maxMessages(1));
+        service.sendGroupMessage(group, "Alice", "danach");
+        sweep(service);
+        assertEquals(0, blobs.getReferenceCount(ref.getBlobId()));
+        assertEquals(1, blobs.collectGarbage());
+        assertEquals(0, blobs.getReport().getStoredBytes());
+        service.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownBlobIsRejected() throws Exception {
+        ChatService service = new ChatService();
+        service.setBlobStore(new BlobStore(folder.newFolder("blobs").toPath()));
+        service.createUser("Alice");
+        service.createUser("Bob");
+        int roomId = service.createChatRoom("Alice", "Bob");
+        service.sendAttachment(roomId, "Alice", new BlobRef("fehlt", 1, "x.bin"));
+    }
+
+    @Test
+    public void testHotBlobsServedFromCache() throws Exception {
+        BlobStore store = new BlobStore(folder.newFolder("blobs").toPath());
+        byte[] data = randomBytes(3000);
+        BlobRef ref = store(store, "logo.png", data);
+
+        for (int i = 0; i < 3; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            store.transferTo(ref.getBlobId(), 0, Channels.newChannel(out));
+            assertArrayEquals(data, out.toByteArray());
+        }
+        assertEquals(2.0 / 3, store.getReport().getCacheHitRate(), 0.0001);
+        assertEquals(3000, store.getReport().getCachedBytes());
+    }
+}
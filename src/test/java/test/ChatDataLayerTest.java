@@ -0,0 +1,92 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import fassade.ChatService;
+import ui.ChatDataLayer;
+import ui.ChatSnapshot;
+import ui.SidebarSnapshot;
+
+public class ChatDataLayerTest {
+
+    private static void runAll(List<Runnable> tasks) {
+        while (!tasks.isEmpty()) tasks.remove(0).run();
+    }
+
+    private static ChatService service() {
+        ChatService service = new ChatService();
+        service.createUser("Alice");
+        service.createUser("Bob");
+        service.createUser("Carol");
+        service.addContact("Bob", "Alice");
+        service.addContact("Carol", "Alice");
+        service.createGruppenRoom("Alice", "Team", "Eine neue Gruppe");
+        return service;
+    }
+
+    @Test
+    public void testSidebarLoadsAreCoalesced() {
+        List<Runnable> background = new ArrayList<>();
+        List<SidebarSnapshot> applied = new ArrayList<>();
+        ChatDataLayer data = new ChatDataLayer(service(), background::add, Runnable::run);
+
+        data.loadSidebar("Alice", applied::add);
+        data.loadSidebar("Alice", applied::add);
+        data.loadSidebar("Alice", applied::add);
+        assertEquals(1, background.size());
+        assertTrue(applied.isEmpty()); // Noch kein Service-Aufruf auf dem aufrufenden Thread
+
+        runAll(background);
+        assertEquals(1, applied.size());
+        SidebarSnapshot sidebar = applied.get(0);
+        assertEquals(2, sidebar.getContacts().size());
+        assertEquals("Team", sidebar.getGroups().get(0).getName());
+        assertEquals(1, sidebar.getGroups().get(0).getParticipantCount());
+    }
+
+    @Test
+    public void testStaleChatIsDiscarded() {
+        ChatService service = service();
+        service.createChatRoom("Alice", "Bob");
+        List<Runnable> background = new ArrayList<>();
+        List<Runnable> fxThread = new ArrayList<>();
+        List<ChatSnapshot> shown = new ArrayList<>();
+        ChatDataLayer data = new ChatDataLayer(service, background::add, fxThread::add);
+
+        List<SidebarSnapshot.Contact> contacts = loadSidebar(service);
+        SidebarSnapshot.Contact bob = contacts.get(0);
+        SidebarSnapshot.Contact carol = contacts.get(1);
+
+        data.openPrivateChat("Alice", bob, shown::add, e -> fail(e.getMessage()));
+        data.openPrivateChat("Alice", carol, shown::add, e -> fail(e.getMessage()));
+        runAll(background);
+        runAll(fxThread);
+
+        assertEquals(1, shown.size());
+        assertEquals("Carol", shown.get(0).getTitle());
+        assertEquals(1, data.getDiscarded());
+    }
+
+    @Test
+    public void testErrorsAreReportedOnFxThread() {
+        List<Runnable> fxThread = new ArrayList<>();
+        List<RuntimeException> errors = new ArrayList<>();
+        ChatDataLayer data = new ChatDataLayer(service(), Runnable::run, fxThread::add);
+
+        data.run(() -> { throw new IllegalArgumentException("User existiert nicht"); }, errors::add);
+        assertTrue(errors.isEmpty());
+        runAll(fxThread);
+        assertEquals("User existiert nicht", errors.get(0).getMessage());
+    }
+
+    private static List<SidebarSnapshot.Contact> loadSidebar(ChatService service) {
+        List<SidebarSnapshot> result = new ArrayList<>();
+        new ChatDataLayer(service, Runnable::run, Runnable::run).loadSidebar("Alice", result::add);
+        return result.get(0).getContacts();
+    }
+}
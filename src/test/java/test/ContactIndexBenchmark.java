@@ -0,0 +1,67 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import domain.User;
+
+/**
+ * Misst Kontaktabfragen für einen Benutzer mit sehr vielen Kontakten und Followern.
+ * Verglichen werden die Suche "wer führt mich als Kontakt" über alle Benutzer
+ * (frühere Vorgehensweise) und der Rückwärtsindex, sowie die Kontaktprüfung.
+ *
+ * Start: {@code mvn test-compile exec:java -Dexec.mainClass=test.ContactIndexBenchmark -Dexec.classpathScope=test}
+ */
+public class ContactIndexBenchmark {
+    private static final int[] SIZES = {1_000, 10_000, 50_000};
+    private static volatile long sink;           // Verhindert Wegoptimieren der Schleifen
+
+    public static void main(String[] args) {
+        System.out.printf("%10s %16s %16s %18s %16s%n", "contacts", "add total ms", "hasContact ns",
+                "followers scan µs", "followers idx µs");
+        for (int size : SIZES) {
+            run(size);
+        }
+    }
+
+    private static void run(int size) {
+        User star = new User("Star");
+        List<User> users = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            User user = new User("U" + i);
+            user.getUserContacts().addContact(star);  // Folgt dem Star
+            star.getUserContacts().addContact(user);  // Star führt alle als Kontakt
+            users.add(user);
+        }
+        double addMillis = (System.nanoTime() - start) / 1e6;
+
+        int checks = 1_000_000;
+        long hits = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < checks; i++) {
+            if (star.getUserContacts().hasContact(users.get((i * 31) % size))) hits++;
+        }
+        double checkNs = (System.nanoTime() - start) / (double) checks;
+
+        int rounds = 20;
+        start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            int found = 0;
+            for (User user : users) {
+                if (user.getUserContacts().hasContact(star)) found++;
+            }
+            hits += found;
+        }
+        double scanMicros = (System.nanoTime() - start) / (rounds * 1000.0);
+
+        start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            hits += star.getUserContacts().getFollowerIds().length;
+        }
+        double indexMicros = (System.nanoTime() - start) / (rounds * 1000.0);
+        sink = hits;
+
+        System.out.printf("%10d %16.1f %16.1f %18.1f %16.1f%n", size, addMillis, checkNs, scanMicros, indexMicros);
+    }
+}
@@ -0,0 +1,36 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import domain.User;
+
+public class ContactIndexTest {
+
+    @Test
+    public void testReverseIndexFollowsAddAndRemove() {
+        User alice = new User("Alice");
+        User bob = new User("Bob");
+        User carol = new User("Carol");
+
+        bob.getUserContacts().addContact(alice);
+        carol.getUserContacts().addContact(alice);
+
+        assertEquals(2, alice.getUserContacts().getFollowerCount());
+        assertTrue(alice.getUserContacts().hasFollower(bob));
+        assertFalse(bob.getUserContacts().hasFollower(alice));
+
+        assertTrue(bob.getUserContacts().removeContact(alice));
+        assertFalse(bob.getUserContacts().removeContact(alice));
+        assertArrayEquals(new int[] {carol.getUserId()}, alice.getUserContacts().getFollowerIds());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateContact() {
+        User alice = new User("Alice");
+        User bob = new User("Bob");
+        bob.getUserContacts().addContact(alice);
+        bob.getUserContacts().addContact(alice);
+    }
+}
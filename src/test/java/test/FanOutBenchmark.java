@@ -0,0 +1,73 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import delivery.DeliveryQueue;
+import delivery.FanOutEngine;
+import delivery.FanOutMetrics;
+import domain.GruppenRoom;
+import domain.Message;
+import domain.User;
+
+/**
+ * Misst Sende- und Fan-out-Latenz für Gruppen von 10 bis 100.000 Mitgliedern,
+ * die alle eine angemeldete Sitzung besitzen. Die Sendelatenz umfasst nur das
+ * Einreichen, die Fan-out-Latenz die Verteilung bis zur letzten Warteschlange.
+ *
+ * Start: {@code mvn test-compile exec:java -Dexec.mainClass=test.FanOutBenchmark -Dexec.classpathScope=test}
+ */
+public class FanOutBenchmark {
+    private static final int[] SIZES = {10, 100, 1_000, 10_000, 100_000};
+    private static final int MESSAGES = 200;     // Nachrichten pro Gruppengröße
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        System.out.printf("Worker: %d%n", threads);
+        System.out.printf("%10s %14s %16s %16s%n", "members", "send avg µs", "fan-out avg µs", "fan-out max µs");
+        for (int members : SIZES) {
+            try (FanOutEngine engine = new FanOutEngine(id -> null, threads,
+                    FanOutEngine.DEFAULT_CHUNK_SIZE, FanOutEngine.DEFAULT_PENDING_CAPACITY)) {
+                run(engine, members);
+            }
+        }
+    }
+
+    private static void run(FanOutEngine engine, int members) throws InterruptedException {
+        User creator = new User("Creator");
+        GruppenRoom group = new GruppenRoom(creator, "Bench", null);
+        List<DeliveryQueue> queues = new ArrayList<>();
+        queues.add(engine.connect(creator.getUserId()));
+        for (int i = 1; i < members; i++) {
+            User user = new User("U" + i);
+            group.addParticipant(user);
+            queues.add(engine.connect(user.getUserId()));
+        }
+
+        Message message = new Message(creator, "Benchmark");
+        long sendNanos = 0;
+        for (int i = 0; i < MESSAGES; i++) {
+            long start = System.nanoTime();
+            engine.publish(group, i, message);
+            sendNanos += System.nanoTime() - start;
+            if (i % 20 == 19) drain(engine, queues, i + 1); // Warteschlangen nicht unbegrenzt wachsen lassen
+        }
+        drain(engine, queues, MESSAGES);
+
+        FanOutMetrics metrics = engine.getMetrics();
+        System.out.printf("%10d %14.2f %16.1f %16d%n", members, sendNanos / (MESSAGES * 1000.0),
+                metrics.getAverageMicros(members), metrics.getMaxMicros(members));
+    }
+
+    private static void drain(FanOutEngine engine, List<DeliveryQueue> queues, int published)
+            throws InterruptedException {
+        while (engine.getMetrics().getFanOuts() < published) {
+            Thread.sleep(1);
+        }
+        for (DeliveryQueue queue : queues) {
+            while (queue.poll() != null) {
+                // Zustellungen verwerfen
+            }
+        }
+    }
+}
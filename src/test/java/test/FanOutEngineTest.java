@@ -0,0 +1,178 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import delivery.Delivery;
+import delivery.DeliveryQueue;
+import delivery.FanOutEngine;
+import domain.*;
+import fassade.ChatService;
+
+public class FanOutEngineTest {
+
+    private ChatService service;
+
+    @Before
+    public void setUp() {
+        service = new ChatService();
+    }
+
+    @After
+    public void tearDown() {
+        service.close();
+    }
+
+    @Test
+    public void testOnlineMembersShareOneDelivery() throws InterruptedException {
+        service.createUser("Alice");
+        service.createUser("Bob");
+        service.createUser("Carol");
+        int groupId = service.createGruppenRoom("Alice", "Team", null);
+        service.addParticipantToGroup(groupId, "Alice", "Bob");
+        service.addParticipantToGroup(groupId, "Alice", "Carol");
+
+        DeliveryQueue bob = service.connect("Bob");
+        DeliveryQueue carol = service.connect("Carol");
+        service.disconnect("Carol");
+        service.sendGroupMessage(groupId, "Alice", "Hallo Team");
+
+        Delivery delivery = bob.poll(2, TimeUnit.SECONDS);
+        assertNotNull(delivery);
+        assertEquals(groupId, delivery.getGroupId());
+        assertEquals("Hallo Team", delivery.getMessage().getContent());
+        assertEquals(0, delivery.getSeq());
+        assertNull(carol.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testLargeGroupIsSplitIntoChunks() throws InterruptedException {
+        User creator = new User("Creator");
+        GruppenRoom group = new GruppenRoom(creator, "Big", null);
+        try (FanOutEngine engine = new FanOutEngine(id -> group, 4, 16, FanOutEngine.DEFAULT_PENDING_CAPACITY)) {
+            DeliveryQueue[] queues = new DeliveryQueue[100];
+            for (int i = 0; i < queues.length; i++) {
+                User user = new User("U" + i);
+                group.addParticipant(user);
+                queues[i] = engine.connect(user.getUserId());
+            }
+
+            Message message = new Message(creator, "an alle");
+            engine.publish(group, 0, message);
+            for (DeliveryQueue queue : queues) {
+                Delivery delivery = queue.poll(2, TimeUnit.SECONDS);
+                assertNotNull(delivery);
+                assertSame(message, delivery.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testOfflineMembersReceiveBacklogOnReconnect() throws InterruptedException {
+        service.createUser("Alice");
+        service.createUser("Bob");
+        int groupId = service.createGruppenRoom("Alice", "Team", null);
+        service.addParticipantToGroup(groupId, "Alice", "Bob");
+
+        service.disconnect("Bob");
+        for (int i = 0; i < 3; i++) {
+            service.sendGroupMessage(groupId, "Alice", "m" + i);
+        }
+        long deadline = System.currentTimeMillis() + 2000;
+        while (service.getPendingDeliveries("Bob") < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(3, service.getPendingDeliveries("Bob"));
+
+        DeliveryQueue bob = service.connect("Bob");
+        for (int i = 0; i < 3; i++) {
+            Delivery delivery = bob.poll(2, TimeUnit.SECONDS);
+            assertNotNull(delivery);
+            assertEquals("m" + i, delivery.getMessage().getContent());
+        }
+        assertEquals(0, service.getPendingDeliveries("Bob"));
+    }
+
+    @Test
+    public void testBacklogIsDeliveredBeforeNewMessages() throws InterruptedException {
+        User creator = new User("Creator");
+        User member = new User("Member");
+        GruppenRoom group = new GruppenRoom(creator, "Ordered", null);
+        group.addParticipant(member);
+        int backlog = FanOutEngine.DEFAULT_CHUNK_SIZE;
+        try (FanOutEngine engine = new FanOutEngine(id -> group, 4, 16, FanOutEngine.DEFAULT_PENDING_CAPACITY)) {
+            long deadline = System.currentTimeMillis() + 5000;
+            for (int i = 0; i < backlog; i++) {
+                long seq = group.addMessage(creator, "alt " + i);
+                engine.publish(group, seq, group.getMessageStore().get(seq));
+                while (engine.getPendingCount(member.getUserId()) <= i && System.currentTimeMillis() < deadline) {
+                    Thread.yield(); // Einzeln vormerken, damit der Rückstau geordnet ist
+                }
+            }
+
+            DeliveryQueue queue = engine.connect(member.getUserId());
+            long seq = group.addMessage(creator, "neu");
+            engine.publish(group, seq, group.getMessageStore().get(seq)); // Läuft parallel zum Nachliefern
+            for (int i = 0; i < backlog; i++) {
+                assertEquals("alt " + i, queue.poll(2, TimeUnit.SECONDS).getMessage().getContent());
+            }
+            assertEquals("neu", queue.poll(2, TimeUnit.SECONDS).getMessage().getContent());
+        }
+    }
+
+    @Test
+    public void testFullSessionSpillsIntoBacklog() throws InterruptedException {
+        User creator = new User("Creator");
+        User slow = new User("Slow");
+        GruppenRoom group = new GruppenRoom(creator, "Slow", null);
+        group.addParticipant(slow);
+        try (FanOutEngine engine = new FanOutEngine(id -> group, 1, 16, FanOutEngine.DEFAULT_PENDING_CAPACITY, 4)) {
+            DeliveryQueue queue = engine.connect(slow.getUserId());
+            for (int i = 0; i < 10; i++) {
+                long seq = group.addMessage(creator, "m" + i);
+                engine.publish(group, seq, group.getMessageStore().get(seq));
+            }
+            long deadline = System.currentTimeMillis() + 2000;
+            while ((engine.getMetrics().getFanOuts() < 10 || engine.getPendingCount(slow.getUserId()) < 6)
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+
+            assertEquals(4, queue.size()); // Begrenzt, der Rest wartet als Zeiger
+            assertEquals(6, engine.getPendingCount(slow.getUserId()));
+            for (int i = 0; i < 10; i++) {
+                assertEquals("m" + i, queue.poll(2, TimeUnit.SECONDS).getMessage().getContent());
+            }
+            assertEquals(0, engine.getPendingCount(slow.getUserId()));
+        }
+    }
+
+    @Test
+    public void testBacklogIsBounded() throws InterruptedException {
+        User creator = new User("Creator");
+        User offline = new User("Offline");
+        GruppenRoom group = new GruppenRoom(creator, "Bounded", null);
+        group.addParticipant(offline);
+        try (FanOutEngine engine = new FanOutEngine(id -> group, 1, 16, 5)) {
+            engine.connect(creator.getUserId());
+            for (int i = 0; i < 20; i++) {
+                engine.publish(group, group.addMessage(creator, "m" + i), group.getMessages().get(i));
+            }
+            long deadline = System.currentTimeMillis() + 2000;
+            while (engine.getMetrics().getFanOuts() < 20 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+
+            assertEquals(5, engine.getPendingCount(offline.getUserId()));
+            assertEquals(15, engine.getBacklogMetrics().getDropped());
+
+            DeliveryQueue queue = engine.connect(offline.getUserId());
+            assertEquals("m15", queue.poll(2, TimeUnit.SECONDS).getMessage().getContent());
+        }
+    }
+}
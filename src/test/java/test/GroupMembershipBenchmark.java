@@ -0,0 +1,87 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import domain.GruppenRoom;
+import domain.User;
+
+/**
+ * Misst Mitgliedschaftsprüfung und Iteration großer Gruppen.
+ * Verglichen wird die frühere {@code ArrayList}-Suche mit der ID-indizierten
+ * Mitgliedermenge von {@link GruppenRoom} bei 10, 1.000 und 100.000 Mitgliedern.
+ *
+ * Start: {@code mvn test-compile exec:java -Dexec.mainClass=test.GroupMembershipBenchmark -Dexec.classpathScope=test}
+ */
+public class GroupMembershipBenchmark {
+    private static final int[] SIZES = {10, 1_000, 100_000};
+    private static final int CHECKS = 200_000;   // Gemessene Prüfungen pro Größe
+    private static volatile long sink;           // Verhindert Wegoptimieren der Schleifen
+
+    public static void main(String[] args) {
+        System.out.printf("%10s %18s %18s %18s %18s%n", "members",
+                "list check ns", "set check ns", "list copy+iter ns", "view iter ns");
+        for (int members : SIZES) {
+            run(members);
+        }
+    }
+
+    private static void run(int members) {
+        User creator = new User("Creator");
+        GruppenRoom group = new GruppenRoom(creator, "Bench", null);
+        List<User> list = new ArrayList<>();
+        list.add(creator);
+        for (int i = 1; i < members; i++) {
+            User user = new User("U" + i);
+            group.addParticipant(user);
+            list.add(user);
+        }
+        User[] probes = list.toArray(new User[0]);
+        int checks = members >= 100_000 ? CHECKS / 100 : CHECKS; // Lineare Suche sonst zu langsam
+
+        for (int warmup = 0; warmup < 3; warmup++) {
+            listCheck(list, probes, checks);
+            setCheck(group, probes, checks);
+        }
+
+        double listNs = listCheck(list, probes, checks);
+        double setNs = setCheck(group, probes, CHECKS);
+        double copyNs = iterate(() -> new ArrayList<>(list), members);
+        double viewNs = iterate(group::getParticipants, members);
+        System.out.printf("%10d %18.1f %18.1f %18.0f %18.0f%n", members, listNs, setNs, copyNs, viewNs);
+    }
+
+    private static double listCheck(List<User> list, User[] probes, int checks) {
+        long hits = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < checks; i++) {
+            if (list.contains(probes[(i * 31) % probes.length])) hits++;
+        }
+        sink = hits;
+        return (System.nanoTime() - start) / (double) checks;
+    }
+
+    private static double setCheck(GruppenRoom group, User[] probes, int checks) {
+        long hits = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < checks; i++) {
+            if (group.isParticipant(probes[(i * 31) % probes.length])) hits++;
+        }
+        sink = hits;
+        return (System.nanoTime() - start) / (double) checks;
+    }
+
+    private static double iterate(Supplier<List<User>> source, int members) {
+        int rounds = Math.max(10, 1_000_000 / members);
+        long total = 0;
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (User user : source.get()) {
+                total += user.getUserId();
+            }
+        }
+        sink = total;
+        return (System.nanoTime() - start) / (double) rounds;
+    }
+}
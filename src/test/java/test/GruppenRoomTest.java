@@ -45,4 +45,25 @@ public class GruppenRoomTest {
         assertTrue(group.addAdmin(creator, admin));
         assertTrue(group.getAdmins().contains(admin));
     }
-}
\ No newline at end of file
+    
+    @Test
+    public void testMembershipAfterManyRemovals() {
+        User creator = new User("Creator");
+        GruppenRoom group = new GruppenRoom(creator, "BigGroup", null);
+        User[] users = new User[500];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = new User("U" + i);
+            group.addParticipant(users[i]);
+        }
+        for (int i = 0; i < users.length; i += 2) {
+            group.removeParticipant(creator, users[i]);
+        }
+        
+        assertEquals(251, group.getParticipantCount());
+        for (int i = 0; i < users.length; i++) {
+            assertEquals(i % 2 == 1, group.isParticipant(users[i]));
+        }
+        assertEquals(251, group.getParticipants().size());
+        assertFalse(group.getParticipants().contains(users[0]));
+    }
+}
@@ -0,0 +1,72 @@
+package test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.IntSupplier;
+
+import id.IdGenerator;
+import id.IdKind;
+
+/**
+ * Misst die ID-Vergabe unter Konkurrenz. Verglichen wird der frühere, per Sperre
+ * abgesicherte Zähler mit dem lock-freien {@link IdGenerator}, einmal ohne und einmal
+ * mit persistierter Lease-Datei.
+ *
+ * Start: {@code mvn test-compile exec:java -Dexec.mainClass=test.IdGeneratorBenchmark -Dexec.classpathScope=test}
+ * Optionale Argumente: Threads (Standard 32), IDs pro Thread (Standard 200000).
+ */
+public class IdGeneratorBenchmark {
+
+    private static int lockedCounter = 1000;
+    private static volatile int sink;          // Verhindert, dass die Schleife wegoptimiert wird
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        if ((long) threads * perThread > IdGenerator.MAX_SEQUENCE) {
+            throw new IllegalArgumentException("Zu viele IDs für einen Knoten: " + (long) threads * perThread);
+        }
+        Path lease = Files.createTempDirectory("id-bench").resolve("ids.lease");
+
+        IdGenerator inMemory = new IdGenerator(0, null, IdGenerator.DEFAULT_BLOCK_SIZE);
+        IdGenerator leased = new IdGenerator(1, lease, IdGenerator.DEFAULT_BLOCK_SIZE);
+
+        System.out.printf("%-16s %8s %16s%n", "variant", "threads", "ids/s");
+        run("synchronized", threads, perThread, IdGeneratorBenchmark::nextLocked);
+        run("lock-free", threads, perThread, () -> inMemory.next(IdKind.USER));
+        run("lock-free+lease", threads, perThread, () -> leased.next(IdKind.USER));
+    }
+
+    private static synchronized int nextLocked() {
+        return lockedCounter++;
+    }
+
+    private static void run(String name, int threads, int perThread, IntSupplier ids) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    int last = 0;
+                    for (int i = 0; i < perThread; i++) {
+                        last = ids.getAsInt();
+                    }
+                    sink = last;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        double rate = (long) threads * perThread / ((System.nanoTime() - begin) / 1e9);
+        System.out.printf("%-16s %8d %16.0f%n", name, threads, rate);
+    }
+}
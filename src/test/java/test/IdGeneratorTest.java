@@ -0,0 +1,84 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import domain.*;
+import id.IdGenerator;
+import id.IdKind;
+
+public class IdGeneratorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testNamespacesDoNotCollide() {
+        User alice = new User("Alice");
+        User bob = new User("Bob");
+        ChatRoom room = new ChatRoom(alice, bob);
+        GruppenRoom group = new GruppenRoom(alice, "Team", null);
+
+        assertNotEquals(room.getRoomId(), group.getGroupId());
+        assertEquals(IdKind.USER, IdKind.of(alice.getUserId()));
+        assertEquals(IdKind.CHAT_ROOM, IdKind.of(room.getRoomId()));
+        assertEquals(IdKind.GROUP, IdKind.of(group.getGroupId()));
+    }
+
+    @Test
+    public void testConcurrentIdsAreUnique() throws InterruptedException {
+        IdGenerator generator = new IdGenerator(3, folder.getRoot().toPath().resolve("ids.lease"), 16);
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    ids.add(generator.next(IdKind.GROUP));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(8000, ids.size());
+        for (int id : ids) {
+            assertEquals(3, IdGenerator.nodeOf(id));
+            assertTrue(id > 0);
+        }
+    }
+
+    @Test
+    public void testRestartContinuesAfterLeasedBlock() {
+        Path lease = folder.getRoot().toPath().resolve("ids.lease");
+        Set<Integer> ids = new HashSet<>();
+        IdGenerator first = new IdGenerator(1, lease, 10);
+        for (int i = 0; i < 15; i++) ids.add(first.next(IdKind.USER));
+
+        IdGenerator restarted = new IdGenerator(1, lease, 10);
+        for (int i = 0; i < 15; i++) {
+            assertTrue(ids.add(restarted.next(IdKind.USER)));
+        }
+    }
+
+    @Test
+    public void testNodesDoNotCollide() {
+        IdGenerator nodeA = new IdGenerator(0, null, IdGenerator.DEFAULT_BLOCK_SIZE);
+        IdGenerator nodeB = new IdGenerator(1, null, IdGenerator.DEFAULT_BLOCK_SIZE);
+        assertNotEquals(nodeA.next(IdKind.USER), nodeB.next(IdKind.USER));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidNodeId() {
+        new IdGenerator(IdGenerator.MAX_NODE_ID + 1, null, IdGenerator.DEFAULT_BLOCK_SIZE);
+    }
+}
@@ -0,0 +1,61 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import ui.KeyedDiff;
+
+public class KeyedDiffTest {
+
+    private static String key(String item) {
+        return item.substring(0, 1);
+    }
+
+    @Test
+    public void testSingleChangeReplacesOneEntry() {
+        ObservableList<String> list = FXCollections.observableArrayList("a:offline", "b:offline", "c:offline");
+        List<String> changes = new ArrayList<>();
+        list.addListener((ListChangeListener<String>) c -> {
+            while (c.next()) changes.add(c.wasReplaced() ? "set " + c.getFrom() : c.toString());
+        });
+
+        KeyedDiff diff = KeyedDiff.apply(list, List.of("a:offline", "b:online", "c:offline"), KeyedDiffTest::key);
+
+        assertEquals(1, diff.getUpdated());
+        assertEquals(List.of("set 1"), changes);
+        assertEquals("b:online", list.get(1));
+    }
+
+    @Test
+    public void testInsertRemoveAndMove() {
+        ObservableList<String> list = FXCollections.observableArrayList("a", "b", "c", "d");
+
+        KeyedDiff diff = KeyedDiff.apply(list, List.of("d", "a", "e", "c"), KeyedDiffTest::key);
+
+        assertEquals(List.of("d", "a", "e", "c"), list);
+        assertEquals(1, diff.getRemoved());
+        assertEquals(1, diff.getInserted());
+        assertEquals(1, diff.getMoved());
+        assertEquals(0, diff.getUpdated());
+    }
+
+    @Test
+    public void testUnchangedListIsNotTouched() {
+        ObservableList<String> list = FXCollections.observableArrayList("a", "b");
+        list.addListener((ListChangeListener<String>) c -> fail("Keine Änderung erwartet"));
+
+        assertTrue(KeyedDiff.apply(list, List.of("a", "b"), KeyedDiffTest::key).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateKeysAreRejected() {
+        KeyedDiff.apply(FXCollections.observableArrayList(), List.of("a1", "a2"), KeyedDiffTest::key);
+    }
+}
@@ -0,0 +1,109 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import domain.*;
+import fassade.ChatService;
+import store.MappedSegmentStore;
+import store.MessageStore;
+
+public class MappedSegmentStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAppendAndReadBack() {
+        User alice = new User("Alice");
+        Map<Integer, User> users = new HashMap<>();
+        users.put(alice.getUserId(), alice);
+
+        try (MappedSegmentStore store = new MappedSegmentStore(folder.getRoot().toPath(), users::get)) {
+            MessageStore log = store.open("chat-1");
+            Message original = new Message(alice, "Hallo Welt äöü", MessageType.LINK);
+            assertEquals(0L, log.append(original));
+
+            Message decoded = log.get(0);
+            assertEquals(alice, decoded.getSender());
+            assertEquals("Hallo Welt äöü", decoded.getContent());
+            assertEquals(MessageType.LINK, decoded.getType());
+            assertEquals(original.getTimestamp().withNano(0), decoded.getTimestamp().withNano(0));
+        }
+    }
+
+    @Test
+    public void testRollsOverIntoNewSegments() {
+        User alice = new User("Alice");
+        try (MappedSegmentStore store = new MappedSegmentStore(folder.getRoot().toPath(), 64, id -> alice)) {
+            MessageStore first = store.open("chat-1");
+            MessageStore second = store.open("group-1");
+            for (int i = 0; i < 10; i++) {
+                first.append(new Message(alice, "a" + i));
+                second.append(new Message(alice, "b" + i));
+            }
+
+            assertTrue(store.getSegmentCount() > 1);
+            assertEquals(10, first.count());
+            assertEquals("a7", first.get(7).getContent());
+            assertEquals("b9", second.get(9).getContent());
+        }
+    }
+
+    @Test
+    public void testEmptiedCurrentSegmentIsDeletedOnRollover() throws Exception {
+        User alice = new User("Alice");
+        try (MappedSegmentStore store = new MappedSegmentStore(folder.getRoot().toPath(), 64, id -> alice)) {
+            MessageStore log = store.open("chat-1");
+            log.append(new Message(alice, "x".repeat(40))); // Füllt das Segment fast ganz
+            log.deleteBefore(log.nextSequence());
+            assertEquals(1, store.getSegmentCount()); // Aktuelles Segment bleibt bis zum Wechsel
+
+            for (int i = 0; i < 5; i++) log.append(new Message(alice, "mehr " + i));
+            assertFalse(Files.exists(folder.getRoot().toPath().resolve("segment-00000.log")));
+            assertEquals("mehr 4", log.get(log.nextSequence() - 1).getContent());
+        }
+    }
+
+    @Test
+    public void testViewIsSnapshot() {
+        User alice = new User("Alice");
+        try (MappedSegmentStore store = new MappedSegmentStore(folder.getRoot().toPath(), id -> alice)) {
+            MessageStore log = store.open("chat-1");
+            log.append(new Message(alice, "eins"));
+            List<Message> view = log.view();
+            log.append(new Message(alice, "zwei"));
+
+            assertEquals(1, view.size());
+            assertEquals(2, log.view().size());
+        }
+    }
+
+    @Test
+    public void testChatServiceWithMappedHistory() {
+        ChatService service = new ChatService(folder.getRoot().toPath());
+        service.createUser("Alice");
+        service.createUser("Bob");
+
+        int roomId = service.createChatRoom("Alice", "Bob");
+        service.sendMessage(roomId, "Alice", "Hi Bob!");
+        service.sendMessage(roomId, "Bob", "Hello Alice!");
+
+        List<Message> messages = service.showMessage(roomId);
+        assertEquals(2, messages.size());
+        assertEquals("Bob", messages.get(1).getSender().getUsername());
+
+        int groupId = service.createGruppenRoom("Alice", "Team", null);
+        service.sendGroupMessage(groupId, "Alice", "Willkommen");
+        assertTrue(service.getGroupMessages(groupId).get(0).contains("Willkommen"));
+        service.close();
+    }
+}
@@ -0,0 +1,55 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import domain.Message;
+import domain.User;
+import store.ColumnarMessageStore;
+import store.InMemoryMessageStore;
+import store.MessageStore;
+
+/**
+ * Vergleicht den Heap-Bedarf pro Nachricht zwischen objektbasierter und
+ * spaltenorientierter Speicherung. Gemessen wird der erreichbare Objektgraph mit JOL;
+ * der gemeinsam referenzierte Absender wird herausgerechnet.
+ *
+ * Start: {@code mvn test-compile exec:java -Dexec.mainClass=test.MessageFootprintReport -Dexec.classpathScope=test}
+ * Optionales Argument: Anzahl der Nachrichten (Standard 100000).
+ */
+public class MessageFootprintReport {
+
+    public static void main(String[] args) {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        User sender = new User("Footprint");
+        long senderBytes = GraphLayout.parseInstance(sender).totalSize();
+
+        List<Message> objects = new ArrayList<>();
+        InMemoryMessageStore inMemory = new InMemoryMessageStore();
+        ColumnarMessageStore columnar = new ColumnarMessageStore(id -> sender);
+        for (int i = 0; i < messages; i++) {
+            Message message = new Message(sender, "Nachricht Nummer " + i + " mit etwas Inhalt");
+            objects.add(message);
+            inMemory.append(message);
+            columnar.append(message);
+        }
+
+        System.out.printf("%-14s %14s %12s%n", "layout", "total bytes", "bytes/msg");
+        report("ArrayList", GraphLayout.parseInstance(objects).totalSize() - senderBytes, messages);
+        report("in-memory", footprint(inMemory) - senderBytes, messages);
+        // Der Resolver-Lambda hält den Absender; Message-Objekte entstehen nur beim Lesen
+        report("columnar", footprint(columnar) - senderBytes, messages);
+        System.out.printf("%-14s %14d %12.1f%n", "  davon UTF-8", (long) columnar.getContentBytes(),
+                columnar.getContentBytes() / (double) messages);
+    }
+
+    private static long footprint(MessageStore store) {
+        return GraphLayout.parseInstance(store).totalSize();
+    }
+
+    private static void report(String name, long bytes, int messages) {
+        System.out.printf("%-14s %14d %12.1f%n", name, bytes, bytes / (double) messages);
+    }
+}
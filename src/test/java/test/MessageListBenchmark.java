@@ -0,0 +1,202 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import domain.Message;
+import domain.User;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.layout.VBox;
+import store.InMemoryMessageStore;
+import store.MessageStore;
+import ui.MessageBubble;
+import ui.MessageCell;
+import ui.MessageListModel;
+
+/**
+ * Vergleicht die bisherige Nachrichtenanzeige (eine Sprechblase pro Nachricht in einer
+ * {@code VBox} im {@code ScrollPane}) mit der virtualisierten {@code ListView}.
+ * Gemessen werden erzeugte Sprechblasen, Knoten im Szenengraph, Zeit bis zum ersten
+ * Frame und die durchschnittliche Frame-Zeit beim Scrollen (CSS, Layout und Rendern).
+ * Zusätzlich wird pro eintreffender Nachricht verglichen, wie viele Sprechblasen ein
+ * vollständiger Neuaufbau der Liste gegenüber dem inkrementellen {@link MessageListModel}
+ * erzeugt und wie lange das Update bis zum fertigen Frame dauert.
+ *
+ * Läuft ohne Display über Monocle:
+ * {@code mvn test-compile exec:java -Dexec.mainClass=test.MessageListBenchmark -Dexec.classpathScope=test}
+ * Optionales Argument: Anzahl der Nachrichten (Standard 100000).
+ */
+public class MessageListBenchmark {
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 700;
+    private static final int SCROLL_FRAMES = 60;   // Gemessene Frames beim Scrollen
+    private static final int UPDATES = 200;        // Gemessene eintreffende Nachrichten
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        startHeadless();
+
+        User me = new User("Ich");
+        User other = new User("Du");
+        List<Message> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            messages.add(new Message(i % 3 == 0 ? me : other, "Nachricht Nummer " + i + " mit etwas Inhalt"));
+        }
+
+        System.out.printf("%-12s %10s %10s %14s %14s%n", "ansicht", "blasen", "knoten", "1. frame ms", "scroll ms/fr");
+        runOnFx(() -> measureVirtualized(messages, me));
+        runOnFx(() -> measureEager(messages, me));
+
+        System.out.printf("%n%-12s %14s %14s%n", "update", "blasen/update", "ms/update");
+        runOnFx(() -> measureUpdates(messages, me, false));
+        runOnFx(() -> measureUpdates(messages, me, true));
+        Platform.exit();
+    }
+
+    /**
+     * Misst eintreffende Nachrichten: entweder wird die Liste wie früher bei jeder
+     * Änderungsmeldung neu gesetzt oder das Modell hängt nur die neue Sequenz an.
+     */
+    private static void measureUpdates(List<Message> messages, User me, boolean incremental) {
+        MessageStore store = new InMemoryMessageStore();
+        for (Message message : messages) store.append(message);
+
+        AtomicInteger bubbles = new AtomicInteger();
+        ListView<Message> list = new ListView<>();
+        list.setCellFactory(view -> {
+            bubbles.incrementAndGet();
+            return new MessageCell(me::getUsername, () -> false);
+        });
+        MessageListModel model = new MessageListModel(store);
+        list.setItems(model);
+        list.scrollTo(model.size() - 1);
+        Scene scene = new Scene(list, WIDTH, HEIGHT);
+        frame(scene);
+
+        bubbles.set(0);
+        long start = System.nanoTime();
+        for (int i = 0; i < UPDATES; i++) {
+            store.append(new Message(me, "Neue Nachricht " + i));
+            if (incremental) {
+                model.refresh();
+            } else {
+                list.setItems(FXCollections.observableList(store.view())); // Vollständiger Neuaufbau
+            }
+            list.scrollTo(list.getItems().size() - 1);
+            frame(scene);
+        }
+        double perUpdate = (System.nanoTime() - start) / 1e6 / UPDATES;
+        System.out.printf("%-12s %14.2f %14.2f%n", incremental ? "inkrementell" : "neuaufbau",
+                (double) bubbles.get() / UPDATES, perUpdate);
+    }
+
+    private static void measureVirtualized(List<Message> messages, User me) {
+        AtomicInteger bubbles = new AtomicInteger();
+        long start = System.nanoTime();
+        ListView<Message> list = new ListView<>();
+        list.setCellFactory(view -> {
+            bubbles.incrementAndGet(); // Eine Sprechblase pro Zelle
+            return new MessageCell(me::getUsername, () -> false);
+        });
+        list.setItems(FXCollections.observableList(messages));
+        list.scrollTo(messages.size() - 1);
+        Scene scene = new Scene(list, WIDTH, HEIGHT);
+        frame(scene);
+        double firstFrame = (System.nanoTime() - start) / 1e6;
+
+        long scrollStart = System.nanoTime();
+        for (int i = 0; i < SCROLL_FRAMES; i++) {
+            list.scrollTo(messages.size() - 1 - i * 40); // Zurückscrollen um etwa eine Seite
+            frame(scene);
+        }
+        double perFrame = (System.nanoTime() - scrollStart) / 1e6 / SCROLL_FRAMES;
+        report("ListView", bubbles.get(), countNodes(list), firstFrame, perFrame);
+    }
+
+    private static void measureEager(List<Message> messages, User me) {
+        long start = System.nanoTime();
+        VBox container = new VBox(8);
+        for (Message message : messages) {
+            MessageBubble bubble = new MessageBubble();
+            bubble.show(message, message.getSender() == me, false);
+            container.getChildren().add(bubble);
+        }
+        ScrollPane scrollPane = new ScrollPane(container);
+        scrollPane.setFitToWidth(true);
+        scrollPane.setVvalue(1.0);
+        Scene scene = new Scene(scrollPane, WIDTH, HEIGHT);
+        frame(scene);
+        double firstFrame = (System.nanoTime() - start) / 1e6;
+
+        long scrollStart = System.nanoTime();
+        for (int i = 0; i < SCROLL_FRAMES; i++) {
+            scrollPane.setVvalue(1.0 - (i * 40.0) / messages.size());
+            frame(scene);
+        }
+        double perFrame = (System.nanoTime() - scrollStart) / 1e6 / SCROLL_FRAMES;
+        report("VBox", messages.size(), countNodes(scrollPane), firstFrame, perFrame);
+    }
+
+    /**
+     * Führt einen vollständigen Frame aus: CSS, Layout und Rendern in ein Bild.
+     */
+    static void frame(Scene scene) {
+        scene.getRoot().applyCss();
+        scene.getRoot().layout();
+        scene.snapshot(null);
+    }
+
+    static int countNodes(Node node) {
+        int count = 1;
+        if (node instanceof Parent) {
+            for (Node child : ((Parent) node).getChildrenUnmodifiable()) {
+                count += countNodes(child);
+            }
+        }
+        return count;
+    }
+
+    private static void report(String name, int bubbles, int nodes, double firstFrame, double perFrame) {
+        System.out.printf("%-12s %10d %10d %14.1f %14.2f%n", name, bubbles, nodes, firstFrame, perFrame);
+    }
+
+    /**
+     * Startet JavaFX mit der Headless-Plattform von Monocle und Software-Rendering.
+     */
+    static void startHeadless() throws InterruptedException {
+        System.setProperty("glass.platform", "Monocle");
+        System.setProperty("monocle.platform", "Headless");
+        System.setProperty("prism.order", "sw");
+        CountDownLatch started = new CountDownLatch(1);
+        Platform.startup(started::countDown);
+        started.await();
+    }
+
+    /**
+     * Führt die Aufgabe auf dem FX-Thread aus und gibt dort aufgetretene Fehler weiter.
+     */
+    static void runOnFx(Runnable task) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Platform.runLater(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException | Error e) {
+                failure.set(new IllegalStateException("Fehler auf dem FX-Thread", e));
+            } finally {
+                done.countDown();
+            }
+        });
+        done.await();
+        if (failure.get() != null) throw failure.get();
+    }
+}
@@ -0,0 +1,130 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import domain.Message;
+import domain.User;
+import javafx.collections.ListChangeListener;
+import store.InMemoryMessageStore;
+import store.MessageStore;
+import ui.MessageListModel;
+
+public class MessageListModelTest {
+
+    private static MessageStore history(User sender, int count) {
+        MessageStore store = new InMemoryMessageStore();
+        for (int i = 0; i < count; i++) store.append(new Message(sender, "m" + i));
+        return store;
+    }
+
+    @Test
+    public void testOpensWithLatestPageOnly() {
+        MessageStore store = history(new User("Alice"), 1000);
+        MessageListModel model = new MessageListModel(store, 50, 3, Runnable::run, Runnable::run);
+
+        assertEquals(50, model.size());
+        assertEquals("m950", model.get(0).getContent());
+        assertTrue(model.hasOlder());
+        assertFalse(model.hasNewer());
+    }
+
+    @Test
+    public void testRefreshAppendsOnlyNewMessages() {
+        User alice = new User("Alice");
+        MessageStore store = history(alice, 100);
+        MessageListModel model = new MessageListModel(store);
+        List<String> changes = new ArrayList<>();
+        model.addListener((ListChangeListener<Message>) c -> {
+            while (c.next()) changes.add(c.getFrom() + "-" + c.getTo());
+        });
+
+        assertEquals(0, model.refresh());
+        store.append(new Message(alice, "neu1"));
+        store.append(new Message(alice, "neu2"));
+        assertEquals(2, model.refresh());
+
+        assertEquals(52, model.size());
+        assertEquals("neu2", model.get(51).getContent());
+        assertEquals(List.of("50-52"), changes);
+    }
+
+    @Test
+    public void testScrollBackPrependsAndEvictsNewest() {
+        User alice = new User("Alice");
+        MessageStore store = history(alice, 1000);
+        List<Runnable> pending = new ArrayList<>();
+        MessageListModel model = new MessageListModel(store, 50, 3, pending::add, Runnable::run);
+
+        assertTrue(model.loadOlder());
+        assertFalse("Nur ein Ladevorgang gleichzeitig", model.loadOlder());
+        assertEquals(50, model.size()); // Erst nach dem Hintergrundlauf eingefügt
+        pending.remove(0).run();
+        assertEquals(100, model.size());
+        assertEquals("m900", model.get(0).getContent());
+
+        for (int i = 0; i < 3; i++) {
+            model.loadOlder();
+            pending.remove(0).run();
+        }
+        assertEquals(150, model.size()); // Fenster bleibt begrenzt
+        assertEquals("m750", model.get(0).getContent());
+        assertEquals("m899", model.get(149).getContent());
+        assertTrue(model.hasNewer());
+        assertEquals(100, model.getEvicted());
+
+        // Neue Nachrichten werden nicht angehängt, solange weit zurückgescrollt ist
+        store.append(new Message(alice, "neu"));
+        assertEquals(0, model.refresh());
+
+        while (model.hasNewer()) {
+            model.loadNewer();
+            pending.remove(0).run();
+        }
+        assertEquals("neu", model.get(model.size() - 1).getContent());
+        assertEquals(150, model.size());
+    }
+
+    @Test
+    public void testDeletedMessagesAreRemovedFromWindow() {
+        User alice = new User("Alice");
+        MessageStore store = history(alice, 10);
+        MessageListModel model = new MessageListModel(store);
+
+        store.deleteBefore(5);
+        long seq = store.append(new Message(alice, "weg"));
+        store.append(new Message(alice, "bleibt"));
+        store.delete(seq);
+
+        assertEquals(1, model.refresh());
+        assertEquals(6, model.size());
+        assertEquals("m5", model.get(0).getContent());
+        assertEquals("bleibt", model.get(5).getContent());
+        assertFalse(model.hasOlder());
+    }
+
+    @Test
+    public void testRefreshAsyncReadsInBackground() {
+        User alice = new User("Alice");
+        MessageStore store = history(alice, 10);
+        List<Runnable> pending = new ArrayList<>();
+        MessageListModel model = new MessageListModel(store, 50, 3, pending::add, Runnable::run);
+        List<Integer> appended = new ArrayList<>();
+
+        store.append(new Message(alice, "neu"));
+        model.refreshAsync(appended::add);
+        model.refreshAsync(appended::add); // Wird nach dem laufenden Abgleich nachgeholt
+        assertEquals(10, model.size());
+
+        pending.remove(0).run();
+        assertEquals(11, model.size());
+        assertEquals(List.of(1), appended);
+        pending.remove(0).run();
+        assertEquals(List.of(1, 0), appended);
+        assertTrue(pending.isEmpty());
+    }
+}
@@ -0,0 +1,85 @@
+package test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import domain.Message;
+import domain.User;
+import store.ColumnarMessageStore;
+import store.JdbcMessageStoreFactory;
+import store.MappedSegmentStore;
+import store.MessageStore;
+import store.MessageStoreFactory;
+import store.TieredHistoryStore;
+
+/**
+ * Gemeinsamer Benchmark für alle MessageStore-Backends.
+ * Misst Durchsatz und Latenz (p50/p99) für Anhängen, Seitenlesen und Einzelzugriffe,
+ * damit pro Deployment das passende Backend gewählt werden kann.
+ *
+ * Start: {@code mvn test-compile exec:java -Dexec.mainClass=test.MessageStoreBenchmark -Dexec.classpathScope=test}
+ * Optionales Argument: Anzahl der Nachrichten (Standard 100000).
+ */
+public class MessageStoreBenchmark {
+    private static final int PAGE_SIZE = 50;   // Nachrichten pro Seite beim Zurückscrollen
+    private static final int READS = 2000;     // Anzahl der gemessenen Lesezugriffe
+
+    public static void main(String[] args) throws IOException {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        User sender = new User("Bench");
+        Path dir = Files.createTempDirectory("store-bench");
+
+        Map<String, Supplier<MessageStoreFactory>> backends = new LinkedHashMap<>();
+        backends.put("in-memory", MessageStoreFactory::inMemory);
+        backends.put("columnar", () -> ColumnarMessageStore.factory(id -> sender));
+        backends.put("mapped", () -> new MappedSegmentStore(dir.resolve("mapped"), id -> sender));
+        backends.put("tiered", () -> new TieredHistoryStore(new MappedSegmentStore(dir.resolve("tiered"), id -> sender)));
+        backends.put("jdbc-h2", () -> new JdbcMessageStoreFactory("jdbc:h2:" + dir.resolve("h2"), id -> sender));
+
+        System.out.printf("%-10s %14s %10s %10s %14s %10s %10s%n",
+                "backend", "append msg/s", "p50 µs", "p99 µs", "page read/s", "p50 µs", "p99 µs");
+        for (Map.Entry<String, Supplier<MessageStoreFactory>> backend : backends.entrySet()) {
+            try (MessageStoreFactory factory = backend.getValue().get()) {
+                run(backend.getKey(), factory.open("bench-room"), sender, messages);
+            }
+        }
+    }
+
+    private static void run(String name, MessageStore store, User sender, int messages) {
+        long[] appendNanos = new long[messages];
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            long t = System.nanoTime();
+            store.append(new Message(sender, "Nachricht Nummer " + i + " mit etwas Inhalt"));
+            appendNanos[i] = System.nanoTime() - t;
+        }
+        double appendRate = messages / ((System.nanoTime() - start) / 1e9);
+
+        Random random = new Random(42);
+        long[] readNanos = new long[READS];
+        start = System.nanoTime();
+        for (int i = 0; i < READS; i++) {
+            long from = random.nextInt(Math.max(1, messages - PAGE_SIZE));
+            long t = System.nanoTime();
+            store.read(from, PAGE_SIZE);
+            readNanos[i] = System.nanoTime() - t;
+        }
+        double readRate = READS / ((System.nanoTime() - start) / 1e9);
+
+        System.out.printf("%-10s %14.0f %10.1f %10.1f %14.0f %10.1f %10.1f%n", name,
+                appendRate, percentile(appendNanos, 0.50), percentile(appendNanos, 0.99),
+                readRate, percentile(readNanos, 0.50), percentile(readNanos, 0.99));
+    }
+
+    private static double percentile(long[] nanos, double p) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)))] / 1000.0;
+    }
+}
@@ -0,0 +1,248 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import domain.*;
+import fassade.ChatService;
+import store.ColumnarMessageStore;
+import store.InMemoryMessageStore;
+import store.JdbcMessageStoreFactory;
+import store.MappedSegmentStore;
+import store.MessagePage;
+import store.MessageStore;
+import store.MessageStoreFactory;
+import store.TieredHistoryStore;
+
+public class MessageStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private User alice;
+    private MappedSegmentStore mapped;
+    private JdbcMessageStoreFactory jdbc;
+
+    @Before
+    public void setUp() {
+        alice = new User("Alice");
+        mapped = new MappedSegmentStore(folder.getRoot().toPath(), 4096, id -> alice);
+        jdbc = new JdbcMessageStoreFactory("jdbc:h2:mem:storetest", id -> alice);
+    }
+
+    @After
+    public void tearDown() {
+        mapped.close();
+        jdbc.close();
+    }
+
+    private MessageStore[] backends() {
+        return new MessageStore[] {
+            new InMemoryMessageStore(),
+            mapped.open("chat-1"),
+            new TieredHistoryStore(MessageStoreFactory.inMemory(), 3, 1024).open("chat-1"),
+            jdbc.open("chat-1"),
+            new ColumnarMessageStore(id -> alice)
+        };
+    }
+
+    private static void fill(MessageStore store, User sender, int n) {
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, store.append(new Message(sender, "m" + i)));
+        }
+    }
+
+    @Test
+    public void testRangeRead() {
+        for (MessageStore store : backends()) {
+            fill(store, alice, 10);
+            List<Message> page = store.read(4, 3);
+            assertEquals(3, page.size());
+            assertEquals("m4", page.get(0).getContent());
+            assertEquals("m6", page.get(2).getContent());
+            assertEquals(10, store.count());
+        }
+    }
+
+    @Test
+    public void testDeleteKeepsSequences() {
+        for (MessageStore store : backends()) {
+            fill(store, alice, 5);
+            assertTrue(store.delete(2));
+            assertFalse(store.delete(2));
+
+            assertNull(store.get(2));
+            assertEquals("m3", store.get(3).getContent());
+            assertEquals(4, store.count());
+
+            List<Message> view = store.view();
+            assertEquals(4, view.size());
+            assertEquals("m3", view.get(2).getContent());
+        }
+    }
+
+    @Test
+    public void testDeleteBeforeCompactsPrefix() {
+        for (MessageStore store : backends()) {
+            fill(store, alice, 8);
+            store.delete(1);
+            assertEquals(4, store.deleteBefore(5));
+
+            assertEquals(5, store.firstSequence());
+            assertEquals(8, store.nextSequence());
+            assertEquals(3, store.count());
+            assertEquals("m5", store.read(0, 10).get(0).getContent());
+            assertEquals(8, store.append(new Message(alice, "m8")));
+        }
+    }
+
+    @Test
+    public void testChatServiceWithSqlBackend() {
+        ChatService service = new ChatService(users -> new JdbcMessageStoreFactory("jdbc:h2:mem:servicetest", users));
+        service.createUser("Alice");
+        service.createUser("Bob");
+        int roomId = service.createChatRoom("Alice", "Bob");
+        service.sendMessage(roomId, "Alice", "Hallo");
+
+        List<Message> messages = service.showMessage(roomId);
+        assertEquals(1, messages.size());
+        assertEquals("Alice", messages.get(0).getSender().getUsername());
+        service.close();
+    }
+
+    @Test
+    public void testSqlViewReadsAcrossPages() {
+        MessageStore store = jdbc.open("group-1");
+        int n = JdbcMessageStoreFactory.VIEW_PAGE_SIZE * 2 + 5;
+        fill(store, alice, n);
+        store.delete(JdbcMessageStoreFactory.VIEW_PAGE_SIZE);
+        assertTrue(store.contains(1));
+        assertFalse(store.contains(JdbcMessageStoreFactory.VIEW_PAGE_SIZE));
+
+        List<Message> view = store.view();
+        assertEquals(n - 1, view.size());
+        assertEquals("m" + (n - 1), view.get(view.size() - 1).getContent());
+        assertEquals("m" + (JdbcMessageStoreFactory.VIEW_PAGE_SIZE + 1), view.get(JdbcMessageStoreFactory.VIEW_PAGE_SIZE).getContent());
+        assertEquals("m0", view.get(0).getContent());
+    }
+
+    @Test
+    public void testSqlHistoryIsNotReattachedAfterRestart() throws Exception {
+        String url = "jdbc:h2:" + folder.getRoot().toPath().resolve("restart");
+        JdbcMessageStoreFactory first = new JdbcMessageStoreFactory(url, id -> alice);
+        first.open("chat-1000").append(new Message(alice, "Vor dem Neustart"));
+        first.close();
+
+        JdbcMessageStoreFactory second = new JdbcMessageStoreFactory(url, id -> alice);
+        assertNotEquals(first.getEpoch(), second.getEpoch());
+        assertEquals(0, second.open("chat-1000").count()); // Gleiche ID, aber ein anderer Raum
+        try (Connection connection = DriverManager.getConnection(url);
+                Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM messages")) {
+            rs.next();
+            assertEquals(0, rs.getInt(1)); // Die alte Epoche ist gelöscht
+        }
+        second.close();
+    }
+
+    @Test
+    public void testSqlStoresLongMessages() {
+        MessageStore store = jdbc.open("chat-2");
+        String content = "x".repeat(100_000);
+        store.append(new Message(alice, content));
+        assertEquals(content, store.get(0).getContent());
+    }
+
+    @Test
+    public void testSqlFailedBatchIsDiscarded() throws Exception {
+        MessageStore store = jdbc.open("chat-3");
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:storetest");
+                Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO messages VALUES ('" + jdbc.getEpoch() + "/chat-3', 1, 0, 0, 0, 'belegt')");
+        }
+        store.append(new Message(alice, "eins"));
+        store.append(new Message(alice, "zwei")); // Kollidiert mit der belegten Zeile
+        try {
+            store.get(0);
+            fail("Der Batch muss fehlschlagen");
+        } catch (IllegalStateException e) {
+            assertEquals("Nachrichten konnten nicht gespeichert werden", e.getMessage());
+        }
+
+        assertEquals(0, store.count());
+        assertFalse(store.contains(0));
+        assertEquals(2, store.append(new Message(alice, "drei")));
+        assertEquals("drei", store.get(2).getContent()); // Der Raum bleibt benutzbar
+        assertEquals(1, store.view().size());
+    }
+
+    @Test
+    public void testColumnarReadsAreDetached() {
+        ColumnarMessageStore store = new ColumnarMessageStore(id -> alice);
+        store.append(new Message(alice, "Grüße", MessageType.LINK));
+        store.append(new Message(alice, "zwei"));
+        store.deleteBefore(1);
+
+        Message message = store.get(1);
+        assertEquals("zwei", message.getContent());
+        assertEquals(alice, message.getSender());
+        assertEquals(MessageType.TEXT, message.getType());
+        assertEquals(4, store.getContentBytes());
+
+        message.setContent("geändert");
+        store.deleteBefore(2);
+        assertEquals("geändert", message.getContent()); // Bleibt nach dem Löschen lesbar
+        assertEquals(0, store.count());
+    }
+
+    @Test
+    public void testMessagePageDecodesLazily() {
+        byte[] page = MessagePage.encode(List.of(new Message(alice, "eins"), new Message(alice, "zwei", MessageType.LINK)));
+        int[] resolved = {0};
+        List<Message> messages = MessagePage.view(ByteBuffer.wrap(page), id -> {
+            resolved[0]++;
+            return alice;
+        });
+        assertEquals(2, messages.size());
+        assertEquals(0, resolved[0]); // Noch nichts dekodiert
+        Message second = messages.get(1);
+        assertEquals("zwei", second.getContent());
+        assertEquals(MessageType.LINK, second.getType());
+        assertEquals(1, resolved[0]);
+
+        try {
+            MessagePage.view(ByteBuffer.wrap(Arrays.copyOf(page, page.length - 1)), id -> alice);
+            fail("Abgeschnittene Seite muss erkannt werden");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testMessagePageRejectsImpossibleCounts() {
+        ByteBuffer[] corrupt = {
+            ByteBuffer.allocate(0),                                  // Nicht einmal eine Anzahl
+            ByteBuffer.allocate(4).putInt(0, -1),                    // Negativ
+            ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE)      // Mehr, als hineinpasst
+        };
+        for (ByteBuffer page : corrupt) {
+            try {
+                MessagePage.view(page, id -> alice);
+                fail("Beschädigte Seite muss erkannt werden");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+}
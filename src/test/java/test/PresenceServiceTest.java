@@ -0,0 +1,90 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import domain.User;
+import domain.UserInfo;
+import fassade.ChatService;
+import presence.PresenceService;
+import presence.PresenceState;
+
+public class PresenceServiceTest {
+
+    @Test
+    public void testFlappingIsCoalesced() {
+        User alice = new User("Alice");
+        User bob = new User("Bob");
+        Map<Integer, User> users = new HashMap<>();
+        users.put(alice.getUserId(), alice);
+        users.put(bob.getUserId(), bob);
+
+        // Nicht gestartet: nur explizites flush() verteilt
+        PresenceService presence = new PresenceService(users::get, user -> Set.of(bob.getUserId()), 1000);
+        List<List<PresenceState>> updates = new ArrayList<>();
+        presence.subscribe(bob.getUserId(), updates::add);
+
+        alice.setOnline(false);
+        presence.update(alice);
+        presence.flush();
+        updates.clear();
+
+        for (int i = 0; i < 50; i++) {
+            alice.setOnline(true);
+            presence.update(alice);
+            alice.setOnline(false);
+            presence.update(alice);
+        }
+        presence.flush();
+        assertTrue(updates.isEmpty()); // Endzustand unverändert offline
+
+        alice.setOnline(true);
+        presence.update(alice);
+        alice.setUserInfo(UserInfo.BESCHÄFTIGT);
+        presence.update(alice);
+        presence.flush();
+        assertEquals(1, updates.size());
+        assertEquals(1, updates.get(0).size());
+        assertTrue(updates.get(0).get(0).isOnline());
+        assertEquals(UserInfo.BESCHÄFTIGT, updates.get(0).get(0).getUserInfo());
+        assertEquals(2, presence.getPushed());
+    }
+
+    @Test
+    public void testOnlyContactsAndRoomPartnersReceiveChanges() throws InterruptedException {
+        ChatService service = new ChatService();
+        service.createUser("Alice");
+        service.createUser("Bob");
+        service.createUser("Carol");
+        service.createUser("Dave");
+        service.addContact("Alice", "Bob");     // Bob führt Alice als Kontakt
+        service.createChatRoom("Alice", "Carol"); // Carol teilt einen Raum mit Alice
+
+        List<PresenceState> bob = Collections.synchronizedList(new ArrayList<>());
+        List<PresenceState> carol = Collections.synchronizedList(new ArrayList<>());
+        List<PresenceState> dave = Collections.synchronizedList(new ArrayList<>());
+        service.subscribePresence("Bob", bob::addAll);
+        service.subscribePresence("Carol", carol::addAll);
+        service.subscribePresence("Dave", dave::addAll);
+
+        service.updateUserStatus("Alice", UserInfo.BESCHÄFTIGT);
+        long deadline = System.currentTimeMillis() + 2000;
+        while ((bob.isEmpty() || carol.isEmpty()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        service.getPresenceService().flush();
+
+        assertEquals("Alice", bob.get(0).getUsername());
+        assertEquals(UserInfo.BESCHÄFTIGT, carol.get(0).getUserInfo());
+        assertTrue(dave.isEmpty());
+        service.close();
+    }
+}
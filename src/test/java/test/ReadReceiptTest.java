@@ -0,0 +1,107 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import client.ReceiptBatcher;
+import domain.*;
+import fassade.ChatService;
+
+public class ReadReceiptTest {
+
+    @Test
+    public void testReadCountsFromWatermarks() {
+        User alice = new User("Alice");
+        User bob = new User("Bob");
+        User carol = new User("Carol");
+        GruppenRoom group = new GruppenRoom(alice, "Team", null);
+        group.addParticipant(bob);
+        group.addParticipant(carol);
+        for (int i = 0; i < 10; i++) {
+            group.addMessage(alice, "m" + i);
+        }
+
+        assertTrue(group.markRead(bob, 7));
+        assertTrue(group.markRead(carol, 3));
+        assertFalse(group.markRead(bob, 5)); // Marke wandert nicht zurück
+
+        assertEquals(7, group.getReadWatermark(bob));
+        assertEquals(-1, group.getReadWatermark(alice));
+        assertEquals(2, group.getReadCount(3));
+        assertEquals(1, group.getReadCount(4));
+        assertEquals(0, group.getReadCount(8));
+
+        group.removeParticipant(alice, bob);
+        assertEquals(0, group.getReadCount(4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCannotMarkUnsentMessage() {
+        User alice = new User("Alice");
+        GruppenRoom group = new GruppenRoom(alice, "Team", null);
+        group.markRead(alice, 0);
+    }
+
+    @Test
+    public void testBatcherCoalescesScrolling() {
+        List<long[]> updates = new ArrayList<>();
+        try (ReceiptBatcher batcher = new ReceiptBatcher(
+                (groupId, seq) -> updates.add(new long[] {groupId, seq}), Duration.ofHours(1))) {
+            for (int seq = 0; seq < 500; seq++) {
+                batcher.markRead(42, seq);
+            }
+            batcher.flush();
+            batcher.markRead(42, 100); // Bereits bestätigt
+            batcher.flush();
+
+            assertEquals(1, updates.size());
+            assertArrayEquals(new long[] {42, 499}, updates.get(0));
+            assertEquals(501, batcher.getReceived());
+            assertEquals(1, batcher.getFlushed());
+        }
+    }
+
+    @Test
+    public void testServiceReadCount() {
+        ChatService service = new ChatService();
+        service.createUser("Alice");
+        service.createUser("Bob");
+        int groupId = service.createGruppenRoom("Alice", "Team", null);
+        service.addParticipantToGroup(groupId, "Alice", "Bob");
+        service.sendGroupMessage(groupId, "Alice", "Hallo");
+
+        try (ReceiptBatcher batcher = new ReceiptBatcher((id, seq) -> service.markGroupRead(id, "Bob", seq))) {
+            batcher.markRead(groupId, 0);
+        }
+        assertEquals(1, service.getGroupReadCount(groupId, 0));
+        service.close();
+    }
+
+    @Test
+    public void testReceiptDoesNotNotifyUpdateListeners() {
+        ChatService service = new ChatService();
+        service.createUser("Alice");
+        service.createUser("Bob");
+        int groupId = service.createGruppenRoom("Alice", "Team", null);
+        service.addParticipantToGroup(groupId, "Alice", "Bob");
+        service.sendGroupMessage(groupId, "Alice", "Hallo");
+
+        List<Runnable> updates = new ArrayList<>();
+        List<long[]> receipts = new ArrayList<>();
+        service.addUpdateListener(() -> updates.add(null));
+        service.addReceiptListener((id, userId, seq) -> receipts.add(new long[] {id, userId, seq}));
+        service.markGroupRead(groupId, "Bob", 0);
+        service.markGroupRead(groupId, "Bob", 0); // Marke unverändert
+
+        assertTrue(updates.isEmpty());
+        assertEquals(1, receipts.size());
+        assertEquals(groupId, receipts.get(0)[0]);
+        assertEquals(0, receipts.get(0)[2]);
+        service.close();
+    }
+}
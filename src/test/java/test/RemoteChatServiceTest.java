@@ -0,0 +1,389 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import client.RemoteChatService;
+import domain.GruppenRoom;
+import domain.User;
+import domain.UserInfo;
+import fassade.ChatService;
+import presence.PresenceState;
+import server.ServiceServer;
+import store.MessageStore;
+
+public class RemoteChatServiceTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ChatService service;
+    private ServiceServer server;
+    private RemoteChatService alice;
+    private RemoteChatService bob;
+
+    @Before
+    public void setUp() {
+        service = new ChatService();
+        server = new ServiceServer(service, 0);
+        server.start();
+        alice = connect();
+        bob = connect();
+        alice.createUser("Alice");
+        alice.createUser("Bob");
+        alice.createUser("Carol");
+    }
+
+    @After
+    public void tearDown() {
+        alice.close();
+        bob.close();
+        server.close();
+    }
+
+    private RemoteChatService connect() {
+        return new RemoteChatService(new InetSocketAddress("localhost", server.getPort()), 5000);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("Zeitüberschreitung", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void testClientsShareServerState() throws Exception {
+        assertTrue(alice.addContact("Bob", "Alice"));
+        int groupId = bob.createGruppenRoom("Bob", "Team", "Mit\tTab\nund Umbruch");
+        assertEquals(alice.createChatRoom("Alice", "Bob"), bob.createChatRoom("Bob", "Alice"));
+
+        assertEquals("Bob", alice.getUserContacts("Alice").get(0).getUsername());
+        GruppenRoom group = (GruppenRoom) bob.getAllChatsForUser("Bob").get(0);
+        assertEquals(groupId, group.getGroupId());
+        assertEquals("Mit\tTab\nund Umbruch", group.getDescription());
+
+        try {
+            bob.createUser("Alice");
+            fail("Doppelter Benutzer muss abgelehnt werden");
+        } catch (IllegalArgumentException e) {
+            assertEquals("User existiert bereits: Alice", e.getMessage());
+        }
+
+        List<PresenceState> seen = new CopyOnWriteArrayList<>();
+        alice.subscribePresence("Alice", seen::addAll);
+        bob.updateUserProfile("Bob", "Bobby", UserInfo.CUSTOM, "Im Urlaub");
+        await(() -> seen.stream().anyMatch(state -> "Bobby".equals(state.getUsername())));
+        assertEquals("Im Urlaub", alice.getUserContacts("Alice").get(0).getStatusText());
+    }
+
+    @Test
+    public void testLoginConnectsAndDrainsDeliveries() throws Exception {
+        int groupId = alice.createGruppenRoom("Alice", "Team", "Gruppe");
+        service.addParticipantToGroup(groupId, "Alice", "Bob");
+        service.addContact("Bob", "Alice");
+        alice.sendGroupMessage(groupId, "Alice", "Während Bob offline ist");
+        await(() -> service.getPendingDeliveries("Bob") == 1);
+
+        bob.subscribePresence("Bob", changes -> { });
+        await(() -> service.getPendingDeliveries("Bob") == 0); // Beim LOGIN nachgeliefert
+        assertTrue(service.getUserContacts("Alice").get(0).isOnline());
+
+        bob.close();
+        await(() -> !service.getUserContacts("Alice").get(0).isOnline());
+        alice.sendGroupMessage(groupId, "Alice", "Wieder offline");
+        await(() -> service.getPendingDeliveries("Bob") == 1);
+    }
+
+    @Test
+    public void testReadReceiptUsesServerSequence() throws Exception {
+        int groupId = alice.createGruppenRoom("Alice", "Team", "Gruppe");
+        service.addParticipantToGroup(groupId, "Alice", "Bob");
+        for (int i = 0; i < 3; i++) service.sendGroupMessage(groupId, "Alice", "m" + i);
+        service.getGroupHistory(groupId).delete(0); // Lokale und Server-Sequenzen weichen ab
+
+        bob.subscribePresence("Bob", changes -> { });
+        MessageStore history = bob.getGroupHistory(groupId);
+        assertEquals("m2", history.get(1).getContent());
+        bob.markGroupRead(groupId, "Bob", 1);
+        assertEquals(1, service.getGroupReadCount(groupId, 2));
+    }
+
+    @Test
+    public void testTypingReachesWatchersOnly() throws Exception {
+        RemoteChatService carol = connect();
+        try {
+            List<String> seenByBob = new CopyOnWriteArrayList<>();
+            List<String> seenByCarol = new CopyOnWriteArrayList<>();
+            bob.addTypingListener((chatId, group, user) -> seenByBob.add(user));
+            carol.addTypingListener((chatId, group, user) -> seenByCarol.add(user));
+            alice.subscribePresence("Alice", changes -> { });
+            bob.subscribePresence("Bob", changes -> { });
+            carol.subscribePresence("Carol", changes -> { });
+
+            int roomId = alice.createChatRoom("Alice", "Bob");
+            bob.getChatRoomHistory(roomId); // Bob beobachtet den Raum, Carol nicht
+            alice.sendTyping(roomId, false, "Alice");
+            await(() -> seenByBob.contains("Alice"));
+            assertTrue(seenByCarol.isEmpty());
+        } finally {
+            carol.close();
+        }
+    }
+
+    @Test
+    public void testConnectionIsBoundToLoggedInUser() throws Exception {
+        int roomId = service.createChatRoom("Alice", "Bob");
+        RemoteChatService anonymous = connect();
+        try {
+            anonymous.getChatRoomHistory(roomId);
+            fail("Vor LOGIN darf nichts gelesen werden");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Nicht angemeldet", e.getMessage());
+        } finally {
+            anonymous.close();
+        }
+
+        alice.subscribePresence("Alice", changes -> { });
+        try {
+            alice.sendMessage(roomId, "Bob", "Im Namen von Bob");
+            fail("Fremder Absender muss abgelehnt werden");
+        } catch (IllegalStateException e) {
+            assertEquals("Verbindung ist angemeldet als Alice", e.getMessage());
+        }
+        alice.updateUserProfile("Alice", "Alicia", UserInfo.CUSTOM, "");
+        alice.sendMessage(roomId, "Alicia", "Nach der Umbenennung");
+        await(() -> service.showMessage(roomId).size() == 1);
+        assertEquals("Alicia", service.showMessage(roomId).get(0).getSender().getUsername());
+    }
+
+    @Test
+    public void testNonMemberCannotReadOrSignal() throws Exception {
+        RemoteChatService carol = connect();
+        try {
+            List<String> typing = new CopyOnWriteArrayList<>();
+            service.addTypingListener((chatId, group, user) -> typing.add(user));
+            carol.subscribePresence("Carol", changes -> { });
+            int roomId = service.createChatRoom("Alice", "Bob");
+            int groupId = service.createGruppenRoom("Alice", "Team", null);
+            service.sendMessage(roomId, "Alice", "Privat");
+
+            try {
+                carol.getChatRoomHistory(roomId);
+                fail("Fremder Chatraum darf nicht gelesen werden");
+            } catch (IllegalArgumentException e) {
+                assertEquals("User ist nicht Teil des Chatrooms", e.getMessage());
+            }
+            try {
+                carol.getGroupHistory(groupId);
+                fail("Fremde Gruppe darf nicht gelesen werden");
+            } catch (IllegalArgumentException e) {
+                assertEquals("User ist nicht Teil der Gruppe", e.getMessage());
+            }
+
+            carol.sendTyping(roomId, false, "Carol");
+            carol.sendTyping(groupId, true, "Carol");
+            carol.getUserContacts("Carol"); // Antwort kommt erst nach beiden Signalen
+            assertTrue(typing.isEmpty());
+        } finally {
+            carol.close();
+        }
+    }
+
+    @Test
+    public void testWatchesAreCappedAndReloaded() throws Exception {
+        alice.subscribePresence("Alice", changes -> { });
+        int first = service.createGruppenRoom("Alice", "Gruppe 0", null);
+        MessageStore history = alice.getGroupHistory(first);
+        for (int i = 1; i <= ServiceServer.MAX_WATCHES; i++) {
+            alice.getGroupHistory(service.createGruppenRoom("Alice", "Gruppe " + i, null)); // Verdrängt die erste
+        }
+
+        service.sendGroupMessage(first, "Alice", "Ohne Push");
+        assertSame(history, alice.getGroupHistory(first)); // Lädt nach, statt den Cache zu verwenden
+        assertEquals(1, history.count());
+        assertEquals("Ohne Push", history.get(history.firstSequence()).getContent());
+    }
+
+    @Test
+    public void testOptimisticSendIsNotDuplicated() throws Exception {
+        int roomId = alice.createChatRoom("Alice", "Bob");
+        bob.subscribePresence("Bob", changes -> { });
+        MessageStore mine = alice.getChatRoomHistory(roomId);
+        MessageStore theirs = bob.getChatRoomHistory(roomId);
+        List<Runnable> updates = new CopyOnWriteArrayList<>();
+        alice.addUpdateListener(() -> updates.add(null));
+
+        alice.sendMessage(roomId, "Alice", "Hallo Bob");
+        assertEquals(1, mine.count()); // Sofort sichtbar, ohne auf den Server zu warten
+        assertEquals(1, updates.size());
+
+        await(() -> theirs.count() == 1 && alice.getPendingSends() == 0);
+        assertEquals("Alice", theirs.get(theirs.firstSequence()).getSender().getUsername());
+        bob.sendMessage(roomId, "Bob", "Hallo Alice");
+        await(() -> mine.count() == 2 && theirs.count() == 2);
+        assertEquals(2, mine.count()); // Eigener Push wurde nicht erneut angehängt
+        assertEquals("Hallo Alice", mine.get(mine.nextSequence() - 1).getContent());
+    }
+
+    @Test
+    public void testRejectedSendIsRolledBack() throws Exception {
+        int groupId = service.createGruppenRoom("Bob", "Team", null);
+        service.addParticipantToGroup(groupId, "Bob", "Alice");
+        alice.subscribePresence("Alice", changes -> { });
+        MessageStore mine = alice.getGroupHistory(groupId);
+        List<RuntimeException> failures = new CopyOnWriteArrayList<>();
+        alice.addSendFailureListener(failures::add);
+
+        GruppenRoom group = (GruppenRoom) service.getAllChatsForUser("Bob").get(0);
+        User self = group.getParticipants().get(1);
+        assertEquals("Alice", self.getUsername());
+        synchronized (service) {
+            group.removeParticipant(self, self); // Alice verlässt die Gruppe, der Cache bleibt
+        }
+
+        alice.sendGroupMessage(groupId, "Alice", "Ich gehöre nicht mehr hierher");
+        await(() -> alice.getRolledBack() == 1);
+        assertEquals(0, mine.count());
+        assertEquals("Nur Gruppenmitglieder können Nachrichten senden", failures.get(0).getMessage());
+    }
+
+    /**
+     * Erste Sitzung mit Snapshot: Kontakt, Gruppe und drei Nachrichten im geöffneten Raum.
+     */
+    private int firstSession(Path snapshot) throws Exception {
+        RemoteChatService first = new RemoteChatService(new InetSocketAddress("localhost", server.getPort()), 5000, snapshot);
+        first.addContact("Bob", "Alice");
+        first.createGruppenRoom("Alice", "Team", "Gruppe");
+        first.subscribePresence("Alice", changes -> { });
+        assertEquals(1, first.getUserContacts("Alice").size());
+        assertEquals(1, first.getAllChatsForUser("Alice").size());
+        int roomId = first.createChatRoom("Alice", "Bob");
+        first.getChatRoomHistory(roomId);
+        for (int i = 0; i < 3; i++) first.sendMessage(roomId, "Alice", "Nachricht " + i);
+        await(() -> first.getPendingSends() == 0);
+        first.close();
+        assertTrue(Files.size(snapshot) > 0);
+        return roomId;
+    }
+
+    @Test
+    public void testSnapshotIsServedWithoutServer() throws Exception {
+        Path snapshot = folder.getRoot().toPath().resolve("alice.snapshot");
+        int roomId = firstSession(snapshot);
+
+        RemoteChatService restarted = new RemoteChatService(new InetSocketAddress("localhost", server.getPort()), 5000, snapshot);
+        server.close(); // Alles Weitere kommt aus dem Snapshot
+        assertEquals("Bob", restarted.getUserContacts("Alice").get(0).getUsername());
+        assertEquals("Team", ((GruppenRoom) restarted.getAllChatsForUser("Alice").get(0)).getName());
+        assertEquals(roomId, restarted.createChatRoom("Alice", "Bob"));
+        MessageStore history = restarted.getChatRoomHistory(roomId);
+        assertEquals(3, history.count());
+        assertEquals("Nachricht 0", history.get(history.firstSequence()).getContent());
+        assertEquals("Alice", history.get(history.firstSequence()).getSender().getUsername());
+        restarted.close();
+    }
+
+    @Test
+    public void testSnapshotAlternatesWithMappedFile() throws Exception {
+        Path snapshot = folder.getRoot().toPath().resolve("alice.snapshot");
+        Path alternate = folder.getRoot().toPath().resolve("alice.snapshot.alt");
+        int roomId = firstSession(snapshot);
+        assertFalse(Files.exists(alternate));
+
+        for (int start = 0; start < 2; start++) {
+            byte[] mapped = Files.readAllBytes(Files.exists(alternate) ? alternate : snapshot);
+            RemoteChatService restarted = new RemoteChatService(new InetSocketAddress("localhost", server.getPort()), 5000, snapshot);
+            restarted.getChatRoomHistory(roomId);
+            restarted.close();
+            assertTrue(Files.exists(alternate));
+            // Der eingeblendete Platz bleibt unverändert, geschrieben wird der andere
+            assertTrue(Arrays.equals(mapped, Files.readAllBytes(start == 0 ? snapshot : alternate)));
+        }
+
+        RemoteChatService third = new RemoteChatService(new InetSocketAddress("localhost", server.getPort()), 5000, snapshot);
+        server.close();
+        assertEquals(3, third.getChatRoomHistory(roomId).count());
+        third.close();
+    }
+
+    @Test
+    public void testCorruptSnapshotIsDiscarded() throws Exception {
+        Path snapshot = folder.getRoot().toPath().resolve("alice.snapshot");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(bytes);
+        header.writeUTF("server");
+        header.writeUTF("Alice");
+        header.writeInt(0);   // Benutzer
+        header.writeInt(-5);  // Kontakte: negative Anzahl
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(snapshot))) {
+            out.writeInt(0x43534E50);
+            out.writeInt(2);
+            out.writeLong(1);
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+        }
+
+        RemoteChatService restarted = new RemoteChatService(new InetSocketAddress("localhost", server.getPort()), 5000, snapshot);
+        try {
+            assertTrue(restarted.getUserContacts("Alice").isEmpty()); // Startet ohne Snapshot
+        } finally {
+            restarted.close();
+        }
+    }
+
+    @Test
+    public void testSnapshotCatchesUpInBackground() throws Exception {
+        Path snapshot = folder.getRoot().toPath().resolve("alice.snapshot");
+        int roomId = firstSession(snapshot);
+        bob.sendMessage(roomId, "Bob", "Verpasst 1");
+        bob.sendMessage(roomId, "Bob", "Verpasst 2");
+
+        RemoteChatService restarted = new RemoteChatService(new InetSocketAddress("localhost", server.getPort()), 5000, snapshot);
+        try {
+            MessageStore history = restarted.getChatRoomHistory(roomId);
+            assertTrue(history.count() >= 3); // Snapshot sofort, der Rest folgt
+            await(() -> history.count() == 5);
+            assertEquals("Nachricht 0", history.get(history.firstSequence()).getContent());
+            assertEquals("Verpasst 2", history.get(history.nextSequence() - 1).getContent());
+
+            alice.createGruppenRoom("Alice", "Neu", "Nach dem Snapshot");
+            await(() -> restarted.getAllChatsForUser("Alice").size() == 2);
+        } finally {
+            restarted.close();
+        }
+    }
+
+    @Test
+    public void testSnapshotIsDroppedAfterGap() throws Exception {
+        Path snapshot = folder.getRoot().toPath().resolve("alice.snapshot");
+        int roomId = firstSession(snapshot);
+        int missed = RemoteChatService.RECENT_MESSAGES + 10;
+        for (int i = 0; i < missed; i++) bob.sendMessage(roomId, "Bob", "Verpasst " + i);
+
+        RemoteChatService restarted = new RemoteChatService(new InetSocketAddress("localhost", server.getPort()), 5000, snapshot);
+        try {
+            MessageStore history = restarted.getChatRoomHistory(roomId);
+            await(() -> history.count() == RemoteChatService.RECENT_MESSAGES
+                    && "Verpasst 10".equals(history.get(history.firstSequence()).getContent()));
+            assertEquals("Verpasst " + (missed - 1), history.get(history.nextSequence() - 1).getContent());
+        } finally {
+            restarted.close();
+        }
+    }
+}
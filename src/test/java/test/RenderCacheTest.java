@@ -0,0 +1,55 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleSupplier;
+
+import org.junit.Test;
+
+import domain.Message;
+import domain.User;
+import ui.RenderCache;
+
+public class RenderCacheTest {
+
+    private static DoubleSupplier measure(AtomicInteger counter, double height) {
+        return () -> {
+            counter.incrementAndGet();
+            return height;
+        };
+    }
+
+    @Test
+    public void testBubbleMeasuredOncePerWidth() {
+        RenderCache cache = new RenderCache();
+        Message message = new Message(new User("Alice"), "Hallo");
+        AtomicInteger measured = new AtomicInteger();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(42.0, cache.bubbleHeight(message, 300, false, measure(measured, 42.0)), 0);
+        }
+        cache.bubbleHeight(message, 500, false, measure(measured, 30.0));
+        cache.bubbleHeight(message, 500, true, measure(measured, 50.0));
+
+        assertEquals(3, measured.get());
+        assertEquals(9.0 / 12, cache.getLayoutHitRate(), 0.0001);
+    }
+
+    @Test
+    public void testLayoutCacheEvictsOldestEntries() {
+        RenderCache cache = new RenderCache(0, 64 * 10);
+        User alice = new User("Alice");
+        Message first = new Message(alice, "m0");
+        cache.bubbleHeight(first, 300, false, () -> 20.0);
+        for (int i = 1; i <= 10; i++) {
+            cache.bubbleHeight(new Message(alice, "m" + i), 300, false, () -> 20.0);
+        }
+
+        assertEquals(1, cache.getLayoutEvictions());
+        assertTrue(cache.getResidentBytes() <= 64 * 10);
+        AtomicInteger measured = new AtomicInteger();
+        cache.bubbleHeight(first, 300, false, measure(measured, 20.0));
+        assertEquals(1, measured.get()); // Wurde verdrängt und neu gemessen
+    }
+}
@@ -0,0 +1,105 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import domain.*;
+import store.InMemoryMessageStore;
+import store.MappedSegmentStore;
+import store.MessageStore;
+import store.RetentionPolicy;
+import store.RetentionSweeper;
+
+public class RetentionSweeperTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Clock clock = Clock.fixed(Instant.parse("2024-01-01T12:00:00Z"), ZoneId.systemDefault());
+
+    private RetentionSweeper sweeper(int batchSize) {
+        return new RetentionSweeper(clock, Duration.ofSeconds(1), Duration.ofSeconds(10), batchSize);
+    }
+
+    @Test
+    public void testMaxMessagesTrimsInBatches() {
+        User alice = new User("Alice");
+        MessageStore store = new InMemoryMessageStore();
+        for (int i = 0; i < 100; i++) store.append(new Message(alice, "m" + i));
+
+        RetentionSweeper sweeper = sweeper(10);
+        sweeper.register(store);
+        sweeper.setGlobalPolicy(RetentionPolicy.maxMessages(30));
+
+        assertEquals(70, sweeper.sweepOnce());
+        assertEquals(30, store.count());
+        assertEquals("m70", store.get(store.firstSequence()).getContent());
+    }
+
+    @Test
+    public void testRoomPolicyOverridesGlobal() {
+        User alice = new User("Alice");
+        MessageStore strict = new InMemoryMessageStore();
+        MessageStore loose = new InMemoryMessageStore();
+        for (int i = 0; i < 10; i++) {
+            strict.append(new Message(alice, "s" + i));
+            loose.append(new Message(alice, "l" + i));
+        }
+
+        RetentionSweeper sweeper = sweeper(100);
+        sweeper.register(strict);
+        sweeper.register(loose);
+        sweeper.setRoomPolicy(strict, RetentionPolicy.maxMessages(2));
+        sweeper.sweepOnce();
+
+        assertEquals(2, strict.count());
+        assertEquals(10, loose.count());
+    }
+
+    @Test
+    public void testMaxAgeAndTtl() {
+        User alice = new User("Alice");
+        LocalDateTime now = LocalDateTime.now(clock);
+        MessageStore store = new InMemoryMessageStore();
+        store.append(new Message(alice, "alt", MessageType.TEXT, now.minusHours(5)));
+        store.append(new Message(alice, "neu", MessageType.TEXT, now.minusMinutes(5)));
+        long ephemeral = store.append(new Message(alice, "geheim", MessageType.TEXT, now));
+
+        RetentionSweeper sweeper = sweeper(100);
+        sweeper.register(store);
+        sweeper.setGlobalPolicy(RetentionPolicy.maxAge(Duration.ofHours(1)));
+        sweeper.scheduleExpiry(store, ephemeral, now.minusSeconds(1));
+
+        assertEquals(2, sweeper.sweepOnce());
+        assertEquals(1, store.count());
+        assertEquals("neu", store.view().get(0).getContent());
+    }
+
+    @Test
+    public void testReleasesEmptySegments() {
+        User alice = new User("Alice");
+        try (MappedSegmentStore segments = new MappedSegmentStore(folder.getRoot().toPath(), 64, id -> alice)) {
+            MessageStore store = segments.open("chat-1");
+            for (int i = 0; i < 20; i++) store.append(new Message(alice, "m" + i));
+            int before = segments.getSegmentCount();
+
+            RetentionSweeper sweeper = sweeper(100);
+            sweeper.register(store);
+            sweeper.setGlobalPolicy(RetentionPolicy.maxMessages(1));
+            sweeper.sweepOnce();
+
+            assertEquals(1, store.count());
+            assertTrue(segments.getSegmentCount() < before);
+            assertEquals(1, folder.getRoot().list().length);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import domain.*;
+import store.HistoryMetrics;
+import store.MappedSegmentStore;
+import store.MessageStore;
+import store.TieredHistoryStore;
+
+public class TieredHistoryStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRecentMessagesServedFromHotTail() {
+        User alice = new User("Alice");
+        try (TieredHistoryStore store = new TieredHistoryStore(
+                new MappedSegmentStore(folder.getRoot().toPath(), id -> alice), 5, 1024 * 1024)) {
+            MessageStore history = store.open("chat-1");
+            Message last = null;
+            for (int i = 0; i < 20; i++) {
+                last = new Message(alice, "m" + i);
+                history.append(last);
+            }
+
+            assertSame(last, history.get(19));
+            assertEquals(0, store.getMetrics().getColdLoads());
+        }
+    }
+
+    @Test
+    public void testOlderMessagesLoadedOnceThroughCache() {
+        User alice = new User("Alice");
+        try (TieredHistoryStore store = new TieredHistoryStore(
+                new MappedSegmentStore(folder.getRoot().toPath(), id -> alice), 5, 1024 * 1024)) {
+            MessageStore history = store.open("chat-1");
+            for (int i = 0; i < 20; i++) {
+                history.append(new Message(alice, "m" + i));
+            }
+
+            assertEquals("m3", history.get(3).getContent());
+            assertEquals("m3", history.get(3).getContent());
+
+            HistoryMetrics metrics = store.getMetrics();
+            assertEquals(1, metrics.getColdLoads());
+            assertEquals(0.5, metrics.getHitRate(), 0.0001);
+            assertTrue(metrics.getResidentBytes() > 0);
+        }
+    }
+
+    @Test
+    public void testCacheStaysWithinBudget() {
+        User alice = new User("Alice");
+        try (TieredHistoryStore store = new TieredHistoryStore(
+                new MappedSegmentStore(folder.getRoot().toPath(), id -> alice), 0, 1000)) {
+            MessageStore history = store.open("group-1");
+            for (int i = 0; i < 100; i++) {
+                history.append(new Message(alice, "m" + i));
+            }
+            for (int i = 0; i < 100; i++) {
+                history.get(i);
+            }
+
+            assertTrue(store.getMetrics().getResidentBytes() <= 1000);
+        }
+    }
+
+    @Test
+    public void testCacheKeysDoNotCollideAcrossRooms() {
+        User alice = new User("Alice");
+        long high = 1L << 32;
+        try (TieredHistoryStore store = new TieredHistoryStore(
+                key -> new OffsetStore(key.equals("chat-1") ? high : 0, new Message(alice, key)), 0, 1024 * 1024)) {
+            MessageStore first = store.open("chat-1");
+            MessageStore second = store.open("chat-2");
+
+            assertEquals("chat-1", first.get(high).getContent()); // Landet im Cache
+            assertEquals("chat-2", second.get(0).getContent());
+        }
+    }
+
+    /**
+     * Verlauf mit genau einer Nachricht an einer frei wählbaren Sequenz.
+     */
+    private static final class OffsetStore implements MessageStore {
+        private final long seq;
+        private final Message message;
+
+        OffsetStore(long seq, Message message) {
+            this.seq = seq;
+            this.message = message;
+        }
+
+        @Override
+        public long append(Message message) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Message get(long seq) {
+            return seq == this.seq ? message : null;
+        }
+
+        @Override
+        public boolean contains(long seq) {
+            return seq == this.seq;
+        }
+
+        @Override
+        public long firstSequence() {
+            return seq;
+        }
+
+        @Override
+        public long nextSequence() {
+            return seq + 1;
+        }
+
+        @Override
+        public long count() {
+            return 1;
+        }
+
+        @Override
+        public boolean delete(long seq) {
+            return false;
+        }
+
+        @Override
+        public long deleteBefore(long seq) {
+            return 0;
+        }
+    }
+}
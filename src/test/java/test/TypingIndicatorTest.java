@@ -0,0 +1,86 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.Test;
+
+import client.TypingThrottle;
+import server.TimerWheel;
+import server.TypingTracker;
+
+public class TypingIndicatorTest {
+
+    @Test
+    public void testTimerWheelExpiresAfterDelay() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 4, 0);
+        wheel.schedule("kurz", 20);
+        wheel.schedule("lang", 95); // Mehr als eine Umdrehung
+
+        assertTrue(wheel.advance(10).isEmpty());
+        assertEquals(List.of("kurz"), wheel.advance(20));
+        assertTrue(wheel.advance(90).isEmpty());
+        assertEquals(List.of("lang"), wheel.advance(100));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testTrackerCoalescesAndExtends() {
+        TypingTracker tracker = new TypingTracker(1000, 100, 0);
+        assertTrue(tracker.onTyping("group-1", "Alice", 0));
+        assertFalse(tracker.onTyping("group-1", "Alice", 500)); // Nur verlängert
+        assertTrue(tracker.onTyping("group-1", "Bob", 500));
+
+        assertTrue(tracker.expire(1000).isEmpty());      // Alice wurde verlängert
+        List<TypingTracker.Indicator> expired = tracker.expire(1500);
+        assertEquals(2, expired.size());
+        assertEquals(0, tracker.getActiveCount());
+    }
+
+    @Test
+    public void testTrackerStopsOnSend() {
+        TypingTracker tracker = new TypingTracker(1000, 100, 0);
+        tracker.onTyping("group-1", "Alice", 0);
+        tracker.onTyping("chat-2", "Alice", 0);
+
+        assertEquals(2, tracker.stopAll("Alice").size());
+        assertTrue(tracker.expire(2000).isEmpty());
+    }
+
+    @Test
+    public void testClientThrottle() {
+        MutableClock clock = new MutableClock();
+        TypingThrottle throttle = new TypingThrottle(clock, Duration.ofSeconds(3));
+
+        assertTrue(throttle.onKeystroke("group-1"));
+        for (int i = 0; i < 20; i++) {
+            clock.millis += 100;
+            assertFalse(throttle.onKeystroke("group-1"));
+        }
+        clock.millis += 1000;
+        assertTrue(throttle.onKeystroke("group-1"));
+        assertEquals(20, throttle.getSuppressed());
+    }
+
+    private static class MutableClock extends Clock {
+        long millis;
+
+        @Override
+        public ZoneOffset getZone() { return ZoneOffset.UTC; }
+
+        @Override
+        public Clock withZone(ZoneId zone) { return this; }
+
+        @Override
+        public Instant instant() { return Instant.ofEpochMilli(millis); }
+
+        @Override
+        public long millis() { return millis; }
+    }
+}
@@ -0,0 +1,70 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javafx.scene.Group;
+import javafx.scene.shape.Rectangle;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import ui.UiMetrics;
+
+public class UiMetricsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testQueueLatencyAndSections() {
+        UiMetrics metrics = new UiMetrics();
+        List<Runnable> queue = new ArrayList<>();
+        List<String> ran = new ArrayList<>();
+
+        metrics.measureQueue(queue::add).execute(() -> ran.add("task"));
+        metrics.time("refreshLists", () -> ran.add("refresh"));
+        queue.remove(0).run();
+
+        assertEquals(List.of("refresh", "task"), ran);
+        assertEquals(1, metrics.getTiming(UiMetrics.QUEUE).getCount());
+        assertEquals(1, metrics.getTiming("refreshLists").getCount());
+        assertNull(metrics.getTiming(UiMetrics.PULSE));
+    }
+
+    @Test
+    public void testDrainStartsNewWindow() {
+        UiMetrics metrics = new UiMetrics();
+        metrics.record("refreshLists", 2_000_000);
+        metrics.updateNodeCount(new Group(new Rectangle(), new Group(new Rectangle())));
+
+        String first = metrics.drain();
+        assertTrue(first.contains("nodes 4"));
+        assertTrue(first.contains("refreshLists"));
+        assertFalse(metrics.drain().contains("refreshLists"));
+        assertEquals(2000, metrics.getTiming("refreshLists").getMaxMicros());
+    }
+
+    @Test
+    public void testTimingsAreRecordedAsJfrEvents() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("ui.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("chat.ui.Timing");
+            recording.start();
+            new UiMetrics().record("loadMessages", 5_000);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertEquals(1, events.size());
+        assertEquals("loadMessages", events.get(0).getString("section"));
+        assertEquals(5_000, events.get(0).getDuration("elapsed").toNanos());
+    }
+}
@@ -0,0 +1,220 @@
+package test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+import domain.Message;
+import domain.UserInfo;
+import fassade.ChatService;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.control.ListView;
+import javafx.scene.control.skin.VirtualFlow;
+import ui.MainView;
+import ui.SidebarSnapshot;
+import ui.UiMetrics;
+
+/**
+ * Szenario-Benchmark für das komplette Hauptfenster. Startet {@link MainView} ohne
+ * Display über Monocle gegen einen vorbefüllten {@link ChatService} mit vielen
+ * Kontakten, Gruppen und langen Verläufen und spielt typische Abläufe durch:
+ * Start, Raum öffnen, Zurückscrollen, Nachrichtenschwall, Profiländerungen der Kontakte
+ * und Gruppe öffnen.
+ *
+ * Pro Szenario werden Frames, Wandzeit, durchschnittliche und p99-Frame-Zeit (CSS,
+ * Layout und Rendern) sowie die in allen Threads allokierten Bytes ausgegeben, dazu
+ * die {@link UiMetrics} des Fensters (runLater-Wartezeit, Refresh-Methoden).
+ *
+ * Start: {@code mvn test-compile exec:java -Dexec.mainClass=test.UiScenarioBenchmark -Dexec.classpathScope=test}
+ * Optionale Argumente: Kontakte, Gruppen, Nachrichten pro Verlauf (Standard 2000 200 50000).
+ * Mit {@code -Dui.maxFrameMs=<ms>} endet der Lauf mit Exit-Code 1, wenn die p99-Frame-Zeit
+ * eines Szenarios darüber liegt, sodass er als Regressionsprüfung im Build laufen kann.
+ */
+public class UiScenarioBenchmark {
+    private static final String ME = "Ich";
+    private static final int WIDTH = 1000;
+    private static final int HEIGHT = 700;
+    private static final int SCROLL_FRAMES = 200;   // Frames beim Zurückscrollen
+    private static final int BURST = 500;           // Eintreffende Nachrichten im Schwall
+    private static final int PROFILE_EDITS = 200;   // Kontakte, die ihr Profil ändern
+    private static final long TIMEOUT_NANOS = 60_000_000_000L;
+
+    private static Scene scene;
+    private static MainView view;
+    private static double worstP99;
+
+    public static void main(String[] args) throws Exception {
+        int contacts = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int groups = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int history = args.length > 2 ? Integer.parseInt(args[2]) : 50_000;
+
+        ChatService service = seed(contacts, groups, history);
+        MessageListBenchmark.startHeadless();
+        try {
+            runScenarios(service, contacts);
+        } finally {
+            service.close();
+            Platform.exit();
+        }
+        String budget = System.getProperty("ui.maxFrameMs");
+        if (budget != null && worstP99 > Double.parseDouble(budget)) {
+            System.out.printf("p99-Frame-Zeit %.2f ms über Budget %s ms%n", worstP99, budget);
+            System.exit(1);
+        }
+    }
+
+    private static void runScenarios(ChatService service, int contacts) throws InterruptedException {
+        UiMetrics metrics = new UiMetrics();
+
+        System.out.printf("%-12s %8s %10s %10s %10s %10s%n", "szenario", "frames", "wand ms", "avg ms", "p99 ms", "alloc MB");
+
+        run("start", metrics, () -> {
+            view = new MainView(ME, service, metrics);
+            scene = new Scene(view, WIDTH, HEIGHT);
+            metrics.install(scene);
+        }, () -> list("#contact-list").getItems().size() == contacts);
+
+        String partner = "Kontakt0";
+        run("raum", metrics, () -> select("#contact-list", item -> partner.equals(((SidebarSnapshot.Contact) item).getUsername())),
+                () -> list("#message-list").getItems().size() > 0);
+
+        int[] frames = {0};
+        run("scroll", metrics, () -> { }, () -> {
+            VirtualFlow<?> flow = (VirtualFlow<?>) list("#message-list").lookup(".virtual-flow");
+            flow.scrollPixels(-300); // Etwa eine halbe Seite pro Frame, lädt ältere Seiten nach
+            return ++frames[0] >= SCROLL_FRAMES;
+        });
+
+        String last = "Schwall " + (BURST - 1);
+        int roomId = service.createChatRoom(ME, partner);
+        run("schwall", metrics, () -> {
+            list("#message-list").scrollTo(list("#message-list").getItems().size() - 1);
+            Thread sender = new Thread(() -> {
+                for (int i = 0; i < BURST; i++) service.sendMessage(roomId, partner, "Schwall " + i);
+            }, "burst");
+            sender.start();
+        }, () -> {
+            ListView<?> messages = list("#message-list");
+            int size = messages.getItems().size();
+            return size > 0 && last.equals(((Message) messages.getItems().get(size - 1)).getContent());
+        });
+
+        run("profile", metrics, () -> {
+            Thread editor = new Thread(() -> {
+                for (int i = 0; i < PROFILE_EDITS; i++) {
+                    String name = "Kontakt" + i;
+                    service.updateUserProfile(name, name, UserInfo.CUSTOM, "Beschäftigt " + i);
+                }
+            }, "profile-edits");
+            editor.start();
+        }, () -> {
+            String name = "Kontakt" + (PROFILE_EDITS - 1);
+            return list("#contact-list").getItems().stream()
+                    .map(item -> (SidebarSnapshot.Contact) item)
+                    .anyMatch(c -> c.getUsername().equals(name) && ("Beschäftigt " + (PROFILE_EDITS - 1)).equals(c.getStatusText()));
+        });
+
+        run("gruppe", metrics, () -> select("#group-list", item -> "Gruppe 0".equals(((SidebarSnapshot.Group) item).getName())), () -> {
+            ListView<?> messages = list("#message-list");
+            return messages.getItems().size() > 0
+                    && ((Message) messages.getItems().get(0)).getContent().startsWith("Gruppe");
+        });
+    }
+
+    /**
+     * Legt den Benutzer, seine Kontakte, Gruppen und je einen langen privaten und
+     * Gruppenverlauf an.
+     */
+    private static ChatService seed(int contacts, int groups, int history) {
+        ChatService service = new ChatService();
+        service.createUser(ME);
+        for (int i = 0; i < contacts; i++) {
+            service.createUser("Kontakt" + i);
+            service.addContact("Kontakt" + i, ME);
+        }
+        int firstGroup = -1;
+        for (int i = 0; i < groups; i++) {
+            int groupId = service.createGruppenRoom(ME, "Gruppe " + i, "Benchmark");
+            if (firstGroup < 0) firstGroup = groupId;
+        }
+        for (int i = 1; i <= Math.min(contacts, 50); i++) {
+            service.addParticipantToGroup(firstGroup, ME, "Kontakt" + i);
+        }
+
+        int roomId = service.createChatRoom(ME, "Kontakt0");
+        for (int i = 0; i < history; i++) {
+            service.sendMessage(roomId, i % 3 == 0 ? ME : "Kontakt0", "Nachricht Nummer " + i + " mit etwas Inhalt");
+            service.sendGroupMessage(firstGroup, i % 3 == 0 ? ME : "Kontakt" + (1 + i % 50), "Gruppe " + i);
+        }
+        return service;
+    }
+
+    /**
+     * Führt die Aktion auf dem FX-Thread aus und rendert danach Frames, bis die
+     * Bedingung erfüllt ist. Gemessen wird jeder Frame einzeln.
+     */
+    private static void run(String name, UiMetrics metrics, Runnable action, BooleanSupplier done) throws InterruptedException {
+        long[] frameNanos = new long[16];
+        int frames = 0;
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        MessageListBenchmark.runOnFx(action);
+
+        AtomicBoolean finished = new AtomicBoolean();
+        AtomicReference<Long> frameTime = new AtomicReference<>();
+        while (!finished.get()) {
+            if (System.nanoTime() - start > TIMEOUT_NANOS) {
+                throw new IllegalStateException("Szenario hängt: " + name);
+            }
+            MessageListBenchmark.runOnFx(() -> {
+                long t = System.nanoTime();
+                MessageListBenchmark.frame(scene);
+                frameTime.set(System.nanoTime() - t);
+                finished.set(done.getAsBoolean());
+            });
+            if (frames == frameNanos.length) frameNanos = Arrays.copyOf(frameNanos, frames * 2);
+            frameNanos[frames++] = frameTime.get();
+        }
+
+        double wall = (System.nanoTime() - start) / 1e6;
+        long[] sorted = Arrays.copyOf(frameNanos, frames);
+        Arrays.sort(sorted);
+        double avg = Arrays.stream(sorted).average().orElse(0) / 1e6;
+        double p99 = sorted[(int) Math.min(frames - 1, Math.round(0.99 * (frames - 1)))] / 1e6;
+        worstP99 = Math.max(worstP99, p99);
+        System.out.printf("%-12s %8d %10.1f %10.2f %10.2f %10.1f%n", name, frames, wall, avg, p99,
+                (allocatedBytes() - allocated) / (1024.0 * 1024.0));
+        System.out.println("    " + metrics.drain().replace(System.lineSeparator(), System.lineSeparator() + "    "));
+    }
+
+    private static ListView<?> list(String id) {
+        return (ListView<?>) view.lookup(id);
+    }
+
+    private static void select(String id, Predicate<Object> item) {
+        ListView<?> list = list(id);
+        for (int i = 0; i < list.getItems().size(); i++) {
+            if (item.test(list.getItems().get(i))) {
+                list.getSelectionModel().select(i);
+                return;
+            }
+        }
+        throw new IllegalStateException("Eintrag nicht gefunden in " + id);
+    }
+
+    /**
+     * Summiert die bisher allokierten Bytes aller lebenden Threads.
+     */
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long sum = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (bytes > 0) sum += bytes;
+        }
+        return sum;
+    }
+}